@@ -0,0 +1,90 @@
+package tn.weeding.agenceevenementielle.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import tn.weeding.agenceevenementielle.config.JwtUtil;
+import tn.weeding.agenceevenementielle.entities.LigneReservation;
+import tn.weeding.agenceevenementielle.entities.Produit;
+import tn.weeding.agenceevenementielle.entities.Reservation;
+import tn.weeding.agenceevenementielle.services.Reservation.DateReservationValidator;
+import tn.weeding.agenceevenementielle.services.Reservation.MontantReservationCalculService;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculs sans base de données : montants, validation des dates et lecture d'un jeton JWT.
+ * Les composants sont instanciés directement, sans contexte Spring.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CalculBenchmark {
+
+    private MontantReservationCalculService montantCalcul;
+    private DateReservationValidator dateValidator;
+    private JwtUtil jwtUtil;
+
+    private Reservation reservationDixLignes;
+    private LocalDate dateDebut;
+    private LocalDate dateFin;
+    private String jeton;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        montantCalcul = new MontantReservationCalculService();
+        dateValidator = new DateReservationValidator();
+
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", "supercleSecretePourJWTsupercleSecretePourJWT");
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 86400000);
+        jwtUtil.init();
+        jeton = jwtUtil.generateToken("client.benchmark@test.tn");
+
+        dateDebut = LocalDate.now().plusDays(30);
+        dateFin = dateDebut.plusDays(3);
+
+        reservationDixLignes = new Reservation();
+        reservationDixLignes.setReferenceReservation("BRES-CALCUL");
+        reservationDixLignes.setRemisePourcentage(10.0);
+        Set<LigneReservation> lignes = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            Produit produit = new Produit();
+            produit.setNomProduit("Produit " + i);
+            LigneReservation ligne = new LigneReservation();
+            ligne.setProduit(produit);
+            ligne.setQuantite(1 + i);
+            ligne.setPrixUnitaire(12.5 * (i + 1));
+            ligne.setDateDebut(dateDebut);
+            ligne.setDateFin(dateFin.plusDays(i % 3));
+            lignes.add(ligne);
+        }
+        reservationDixLignes.setLigneReservations(lignes);
+    }
+
+    @Benchmark
+    public MontantReservationCalculService.DetailMontantsDto montants_devisDixLignes() {
+        return montantCalcul.calculerDetailMontants(reservationDixLignes);
+    }
+
+    @Benchmark
+    public LocalDate validerPeriodeReservation() {
+        dateValidator.validerPeriodeReservation(dateDebut, dateFin, "benchmark");
+        return dateFin;
+    }
+
+    @Benchmark
+    public String jwt_getUserFromToken() {
+        return jwtUtil.getUserFromToken(jeton);
+    }
+
+    @Benchmark
+    public boolean jwt_validateJwtToken() {
+        return jwtUtil.validateJwtToken(jeton);
+    }
+}
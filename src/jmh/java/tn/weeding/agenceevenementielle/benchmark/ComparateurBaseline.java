@@ -0,0 +1,109 @@
+package tn.weeding.agenceevenementielle.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compare les résultats JMH (format JSON) à la baseline versionnée.
+ *
+ * Usage : ComparateurBaseline resultats.json baseline.json [tolerance] [bloquant]
+ * - tolerance : écart relatif toléré (0.25 = 25 % plus lent), 0.25 par défaut
+ * - bloquant : true pour faire échouer le build en cas de régression, false par défaut
+ * - modes avgt / sample / ss : plus petit = meilleur ; thrpt : plus grand = meilleur
+ *
+ * Les scores sont des temps absolus : ils ne sont comparables que mesurés sur la même machine
+ * et la même JVM que la baseline. Par défaut la comparaison est donc indicative ; le mode bloquant
+ * (code de sortie 1 si au moins un benchmark régresse) suppose une baseline régénérée sur la
+ * machine qui l'applique. Un benchmark absent de la baseline est signalé sans faire échouer la comparaison.
+ */
+public class ComparateurBaseline {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage : ComparateurBaseline <resultats.json> <baseline.json> [tolerance]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+        boolean bloquant = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        Map<String, Mesure> resultats = lire(new File(args[0]));
+        Map<String, Mesure> baseline = lire(new File(args[1]));
+
+        String jvmMesure = jvm(resultats);
+        String jvmBaseline = jvm(baseline);
+        if (!jvmMesure.equals(jvmBaseline)) {
+            System.out.printf("⚠️ JVM différente de la baseline (%s / %s) : écarts non significatifs%n",
+                    jvmMesure, jvmBaseline);
+        }
+
+        int regressions = 0;
+        System.out.printf("%-75s %14s %14s %9s%n", "Benchmark", "Baseline", "Mesure", "Écart");
+        for (Map.Entry<String, Mesure> entree : resultats.entrySet()) {
+            Mesure mesure = entree.getValue();
+            Mesure reference = baseline.get(entree.getKey());
+            if (reference == null) {
+                System.out.printf("%-75s %14s %14.3f %9s  (nouveau)%n", entree.getKey(), "-", mesure.score, "-");
+                continue;
+            }
+
+            // Écart positif = plus lent que la baseline
+            double ecart = mesure.plusPetitEstMeilleur()
+                    ? (mesure.score - reference.score) / reference.score
+                    : (reference.score - mesure.score) / reference.score;
+            boolean regression = ecart > tolerance;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-75s %14.3f %14.3f %+8.1f%%%s%n", entree.getKey(), reference.score, mesure.score,
+                    ecart * 100, regression ? "  ❌ RÉGRESSION" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("❌ %d benchmark(s) au-delà de la tolérance de %.0f %%%n", regressions, tolerance * 100);
+            if (bloquant) {
+                System.exit(1);
+            }
+            System.out.println("ℹ️ Comparaison indicative (-Dbenchmark.bloquant=true pour faire échouer le build)");
+            return;
+        }
+        System.out.printf("✅ Aucune régression au-delà de %.0f %%%n", tolerance * 100);
+    }
+
+    private static Map<String, Mesure> lire(File fichier) throws IOException {
+        Map<String, Mesure> mesures = new LinkedHashMap<>();
+        for (JsonNode noeud : new ObjectMapper().readTree(fichier)) {
+            JsonNode metrique = noeud.get("primaryMetric");
+            // Un résultat par jeu de @Param : {"tailleLot":"50"} fait partie de la clé
+            JsonNode params = noeud.get("params");
+            String nom = noeud.get("benchmark").asText() + (params != null ? params.toString() : "");
+            mesures.put(nom, new Mesure(noeud.get("mode").asText(), metrique.get("score").asDouble(),
+                    noeud.path("vmName").asText() + " " + noeud.path("vmVersion").asText()));
+        }
+        return mesures;
+    }
+
+    private static String jvm(Map<String, Mesure> mesures) {
+        return mesures.values().stream().findFirst().map(mesure -> mesure.jvm).orElse("?");
+    }
+
+    private static final class Mesure {
+        private final String mode;
+        private final double score;
+        private final String jvm;
+
+        private Mesure(String mode, double score, String jvm) {
+            this.mode = mode;
+            this.score = score;
+            this.jvm = jvm;
+        }
+
+        private boolean plusPetitEstMeilleur() {
+            return !"thrpt".equals(mode);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package tn.weeding.agenceevenementielle.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.AgenceEvenementielleApplication;
+import tn.weeding.agenceevenementielle.entities.*;
+import tn.weeding.agenceevenementielle.entities.enums.*;
+import tn.weeding.agenceevenementielle.repository.ProduitRepository;
+import tn.weeding.agenceevenementielle.repository.ReservationRepository;
+import tn.weeding.agenceevenementielle.repository.UtilisateurRepository;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationIndexService;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Application complète démarrée sur une base H2 (mode MySQL) et peuplée
+ * avec des volumes proches de la production :
+ * - 300 produits (250 EN_QUANTITE, 50 AVEC_REFERENCE de 8 instances)
+ * - 200 clients
+ * - 4000 réservations de 3 lignes réparties sur l'année à venir (70 % confirmées)
+ *
+ * Une instance par fork JMH (Scope.Benchmark), partagée par les benchmarks de la classe.
+ */
+@State(Scope.Benchmark)
+public class EtatApplication {
+
+    static final int PRODUITS_QUANTITE = 250;
+    static final int PRODUITS_REFERENCE = 50;
+    static final int INSTANCES_PAR_PRODUIT = 8;
+    static final int CLIENTS = 200;
+    static final int RESERVATIONS = 4000;
+    static final int LIGNES_PAR_RESERVATION = 3;
+    private static final int TAILLE_LOT = 250;
+
+    ConfigurableApplicationContext contexte;
+    List<Long> idsProduitsQuantite;
+    List<Long> idsProduitsReference;
+    List<Long> idsReservations;
+    LocalDate aujourdhui;
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        // Arguments de ligne de commande : prioritaires sur application.properties
+        // (SpringApplicationBuilder.properties ne fournit que des valeurs par défaut)
+        contexte = new SpringApplicationBuilder(AgenceEvenementielleApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect",
+                        "--spring.data.redis.repositories.enabled=false",
+                        "--logging.file.name=",
+                        "--logging.level.root=WARN",
+                        "--logging.level.tn.weeding.agenceevenementielle=WARN");
+        aujourdhui = LocalDate.now();
+        peupler();
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        if (contexte != null) {
+            contexte.close();
+        }
+    }
+
+    <T> T bean(Class<T> type) {
+        return contexte.getBean(type);
+    }
+
+    // ============================================
+    // JEU DE DONNÉES
+    // ============================================
+
+    private void peupler() {
+        TransactionTemplate tx = new TransactionTemplate(bean(PlatformTransactionManager.class));
+        ProduitRepository produitRepo = bean(ProduitRepository.class);
+        UtilisateurRepository utilisateurRepo = bean(UtilisateurRepository.class);
+        ReservationRepository reservationRepo = bean(ReservationRepository.class);
+        Random aleatoire = new Random(42);
+
+        List<Produit> produits = tx.execute(status -> {
+            List<Produit> crees = new ArrayList<>();
+            for (int i = 0; i < PRODUITS_QUANTITE; i++) {
+                crees.add(produitRepo.save(produit("BQ-" + i, TypeProduit.EN_QUANTITE, 50 + aleatoire.nextInt(450))));
+            }
+            for (int i = 0; i < PRODUITS_REFERENCE; i++) {
+                Produit produit = produit("BR-" + i, TypeProduit.AVEC_REFERENCE, INSTANCES_PAR_PRODUIT);
+                for (int j = 0; j < INSTANCES_PAR_PRODUIT; j++) {
+                    produit.getInstances().add(InstanceProduit.builder()
+                            .numeroSerie("BR-" + i + "-" + j)
+                            .produit(produit)
+                            .statut(StatutInstance.DISPONIBLE)
+                            .build());
+                }
+                crees.add(produitRepo.save(produit));
+            }
+            return crees;
+        });
+        idsProduitsQuantite = produits.stream()
+                .filter(p -> p.getTypeProduit() == TypeProduit.EN_QUANTITE)
+                .map(Produit::getIdProduit).toList();
+        idsProduitsReference = produits.stream()
+                .filter(p -> p.getTypeProduit() == TypeProduit.AVEC_REFERENCE)
+                .map(Produit::getIdProduit).toList();
+
+        List<Utilisateur> clients = tx.execute(status -> {
+            List<Utilisateur> crees = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                Utilisateur client = new Utilisateur();
+                client.setCodeUtilisateur("BCL-" + i);
+                client.setPseudo("bench" + i);
+                client.setNom("Client" + i);
+                client.setPrenom("Bench");
+                client.setEmail("bench" + i + "@test.tn");
+                client.setEtatCompte(StatutCompte.ACTIVE);
+                client.setActivationCompte(true);
+                crees.add(utilisateurRepo.save(client));
+            }
+            return crees;
+        });
+
+        idsReservations = new ArrayList<>(RESERVATIONS);
+        for (int lot = 0; lot < RESERVATIONS; lot += TAILLE_LOT) {
+            int debutLot = lot;
+            idsReservations.addAll(tx.execute(status -> {
+                List<Long> ids = new ArrayList<>();
+                for (int i = debutLot; i < Math.min(debutLot + TAILLE_LOT, RESERVATIONS); i++) {
+                    Reservation reservation = reservation(i, clients.get(aleatoire.nextInt(CLIENTS)),
+                            produits, aleatoire);
+                    ids.add(reservationRepo.save(reservation).getIdReservation());
+                }
+                return ids;
+            }));
+        }
+
+        // Index reconstruit d'un coup plutôt qu'au fil des transactions de peuplement
+        bean(OccupationIndexService.class).chargerAuDemarrage();
+    }
+
+    private Produit produit(String code, TypeProduit type, int quantite) {
+        Produit produit = new Produit();
+        produit.setCodeProduit(code);
+        produit.setNomProduit("Produit " + code);
+        produit.setCategorieProduit(Categorie.values()[Math.abs(code.hashCode()) % Categorie.values().length]);
+        produit.setPrixUnitaire(5.0 + Math.abs(code.hashCode() % 200));
+        produit.setQuantiteInitial(quantite);
+        produit.setQuantiteDisponible(quantite);
+        produit.setTypeProduit(type);
+        produit.setInstances(new HashSet<>());
+        return produit;
+    }
+
+    private Reservation reservation(int numero, Utilisateur client, List<Produit> produits, Random aleatoire) {
+        LocalDate debut = aujourdhui.plusDays(1 + aleatoire.nextInt(360));
+        LocalDate fin = debut.plusDays(aleatoire.nextInt(4));
+        boolean confirmee = aleatoire.nextInt(10) < 7;
+
+        Reservation reservation = new Reservation();
+        reservation.setReferenceReservation("BRES-" + numero);
+        reservation.setStatutReservation(confirmee ? StatutReservation.CONFIRME : StatutReservation.EN_ATTENTE);
+        reservation.setUtilisateur(client);
+        reservation.setDateDebut(debut);
+        reservation.setDateFin(fin);
+
+        Set<LigneReservation> lignes = new HashSet<>();
+        double montant = 0;
+        for (int j = 0; j < LIGNES_PAR_RESERVATION; j++) {
+            Produit produit = produits.get(aleatoire.nextInt(produits.size()));
+            LigneReservation ligne = new LigneReservation();
+            ligne.setProduit(produit);
+            ligne.setPrixUnitaire(produit.getPrixUnitaire());
+            ligne.setDateDebut(debut);
+            ligne.setDateFin(fin);
+            ligne.setReservation(reservation);
+            if (produit.getTypeProduit() == TypeProduit.AVEC_REFERENCE) {
+                ligne.setQuantite(1);
+                if (confirmee) {
+                    List<InstanceProduit> instances = new ArrayList<>(produit.getInstances());
+                    ligne.setInstancesReservees(new HashSet<>(List.of(instances.get(aleatoire.nextInt(instances.size())))));
+                }
+            } else {
+                ligne.setQuantite(1 + aleatoire.nextInt(10));
+            }
+            montant += ligne.getQuantite() * ligne.getPrixUnitaire();
+            lignes.add(ligne);
+        }
+        reservation.setLigneReservations(lignes);
+        reservation.setMontantTotal(montant);
+        reservation.setMontantPaye(0.0);
+        return reservation;
+    }
+}
@@ -0,0 +1,129 @@
+package tn.weeding.agenceevenementielle.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.AgenceEvenementielleApplication;
+import tn.weeding.agenceevenementielle.entities.MouvementStock;
+import tn.weeding.agenceevenementielle.entities.Notification;
+import tn.weeding.agenceevenementielle.entities.Produit;
+import tn.weeding.agenceevenementielle.entities.Utilisateur;
+import tn.weeding.agenceevenementielle.entities.enums.Categorie;
+import tn.weeding.agenceevenementielle.entities.enums.TypeMouvement;
+import tn.weeding.agenceevenementielle.entities.enums.TypeNotification;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+import tn.weeding.agenceevenementielle.repository.MouvementStockRepository;
+import tn.weeding.agenceevenementielle.repository.NotificationRepository;
+import tn.weeding.agenceevenementielle.repository.ProduitRepository;
+import tn.weeding.agenceevenementielle.repository.UtilisateurRepository;
+import tn.weeding.agenceevenementielle.services.Stock.JournalMouvementStockService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit des insertions en masse avec identifiants pooled (SequencesIdentifiant).
+ *
+ * tailleLot = 1 reproduit l'ancien comportement (un aller-retour par ligne, comme avec IDENTITY),
+ * tailleLot = 50 correspond à la configuration de production (hibernate.jdbc.batch_size).
+ * Chaque opération insère LIGNES lignes dans une transaction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertionLotBenchmark {
+
+    private static final int LIGNES = 200;
+
+    @Param({"1", "50"})
+    public int tailleLot;
+
+    private ConfigurableApplicationContext contexte;
+    private TransactionTemplate tx;
+    private NotificationRepository notificationRepo;
+    private MouvementStockRepository mouvementStockRepo;
+    private JournalMouvementStockService journalMouvements;
+    private Utilisateur destinataire;
+    private Produit produit;
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        // Arguments de ligne de commande : prioritaires sur application.properties
+        contexte = new SpringApplicationBuilder(AgenceEvenementielleApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:insertion" + tailleLot + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect",
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + tailleLot,
+                        "--spring.data.redis.repositories.enabled=false",
+                        "--logging.file.name=",
+                        "--logging.level.root=WARN",
+                        "--logging.level.tn.weeding.agenceevenementielle=WARN");
+
+        tx = new TransactionTemplate(contexte.getBean(PlatformTransactionManager.class));
+        notificationRepo = contexte.getBean(NotificationRepository.class);
+        mouvementStockRepo = contexte.getBean(MouvementStockRepository.class);
+        journalMouvements = contexte.getBean(JournalMouvementStockService.class);
+        destinataire = contexte.getBean(UtilisateurRepository.class).findAll().get(0);
+
+        Produit nouveau = new Produit();
+        nouveau.setCodeProduit("BI-1");
+        nouveau.setNomProduit("Produit insertion");
+        nouveau.setCategorieProduit(Categorie.values()[0]);
+        nouveau.setPrixUnitaire(10.0);
+        nouveau.setQuantiteInitial(1000);
+        nouveau.setQuantiteDisponible(1000);
+        nouveau.setTypeProduit(TypeProduit.EN_QUANTITE);
+        produit = contexte.getBean(ProduitRepository.class).save(nouveau);
+    }
+
+    @TearDown(Level.Iteration)
+    public void vider() {
+        notificationRepo.deleteAllInBatch();
+        mouvementStockRepo.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        if (contexte != null) {
+            contexte.close();
+        }
+    }
+
+    /** Envoi groupé de notifications (saveAll) */
+    @Benchmark
+    public int notifications() {
+        List<Notification> notifications = new ArrayList<>(LIGNES);
+        for (int i = 0; i < LIGNES; i++) {
+            notifications.add(Notification.builder()
+                    .typeNotification(TypeNotification.values()[0])
+                    .titre("Benchmark")
+                    .message("Notification " + i)
+                    .utilisateur(destinataire)
+                    .lue(false)
+                    .build());
+        }
+        return tx.execute(status -> notificationRepo.saveAll(notifications).size());
+    }
+
+    /** Mouvements de stock écrits par le journal au commit */
+    @Benchmark
+    public int mouvementsStock() {
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < LIGNES; i++) {
+                journalMouvements.enregistrer(new MouvementStock(produit, TypeMouvement.RESERVATION, 1,
+                        "Benchmark " + i, "benchmark"));
+            }
+        });
+        return LIGNES;
+    }
+}
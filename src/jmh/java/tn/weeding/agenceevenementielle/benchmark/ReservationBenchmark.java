@@ -0,0 +1,100 @@
+package tn.weeding.agenceevenementielle.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import tn.weeding.agenceevenementielle.dto.reservation.DisponibiliteResponseDto;
+import tn.weeding.agenceevenementielle.dto.reservation.ReservationResponseDto;
+import tn.weeding.agenceevenementielle.dto.reservation.VerificationDisponibiliteDto;
+import tn.weeding.agenceevenementielle.services.Reservation.ReservationServiceInterface;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chemins chauds de la réservation, sur l'application complète et la base peuplée (EtatApplication)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReservationBenchmark {
+
+    private static final int DEMANDES = 1024;
+
+    private ReservationServiceInterface reservationService;
+    private VerificationDisponibiliteDto demandePopulaire;
+    private List<VerificationDisponibiliteDto> demandesVariees;
+    private List<List<VerificationDisponibiliteDto>> devisDixLignes;
+    private List<Long> idsReservations;
+    private int curseur;
+
+    @Setup(Level.Trial)
+    public void preparer(EtatApplication etat) {
+        reservationService = etat.bean(ReservationServiceInterface.class);
+        idsReservations = etat.idsReservations;
+
+        Random aleatoire = new Random(7);
+        List<Long> produits = new ArrayList<>(etat.idsProduitsQuantite);
+        produits.addAll(etat.idsProduitsReference);
+
+        demandePopulaire = demande(etat.idsProduitsQuantite.get(0), 10, etat.aujourdhui.plusDays(60), 2);
+
+        demandesVariees = new ArrayList<>(DEMANDES);
+        for (int i = 0; i < DEMANDES; i++) {
+            demandesVariees.add(demande(produits.get(aleatoire.nextInt(produits.size())), 1 + aleatoire.nextInt(3),
+                    etat.aujourdhui.plusDays(1 + aleatoire.nextInt(360)), aleatoire.nextInt(4)));
+        }
+
+        devisDixLignes = new ArrayList<>(DEMANDES);
+        for (int i = 0; i < DEMANDES; i++) {
+            LocalDate debut = etat.aujourdhui.plusDays(1 + aleatoire.nextInt(360));
+            List<VerificationDisponibiliteDto> devis = new ArrayList<>(10);
+            for (int j = 0; j < 10; j++) {
+                devis.add(demande(produits.get(aleatoire.nextInt(produits.size())), 1, debut, 2));
+            }
+            devisDixLignes.add(devis);
+        }
+    }
+
+    private static VerificationDisponibiliteDto demande(Long idProduit, int quantite, LocalDate debut, int jours) {
+        return VerificationDisponibiliteDto.builder()
+                .idProduit(idProduit)
+                .quantite(quantite)
+                .dateDebut(debut)
+                .dateFin(debut.plusDays(jours))
+                .build();
+    }
+
+    private int suivant() {
+        curseur = (curseur + 1) & (DEMANDES - 1);
+        return curseur;
+    }
+
+    /** Même produit et même période à chaque appel (réponse servie par le cache) */
+    @Benchmark
+    public DisponibiliteResponseDto verifierDisponibilite_periodePopulaire() {
+        return reservationService.verifierDisponibilite(demandePopulaire);
+    }
+
+    /** Produits et périodes tirés au hasard */
+    @Benchmark
+    public DisponibiliteResponseDto verifierDisponibilite_periodesVariees() {
+        return reservationService.verifierDisponibilite(demandesVariees.get(suivant()));
+    }
+
+    /** Vérification en lot d'un devis de 10 lignes */
+    @Benchmark
+    public List<DisponibiliteResponseDto> verifierDisponibilites_devisDixLignes() {
+        return reservationService.verifierDisponibilites(devisDixLignes.get(suivant()));
+    }
+
+    /** Lecture d'une réservation de 3 lignes et conversion en ReservationResponseDto */
+    @Benchmark
+    public ReservationResponseDto getReservationById_conversionDto() {
+        return reservationService.getReservationById(idsReservations.get(suivant() % idsReservations.size()));
+    }
+}
@@ -74,7 +74,10 @@ public class SecurityConfig {
                                           "/error",
                                           "/api/reclamations/create"
 
-                        ).permitAll().anyRequest().authenticated()
+                        ).permitAll()
+                        // Actuator : métriques des tâches planifiées (taches.execution...) réservées aux admins
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+                        .anyRequest().authenticated()
                 )
                 .oauth2Login(oauth2 -> oauth2
                         .successHandler(oauth2LoginSuccessHandler())
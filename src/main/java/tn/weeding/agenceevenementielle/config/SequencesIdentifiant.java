@@ -0,0 +1,118 @@
+package tn.weeding.agenceevenementielle.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * ==========================================
+ * IDENTIFIANTS PAR BLOCS (OPTIMISEUR POOLED)
+ * ==========================================
+ *
+ * Les entités écrites en masse n'utilisent pas IDENTITY (qui désactive le batch JDBC d'Hibernate) :
+ * leurs identifiants viennent de la table sequence_identifiant, une ligne par entité.
+ * Hibernate réserve TAILLE_BLOC identifiants par accès à la table, les INSERT peuvent alors
+ * être regroupés (hibernate.jdbc.batch_size).
+ *
+ * Au démarrage, chaque compteur est recalé au-dessus du plus grand identifiant déjà en base
+ * (lignes créées du temps d'IDENTITY).
+ */
+@Component
+@Slf4j
+public class SequencesIdentifiant {
+
+    public static final String TABLE = "sequence_identifiant";
+    public static final String COLONNE_NOM = "nomSequence";
+    public static final String COLONNE_VALEUR = "valeurSuivante";
+
+    /** Identique à hibernate.jdbc.batch_size : un bloc par lot d'INSERT */
+    public static final int TAILLE_BLOC = 50;
+
+    public static final String LIGNE_RESERVATION = "ligne_reservation";
+    public static final String MOUVEMENT_STOCK = "mouvement_stock";
+    public static final String NOTIFICATION = "notification";
+    public static final String POINTAGE = "pointage";
+    public static final String AFFECTATION_LIVRAISON = "affectation_livraison";
+    public static final String INSTANTANE_STOCK = "instantane_stock";
+    public static final String EMAIL_SORTANT = "email_sortant";
+
+    /**
+     * Séquence → entité JPA et attribut identifiant
+     */
+    private static final List<Sequence> SEQUENCES = List.of(
+            new Sequence(LIGNE_RESERVATION, "LigneReservation", "idLigneReservation"),
+            new Sequence(MOUVEMENT_STOCK, "MouvementStock", "idMouvement"),
+            new Sequence(NOTIFICATION, "Notification", "idNotification"),
+            new Sequence(POINTAGE, "Pointage", "idPointage"),
+            new Sequence(AFFECTATION_LIVRAISON, "AffectationLivraison", "idAffectationLivraison"),
+            new Sequence(INSTANTANE_STOCK, "InstantaneStock", "idInstantane"),
+            new Sequence(EMAIL_SORTANT, "EmailSortant", "idEmail")
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transaction;
+
+    public SequencesIdentifiant(PlatformTransactionManager transactionManager) {
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void recalerAuDemarrage() {
+        for (Sequence sequence : SEQUENCES) {
+            try {
+                transaction.executeWithoutResult(status -> recaler(sequence));
+            } catch (Exception e) {
+                log.warn("⚠️ Recalage de la séquence {} impossible: {}", sequence.nom(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Avec l'optimiseur pooled, la valeur stockée est la borne haute du prochain bloc :
+     * elle doit valoir au moins max(id) + TAILLE_BLOC pour que le bloc commence après max(id)
+     */
+    private void recaler(Sequence sequence) {
+        Number max = (Number) entityManager.createQuery(
+                        "select coalesce(max(e." + sequence.attributId() + "), 0) from " + sequence.entite() + " e")
+                .getSingleResult();
+        if (max.longValue() == 0) {
+            return;
+        }
+        long minimum = max.longValue() + TAILLE_BLOC;
+
+        int modifiees = entityManager.createNativeQuery(
+                        "UPDATE " + TABLE + " SET " + COLONNE_VALEUR + " = ?1 WHERE " + COLONNE_NOM + " = ?2 AND "
+                                + COLONNE_VALEUR + " < ?1")
+                .setParameter(1, minimum)
+                .setParameter(2, sequence.nom())
+                .executeUpdate();
+        if (modifiees > 0) {
+            log.info("🔢 Séquence {} recalée à {}", sequence.nom(), minimum);
+            return;
+        }
+
+        Number existe = (Number) entityManager.createNativeQuery(
+                        "SELECT COUNT(*) FROM " + TABLE + " WHERE " + COLONNE_NOM + " = ?1")
+                .setParameter(1, sequence.nom())
+                .getSingleResult();
+        if (existe.longValue() == 0) {
+            entityManager.createNativeQuery(
+                            "INSERT INTO " + TABLE + " (" + COLONNE_NOM + ", " + COLONNE_VALEUR + ") VALUES (?1, ?2)")
+                    .setParameter(1, sequence.nom())
+                    .setParameter(2, minimum)
+                    .executeUpdate();
+            log.info("🔢 Séquence {} initialisée à {}", sequence.nom(), minimum);
+        }
+    }
+
+    private record Sequence(String nom, String entite, String attributId) {
+    }
+}
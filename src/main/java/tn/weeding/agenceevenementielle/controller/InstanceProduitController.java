@@ -14,7 +14,9 @@ import tn.weeding.agenceevenementielle.config.AuthenticationFacade;
 import tn.weeding.agenceevenementielle.dto.produit.InstanceProduitRequestDto;
 import tn.weeding.agenceevenementielle.dto.produit.InstanceProduitResponseDto;
 import tn.weeding.agenceevenementielle.dto.produit.MouvementStockResponseDto;
+import tn.weeding.agenceevenementielle.dto.produit.SimulationAllocationDto;
 import tn.weeding.agenceevenementielle.entities.enums.StatutInstance;
+import tn.weeding.agenceevenementielle.services.Disponibilite.SimulateurAllocationService;
 import tn.weeding.agenceevenementielle.services.Reservation.InstanceProduitServiceInterface;
 
 import java.time.LocalDate;
@@ -34,6 +36,7 @@ public class InstanceProduitController {
 
     private final InstanceProduitServiceInterface instanceService;
     private final AuthenticationFacade authenticationFacade;
+    private final SimulateurAllocationService simulateurAllocation;
 
     // ============ CRUD DE BASE ============
 
@@ -221,4 +224,17 @@ public class InstanceProduitController {
 
         return ResponseEntity.ok(mouvements);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/allocation/simulation")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Simuler les stratégies d'allocation",
+            description = "Rejoue l'historique des lignes avec référence pour chaque stratégie " +
+                    "et compare taux de rejet et taux d'utilisation des instances")
+    public ResponseEntity<List<SimulationAllocationDto>> simulerAllocation(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate dateDebut,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate dateFin,
+            @RequestParam(required = false, defaultValue = "false") boolean inclureDevisNonConfirmes) {
+        log.info("🧪 Simulation des stratégies d'allocation du {} au {}", dateDebut, dateFin);
+        return ResponseEntity.ok(simulateurAllocation.simuler(dateDebut, dateFin, inclureDevisNonConfirmes));
+    }
+}
@@ -11,16 +11,24 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import tn.weeding.agenceevenementielle.dto.produit.CatalogueDisponibiliteDto;
+import tn.weeding.agenceevenementielle.dto.produit.DisponibiliteCacheStatsDto;
+import tn.weeding.agenceevenementielle.dto.produit.HeatmapDisponibiliteDto;
+import tn.weeding.agenceevenementielle.dto.produit.HistoriqueStockDto;
 import tn.weeding.agenceevenementielle.dto.produit.MouvementStockResponseDto;
 import tn.weeding.agenceevenementielle.dto.produit.ProduitDisponibiliteDto;
 import tn.weeding.agenceevenementielle.dto.produit.ProduitRequestDto;
 import tn.weeding.agenceevenementielle.dto.produit.ProduitResponseDto;
+import tn.weeding.agenceevenementielle.dto.produit.RapportReconciliationDto;
 import tn.weeding.agenceevenementielle.entities.enums.Categorie;
 import tn.weeding.agenceevenementielle.entities.enums.TypeMouvement;
 import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
 import tn.weeding.agenceevenementielle.config.AuthenticationFacade;
 import tn.weeding.agenceevenementielle.exceptions.CustomException;
+import tn.weeding.agenceevenementielle.services.Disponibilite.DisponibiliteCache;
 import tn.weeding.agenceevenementielle.services.ProduitServiceInterface;
+import tn.weeding.agenceevenementielle.services.Stock.InstantaneStockService;
+import tn.weeding.agenceevenementielle.services.Stock.ReconciliationStockService;
 import tn.weeding.agenceevenementielle.services.StockStatistiquesDto;
 
 import java.time.LocalDate;
@@ -44,6 +52,9 @@ public class ProduitController {
 
     private final ProduitServiceInterface produitService;
     private final AuthenticationFacade authenticationFacade;
+    private final DisponibiliteCache disponibiliteCache;
+    private final InstantaneStockService instantaneStockService;
+    private final ReconciliationStockService reconciliationStockService;
 
     // ============================================
     // GESTION DES PRODUITS (CRUD)
@@ -328,16 +339,75 @@ public class ProduitController {
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'EMPLOYE')")
     public ResponseEntity<List<ProduitDisponibiliteDto>> getProduitsAvecDisponibilite(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateDebut,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin,
+            @RequestParam(required = false) Categorie categorie,
+            @RequestParam(required = false) TypeProduit type) {
 
         log.info("📅 Récupération disponibilité pour période: {} à {}", dateDebut, dateFin);
 
         List<ProduitDisponibiliteDto> produits = produitService
-                .getProduitsAvecDisponibilitePourPeriode(dateDebut, dateFin);
+                .getProduitsAvecDisponibilitePourPeriode(dateDebut, dateFin, categorie, type);
 
         return ResponseEntity.ok(produits);
     }
 
+    /**
+     * Même calcul, paginé et filtrable
+     */
+    @GetMapping("/disponibilite-periode/page")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'EMPLOYE')")
+    @Operation(summary = "Catalogue paginé avec disponibilité sur période",
+            description = "Disponibilité de chaque produit sur la période, filtrable par catégorie et type")
+    public ResponseEntity<CatalogueDisponibiliteDto> getCatalogueAvecDisponibilite(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateDebut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin,
+            @RequestParam(required = false) Categorie categorie,
+            @RequestParam(required = false) TypeProduit type,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int taille) {
+
+        log.info("📅 Catalogue disponible pour période: {} à {} (page {})", dateDebut, dateFin, page);
+
+        return ResponseEntity.ok(produitService.getCatalogueDisponibilitePourPeriode(
+                dateDebut, dateFin, categorie, type, page, taille));
+    }
+
+    /**
+     * Calendrier de disponibilité (heatmap) d'un produit ou d'une catégorie
+     */
+    @GetMapping("/disponibilite-heatmap")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'EMPLOYE')")
+    @Operation(summary = "Heatmap de disponibilité",
+            description = "Unités libres jour par jour (365 jours max) pour un produit ou une catégorie")
+    public ResponseEntity<HeatmapDisponibiliteDto> getHeatmapDisponibilite(
+            @RequestParam(required = false) Long idProduit,
+            @RequestParam(required = false) Categorie categorie,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd")
+            @Parameter(description = "Date de début (format: yyyy-MM-dd)") LocalDate dateDebut,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd")
+            @Parameter(description = "Date de fin (format: yyyy-MM-dd)") LocalDate dateFin) {
+
+        log.info("🗓️ Heatmap disponibilité du {} au {}", dateDebut, dateFin);
+
+        return ResponseEntity.ok(produitService.getHeatmapDisponibilite(idProduit, categorie, dateDebut, dateFin));
+    }
+
+    @GetMapping("/disponibilite-cache/statistiques")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Statistiques du cache de disponibilité",
+            description = "Taille, succès/échecs, évictions et invalidations du cache (produit, période)")
+    public ResponseEntity<DisponibiliteCacheStatsDto> getStatistiquesCacheDisponibilite() {
+        return ResponseEntity.ok(disponibiliteCache.getStatistiques());
+    }
+
+    @DeleteMapping("/disponibilite-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Vider le cache de disponibilité")
+    public ResponseEntity<Void> viderCacheDisponibilite() {
+        disponibiliteCache.vider();
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/quantite-minimum")
     @Operation(summary = "Produits avec quantité minimum sur période",
             description = "Filtre les produits ayant au moins la quantité demandée disponible")
@@ -538,4 +608,39 @@ public class ProduitController {
                 produitService.getMouvementsProduitParPeriode(id, debut, fin);
         return ResponseEntity.ok(mouvements);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{id}/historique-stock")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'EMPLOYE')")
+    @Operation(summary = "Courbe de stock d'un produit",
+            description = "Stock disponible, réservé, sorti et en maintenance jour par jour (instantanés quotidiens + mouvements récents). "
+                    + "Les jours antérieurs au premier instantané du produit ne sont pas disponibles")
+    public ResponseEntity<HistoriqueStockDto> getHistoriqueStock(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate dateDebut,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate dateFin) {
+        log.info("📈 Requête de la courbe de stock du produit ID: {} du {} au {}", id, dateDebut, dateFin);
+        return ResponseEntity.ok(instantaneStockService.getHistorique(id, dateDebut, dateFin));
+    }
+
+    @GetMapping("/{id}/stock-au")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'EMPLOYE')")
+    @Operation(summary = "Stock d'un produit à une date",
+            description = "Reconstitué depuis l'instantané le plus proche")
+    public ResponseEntity<HistoriqueStockDto.PointStock> getStockAuJour(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
+        log.info("📈 Requête du stock du produit ID: {} au {}", id, date);
+        return ResponseEntity.ok(instantaneStockService.getStockAuJour(id, date));
+    }
+
+    @PostMapping("/reconciliation")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Réconcilier le stock",
+            description = "Rejoue le journal des mouvements, détecte les écarts de stock et les surréservations. " +
+                    "Avec reparer=true, les écarts des produits avec référence sont corrigés (les autres sont signalés)")
+    public ResponseEntity<RapportReconciliationDto> reconcilierStock(
+            @RequestParam(defaultValue = "false") boolean reparer) {
+        log.info("🔎 Requête de réconciliation du stock (réparation: {})", reparer);
+        return ResponseEntity.ok(reconciliationStockService.reconcilier(reparer));
+    }
+}
@@ -16,6 +16,7 @@ import tn.weeding.agenceevenementielle.dto.reservation.*;
 import tn.weeding.agenceevenementielle.entities.enums.StatutReservation;
 import tn.weeding.agenceevenementielle.exceptions.CustomException;
 import tn.weeding.agenceevenementielle.exceptions.DateValidationException;
+import tn.weeding.agenceevenementielle.services.Disponibilite.BlocageStockService;
 import tn.weeding.agenceevenementielle.services.Reservation.DateReservationValidator;
 import tn.weeding.agenceevenementielle.services.Reservation.LigneReservationModificationDatesService;
 import tn.weeding.agenceevenementielle.services.Reservation.ReservationServiceInterface;
@@ -47,6 +48,7 @@ public class ReservationController {
 
     private final ReservationServiceInterface reservationService;
     private final AuthenticationFacade authenticationFacade;
+    private final BlocageStockService blocageStock;
     private final DateReservationValidator dateReservationValidator;
     private final LigneReservationModificationDatesService modificationDatesService;
 
@@ -88,7 +90,9 @@ public class ReservationController {
     public ResponseEntity<DisponibiliteResponseDto> verifierDisponibilite(
             @Valid @RequestBody VerificationDisponibiliteDto verificationDto) {
 
-        DisponibiliteResponseDto disponibilite = reservationService.verifierDisponibilite(verificationDto);
+        Long idUtilisateur = authenticationFacade.getCurrentUserId();
+        DisponibiliteResponseDto disponibilite = reservationService
+                .verifierDisponibilites(List.of(verificationDto), idUtilisateur).get(0);
         return ResponseEntity.ok(disponibilite);
     }
 
@@ -102,10 +106,44 @@ public class ReservationController {
     public ResponseEntity<List<DisponibiliteResponseDto>> verifierDisponibilites(
             @Valid @RequestBody List<VerificationDisponibiliteDto> verifications) {
 
-        List<DisponibiliteResponseDto> disponibilites = reservationService.verifierDisponibilites(verifications);
+        Long idUtilisateur = authenticationFacade.getCurrentUserId();
+        List<DisponibiliteResponseDto> disponibilites = reservationService.verifierDisponibilites(verifications, idUtilisateur);
         return ResponseEntity.ok(disponibilites);
     }
 
+    /**
+     * 🛒 Bloquer temporairement des unités pendant la constitution du panier
+     */
+    @PostMapping("/blocages")
+    @PreAuthorize("hasRole('CLIENT')")
+    @Operation(summary = "Bloquer du stock pour le panier (CLIENT)",
+            description = "Bloque des unités pendant quelques minutes ; le blocage est consommé à la création du devis")
+    public ResponseEntity<BlocageStockDto> bloquerStock(
+            @Valid @RequestBody VerificationDisponibiliteDto demande) {
+
+        Long idUtilisateur = authenticationFacade.getCurrentUserId();
+        log.info("🛒 Blocage panier demandé par l'utilisateur {} pour le produit {}", idUtilisateur, demande.getIdProduit());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(blocageStock.bloquer(idUtilisateur, demande));
+    }
+
+    @GetMapping("/blocages")
+    @PreAuthorize("hasRole('CLIENT')")
+    @Operation(summary = "Mes blocages de panier (CLIENT)")
+    public ResponseEntity<List<BlocageStockDto>> getMesBlocages() {
+        Long idUtilisateur = authenticationFacade.getCurrentUserId();
+        return ResponseEntity.ok(blocageStock.getMesBlocages(idUtilisateur));
+    }
+
+    @DeleteMapping("/blocages/{idBlocage}")
+    @PreAuthorize("hasRole('CLIENT')")
+    @Operation(summary = "Libérer un blocage de panier (CLIENT)")
+    public ResponseEntity<Void> libererBlocage(@PathVariable String idBlocage) {
+        Long idUtilisateur = authenticationFacade.getCurrentUserId();
+        blocageStock.liberer(idUtilisateur, idBlocage);
+        return ResponseEntity.noContent().build();
+    }
+
     // ============================================
     // PARTIE 2: MODIFICATION DU DEVIS (ADMIN)
     // ============================================
@@ -0,0 +1,59 @@
+package tn.weeding.agenceevenementielle.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import tn.weeding.agenceevenementielle.dto.taches.ExecutionTacheDto;
+import tn.weeding.agenceevenementielle.dto.taches.StatistiquesTacheDto;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
+
+import java.util.List;
+
+/**
+ * ==========================================
+ * CONTROLLER DES TÂCHES PLANIFIÉES
+ * ==========================================
+ * Historique des exécutions des jobs Cron et statistiques de durée
+ * Accessible uniquement aux ADMIN
+ */
+@RestController
+@RequestMapping("/api/taches")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Tâches planifiées", description = "Historique et performances des jobs Cron")
+@CrossOrigin(origins = "http://localhost:4200")
+public class TacheController {
+
+    private final SuiviTachesService suiviTachesService;
+
+    /**
+     * GET /api/taches/executions?tache=rappel-paiement-acompte&limite=50
+     */
+    @GetMapping("/executions")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Dernières exécutions des tâches planifiées",
+            description = "Début, fin, durée, lignes lues / modifiées, emails et échecs, de la plus récente à la plus ancienne")
+    public ResponseEntity<List<ExecutionTacheDto>> getExecutions(
+            @RequestParam(required = false) String tache,
+            @RequestParam(defaultValue = "50") int limite) {
+        log.info("⏱️ [API] Requête: exécutions des tâches (tâche: {}, limite: {})", tache, limite);
+        return ResponseEntity.ok(suiviTachesService.getExecutionsRecentes(tache, limite));
+    }
+
+    /**
+     * GET /api/taches/statistiques?echantillon=200
+     */
+    @GetMapping("/statistiques")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Statistiques de durée par tâche",
+            description = "Durées p50 / p99 / max et volumes moyens sur les dernières exécutions de chaque tâche")
+    public ResponseEntity<List<StatistiquesTacheDto>> getStatistiques(
+            @RequestParam(defaultValue = "200") int echantillon) {
+        log.info("⏱️ [API] Requête: statistiques des tâches (échantillon: {})", echantillon);
+        return ResponseEntity.ok(suiviTachesService.getStatistiques(echantillon));
+    }
+}
@@ -0,0 +1,24 @@
+package tn.weeding.agenceevenementielle.dto.produit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO d'une page du catalogue avec la disponibilité de chaque produit sur une période
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CatalogueDisponibiliteDto {
+    private List<ProduitDisponibiliteDto> produits;
+
+    private Integer page;                  // Numéro de page (à partir de 0)
+    private Integer taille;                // Nombre de produits par page
+    private Long totalProduits;            // Produits correspondant aux filtres
+    private Integer totalPages;
+}
@@ -0,0 +1,23 @@
+package tn.weeding.agenceevenementielle.dto.produit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO des statistiques du cache de disponibilité
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DisponibiliteCacheStatsDto {
+    private Integer taille;                // Entrées en cache
+    private Integer tailleMax;
+    private Long succes;                   // Lectures servies par le cache
+    private Long echecs;                   // Lectures recalculées
+    private Double tauxSucces;             // En pourcentage
+    private Long evictions;                // Entrées sorties pour respecter la taille max
+    private Long invalidations;            // Entrées retirées après une modification de l'occupation
+}
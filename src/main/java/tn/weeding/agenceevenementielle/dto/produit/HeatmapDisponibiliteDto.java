@@ -0,0 +1,40 @@
+package tn.weeding.agenceevenementielle.dto.produit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO du calendrier de disponibilité (heatmap) jour par jour
+ *
+ * Format compact : pour chaque produit, un tableau d'entiers dont la case i
+ * correspond au jour dateDebut + i.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HeatmapDisponibiliteDto {
+    private LocalDate dateDebut;
+    private LocalDate dateFin;
+    private Integer nombreJours;
+
+    private List<LigneHeatmap> produits;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class LigneHeatmap {
+        private Long idProduit;
+        private String nomProduit;
+        private TypeProduit typeProduit;
+        private Integer capacite;          // Stock (EN_QUANTITE) ou instances disponibles (AVEC_REFERENCE)
+        private int[] libres;              // Unités libres par jour
+    }
+}
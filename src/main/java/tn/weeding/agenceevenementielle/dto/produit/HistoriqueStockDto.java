@@ -0,0 +1,45 @@
+package tn.weeding.agenceevenementielle.dto.produit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO de la courbe de stock d'un produit, jour par jour
+ *
+ * Les jours sans donnée (avant le premier instantané, ou dans le futur) sont absents de la liste.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HistoriqueStockDto {
+    private Long idProduit;
+    private LocalDate dateDebut;
+    private LocalDate dateFin;
+
+    private List<PointStock> points;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class PointStock {
+        private LocalDate date;
+        private Integer quantiteDisponible;
+        private Integer quantiteReservee;
+        private Integer quantiteSortie;
+        private Integer quantiteEnMaintenance;
+        private SourcePoint source;
+    }
+
+    public enum SourcePoint {
+        INSTANTANE,     // Instantané du jour
+        REPORTE,        // Jour sans instantané dans l'historique : valeur du dernier instantané
+        CALCULE         // Après le dernier instantané : instantané + mouvements
+    }
+}
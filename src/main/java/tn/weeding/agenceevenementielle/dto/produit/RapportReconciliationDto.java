@@ -0,0 +1,77 @@
+package tn.weeding.agenceevenementielle.dto.produit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tn.weeding.agenceevenementielle.entities.enums.StatutInstance;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO du rapport de réconciliation du stock
+ *
+ * - ecarts : quantiteDisponible du produit différente de la valeur attendue
+ *   (journal rejoué pour EN_QUANTITE, instances DISPONIBLE pour AVEC_REFERENCE)
+ * - surreservations : jours où les réservations confirmées dépassent le stock
+ * - instancesIncoherentes : instances sorties sans ligne de réservation active
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportReconciliationDto {
+    private LocalDateTime dateExecution;
+    private Boolean modeReparation;
+    private Integer nombreProduits;
+    private Long nombreMouvements;
+    private Long dureeMs;
+    private Integer nombreCorrections;
+
+    private List<EcartStock> ecarts;
+    private List<Surreservation> surreservations;
+    private List<InstanceIncoherente> instancesIncoherentes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class EcartStock {
+        private Long idProduit;
+        private String nomProduit;
+        private TypeProduit typeProduit;
+        private Integer quantiteEnregistree;   // Produit.quantiteDisponible
+        private Integer quantiteAttendue;
+        private Integer quantiteJournal;       // Disponible d'après le journal rejoué
+        private Boolean reparable;             // Corrigé en mode réparation (AVEC_REFERENCE), sinon à vérifier
+        private Boolean corrige;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Surreservation {
+        private Long idProduit;
+        private String nomProduit;
+        private Long idInstance;               // Renseigné si une même instance est réservée deux fois
+        private LocalDate dateDebut;
+        private LocalDate dateFin;
+        private Integer quantiteReservee;      // Pic sur la période
+        private Integer capacite;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class InstanceIncoherente {
+        private Long idInstance;
+        private Long idProduit;
+        private String numeroSerie;
+        private StatutInstance statut;
+    }
+}
@@ -0,0 +1,28 @@
+package tn.weeding.agenceevenementielle.dto.produit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO du résultat de la simulation d'une stratégie d'allocation des instances
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SimulationAllocationDto {
+    private String strategie;
+    private Boolean strategieActive;
+
+    private Integer nombreDemandes;            // Lignes rejouées
+    private Integer demandesRefusees;          // Lignes sans assez d'instances libres
+    private Double tauxRejet;                  // % de lignes refusées
+
+    private Long instancesJoursReservees;      // Somme quantité × jours des lignes acceptées
+    private Long capaciteInstancesJours;       // Instances exploitables × jours de la fenêtre
+    private Double tauxUtilisation;            // % de la capacité occupée
+
+    private Long dureeMs;
+}
@@ -0,0 +1,26 @@
+package tn.weeding.agenceevenementielle.dto.reservation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DTO d'un blocage temporaire de stock (panier en cours de constitution)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlocageStockDto {
+
+    private String idBlocage;
+    private Long idProduit;
+    private Integer quantite;
+    private LocalDate dateDebut;
+    private LocalDate dateFin;
+    private LocalDateTime dateExpiration;
+}
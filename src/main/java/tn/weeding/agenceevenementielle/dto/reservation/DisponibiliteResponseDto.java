@@ -25,4 +25,7 @@ public class DisponibiliteResponseDto {
 
     // Pour les produits avec référence: liste des instances disponibles
     private List<String> instancesDisponibles;
+
+    // Si non disponible : autres dates et produits similaires
+    private SuggestionDisponibiliteDto suggestions;
 }
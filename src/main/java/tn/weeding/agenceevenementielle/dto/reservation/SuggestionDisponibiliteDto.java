@@ -0,0 +1,48 @@
+package tn.weeding.agenceevenementielle.dto.reservation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO des alternatives proposées quand un produit n'est pas disponible
+ * - Dates : fenêtres libres de même durée, la plus proche avant et la plus proche après
+ * - Produits : produits de la même catégorie disponibles sur la période demandée
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDisponibiliteDto {
+
+    private FenetreDisponible fenetreAvant;
+    private FenetreDisponible fenetreApres;
+    private List<ProduitSubstitut> produitsSubstituts;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FenetreDisponible {
+        private LocalDate dateDebut;
+        private LocalDate dateFin;
+        private Integer quantiteDisponible;
+        private Long decalageJours;        // Écart avec la date de début demandée (négatif = avant)
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProduitSubstitut {
+        private Long idProduit;
+        private String nomProduit;
+        private TypeProduit typeProduit;
+        private Integer quantiteDisponible;
+    }
+}
@@ -0,0 +1,31 @@
+package tn.weeding.agenceevenementielle.dto.taches;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tn.weeding.agenceevenementielle.entities.enums.StatutExecutionTache;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO d'une exécution de tâche planifiée
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExecutionTacheDto {
+    private Long idExecution;
+    private String nomTache;
+    private String noeud;
+    private LocalDateTime dateDebut;
+    private LocalDateTime dateFin;
+    private Long dureeMs;
+    private StatutExecutionTache statut;
+    private Long lignesLues;
+    private Long lignesModifiees;
+    private Long emails;
+    private Long echecs;
+    private String messageErreur;
+}
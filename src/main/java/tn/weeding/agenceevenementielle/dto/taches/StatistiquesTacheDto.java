@@ -0,0 +1,30 @@
+package tn.weeding.agenceevenementielle.dto.taches;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tn.weeding.agenceevenementielle.entities.enums.StatutExecutionTache;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO des statistiques d'une tâche planifiée, calculées sur ses dernières exécutions terminées
+ * (une dérive de dureeP50Ms / dureeP99Ms signale un job qui ralentit avec le volume de données)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatistiquesTacheDto {
+    private String nomTache;
+    private Integer nombreExecutions;      // Taille de l'échantillon
+    private Integer nombreEchecs;
+    private LocalDateTime derniereExecution;
+    private StatutExecutionTache dernierStatut;
+    private Long dureeP50Ms;
+    private Long dureeP99Ms;
+    private Long dureeMaxMs;
+    private Long moyenneLignesLues;
+    private Long moyenneLignesModifiees;
+}
@@ -2,6 +2,7 @@ package tn.weeding.agenceevenementielle.entities;
 import java.io.Serializable;
 import jakarta.persistence.*;
 import lombok.*;
+import tn.weeding.agenceevenementielle.config.SequencesIdentifiant;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -18,8 +19,17 @@ import java.util.Date;
 @ToString
 @EntityListeners(AuditingEntityListener.class)
 public class AffectationLivraison implements Serializable {
+    /**
+     * Identifiants réservés par blocs (voir SequencesIdentifiant)
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "affectationLivraisonGen")
+    @TableGenerator(name = "affectationLivraisonGen",
+            table = SequencesIdentifiant.TABLE,
+            pkColumnName = SequencesIdentifiant.COLONNE_NOM,
+            valueColumnName = SequencesIdentifiant.COLONNE_VALEUR,
+            pkColumnValue = SequencesIdentifiant.AFFECTATION_LIVRAISON,
+            allocationSize = SequencesIdentifiant.TAILLE_BLOC)
     Long idAffectationLivraison;
 
     @CreatedDate
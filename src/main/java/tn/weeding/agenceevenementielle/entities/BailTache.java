@@ -0,0 +1,42 @@
+package tn.weeding.agenceevenementielle.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Bail (lease) d'une tâche planifiée, partagé par toutes les instances de l'application
+ *
+ * Le nœud propriétaire d'un bail non expiré est seul à exécuter la tâche (ou la tranche de tâche).
+ * derniereExecution identifie la dernière exécution terminée (ex : "2025-06-01" pour un job quotidien) :
+ * une tranche déjà traitée pour cette exécution n'est pas reprise par un autre nœud.
+ */
+@Entity
+@Table(name = "bail_tache")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@Builder
+public class BailTache implements Serializable {
+
+    @Id
+    @Column(length = 96)
+    private String nomTache;
+
+    @Column(length = 128)
+    private String proprietaire;
+
+    private LocalDateTime dateAcquisition;
+
+    @Column(nullable = false)
+    private LocalDateTime dateExpiration;
+
+    @Column(length = 64)
+    private String derniereExecution;
+
+    private LocalDateTime dateFinExecution;
+}
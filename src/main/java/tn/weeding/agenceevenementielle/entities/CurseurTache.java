@@ -0,0 +1,33 @@
+package tn.weeding.agenceevenementielle.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Curseur (watermark) persistant d'une tâche planifiée incrémentale
+ *
+ * dateCurseur = début de la dernière exécution réussie : l'exécution suivante ne traite
+ * que ce qui a changé depuis.
+ */
+@Entity
+@Table(name = "curseur_tache")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@Builder
+public class CurseurTache implements Serializable {
+
+    @Id
+    @Column(length = 64)
+    private String nomTache;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCurseur;
+
+    private LocalDateTime dateModification;
+}
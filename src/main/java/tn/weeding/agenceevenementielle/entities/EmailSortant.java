@@ -0,0 +1,90 @@
+package tn.weeding.agenceevenementielle.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import tn.weeding.agenceevenementielle.config.SequencesIdentifiant;
+import tn.weeding.agenceevenementielle.entities.enums.StatutEmail;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Email en file d'envoi (outbox)
+ *
+ * Écrit dans la transaction métier qui le déclenche : l'email n'existe que si la modification est validée,
+ * et il survit à un redémarrage. L'envoi SMTP est fait plus tard par DispatcheurEmails.
+ *
+ * jeton / reserveJusqua : lot réservé par un nœud ; une réservation expirée rend l'email à nouveau disponible.
+ */
+@Entity
+@Table(name = "email_sortant", indexes = {
+        @Index(name = "idx_email_sortant_statut_tentative", columnList = "statut, prochaineTentative"),
+        @Index(name = "idx_email_sortant_jeton", columnList = "jeton")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString(exclude = "contenuHtml")
+public class EmailSortant implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "emailSortantGen")
+    @TableGenerator(name = "emailSortantGen",
+            table = SequencesIdentifiant.TABLE,
+            pkColumnName = SequencesIdentifiant.COLONNE_NOM,
+            valueColumnName = SequencesIdentifiant.COLONNE_VALEUR,
+            pkColumnValue = SequencesIdentifiant.EMAIL_SORTANT,
+            allocationSize = SequencesIdentifiant.TAILLE_BLOC)
+    private Long idEmail;
+
+    @Column(nullable = false, length = 255)
+    private String destinataire;
+
+    @Column(nullable = false, length = 255)
+    private String sujet;
+
+    @Lob
+    @Column(nullable = false)
+    private String contenuHtml;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatutEmail statut;
+
+    @Column(nullable = false)
+    private Integer tentatives;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation;
+
+    @Column(nullable = false)
+    private LocalDateTime prochaineTentative;
+
+    private LocalDateTime dateEnvoi;
+
+    @Column(length = 36)
+    private String jeton;
+
+    private LocalDateTime reserveJusqua;
+
+    @Column(length = 1000)
+    private String derniereErreur;
+
+    @PrePersist
+    protected void onCreate() {
+        if (dateCreation == null) {
+            dateCreation = LocalDateTime.now();
+        }
+        if (prochaineTentative == null) {
+            prochaineTentative = dateCreation;
+        }
+        if (statut == null) {
+            statut = StatutEmail.EN_ATTENTE;
+        }
+        if (tentatives == null) {
+            tentatives = 0;
+        }
+    }
+}
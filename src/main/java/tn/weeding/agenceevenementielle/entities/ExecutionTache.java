@@ -0,0 +1,61 @@
+package tn.weeding.agenceevenementielle.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import tn.weeding.agenceevenementielle.entities.enums.StatutExecutionTache;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Historique d'exécution d'une tâche planifiée (une ligne par exécution)
+ *
+ * Compteurs :
+ * - lignesLues : identifiants / lignes parcourus
+ * - lignesModifiees : lignes créées, modifiées ou supprimées
+ * - emails : notifications avec email mises en file
+ * - echecs : éléments en erreur (l'exécution peut malgré tout se terminer)
+ */
+@Entity
+@Table(name = "execution_tache",
+        indexes = {
+                @Index(name = "idx_execution_tache_nom_debut", columnList = "nomTache, dateDebut"),
+                @Index(name = "idx_execution_tache_statut_debut", columnList = "statut, dateDebut")
+        })
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@Builder
+public class ExecutionTache implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long idExecution;
+
+    @Column(nullable = false, length = 64)
+    private String nomTache;
+
+    @Column(length = 128)
+    private String noeud;
+
+    @Column(nullable = false)
+    private LocalDateTime dateDebut;
+
+    private LocalDateTime dateFin;
+
+    private Long dureeMs;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatutExecutionTache statut;
+
+    private Long lignesLues;
+    private Long lignesModifiees;
+    private Long emails;
+    private Long echecs;
+
+    @Column(length = 1000)
+    private String messageErreur;
+}
@@ -3,6 +3,7 @@ package tn.weeding.agenceevenementielle.entities;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Future;
 import lombok.*;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationEntityListener;
 import tn.weeding.agenceevenementielle.entities.enums.EtatPhysique;
 import tn.weeding.agenceevenementielle.entities.enums.StatutInstance;
 
@@ -15,6 +16,7 @@ import java.time.LocalDate;
  *
  */
 @Entity
+@EntityListeners(OccupationEntityListener.class)
 @Getter
 @Setter
 @AllArgsConstructor
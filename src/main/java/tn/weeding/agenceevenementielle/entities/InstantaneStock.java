@@ -0,0 +1,73 @@
+package tn.weeding.agenceevenementielle.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import tn.weeding.agenceevenementielle.config.SequencesIdentifiant;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Photo quotidienne du stock d'un produit (une ligne par produit et par jour)
+ *
+ * Sert de point de départ aux questions "quel était le stock du produit X le jour D" :
+ * instantané le plus proche avant D + mouvements postérieurs à dateCalcul,
+ * au lieu de rejouer tout l'historique MouvementStock.
+ */
+@Entity
+@Table(name = "instantane_stock",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"idProduit", "dateInstantane"}),
+        indexes = @Index(name = "idx_instantane_produit_date", columnList = "idProduit, dateInstantane"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@Builder
+public class InstantaneStock implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "instantaneStockGen")
+    @TableGenerator(name = "instantaneStockGen",
+            table = SequencesIdentifiant.TABLE,
+            pkColumnName = SequencesIdentifiant.COLONNE_NOM,
+            valueColumnName = SequencesIdentifiant.COLONNE_VALEUR,
+            pkColumnValue = SequencesIdentifiant.INSTANTANE_STOCK,
+            allocationSize = SequencesIdentifiant.TAILLE_BLOC)
+    private Long idInstantane;
+
+    // Pas de clé étrangère : l'historique survit à la suppression du produit
+    @Column(nullable = false)
+    private Long idProduit;
+
+    @Column(nullable = false)
+    private LocalDate dateInstantane;
+
+    /**
+     * Produit.quantiteDisponible au moment du calcul
+     */
+    private Integer quantiteDisponible;
+
+    /**
+     * Unités engagées par des réservations confirmées ce jour-là
+     * (EN_QUANTITE : niveau réservé du jour, AVEC_REFERENCE : instances réservées)
+     */
+    private Integer quantiteReservee;
+
+    /**
+     * Unités physiquement sorties (livrées, chez le client ou en retour)
+     */
+    private Integer quantiteSortie;
+
+    /**
+     * Unités en maintenance
+     */
+    private Integer quantiteEnMaintenance;
+
+    /**
+     * Instant du calcul : les mouvements postérieurs ne sont pas inclus dans l'instantané
+     */
+    @Column(nullable = false)
+    private LocalDateTime dateCalcul;
+}
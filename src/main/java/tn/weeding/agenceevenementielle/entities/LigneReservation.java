@@ -2,6 +2,8 @@ package tn.weeding.agenceevenementielle.entities;
 import java.io.Serializable;
 import jakarta.persistence.*;
 import lombok.*;
+import tn.weeding.agenceevenementielle.config.SequencesIdentifiant;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationEntityListener;
 import tn.weeding.agenceevenementielle.entities.enums.StatutLivraison;
 import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
 
@@ -11,14 +13,29 @@ import java.util.Date;
 import java.util.Set;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_ligne_statut_dates", columnList = "statutLivraisonLigne, dateDebut, dateFin"),
+        @Index(name = "idx_ligne_date_fin", columnList = "dateFin"),
+        @Index(name = "idx_ligne_date_modification", columnList = "dateModification")
+})
+@EntityListeners(OccupationEntityListener.class)
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @ToString(exclude = {"reservation", "produit", "instancesReservees"})
 public class LigneReservation implements Serializable {
+    /**
+     * Identifiants réservés par blocs (pas IDENTITY) : les lignes d'un devis sont insérées en un lot JDBC
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "ligneReservationGen")
+    @TableGenerator(name = "ligneReservationGen",
+            table = SequencesIdentifiant.TABLE,
+            pkColumnName = SequencesIdentifiant.COLONNE_NOM,
+            valueColumnName = SequencesIdentifiant.COLONNE_VALEUR,
+            pkColumnValue = SequencesIdentifiant.LIGNE_RESERVATION,
+            allocationSize = SequencesIdentifiant.TAILLE_BLOC)
     Long idLigneReservation;
 
     /**
@@ -92,6 +109,23 @@ public class LigneReservation implements Serializable {
     @Column(length = 1000)
     private String observations;
 
+    /**
+     * Dernière écriture JPA de la ligne (les UPDATE en masse ne la mettent pas à jour)
+     */
+    private LocalDateTime dateModification;
+
+    /**
+     * dateFin pour laquelle le retard de retour a déjà été signalé
+     * (null : jamais signalé ; différente de dateFin : période modifiée depuis, à signaler de nouveau)
+     */
+    private LocalDate dateFinRetardSignale;
+
+    @PrePersist
+    @PreUpdate
+    protected void onEcriture() {
+        dateModification = LocalDateTime.now();
+    }
+
 
     // ============ MÉTHODES UTILITAIRES ============
 
@@ -7,12 +7,14 @@ import java.util.Date;
 
 import jakarta.persistence.*;
 import lombok.*;
+import tn.weeding.agenceevenementielle.config.SequencesIdentifiant;
 import tn.weeding.agenceevenementielle.entities.enums.TypeMouvement;
 
 /**
  * Entité représentant l'historique des mouvements de stock
  */
 @Entity
+@Table(indexes = @Index(name = "idx_mouvement_produit_date", columnList = "idProduit, dateMouvement"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -21,8 +23,18 @@ import tn.weeding.agenceevenementielle.entities.enums.TypeMouvement;
 @Builder
 public class MouvementStock implements Serializable {
 
+    /**
+     * Identifiants réservés par blocs : les mouvements d'une transaction sont insérés en un lot
+     * (voir JournalMouvementStockService)
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "mouvementStockGen")
+    @TableGenerator(name = "mouvementStockGen",
+            table = SequencesIdentifiant.TABLE,
+            pkColumnName = SequencesIdentifiant.COLONNE_NOM,
+            valueColumnName = SequencesIdentifiant.COLONNE_VALEUR,
+            pkColumnValue = SequencesIdentifiant.MOUVEMENT_STOCK,
+            allocationSize = SequencesIdentifiant.TAILLE_BLOC)
     private Long idMouvement;
 
     public MouvementStock(Produit produit, TypeMouvement typeMouvement,Integer quantite, String motif, String effectuePar) {
@@ -91,6 +103,9 @@ public class MouvementStock implements Serializable {
 
     @PrePersist
     protected void onCreate() {
-        dateMouvement = LocalDateTime.now();
+        // Déjà renseignée par le journal quand l'écriture est différée au commit
+        if (dateMouvement == null) {
+            dateMouvement = LocalDateTime.now();
+        }
     }
 }
\ No newline at end of file
@@ -2,12 +2,14 @@ package tn.weeding.agenceevenementielle.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import tn.weeding.agenceevenementielle.config.SequencesIdentifiant;
 import tn.weeding.agenceevenementielle.entities.enums.TypeNotification;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = @Index(name = "idx_notification_date_creation", columnList = "dateCreation"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -16,8 +18,17 @@ import java.time.LocalDateTime;
 @ToString
 public class Notification implements Serializable {
 
+    /**
+     * Notifications d'un envoi groupé (staff, rappels) insérées en un lot (identifiants réservés par blocs, voir SequencesIdentifiant)
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "notificationGen")
+    @TableGenerator(name = "notificationGen",
+            table = SequencesIdentifiant.TABLE,
+            pkColumnName = SequencesIdentifiant.COLONNE_NOM,
+            valueColumnName = SequencesIdentifiant.COLONNE_VALEUR,
+            pkColumnValue = SequencesIdentifiant.NOTIFICATION,
+            allocationSize = SequencesIdentifiant.TAILLE_BLOC)
     private Long idNotification;
 
     @Column(nullable = false)
@@ -0,0 +1,64 @@
+package tn.weeding.agenceevenementielle.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import tn.weeding.agenceevenementielle.entities.enums.TypeNotification;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Notification archivée (voir ArchivageNotificationService)
+ *
+ * Copie d'une notification sortie de la table chaude : même identifiant, utilisateur réduit à son id
+ * (pas de clé étrangère, l'archive ne bloque pas la suppression d'un compte).
+ */
+@Entity
+@Table(name = "notification_archivee",
+        indexes = {
+                @Index(name = "idx_notification_archivee_utilisateur", columnList = "idUtilisateur, dateCreation"),
+                @Index(name = "idx_notification_archivee_date_archivage", columnList = "dateArchivage")
+        })
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class NotificationArchivee implements Serializable {
+
+    @Id
+    private Long idNotification;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private TypeNotification typeNotification;
+
+    @Column(nullable = false, length = 255)
+    private String titre;
+
+    @Column(nullable = false, length = 1000)
+    private String message;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation;
+
+    @Column(nullable = false)
+    private Boolean lue;
+
+    private LocalDateTime dateLecture;
+
+    @Column(nullable = false)
+    private Long idUtilisateur;
+
+    private Long idReservation;
+    private Long idLivraison;
+    private Long idPaiement;
+    private Long idProduit;
+
+    @Column(length = 500)
+    private String urlAction;
+
+    @Column(nullable = false)
+    private LocalDateTime dateArchivage;
+}
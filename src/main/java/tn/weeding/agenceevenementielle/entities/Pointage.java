@@ -2,6 +2,7 @@ package tn.weeding.agenceevenementielle.entities;
 import java.io.Serializable;
 import jakarta.persistence.*;
 import lombok.*;
+import tn.weeding.agenceevenementielle.config.SequencesIdentifiant;
 import tn.weeding.agenceevenementielle.entities.enums.StatutPointage;
 
 import java.sql.Time;
@@ -16,8 +17,17 @@ import java.util.Date;
 @ToString
 
 public class Pointage implements Serializable {
+    /**
+     * Absences du jour marquées en un lot (identifiants réservés par blocs, voir SequencesIdentifiant)
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "pointageGen")
+    @TableGenerator(name = "pointageGen",
+            table = SequencesIdentifiant.TABLE,
+            pkColumnName = SequencesIdentifiant.COLONNE_NOM,
+            valueColumnName = SequencesIdentifiant.COLONNE_VALEUR,
+            pkColumnValue = SequencesIdentifiant.POINTAGE,
+            allocationSize = SequencesIdentifiant.TAILLE_BLOC)
     Long idPointage;
 
 
@@ -5,10 +5,13 @@ import java.util.Set;
 
 import jakarta.persistence.*;
 import lombok.*;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationEntityListener;
 import tn.weeding.agenceevenementielle.entities.enums.Categorie;
 import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
 
 @Entity
+@EntityListeners(OccupationEntityListener.class)
+@Table(indexes = @Index(name = "idx_produit_nom", columnList = "nomProduit, idProduit"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -4,6 +4,7 @@ import java.io.Serializable;
 
 import jakarta.persistence.*;
 import lombok.*;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationEntityListener;
 import tn.weeding.agenceevenementielle.entities.enums.*;
 
 import java.time.LocalDate;
@@ -13,6 +14,13 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_reservation_statuts", columnList = "statutLivraisonRes, statutReservation"),
+        @Index(name = "idx_reservation_statut_expiration", columnList = "statutReservation, dateExpirationDevis"),
+        @Index(name = "idx_reservation_statut_fin", columnList = "statutReservation, dateFin"),
+        @Index(name = "idx_reservation_modification", columnList = "dateModification")
+})
+@EntityListeners(OccupationEntityListener.class)
 @Getter
 @Setter
 @AllArgsConstructor
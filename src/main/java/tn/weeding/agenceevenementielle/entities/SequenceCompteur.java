@@ -0,0 +1,34 @@
+package tn.weeding.agenceevenementielle.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Compteur persistant d'une séquence de codes (ex : "RES-2025", "FAC-2025-03", "CL")
+ *
+ * valeur = dernier numéro déjà attribué à un bloc. Chaque nœud réserve un bloc
+ * de numéros en incrémentant ce compteur sous verrou de ligne, puis les distribue
+ * en mémoire.
+ */
+@Entity
+@Table(name = "sequence_compteur")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@Builder
+public class SequenceCompteur implements Serializable {
+
+    @Id
+    @Column(length = 64)
+    private String cle;
+
+    @Column(nullable = false)
+    private Long valeur;
+
+    private LocalDateTime dateModification;
+}
@@ -0,0 +1,7 @@
+package tn.weeding.agenceevenementielle.entities.enums;
+
+public enum StatutEmail {
+    EN_ATTENTE,
+    ENVOYE,
+    ECHEC
+}
@@ -0,0 +1,8 @@
+package tn.weeding.agenceevenementielle.entities.enums;
+
+public enum StatutExecutionTache {
+    EN_COURS,
+    TERMINEE,
+    ECHEC,
+    INTERROMPUE     // Restée EN_COURS au-delà de la durée maximale : nœud arrêté avant la fin
+}
@@ -271,6 +271,25 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    /**
+     * Gestion des validations concurrentes sur le même stock
+     */
+    @ExceptionHandler(ReservationException.ReservationConcurrenteException.class)
+    public ResponseEntity<ErrorResponse2> handleReservationConcurrente(
+            ReservationException.ReservationConcurrenteException ex) {
+
+        log.warn("Réservation concurrente : {}", ex.getMessage());
+
+        ErrorResponse2 error = new ErrorResponse2(
+                HttpStatus.CONFLICT.value(),
+                "Réservation concurrente",
+                ex.getMessage(),
+                "/api/reservations"
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     /**
      * Gestion de toutes les autres exceptions non prévues
      */
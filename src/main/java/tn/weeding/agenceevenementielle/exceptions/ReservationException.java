@@ -78,6 +78,16 @@ public class ReservationException extends RuntimeException {
             super(message);
         }
     }
+    /**
+     * Exception levée quand le stock d'un produit est verrouillé trop longtemps
+     * par une autre validation concurrente
+     */
+    public static class ReservationConcurrenteException extends ReservationException {
+        public ReservationConcurrenteException(String message) {
+            super(message);
+        }
+    }
+
     /**
      * Exception levée quand un produit n'est plus disponible lors de la validation d'un devis
      *
@@ -0,0 +1,71 @@
+package tn.weeding.agenceevenementielle.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tn.weeding.agenceevenementielle.entities.BailTache;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface BailTacheRepository extends JpaRepository<BailTache, String> {
+
+    /**
+     * Prendre un bail expiré (ou déjà détenu par ce nœud) : UPDATE conditionnel, un seul nœud gagne
+     * Si execution est renseignée, un bail dont cette exécution est déjà terminée n'est pas repris.
+     *
+     * @return 1 si le bail est pris, 0 sinon
+     */
+    @Modifying
+    @Query("""
+    UPDATE BailTache b
+    SET b.proprietaire = :noeud, b.dateAcquisition = :maintenant, b.dateExpiration = :expiration
+    WHERE b.nomTache = :nomTache
+    AND (b.dateExpiration <= :maintenant OR b.proprietaire = :noeud)
+    AND (:execution IS NULL OR b.derniereExecution IS NULL OR b.derniereExecution <> :execution)
+    """)
+    int prendreBail(@Param("nomTache") String nomTache,
+                    @Param("noeud") String noeud,
+                    @Param("execution") String execution,
+                    @Param("maintenant") LocalDateTime maintenant,
+                    @Param("expiration") LocalDateTime expiration);
+
+    /**
+     * Créer un bail déjà pris par ce nœud (échoue sur la clé primaire si un autre nœud l'a déjà créé)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO bail_tache (nomTache, proprietaire, dateAcquisition, dateExpiration) " +
+            "VALUES (:nomTache, :noeud, :maintenant, :expiration)", nativeQuery = true)
+    int creerBail(@Param("nomTache") String nomTache,
+                  @Param("noeud") String noeud,
+                  @Param("maintenant") LocalDateTime maintenant,
+                  @Param("expiration") LocalDateTime expiration);
+
+    /**
+     * Rendre un bail détenu par ce nœud (tranche en échec : reprise possible par un autre nœud)
+     */
+    @Modifying
+    @Query("""
+    UPDATE BailTache b SET b.dateExpiration = :maintenant
+    WHERE b.nomTache = :nomTache AND b.proprietaire = :noeud
+    """)
+    int rendreBail(@Param("nomTache") String nomTache,
+                   @Param("noeud") String noeud,
+                   @Param("maintenant") LocalDateTime maintenant);
+
+    /**
+     * Rendre un bail détenu par ce nœud en marquant l'exécution terminée
+     */
+    @Modifying
+    @Query("""
+    UPDATE BailTache b
+    SET b.dateExpiration = :maintenant, b.derniereExecution = :execution, b.dateFinExecution = :maintenant
+    WHERE b.nomTache = :nomTache AND b.proprietaire = :noeud
+    """)
+    int terminerExecution(@Param("nomTache") String nomTache,
+                          @Param("noeud") String noeud,
+                          @Param("execution") String execution,
+                          @Param("maintenant") LocalDateTime maintenant);
+}
@@ -0,0 +1,9 @@
+package tn.weeding.agenceevenementielle.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tn.weeding.agenceevenementielle.entities.CurseurTache;
+
+@Repository
+public interface CurseurTacheRepository extends JpaRepository<CurseurTache, String> {
+}
@@ -0,0 +1,63 @@
+package tn.weeding.agenceevenementielle.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tn.weeding.agenceevenementielle.entities.EmailSortant;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailSortantRepository extends JpaRepository<EmailSortant, Long> {
+
+    /**
+     * Emails en attente dont la prochaine tentative est due et qui ne sont pas réservés
+     */
+    @Query("SELECT e.idEmail FROM EmailSortant e " +
+            "WHERE e.statut = tn.weeding.agenceevenementielle.entities.enums.StatutEmail.EN_ATTENTE " +
+            "AND e.prochaineTentative <= :maintenant " +
+            "AND (e.reserveJusqua IS NULL OR e.reserveJusqua < :maintenant) " +
+            "ORDER BY e.prochaineTentative, e.idEmail")
+    List<Long> findIdsAEnvoyer(@Param("maintenant") LocalDateTime maintenant, Pageable pageable);
+
+    /**
+     * Réserver un lot pour ce nœud : seules les lignes encore libres prennent le jeton
+     */
+    @Modifying
+    @Query("UPDATE EmailSortant e SET e.jeton = :jeton, e.reserveJusqua = :reserveJusqua " +
+            "WHERE e.idEmail IN :ids " +
+            "AND e.statut = tn.weeding.agenceevenementielle.entities.enums.StatutEmail.EN_ATTENTE " +
+            "AND (e.reserveJusqua IS NULL OR e.reserveJusqua < :maintenant)")
+    int reserver(@Param("ids") List<Long> ids,
+                 @Param("jeton") String jeton,
+                 @Param("reserveJusqua") LocalDateTime reserveJusqua,
+                 @Param("maintenant") LocalDateTime maintenant);
+
+    List<EmailSortant> findByJeton(String jeton);
+
+    @Modifying
+    @Query("UPDATE EmailSortant e SET e.statut = tn.weeding.agenceevenementielle.entities.enums.StatutEmail.ENVOYE, " +
+            "e.dateEnvoi = :dateEnvoi, e.tentatives = e.tentatives + 1, e.jeton = null, e.reserveJusqua = null " +
+            "WHERE e.idEmail IN :ids")
+    int marquerEnvoyes(@Param("ids") List<Long> ids, @Param("dateEnvoi") LocalDateTime dateEnvoi);
+
+    /**
+     * Emails à purger : envoyés avant limiteEnvoyes, en échec définitif avant limiteEchecs
+     */
+    @Query("SELECT e.idEmail FROM EmailSortant e WHERE e.idEmail > :apresId " +
+            "AND ((e.statut = tn.weeding.agenceevenementielle.entities.enums.StatutEmail.ENVOYE AND e.dateEnvoi < :limiteEnvoyes) " +
+            "OR (e.statut = tn.weeding.agenceevenementielle.entities.enums.StatutEmail.ECHEC AND e.dateCreation < :limiteEchecs)) " +
+            "ORDER BY e.idEmail")
+    List<Long> findIdsAPurger(@Param("limiteEnvoyes") LocalDateTime limiteEnvoyes,
+                              @Param("limiteEchecs") LocalDateTime limiteEchecs,
+                              @Param("apresId") Long apresId,
+                              Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM EmailSortant e WHERE e.idEmail IN :ids")
+    int supprimerParIds(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,43 @@
+package tn.weeding.agenceevenementielle.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tn.weeding.agenceevenementielle.entities.ExecutionTache;
+import tn.weeding.agenceevenementielle.entities.enums.StatutExecutionTache;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ExecutionTacheRepository extends JpaRepository<ExecutionTache, Long> {
+
+    List<ExecutionTache> findAllByOrderByDateDebutDesc(Pageable page);
+
+    List<ExecutionTache> findByNomTacheOrderByDateDebutDesc(String nomTache, Pageable page);
+
+    @Query("SELECT DISTINCT e.nomTache FROM ExecutionTache e ORDER BY e.nomTache")
+    List<String> findNomsTaches();
+
+    /**
+     * Clore les exécutions d'un statut commencées avant une limite (exécutions dont le nœud s'est arrêté)
+     */
+    @Modifying
+    @Query("""
+    UPDATE ExecutionTache e
+    SET e.statut = :nouveauStatut, e.dateFin = :maintenant, e.messageErreur = :message
+    WHERE e.statut = :statut AND e.dateDebut < :limite
+    """)
+    int cloreCommenceesAvant(@Param("statut") StatutExecutionTache statut,
+                             @Param("nouveauStatut") StatutExecutionTache nouveauStatut,
+                             @Param("limite") LocalDateTime limite,
+                             @Param("maintenant") LocalDateTime maintenant,
+                             @Param("message") String message);
+
+    @Modifying
+    @Query("DELETE FROM ExecutionTache e WHERE e.dateDebut < :limite")
+    int supprimerCommenceesAvant(@Param("limite") LocalDateTime limite);
+}
@@ -1,6 +1,8 @@
 package tn.weeding.agenceevenementielle.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tn.weeding.agenceevenementielle.entities.Facture;
 import tn.weeding.agenceevenementielle.entities.enums.StatutFacture;
@@ -14,6 +16,9 @@ public interface FactureRepository extends JpaRepository<Facture, Long> {
 
     Optional<Facture> findByNumeroFacture(String numeroFacture);
 
+    @Query("SELECT f.numeroFacture FROM Facture f WHERE f.numeroFacture LIKE CONCAT(:prefixe, '%')")
+    List<String> findNumerosParPrefixe(@Param("prefixe") String prefixe);
+
     List<Facture> findByReservation_IdReservation(Long idReservation);
 
     List<Facture> findByReservation_IdReservationAndTypeFacture(Long idReservation, TypeFacture typeFacture);
@@ -1,13 +1,16 @@
 package tn.weeding.agenceevenementielle.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tn.weeding.agenceevenementielle.entities.InstanceProduit;
 import tn.weeding.agenceevenementielle.entities.enums.StatutInstance;
+import tn.weeding.agenceevenementielle.entities.enums.StatutLivraison;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -122,4 +125,68 @@ public interface InstanceProduitRepository extends JpaRepository<InstanceProduit
     List<InstanceProduit> findInstancesHorsService();
 
     Long  countByProduit_IdProduit (Long idProduit);
-}
\ No newline at end of file
+
+    /**
+     * Projection légère des instances pour l'index d'occupation
+     * @return [idInstance, idProduit, numeroSerie, statut]
+     */
+    @Query("SELECT i.idInstance, i.produit.idProduit, i.numeroSerie, i.statut FROM InstanceProduit i " +
+            "WHERE i.produit.idProduit IN :idsProduits")
+    List<Object[]> findProjectionsParProduits(@Param("idsProduits") Collection<Long> idsProduits);
+
+    /**
+     * Nombre d'instances exploitables (ni hors service ni perdues) par produit
+     * @return [idProduit, nombre]
+     */
+    @Query("SELECT i.produit.idProduit, COUNT(i) FROM InstanceProduit i " +
+            "WHERE i.statut NOT IN (tn.weeding.agenceevenementielle.entities.enums.StatutInstance.HORS_SERVICE, " +
+            "tn.weeding.agenceevenementielle.entities.enums.StatutInstance.PERDU) " +
+            "GROUP BY i.produit.idProduit")
+    List<Object[]> countInstancesExploitablesParProduit();
+
+    /**
+     * Numéros de série commençant par un préfixe (initialisation de la séquence)
+     */
+    @Query("SELECT i.numeroSerie FROM InstanceProduit i WHERE i.numeroSerie LIKE CONCAT(:prefixe, '%')")
+    List<String> findNumerosSerieParPrefixe(@Param("prefixe") String prefixe);
+
+    /**
+     * Nombre d'instances par produit et par statut
+     * @return [idProduit, statut, nombre]
+     */
+    @Query("SELECT i.produit.idProduit, i.statut, COUNT(i) FROM InstanceProduit i " +
+            "GROUP BY i.produit.idProduit, i.statut")
+    List<Object[]> compterParProduitEtStatut();
+
+    /**
+     * Nombre d'instances DISPONIBLE par produit
+     * @return [idProduit, nombre]
+     */
+    @Query("SELECT i.produit.idProduit, COUNT(i) FROM InstanceProduit i " +
+            "WHERE i.produit.idProduit IN :idsProduits " +
+            "AND i.statut = tn.weeding.agenceevenementielle.entities.enums.StatutInstance.DISPONIBLE " +
+            "GROUP BY i.produit.idProduit")
+    List<Object[]> compterDisponiblesParProduits(@Param("idsProduits") Collection<Long> idsProduits);
+
+    /**
+     * Instances marquées sorties (livraison, utilisation, retour) sans aucune ligne de réservation active
+     * @return [idInstance, idProduit, numeroSerie, statut]
+     */
+    @Query("SELECT i.idInstance, i.produit.idProduit, i.numeroSerie, i.statut FROM InstanceProduit i " +
+            "WHERE i.statut IN :statutsSortis AND NOT EXISTS (" +
+            "SELECT 1 FROM LigneReservation lr JOIN lr.instancesReservees ir " +
+            "WHERE ir.idInstance = i.idInstance AND lr.statutLivraisonLigne IN :statutsActifs)")
+    List<Object[]> findSortiesSansLigneActive(
+            @Param("statutsSortis") Collection<StatutInstance> statutsSortis,
+            @Param("statutsActifs") Collection<StatutLivraison> statutsActifs);
+
+    /**
+     * DISPONIBLE → EN_ATTENTE pour les instances réservées par un lot de lignes (job quotidien)
+     */
+    @Modifying
+    @Query("UPDATE InstanceProduit i SET i.statut = tn.weeding.agenceevenementielle.entities.enums.StatutInstance.EN_ATTENTE " +
+            "WHERE i.statut = tn.weeding.agenceevenementielle.entities.enums.StatutInstance.DISPONIBLE " +
+            "AND i.idInstance IN (SELECT ir.idInstance FROM LigneReservation lr JOIN lr.instancesReservees ir " +
+            "WHERE lr.idLigneReservation IN :idsLignes)")
+    int mettreEnAttenteParLignes(@Param("idsLignes") Collection<Long> idsLignes);
+}
@@ -0,0 +1,46 @@
+package tn.weeding.agenceevenementielle.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tn.weeding.agenceevenementielle.entities.InstantaneStock;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InstantaneStockRepository extends JpaRepository<InstantaneStock, Long> {
+
+    /**
+     * Instantané le plus récent d'un produit à une date donnée (incluse)
+     */
+    Optional<InstantaneStock> findFirstByIdProduitAndDateInstantaneLessThanEqualOrderByDateInstantaneDesc(
+            Long idProduit, LocalDate date);
+
+    /**
+     * Instantanés d'un produit sur une période, dans l'ordre chronologique
+     */
+    List<InstantaneStock> findByIdProduitAndDateInstantaneBetweenOrderByDateInstantane(
+            Long idProduit, LocalDate dateDebut, LocalDate dateFin);
+
+    /**
+     * Instantanés de tous les produits pour un jour
+     */
+    List<InstantaneStock> findByDateInstantane(LocalDate date);
+
+    /**
+     * Dernier jour photographié, tous produits confondus
+     */
+    @Query("SELECT MAX(i.dateInstantane) FROM InstantaneStock i")
+    Optional<LocalDate> findDerniereDate();
+
+    /**
+     * Supprimer les instantanés d'un jour (recalcul du même jour)
+     */
+    @Modifying
+    @Query("DELETE FROM InstantaneStock i WHERE i.dateInstantane = :date")
+    int deleteByDate(@Param("date") LocalDate date);
+}
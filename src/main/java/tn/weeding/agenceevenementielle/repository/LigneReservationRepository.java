@@ -1,6 +1,8 @@
 package tn.weeding.agenceevenementielle.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -9,6 +11,8 @@ import tn.weeding.agenceevenementielle.entities.enums.StatutLivraison;
 import tn.weeding.agenceevenementielle.entities.enums.StatutReservation;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -541,6 +545,76 @@ public interface LigneReservationRepository extends JpaRepository<LigneReservati
             @Param("dateFin") LocalDate dateFin
     );
 
+    //=================================================
+    // Index d'occupation (projections légères)
+    //=================================================
+
+    /**
+     * Intervalles confirmés des produits en quantité
+     * @return [idProduit, dateDebut, dateFin, quantite]
+     */
+    @Query("""
+    SELECT lr.produit.idProduit, lr.dateDebut, lr.dateFin, lr.quantite
+    FROM LigneReservation lr
+    WHERE lr.produit.idProduit IN :idsProduits
+    AND lr.reservation.statutReservation = tn.weeding.agenceevenementielle.entities.enums.StatutReservation.CONFIRME
+    """)
+    List<Object[]> findIntervallesConfirmesParProduits(@Param("idsProduits") Collection<Long> idsProduits);
+
+    /**
+     * Intervalles confirmés de chaque instance réservée
+     * @return [idInstance, dateDebut, dateFin]
+     */
+    @Query("""
+    SELECT i.idInstance, lr.dateDebut, lr.dateFin
+    FROM LigneReservation lr
+    JOIN lr.instancesReservees i
+    WHERE lr.produit.idProduit IN :idsProduits
+    AND lr.reservation.statutReservation = tn.weeding.agenceevenementielle.entities.enums.StatutReservation.CONFIRME
+    """)
+    List<Object[]> findIntervallesInstancesConfirmesParProduits(@Param("idsProduits") Collection<Long> idsProduits);
+
+    /**
+     * Intervalles confirmés de chaque instance réservée, avec son produit (réconciliation)
+     * @return [idProduit, idInstance, dateDebut, dateFin]
+     */
+    @Query("""
+    SELECT lr.produit.idProduit, i.idInstance, lr.dateDebut, lr.dateFin
+    FROM LigneReservation lr
+    JOIN lr.instancesReservees i
+    WHERE lr.produit.idProduit IN :idsProduits
+    AND lr.reservation.statutReservation = tn.weeding.agenceevenementielle.entities.enums.StatutReservation.CONFIRME
+    """)
+    List<Object[]> findIntervallesInstancesConfirmesParProduitsAvecProduit(@Param("idsProduits") Collection<Long> idsProduits);
+
+    /**
+     * Historique des demandes AVEC_REFERENCE, dans l'ordre d'arrivée des réservations
+     * (rejoué par le simulateur d'allocation)
+     * @return [idProduit, dateDebut, dateFin, quantite]
+     */
+    @Query("""
+    SELECT lr.produit.idProduit, lr.dateDebut, lr.dateFin, lr.quantite
+    FROM LigneReservation lr
+    WHERE lr.produit.typeProduit = tn.weeding.agenceevenementielle.entities.enums.TypeProduit.AVEC_REFERENCE
+    AND lr.reservation.statutReservation IN :statuts
+    AND lr.dateFin >= :dateDebut
+    AND lr.dateDebut <= :dateFin
+    ORDER BY lr.reservation.dateCreation, lr.idLigneReservation
+    """)
+    List<Object[]> findHistoriqueDemandesAvecReference(
+            @Param("statuts") Collection<StatutReservation> statuts,
+            @Param("dateDebut") LocalDate dateDebut,
+            @Param("dateFin") LocalDate dateFin
+    );
+
+    /**
+     * Produits et périodes concernés par une réservation
+     * @return [idProduit, dateDebut, dateFin]
+     */
+    @Query("SELECT lr.produit.idProduit, lr.dateDebut, lr.dateFin FROM LigneReservation lr " +
+            "WHERE lr.reservation.idReservation = :idReservation")
+    List<Object[]> findPeriodesParReservation(@Param("idReservation") Long idReservation);
+
     //=================================================
     // Statistiques (Pour dashboard)
     //=================================================
@@ -644,4 +718,148 @@ public interface LigneReservationRepository extends JpaRepository<LigneReservati
             List<StatutLivraison> statuts
     );
 
-}
\ No newline at end of file
+    /**
+     * Quantités par produit des lignes dans les statuts de livraison indiqués
+     * @return [idProduit, somme des quantités]
+     */
+    @Query("SELECT l.produit.idProduit, COALESCE(SUM(l.quantite), 0) FROM LigneReservation l " +
+            "WHERE l.statutLivraisonLigne IN :statuts GROUP BY l.produit.idProduit")
+    List<Object[]> sommerQuantitesParStatutLivraison(@Param("statuts") Collection<StatutLivraison> statuts);
+
+    //=================================================
+    // Job quotidien (mises à jour ensemblistes par lots)
+    //=================================================
+
+    /**
+     * Lignes confirmées encore NOT_TODAY dont la période couvre le jour donné,
+     * par lots d'identifiants croissants (pagination par clé) dans la tranche ]apresId, jusquA]
+     */
+    @Query("""
+    SELECT lr.idLigneReservation FROM LigneReservation lr
+    WHERE lr.statutLivraisonLigne = tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.NOT_TODAY
+    AND lr.dateDebut <= :jour AND lr.dateFin >= :jour
+    AND lr.idLigneReservation > :apresId AND lr.idLigneReservation <= :jusquA
+    AND lr.reservation.statutReservation = tn.weeding.agenceevenementielle.entities.enums.StatutReservation.CONFIRME
+    ORDER BY lr.idLigneReservation
+    """)
+    List<Long> findIdsLignesADemarrer(@Param("jour") LocalDate jour,
+                                      @Param("apresId") Long apresId,
+                                      @Param("jusquA") Long jusquA,
+                                      Pageable lot);
+
+    @Query("SELECT COALESCE(MAX(lr.idLigneReservation), 0) FROM LigneReservation lr")
+    Long findMaxIdLigneReservation();
+
+    /**
+     * NOT_TODAY → EN_ATTENTE pour un lot de lignes
+     */
+    @Modifying
+    @Query("""
+    UPDATE LigneReservation lr
+    SET lr.statutLivraisonLigne = tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.EN_ATTENTE
+    WHERE lr.idLigneReservation IN :ids
+    AND lr.statutLivraisonLigne = tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.NOT_TODAY
+    """)
+    int demarrerLignes(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Produits AVEC_REFERENCE concernés par un lot de lignes (rafraîchissement de l'index d'occupation)
+     */
+    @Query("""
+    SELECT DISTINCT lr.produit.idProduit FROM LigneReservation lr
+    WHERE lr.idLigneReservation IN :ids
+    AND lr.produit.typeProduit = tn.weeding.agenceevenementielle.entities.enums.TypeProduit.AVEC_REFERENCE
+    """)
+    List<Long> findIdsProduitsAvecReferenceParLignes(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Nombre de lignes par réservation, pour un lot de réservations
+     * @return [idReservation, nombre]
+     */
+    @Query("""
+    SELECT lr.reservation.idReservation, COUNT(lr) FROM LigneReservation lr
+    WHERE lr.reservation.idReservation IN :idsReservations
+    GROUP BY lr.reservation.idReservation
+    """)
+    List<Object[]> compterParReservations(@Param("idsReservations") Collection<Long> idsReservations);
+
+    //=================================================
+    // Retours en retard (traitement incrémental)
+    //=================================================
+
+    /**
+     * Lignes en retard de retour, non encore signalées, dont la date de fin est dans [debut, fin[
+     * (sans borne basse si debut est null)
+     */
+    @Query("""
+    SELECT lr.idLigneReservation FROM LigneReservation lr
+    WHERE (:debut IS NULL OR lr.dateFin >= :debut) AND lr.dateFin < :fin
+    AND lr.statutLivraisonLigne NOT IN (tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.RETOUR,
+        tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.RETOUR_PARTIEL)
+    AND lr.reservation.statutReservation = tn.weeding.agenceevenementielle.entities.enums.StatutReservation.CONFIRME
+    AND (lr.dateFinRetardSignale IS NULL OR lr.dateFinRetardSignale <> lr.dateFin)
+    AND lr.idLigneReservation > :apresId
+    ORDER BY lr.idLigneReservation
+    """)
+    List<Long> findIdsRetardsFranchis(@Param("debut") LocalDate debut,
+                                      @Param("fin") LocalDate fin,
+                                      @Param("apresId") Long apresId,
+                                      Pageable lot);
+
+    /**
+     * Lignes en retard de retour, non encore signalées, modifiées depuis une date
+     */
+    @Query("""
+    SELECT lr.idLigneReservation FROM LigneReservation lr
+    WHERE lr.dateModification > :depuis AND lr.dateFin < :aujourdhui
+    AND lr.statutLivraisonLigne NOT IN (tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.RETOUR,
+        tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.RETOUR_PARTIEL)
+    AND lr.reservation.statutReservation = tn.weeding.agenceevenementielle.entities.enums.StatutReservation.CONFIRME
+    AND (lr.dateFinRetardSignale IS NULL OR lr.dateFinRetardSignale <> lr.dateFin)
+    AND lr.idLigneReservation > :apresId
+    ORDER BY lr.idLigneReservation
+    """)
+    List<Long> findIdsRetardsModifies(@Param("depuis") LocalDateTime depuis,
+                                      @Param("aujourdhui") LocalDate aujourdhui,
+                                      @Param("apresId") Long apresId,
+                                      Pageable lot);
+
+    /**
+     * Lignes en retard de retour, non encore signalées, dont la réservation a été modifiée depuis une date
+     */
+    @Query("""
+    SELECT lr.idLigneReservation FROM LigneReservation lr
+    WHERE lr.reservation.dateModification > :depuis AND lr.dateFin < :aujourdhui
+    AND lr.statutLivraisonLigne NOT IN (tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.RETOUR,
+        tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.RETOUR_PARTIEL)
+    AND lr.reservation.statutReservation = tn.weeding.agenceevenementielle.entities.enums.StatutReservation.CONFIRME
+    AND (lr.dateFinRetardSignale IS NULL OR lr.dateFinRetardSignale <> lr.dateFin)
+    AND lr.idLigneReservation > :apresId
+    ORDER BY lr.idLigneReservation
+    """)
+    List<Long> findIdsRetardsReservationsModifiees(@Param("depuis") LocalDateTime depuis,
+                                                   @Param("aujourdhui") LocalDate aujourdhui,
+                                                   @Param("apresId") Long apresId,
+                                                   Pageable lot);
+
+    /**
+     * Charger un lot de lignes avec leur réservation et leur produit (une seule requête)
+     */
+    @Query("""
+    SELECT lr FROM LigneReservation lr
+    JOIN FETCH lr.reservation JOIN FETCH lr.produit
+    WHERE lr.idLigneReservation IN :ids
+    ORDER BY lr.reservation.idReservation, lr.idLigneReservation
+    """)
+    List<LigneReservation> findAvecReservationEtProduitParIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Enregistrer le signalement du retard (UPDATE en masse : dateModification inchangée)
+     */
+    @Modifying
+    @Query("""
+    UPDATE LigneReservation lr SET lr.dateFinRetardSignale = lr.dateFin
+    WHERE lr.idLigneReservation IN :ids
+    """)
+    int marquerRetardsSignales(@Param("ids") Collection<Long> ids);
+}
@@ -7,6 +7,8 @@ import org.springframework.stereotype.Repository;
 import tn.weeding.agenceevenementielle.entities.MouvementStock;
 import tn.weeding.agenceevenementielle.entities.enums.TypeMouvement;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -336,4 +338,43 @@ public interface MouvementStockRepository extends JpaRepository<MouvementStock,
     @Query("SELECT m FROM MouvementStock m WHERE m.produit.idProduit = :idProduit " +
             "ORDER BY m.dateMouvement DESC LIMIT 1")
     MouvementStock findLatestByProduit(@Param("idProduit") Long idProduit);
-}
\ No newline at end of file
+
+    // ============================================
+    // INSTANTANÉS DE STOCK
+    // ============================================
+
+    /**
+     * Mouvements d'un produit postérieurs à un instantané, dans l'ordre chronologique
+     */
+    @Query("SELECT m FROM MouvementStock m WHERE m.produit.idProduit = :idProduit " +
+            "AND m.dateMouvement > :depuis AND m.dateMouvement <= :jusqua " +
+            "ORDER BY m.dateMouvement, m.idMouvement")
+    List<MouvementStock> findByProduitEntre(
+            @Param("idProduit") Long idProduit,
+            @Param("depuis") LocalDateTime depuis,
+            @Param("jusqua") LocalDateTime jusqua);
+
+    /**
+     * Quantités cumulées par produit et type de mouvement sur un intervalle
+     * @return [idProduit, typeMouvement, somme des quantités]
+     */
+    @Query("SELECT m.produit.idProduit, m.typeMouvement, COALESCE(SUM(m.quantite), 0) FROM MouvementStock m " +
+            "WHERE m.produit IS NOT NULL AND m.dateMouvement > :depuis AND m.dateMouvement <= :jusqua " +
+            "GROUP BY m.produit.idProduit, m.typeMouvement")
+    List<Object[]> sommerParProduitEtType(
+            @Param("depuis") LocalDateTime depuis,
+            @Param("jusqua") LocalDateTime jusqua);
+
+    // ============================================
+    // RÉCONCILIATION
+    // ============================================
+
+    /**
+     * Journal de plusieurs produits, prêt à être rejoué produit par produit
+     * @return [idProduit, typeMouvement, quantite, quantiteAvant, quantiteApres]
+     */
+    @Query("SELECT m.produit.idProduit, m.typeMouvement, m.quantite, m.quantiteAvant, m.quantiteApres " +
+            "FROM MouvementStock m WHERE m.produit.idProduit IN :idsProduits " +
+            "ORDER BY m.produit.idProduit, m.dateMouvement, m.idMouvement")
+    List<Object[]> findProjectionsRejeu(@Param("idsProduits") Collection<Long> idsProduits);
+}
@@ -0,0 +1,43 @@
+package tn.weeding.agenceevenementielle.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tn.weeding.agenceevenementielle.entities.NotificationArchivee;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NotificationArchiveeRepository extends JpaRepository<NotificationArchivee, Long> {
+
+    /**
+     * Copier un lot de notifications dans l'archive (INSERT ... SELECT, sans charger les entités)
+     */
+    @Modifying
+    @Query("INSERT INTO NotificationArchivee (idNotification, typeNotification, titre, message, dateCreation, " +
+            "lue, dateLecture, idUtilisateur, idReservation, idLivraison, idPaiement, idProduit, urlAction, dateArchivage) " +
+            "SELECT n.idNotification, n.typeNotification, n.titre, n.message, n.dateCreation, " +
+            "n.lue, n.dateLecture, n.utilisateur.idUtilisateur, n.idReservation, n.idLivraison, n.idPaiement, " +
+            "n.idProduit, n.urlAction, :dateArchivage " +
+            "FROM Notification n WHERE n.idNotification IN :ids")
+    int archiver(@Param("ids") List<Long> ids,
+                 @Param("dateArchivage") LocalDateTime dateArchivage);
+
+    /**
+     * Notifications archivées avant la limite de rétention, par identifiants croissants (pagination par clé)
+     */
+    @Query("SELECT a.idNotification FROM NotificationArchivee a " +
+            "WHERE a.idNotification > :apresId AND a.dateArchivage < :limite " +
+            "ORDER BY a.idNotification")
+    List<Long> findIdsAPurger(@Param("limite") LocalDateTime limite,
+                              @Param("apresId") Long apresId,
+                              Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM NotificationArchivee a WHERE a.idNotification IN :ids")
+    int supprimerParIds(@Param("ids") List<Long> ids);
+}
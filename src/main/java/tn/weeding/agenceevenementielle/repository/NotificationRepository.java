@@ -55,9 +55,26 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
                                 @Param("dateLecture") LocalDateTime dateLecture);
 
     /**
-     * Supprimer les anciennes notifications (nettoyage)
+     * Plus grand identifiant créé avant une date : borne le parcours de l'archivage
      */
-    void deleteByDateCreationBefore(LocalDateTime date);
+    @Query("SELECT MAX(n.idNotification) FROM Notification n WHERE n.dateCreation < :limite")
+    Long findMaxIdCreeesAvant(@Param("limite") LocalDateTime limite);
+
+    /**
+     * Notifications créées avant la limite, par identifiants croissants (pagination par clé)
+     */
+    @Query("SELECT n.idNotification FROM Notification n " +
+            "WHERE n.idNotification > :apresId AND n.idNotification <= :jusquA " +
+            "AND n.dateCreation < :limite " +
+            "ORDER BY n.idNotification")
+    List<Long> findIdsAArchiver(@Param("limite") LocalDateTime limite,
+                                @Param("apresId") Long apresId,
+                                @Param("jusquA") Long jusquA,
+                                Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.idNotification IN :ids")
+    int supprimerParIds(@Param("ids") List<Long> ids);
 
     /**
      * Récupérer les notifications récentes (dernières 24h)
@@ -1,6 +1,10 @@
 package tn.weeding.agenceevenementielle.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -9,6 +13,7 @@ import tn.weeding.agenceevenementielle.entities.Produit;
 import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -355,4 +360,72 @@ public interface ProduitRepository extends JpaRepository<Produit, Long> {
             "                 AND :date BETWEEN lr.dateDebut AND lr.dateFin), 0)) " +
             "< p.seuilCritique")
     Long countProduitsEnAlerteCritiqueParDate(@Param("date") LocalDate date);
-}
\ No newline at end of file
+
+    // ============================================
+    // INDEX D'OCCUPATION
+    // ============================================
+
+    /**
+     * Tous les identifiants de produits (chargement initial de l'index par lots)
+     */
+    @Query("SELECT p.idProduit FROM Produit p ORDER BY p.idProduit")
+    List<Long> findAllIds();
+
+    /**
+     * Verrouiller les lignes produits (SELECT ... FOR UPDATE) servant de garde
+     * pendant la réservation de leur stock. Ordre fixe pour éviter les interblocages.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Produit p WHERE p.idProduit IN :idsProduits ORDER BY p.idProduit")
+    List<Produit> verrouillerPourReservation(@Param("idsProduits") Collection<Long> idsProduits);
+
+    /**
+     * Projection légère des produits pour l'index d'occupation
+     * @return [idProduit, nomProduit, typeProduit, categorieProduit, quantiteDisponible]
+     */
+    @Query("SELECT p.idProduit, p.nomProduit, p.typeProduit, p.categorieProduit, p.quantiteDisponible " +
+            "FROM Produit p WHERE p.idProduit IN :idsProduits")
+    List<Object[]> findProjectionsOccupation(@Param("idsProduits") Collection<Long> idsProduits);
+
+    /**
+     * Projection du catalogue pour le calcul de disponibilité, filtres optionnels
+     * @return [idProduit, codeProduit, nomProduit, typeProduit, categorieProduit]
+     */
+    @Query("SELECT p.idProduit, p.codeProduit, p.nomProduit, p.typeProduit, p.categorieProduit " +
+            "FROM Produit p " +
+            "WHERE (:categorie IS NULL OR p.categorieProduit = :categorie) " +
+            "AND (:type IS NULL OR p.typeProduit = :type) " +
+            "ORDER BY p.nomProduit, p.idProduit")
+    List<Object[]> findProjectionsCatalogue(@Param("categorie") Categorie categorie,
+                                            @Param("type") TypeProduit type);
+
+    /**
+     * Une page de la projection du catalogue (tri porté par le Pageable)
+     * @return [idProduit, codeProduit, nomProduit, typeProduit, categorieProduit]
+     */
+    @Query(value = "SELECT p.idProduit, p.codeProduit, p.nomProduit, p.typeProduit, p.categorieProduit " +
+            "FROM Produit p " +
+            "WHERE (:categorie IS NULL OR p.categorieProduit = :categorie) " +
+            "AND (:type IS NULL OR p.typeProduit = :type)",
+            countQuery = "SELECT COUNT(p) FROM Produit p " +
+                    "WHERE (:categorie IS NULL OR p.categorieProduit = :categorie) " +
+                    "AND (:type IS NULL OR p.typeProduit = :type)")
+    Page<Object[]> findPageProjectionsCatalogue(@Param("categorie") Categorie categorie,
+                                                @Param("type") TypeProduit type,
+                                                Pageable pageable);
+
+    /**
+     * État de stock de tous les produits, sans charger les entités
+     * @return [idProduit, typeProduit, quantiteDisponible]
+     */
+    @Query("SELECT p.idProduit, p.typeProduit, p.quantiteDisponible FROM Produit p ORDER BY p.idProduit")
+    List<Object[]> findEtatsStock();
+
+    /**
+     * Projection des produits pour la réconciliation du stock
+     * @return [idProduit, nomProduit, typeProduit, quantiteInitial, quantiteDisponible]
+     */
+    @Query("SELECT p.idProduit, p.nomProduit, p.typeProduit, p.quantiteInitial, p.quantiteDisponible " +
+            "FROM Produit p WHERE p.idProduit IN :idsProduits")
+    List<Object[]> findProjectionsReconciliation(@Param("idsProduits") Collection<Long> idsProduits);
+}
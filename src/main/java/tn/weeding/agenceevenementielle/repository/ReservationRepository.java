@@ -1,14 +1,20 @@
 package tn.weeding.agenceevenementielle.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tn.weeding.agenceevenementielle.entities.Reservation;
+import tn.weeding.agenceevenementielle.entities.enums.StatutPaiementRes;
 import tn.weeding.agenceevenementielle.entities.enums.StatutReservation;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -27,11 +33,24 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
      */
     Optional<Reservation> findByReferenceReservation(String referenceReservation);
 
+    /**
+     * Lire une réservation en la verrouillant (SELECT ... FOR UPDATE) jusqu'au commit
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.idReservation = :id")
+    Optional<Reservation> findPourMiseAJour(@Param("id") Long id);
+
     /**
      * Vérifier si une référence existe
      */
     boolean existsByReferenceReservation(String referenceReservation);
 
+    /**
+     * Références commençant par un préfixe (initialisation de la séquence annuelle)
+     */
+    @Query("SELECT r.referenceReservation FROM Reservation r WHERE r.referenceReservation LIKE CONCAT(:prefixe, '%')")
+    List<String> findReferencesParPrefixe(@Param("prefixe") String prefixe);
+
     /**
      * Trouver toutes les réservations d'un utilisateur
      */
@@ -282,5 +301,120 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
             "AND r.dateDebut < :date")
     List<Reservation> findReservationsAvecPaiementsEnRetard(@Param("date") LocalDate date);
 
+    /**
+     * Relire le statut en base (hors contexte de persistance), après verrouillage du stock
+     */
+    @Query("SELECT r.statutReservation FROM Reservation r WHERE r.idReservation = :idReservation")
+    Optional<StatutReservation> findStatutById(@Param("idReservation") Long idReservation);
+
+    //=================================================
+    // Job quotidien (mises à jour ensemblistes par lots)
+    //=================================================
+
+    /**
+     * Réservations confirmées encore NOT_TODAY dont une ligne couvre le jour donné,
+     * par lots d'identifiants croissants (pagination par clé) dans la tranche ]apresId, jusquA]
+     */
+    @Query("""
+    SELECT r.idReservation FROM Reservation r
+    WHERE r.statutReservation = tn.weeding.agenceevenementielle.entities.enums.StatutReservation.CONFIRME
+    AND r.statutLivraisonRes = tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.NOT_TODAY
+    AND r.idReservation > :apresId AND r.idReservation <= :jusquA
+    AND EXISTS (SELECT 1 FROM LigneReservation lr WHERE lr.reservation = r
+                AND lr.dateDebut <= :jour AND lr.dateFin >= :jour)
+    ORDER BY r.idReservation
+    """)
+    List<Long> findIdsReservationsADemarrer(@Param("jour") LocalDate jour,
+                                            @Param("apresId") Long apresId,
+                                            @Param("jusquA") Long jusquA,
+                                            Pageable lot);
+
+    @Query("SELECT COALESCE(MAX(r.idReservation), 0) FROM Reservation r")
+    Long findMaxIdReservation();
+
+    /**
+     * NOT_TODAY → EN_ATTENTE pour un lot de réservations
+     */
+    @Modifying
+    @Query("""
+    UPDATE Reservation r
+    SET r.statutLivraisonRes = tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.EN_ATTENTE
+    WHERE r.idReservation IN :ids
+    AND r.statutLivraisonRes = tn.weeding.agenceevenementielle.entities.enums.StatutLivraison.NOT_TODAY
+    """)
+    int demarrerReservations(@Param("ids") Collection<Long> ids);
+
+    //=================================================
+    // Rappels (sélection ciblée, pagination par clé)
+    //=================================================
 
-}
\ No newline at end of file
+    /**
+     * Réservations dont le devis expire dans [debut, fin[ (statut de paiement ignoré si null)
+     */
+    @Query("""
+    SELECT r.idReservation FROM Reservation r
+    WHERE r.statutReservation = :statut
+    AND (:statutPaiement IS NULL OR r.statutPaiement = :statutPaiement)
+    AND r.dateExpirationDevis >= :debut AND r.dateExpirationDevis < :fin
+    AND r.idReservation > :apresId
+    ORDER BY r.idReservation
+    """)
+    List<Long> findIdsParExpirationDevisEntre(@Param("statut") StatutReservation statut,
+                                              @Param("statutPaiement") StatutPaiementRes statutPaiement,
+                                              @Param("debut") LocalDateTime debut,
+                                              @Param("fin") LocalDateTime fin,
+                                              @Param("apresId") Long apresId,
+                                              Pageable lot);
+
+    /**
+     * Échéances des devis d'un statut : [idReservation, dateExpirationDevis]
+     */
+    @Query("""
+    SELECT r.idReservation, r.dateExpirationDevis FROM Reservation r
+    WHERE r.statutReservation = :statut
+    AND r.dateExpirationDevis IS NOT NULL
+    AND r.idReservation > :apresId
+    ORDER BY r.idReservation
+    """)
+    List<Object[]> findEcheancesDevis(@Param("statut") StatutReservation statut,
+                                      @Param("apresId") Long apresId,
+                                      Pageable lot);
+
+    /**
+     * Devis d'un statut échus à une date (dateExpirationDevis <= maintenant), par identifiants croissants
+     */
+    @Query("""
+    SELECT r.idReservation FROM Reservation r
+    WHERE r.statutReservation = :statut
+    AND r.dateExpirationDevis <= :maintenant
+    AND r.idReservation > :apresId
+    ORDER BY r.idReservation
+    """)
+    List<Long> findIdsDevisEchus(@Param("statut") StatutReservation statut,
+                                 @Param("maintenant") LocalDateTime maintenant,
+                                 @Param("apresId") Long apresId,
+                                 Pageable lot);
+
+    /**
+     * Réservations terminées à une date donnée, pour un statut de paiement
+     */
+    @Query("""
+    SELECT r.idReservation FROM Reservation r
+    WHERE r.statutReservation = :statut
+    AND r.statutPaiement = :statutPaiement
+    AND r.dateFin = :dateFin
+    AND r.idReservation > :apresId
+    ORDER BY r.idReservation
+    """)
+    List<Long> findIdsParDateFin(@Param("statut") StatutReservation statut,
+                                 @Param("statutPaiement") StatutPaiementRes statutPaiement,
+                                 @Param("dateFin") LocalDate dateFin,
+                                 @Param("apresId") Long apresId,
+                                 Pageable lot);
+
+    /**
+     * Charger un lot de réservations avec leur client (une seule requête)
+     */
+    @Query("SELECT r FROM Reservation r LEFT JOIN FETCH r.utilisateur WHERE r.idReservation IN :ids ORDER BY r.idReservation")
+    List<Reservation> findAvecClientParIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,31 @@
+package tn.weeding.agenceevenementielle.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tn.weeding.agenceevenementielle.entities.SequenceCompteur;
+
+import java.util.Optional;
+
+@Repository
+public interface SequenceCompteurRepository extends JpaRepository<SequenceCompteur, String> {
+
+    /**
+     * Lire un compteur en le verrouillant (SELECT ... FOR UPDATE) jusqu'au commit
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SequenceCompteur s WHERE s.cle = :cle")
+    Optional<SequenceCompteur> findPourReservationBloc(@Param("cle") String cle);
+
+    /**
+     * Créer un compteur (échoue sur la clé primaire si un autre nœud l'a déjà créé)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sequence_compteur (cle, valeur, dateModification) " +
+            "VALUES (:cle, :valeur, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int creerCompteur(@Param("cle") String cle, @Param("valeur") long valeur);
+}
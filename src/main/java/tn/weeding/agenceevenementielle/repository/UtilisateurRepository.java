@@ -33,6 +33,9 @@ public interface UtilisateurRepository extends JpaRepository<Utilisateur, Long>
              nativeQuery = true)
      Optional<String> findLastCodeByPrefix(@Param("prefix") String prefix);
 
+     @Query("SELECT u.codeUtilisateur FROM Utilisateur u WHERE u.codeUtilisateur LIKE CONCAT(:prefix, '%')")
+     List<String> findCodesByPrefix(@Param("prefix") String prefix);
+
      //=================================================
      // Statistiques utilisateurs (Dashboard)
      //=================================================
@@ -0,0 +1,152 @@
+package tn.weeding.agenceevenementielle.scheduling;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.repository.BailTacheRepository;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * ==========================================
+ * COORDINATION DES TÂCHES PLANIFIÉES ENTRE INSTANCES
+ * ==========================================
+ *
+ * Chaque instance déclenche les mêmes @Scheduled : un bail par tâche (table bail_tache)
+ * désigne le seul nœud qui l'exécute.
+ *
+ * - acquerir : élection par UPDATE conditionnel (bail expiré), une transaction courte et indépendante.
+ *   Le bail n'est pas rendu en fin de job : il couvre l'occurrence du cron et doit être plus court
+ *   que sa période, et plus long que le décalage d'horloge entre nœuds.
+ * - executerParTranches : un job volumineux est découpé en tranches d'identifiants de largeur fixe ;
+ *   chaque tranche a son bail et son marqueur d'exécution terminée, les nœuds se partagent les tranches.
+ *   Largeur fixe : tous les nœuds calculent les mêmes bornes (pas de trou entre tranches), la dernière
+ *   tranche est ouverte (identifiants créés pendant le job).
+ */
+@Component
+@Slf4j
+public class CoordinationTaches {
+
+    private final BailTacheRepository bailRepo;
+    private final TransactionTemplate nouvelleTransaction;
+
+    @Getter
+    private final String noeud;
+
+    public CoordinationTaches(BailTacheRepository bailRepo,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${taches.noeud:}") String noeud) {
+        this.bailRepo = bailRepo;
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.noeud = noeud == null || noeud.isBlank() ? identifiantNoeud() : noeud;
+        log.info("🖥️ Nœud des tâches planifiées: {}", this.noeud);
+    }
+
+    /**
+     * Prendre le bail d'une tâche pour une durée
+     *
+     * @return true si ce nœud doit exécuter la tâche
+     */
+    public boolean acquerir(String tache, Duration duree) {
+        boolean acquis = prendre(tache, null, duree);
+        if (!acquis) {
+            log.info("⏭️ Tâche {} ignorée : déjà prise par un autre nœud", tache);
+        }
+        return acquis;
+    }
+
+    /**
+     * Exécuter les tranches d'un job que ce nœud parvient à prendre
+     *
+     * @param execution Identifiant de l'exécution (ex : la date du jour pour un job quotidien)
+     * @param maxId Plus grand identifiant connu (fixe le nombre de tranches)
+     * @param largeur Nombre d'identifiants par tranche
+     * @param dureeTranche Durée maximale d'une tranche (au-delà, un autre nœud peut la reprendre)
+     * @return Nombre de tranches traitées par ce nœud
+     */
+    public int executerParTranches(String tache, String execution, long maxId, long largeur,
+                                   Duration dureeTranche, Consumer<Tranche> travail) {
+        int nombre = (int) (Math.max(0, maxId) / largeur) + 1;
+        // Point de départ propre à chaque nœud : les nœuds ne se disputent pas les mêmes tranches
+        int depart = Math.floorMod(noeud.hashCode(), nombre);
+        int traitees = 0;
+
+        for (int i = 0; i < nombre; i++) {
+            int numero = (depart + i) % nombre;
+            String nomTranche = tache + "#" + numero;
+            if (!prendre(nomTranche, execution, dureeTranche)) {
+                continue;
+            }
+
+            Tranche tranche = new Tranche(numero, numero * largeur,
+                    numero == nombre - 1 ? Long.MAX_VALUE : (numero + 1) * largeur);
+            try {
+                travail.accept(tranche);
+                nouvelleTransaction.executeWithoutResult(status ->
+                        bailRepo.terminerExecution(nomTranche, noeud, execution, LocalDateTime.now()));
+                traitees++;
+                log.debug("🧩 Tranche {} ({} → {}) traitée", nomTranche, tranche.apresId(), tranche.jusquA());
+            } catch (Exception e) {
+                log.error("❌ Erreur dans la tranche {}: {}", nomTranche, e.getMessage());
+                nouvelleTransaction.executeWithoutResult(status ->
+                        bailRepo.rendreBail(nomTranche, noeud, LocalDateTime.now()));
+            }
+        }
+
+        log.info("🧩 Tâche {} ({}) : {} tranche(s) sur {} traitée(s) par ce nœud", tache, execution, traitees, nombre);
+        return traitees;
+    }
+
+    // ============================================
+    // MÉTHODES PRIVÉES
+    // ============================================
+
+    private boolean prendre(String nomBail, String execution, Duration duree) {
+        try {
+            Boolean acquis = nouvelleTransaction.execute(status -> {
+                LocalDateTime maintenant = LocalDateTime.now();
+                LocalDateTime expiration = maintenant.plus(duree);
+                if (bailRepo.prendreBail(nomBail, noeud, execution, maintenant, expiration) == 1) {
+                    return true;
+                }
+                if (bailRepo.existsById(nomBail)) {
+                    return false;
+                }
+                return bailRepo.creerBail(nomBail, noeud, maintenant, expiration) == 1;
+            });
+            return Boolean.TRUE.equals(acquis);
+        } catch (DataIntegrityViolationException e) {
+            // Bail créé au même instant par un autre nœud
+            return false;
+        } catch (Exception e) {
+            log.error("❌ Impossible de prendre le bail {}: {}", nomBail, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String identifiantNoeud() {
+        String hote;
+        try {
+            hote = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            hote = "noeud";
+        }
+        return hote + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Tranche d'identifiants ]apresId, jusquA]
+     */
+    public record Tranche(int numero, long apresId, long jusquA) {
+    }
+}
@@ -2,20 +2,28 @@ package tn.weeding.agenceevenementielle.scheduling;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import tn.weeding.agenceevenementielle.entities.CurseurTache;
 import tn.weeding.agenceevenementielle.entities.LigneReservation;
 import tn.weeding.agenceevenementielle.entities.Livraison;
 import tn.weeding.agenceevenementielle.entities.Reservation;
 import tn.weeding.agenceevenementielle.entities.enums.StatutLivraison;
-import tn.weeding.agenceevenementielle.entities.enums.StatutReservation;
+import tn.weeding.agenceevenementielle.entities.enums.TypeNotification;
+import tn.weeding.agenceevenementielle.repository.CurseurTacheRepository;
 import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
 import tn.weeding.agenceevenementielle.repository.LivraisonRepository;
-import tn.weeding.agenceevenementielle.repository.ReservationRepository;
+import tn.weeding.agenceevenementielle.services.NotificationServiceInterface;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.List;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.LongFunction;
 
 /**
  * Job Cron pour la mise à jour automatique des statuts de livraison
@@ -30,8 +38,19 @@ import java.util.List;
 @Slf4j
 public class LivraisonScheduler {
 
+    static final String TACHE_STATUTS_LIVRAISONS = "statuts-livraisons";
+    static final String TACHE_RETOURS_EN_RETARD = "retours-en-retard";
+    private static final int TAILLE_LOT = 500;
+    /** Recouvrement du curseur : transactions encore ouvertes au début de l'exécution précédente */
+    private static final Duration RECOUVREMENT = Duration.ofMinutes(10);
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
     private final LigneReservationRepository ligneReservationRepo;
     private final LivraisonRepository livraisonRepo;
+    private final CurseurTacheRepository curseurTacheRepo;
+    private final NotificationServiceInterface notificationService;
+    private final CoordinationTaches coordination;
+    private final SuiviTachesService suiviTaches;
 
 
     /**
@@ -43,6 +62,10 @@ public class LivraisonScheduler {
     @Scheduled(cron = "0 2 0 * * ?") // Tous les jours à 00:02
     @Transactional
     public void mettreAJourStatutsLivraisons() {
+        if (!coordination.acquerir(TACHE_STATUTS_LIVRAISONS, Duration.ofHours(1))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_STATUTS_LIVRAISONS);
         log.info("⏰ 🚚 DEBUT - Job Cron de mise à jour des statuts de livraison (NOT_TODAY → EN_ATTENTE)");
         log.info("📅 Date du jour: {}", LocalDate.now());
 
@@ -64,6 +87,7 @@ public class LivraisonScheduler {
 
             log.info("🔍 {} livraison(s) trouvée(s) avec NOT_TODAY et dateLivraison = aujourd'hui",
                     livraisons.size());
+            suivi.lues(livraisons.size());
 
             for (Livraison livraison : livraisons) {
                 try {
@@ -96,6 +120,7 @@ public class LivraisonScheduler {
                     }
 
                 } catch (Exception e) {
+                    suivi.echec();
                     log.error("❌ Erreur lors de la mise à jour de la livraison #{}: {}",
                             livraison.getIdLivraison(), e.getMessage());
                 }
@@ -107,45 +132,143 @@ public class LivraisonScheduler {
 
             log.info("📊 ========== RÉSUMÉ DE LA MISE À JOUR ==========");
             log.info("📈 Livraisons mises à jour: {}", livraisonsMisesAJour);
+            suivi.modifiees(livraisonsMisesAJour);
             log.info("⏰ ✅ FIN - Job Cron terminé avec succès");
 
         } catch (Exception e) {
+            suivi.echouer(e);
             log.error("❌ ⚠️ ERREUR CRITIQUE dans le job Cron de mise à jour des livraisons: {}", e.getMessage());
             log.error("Stack trace:", e);
         }
+        suivi.terminer();
     }
 
     /**
-     * OPTIONNEL: Job Cron qui s'exécute toutes les heures pour vérifier les retours en retard
+     * Job Cron qui s'exécute toutes les heures pour signaler les retours en retard
      *
      * Format Cron: "0 0 * * * ?" = toutes les heures à 0 minutes
+     *
+     * Traitement incrémental à partir du curseur persistant de la tâche (début de l'exécution précédente) :
+     * - lignes dont la date de fin a été franchie depuis le curseur
+     * - lignes (ou réservations) modifiées depuis le curseur : statut, période, confirmation tardive...
+     * Chaque ligne garde la dateFin pour laquelle son retard a été signalé : pas de nouvelle
+     * notification toutes les heures pour le même retard, le coût suit le nombre de nouveaux retards.
+     *
+     * Sans curseur (première exécution), les retards déjà présents sont marqués signalés sans notification :
+     * l'ancien job les journalisait seulement, le staff ne doit pas recevoir une rafale d'anciens retards.
      */
     @Scheduled(cron = "0 0 * * * ?") // Toutes les heures
     @Transactional
     public void verifierRetoursEnRetard() {
+        if (!coordination.acquerir(TACHE_RETOURS_EN_RETARD, Duration.ofMinutes(30))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_RETOURS_EN_RETARD);
         log.info("🔍 Vérification des retours en retard...");
 
         try {
-            List<LigneReservation> lignesEnRetard = ligneReservationRepo.findRetoursEnRetard();
+            LocalDateTime debutExecution = LocalDateTime.now();
+            LocalDate aujourdhui = debutExecution.toLocalDate();
+            CurseurTache curseur = curseurTacheRepo.findById(TACHE_RETOURS_EN_RETARD).orElse(null);
 
-            if (!lignesEnRetard.isEmpty()) {
-                log.warn("⚠️ {} ligne(s) de réservation en retard de retour détectée(s)", lignesEnRetard.size());
+            Set<Long> idsLignes = new TreeSet<>();
+            if (curseur == null) {
+                // Première exécution : initialiser le curseur, les retards existants sont marqués sans notification
+                List<Long> existants = lireParLots(apresId -> ligneReservationRepo.findIdsRetardsFranchis(
+                        null, aujourdhui, apresId, PageRequest.of(0, TAILLE_LOT)));
+                for (int i = 0; i < existants.size(); i += TAILLE_LOT) {
+                    ligneReservationRepo.marquerRetardsSignales(
+                            existants.subList(i, Math.min(i + TAILLE_LOT, existants.size())));
+                }
+                suivi.lues(existants.size());
+                suivi.modifiees(existants.size());
+                log.info("📌 Curseur initialisé : {} retard(s) existant(s) marqué(s) signalé(s) sans notification",
+                        existants.size());
+            } else {
+                LocalDateTime depuis = curseur.getDateCurseur().minus(RECOUVREMENT);
+                idsLignes.addAll(lireParLots(apresId -> ligneReservationRepo.findIdsRetardsFranchis(
+                        depuis.toLocalDate(), aujourdhui, apresId, PageRequest.of(0, TAILLE_LOT))));
+                idsLignes.addAll(lireParLots(apresId -> ligneReservationRepo.findIdsRetardsModifies(
+                        depuis, aujourdhui, apresId, PageRequest.of(0, TAILLE_LOT))));
+                idsLignes.addAll(lireParLots(apresId -> ligneReservationRepo.findIdsRetardsReservationsModifiees(
+                        depuis, aujourdhui, apresId, PageRequest.of(0, TAILLE_LOT))));
+                suivi.lues(idsLignes.size());
+            }
 
-                for (LigneReservation ligne : lignesEnRetard) {
-                    log.warn("⚠️ Retour en retard - Réservation: {}, Produit: {}, Date fin prévue: {}",
-                            ligne.getReservation().getReferenceReservation(),
-                            ligne.getProduit().getNomProduit(),
-                            ligne.getDateFin());
+            if (!idsLignes.isEmpty()) {
+                log.warn("⚠️ {} nouvelle(s) ligne(s) de réservation en retard de retour détectée(s)", idsLignes.size());
 
-                    // TODO Sprint 7: Envoyer une notification à l'admin
+                List<Long> ids = new ArrayList<>(idsLignes);
+                for (int i = 0; i < ids.size(); i += TAILLE_LOT) {
+                    signalerRetards(ids.subList(i, Math.min(i + TAILLE_LOT, ids.size())));
                 }
-            } else {
-                log.info("✅ Aucun retour en retard détecté");
+                suivi.modifiees(ids.size());
+            } else if (curseur != null) {
+                log.info("✅ Aucun nouveau retour en retard détecté");
+            }
+
+            if (curseur == null) {
+                curseur = CurseurTache.builder().nomTache(TACHE_RETOURS_EN_RETARD).build();
             }
+            curseur.setDateCurseur(debutExecution);
+            curseur.setDateModification(LocalDateTime.now());
+            curseurTacheRepo.save(curseur);
 
         } catch (Exception e) {
+            suivi.echouer(e);
             log.error("❌ Erreur lors de la vérification des retours en retard: {}", e.getMessage());
         }
+        suivi.terminer();
+    }
+
+    /**
+     * Une notification staff par réservation, puis enregistrement du signalement sur chaque ligne
+     */
+    private void signalerRetards(List<Long> idsLignes) {
+        Map<Long, List<LigneReservation>> parReservation = new LinkedHashMap<>();
+        for (LigneReservation ligne : ligneReservationRepo.findAvecReservationEtProduitParIds(idsLignes)) {
+            parReservation.computeIfAbsent(ligne.getReservation().getIdReservation(), id -> new ArrayList<>()).add(ligne);
+        }
+
+        for (List<LigneReservation> lignes : parReservation.values()) {
+            Reservation reservation = lignes.get(0).getReservation();
+            StringBuilder message = new StringBuilder(String.format(
+                    "Le matériel de la réservation %s n'a pas été retourné :\n", reservation.getReferenceReservation()));
+            for (LigneReservation ligne : lignes) {
+                log.warn("⚠️ Retour en retard - Réservation: {}, Produit: {}, Date fin prévue: {}",
+                        reservation.getReferenceReservation(),
+                        ligne.getProduit().getNomProduit(),
+                        ligne.getDateFin());
+                message.append(String.format("- %s (x%d), fin prévue le %s\n",
+                        ligne.getProduit().getNomProduit(), ligne.getQuantite(), ligne.getDateFin().format(FORMAT_DATE)));
+            }
+
+            notificationService.creerNotificationPourStaff(
+                    TypeNotification.RETOUR_EN_RETARD,
+                    "Retour en retard",
+                    message.toString(),
+                    reservation.getIdReservation(),
+                    "/admin/livraisons"
+            );
+        }
+
+        ligneReservationRepo.marquerRetardsSignales(idsLignes);
+    }
+
+    /**
+     * Tous les identifiants d'une requête paginée par clé
+     */
+    private static List<Long> lireParLots(LongFunction<List<Long>> lot) {
+        List<Long> ids = new ArrayList<>();
+        long apresId = 0L;
+        while (true) {
+            List<Long> page = lot.apply(apresId);
+            if (page.isEmpty()) {
+                return ids;
+            }
+            ids.addAll(page);
+            apresId = page.get(page.size() - 1);
+        }
     }
 
 }
\ No newline at end of file
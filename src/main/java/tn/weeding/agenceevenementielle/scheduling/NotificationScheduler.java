@@ -1,61 +1,113 @@
 package tn.weeding.agenceevenementielle.scheduling;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import tn.weeding.agenceevenementielle.dto.notification.NotificationRequestDto;
 import tn.weeding.agenceevenementielle.entities.Reservation;
 import tn.weeding.agenceevenementielle.entities.Utilisateur;
 import tn.weeding.agenceevenementielle.entities.enums.StatutPaiementRes;
 import tn.weeding.agenceevenementielle.entities.enums.StatutReservation;
 import tn.weeding.agenceevenementielle.entities.enums.TypeNotification;
-import tn.weeding.agenceevenementielle.repository.NotificationRepository;
+import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
 import tn.weeding.agenceevenementielle.repository.ReservationRepository;
+import tn.weeding.agenceevenementielle.services.ArchivageNotificationService;
 import tn.weeding.agenceevenementielle.services.EmailService;
+import tn.weeding.agenceevenementielle.services.Email.GabaritsEmail;
 import tn.weeding.agenceevenementielle.services.NotificationServiceInterface;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongFunction;
 
 /**
- * Job CRON pour le nettoyage automatique des anciennes notifications
+ * Job CRON pour l'archivage automatique des anciennes notifications
+ * et les rappels clients (paiement, régularisation, validation de devis)
+ *
+ * Rappels : seules les réservations dont le jour de rappel est aujourd'hui sont lues
+ * (requêtes indexées, lots d'identifiants croissants). Les notifications et emails
+ * d'un lot partent en parallèle sur un pool borné ; quand sa file est pleine,
+ * le job envoie lui-même, ce qui le ralentit au lieu d'accumuler des envois en mémoire.
+ * Les messages sont rendus depuis les gabarits compilés templates/email/fr/rappel-*.txt (voir GabaritsEmail).
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationScheduler {
 
-    private final NotificationRepository notificationRepo;
     private final ReservationRepository reservationRepo;
     private final NotificationServiceInterface notificationService;
+    private final ArchivageNotificationService archivageNotificationService;
+    private final GabaritsEmail gabarits;
     private final EmailService emailService;
-
+    private final LigneReservationRepository ligneReservationRepo;
+    private final PlatformTransactionManager transactionManager;
+    private final CoordinationTaches coordination;
+    private final SuiviTachesService suiviTaches;
+
+    static final String TACHE_NETTOYAGE_NOTIFICATIONS = "nettoyage-notifications";
+    static final String TACHE_RAPPEL_ACOMPTE = "rappel-paiement-acompte";
+    static final String TACHE_RAPPEL_REGULARISATION = "rappel-regularisation-financiere";
+    static final String TACHE_RAPPEL_VALIDATION_DEVIS = "rappel-validation-devis";
+
+    private static final int TAILLE_LOT = 200;
+    private static final int ENVOIS_PARALLELES = 4;
+
+    private final ThreadPoolExecutor envois = new ThreadPoolExecutor(
+            ENVOIS_PARALLELES, ENVOIS_PARALLELES, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(TAILLE_LOT),
+            new CustomizableThreadFactory("rappels-"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    @PreDestroy
+    public void arreter() {
+        envois.shutdown();
+    }
 
     /**
-     * Nettoyer les notifications de plus de 30 jours
-     * Exécution : Tous les dimanches à 3h du matin
+     * Archiver les notifications de plus de 30 jours et purger l'archive expirée
+     * Exécution : Tous les jours à 3h du matin, par petits lots (voir ArchivageNotificationService)
      */
-    @Scheduled(cron = "0 0 3 * * SUN")
-    @Transactional
+    @Scheduled(cron = "0 0 3 * * ?")
     public void nettoyerAnciennesNotifications() {
-        log.info("🧹 Démarrage du nettoyage des anciennes notifications...");
-
-        LocalDateTime dateLimit = LocalDateTime.now().minusDays(30);
+        if (!coordination.acquerir(TACHE_NETTOYAGE_NOTIFICATIONS, Duration.ofHours(1))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_NETTOYAGE_NOTIFICATIONS);
+        log.info("🧹 Démarrage de l'archivage des anciennes notifications...");
 
         try {
-            notificationRepo.deleteByDateCreationBefore(dateLimit);
-            log.info("✅ Nettoyage terminé - Notifications avant {} supprimées", dateLimit);
+            ArchivageNotificationService.Resultat resultat = archivageNotificationService.archiver();
+            suivi.lues(resultat.lues());
+            suivi.modifiees(resultat.archivees());
+            log.info("✅ Archivage terminé - {} notification(s) archivée(s), {} purgée(s) de l'archive en {} lot(s){}",
+                    resultat.archivees(), resultat.purgees(), resultat.lots(),
+                    resultat.complet() ? "" : " (reliquat à la prochaine exécution)");
         } catch (Exception e) {
+            suivi.echouer(e);
             log.error("❌ Erreur lors du nettoyage : {}", e.getMessage());
         }
+        suivi.terminer();
     }
 
 
 
+
+
     /**
      *  Rappeler aux clients de payer l'acompte avant expiration du délai
      *
@@ -68,114 +120,85 @@ public class NotificationScheduler {
      * - On rappelle 3 jours avant et 1 jour avant l'expiration
      */
     @Scheduled(cron = "0 0 10 * * ?") // Tous les jours à 10h00
-    @Transactional
     public void rappelPaiementAcompte() {
+        if (!coordination.acquerir(TACHE_RAPPEL_ACOMPTE, Duration.ofHours(1))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_RAPPEL_ACOMPTE);
         log.info("💰 ⏰ DEBUT - Job de rappel paiement acompte avant expiration");
 
-        LocalDateTime maintenant = LocalDateTime.now();
-        LocalDate aujourdhui = maintenant.toLocalDate();
+        LocalDate aujourdhui = LocalDate.now();
 
         try {
-            // Récupérer toutes les réservations CONFIRMÉES en attente de paiement
-            List<Reservation> reservationsEnAttente = reservationRepo.findAll().stream()
-                    .filter(r -> r.getStatutReservation() == StatutReservation.CONFIRME)
-                    .filter(r -> r.getStatutPaiement() == StatutPaiementRes.EN_ATTENTE_PAIEMENT)
-                    .filter(r -> r.getDateExpirationDevis() != null)
-                    .filter(r -> r.getDateExpirationDevis().toLocalDate().isAfter(aujourdhui)) // Pas encore expiré
-                    .toList();
-
-            log.info("📋 {} réservation(s) confirmée(s) en attente de paiement trouvée(s)",
-                    reservationsEnAttente.size());
-
             int rappelEnvoye = 0;
 
-            for (Reservation reservation : reservationsEnAttente) {
-                try {
-                    LocalDate dateExpiration = reservation.getDateExpirationDevis().toLocalDate();
-                    long joursRestants = ChronoUnit.DAYS.between(aujourdhui, dateExpiration);
-
-                    Utilisateur client = reservation.getUtilisateur();
-                    if (client == null) {
-                        log.warn("⚠️ Client introuvable pour la réservation {}",
-                                reservation.getReferenceReservation());
-                        continue;
-                    }
-
-                    // Rappel à 3 jours
-                    if (joursRestants == 3) {
-                        log.info("📅 Rappel à 3 jours pour la réservation {}",
-                                reservation.getReferenceReservation());
-
-                        envoyerRappelPaiement(
-                                reservation,
-                                client,
-                                joursRestants,
-                                "⏰ Rappel: 3 jours pour payer votre acompte",
-                                String.format(
-                                        "Bonjour %s,\n\n" +
-                                                "Nous vous rappelons qu'il vous reste 3 jours pour régler l'acompte " +
-                                                "de votre réservation %s (Montant total: %.2f TND).\n\n" +
-                                                "📅 Date limite de paiement: %s\n" +
-                                                "💰 Montant déjà payé: %.2f TND\n" +
-                                                "💵 Montant restant: %.2f TND\n\n" +
-                                                "Merci de procéder au paiement rapidement pour sécuriser votre réservation.",
-                                        client.getPrenom(),
-                                        reservation.getReferenceReservation(),
-                                        reservation.getMontantTotal(),
-                                        dateExpiration.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        reservation.getMontantPaye() != null ? reservation.getMontantPaye() : 0.0,
-                                        reservation.getMontantTotal() - (reservation.getMontantPaye() != null ? reservation.getMontantPaye() : 0.0)
-                                )
-                        );
-                        rappelEnvoye++;
-                    }
-                    // Rappel à 1 jour
-                    else if (joursRestants == 1) {
-                        log.info("🚨 Rappel URGENT à 1 jour pour la réservation {}",
-                                reservation.getReferenceReservation());
-
-                        envoyerRappelPaiement(
-                                reservation,
-                                client,
-                                joursRestants,
-                                "🚨 URGENT: Dernier jour pour payer votre acompte",
-                                String.format(
-                                        "Bonjour %s,\n\n" +
-                                                "🚨 ATTENTION: C'est votre dernier jour pour régler l'acompte " +
-                                                "de votre réservation %s !\n\n" +
-                                                "📅 Date limite: DEMAIN (%s)\n" +
-                                                "💰 Montant total: %.2f TND\n" +
-                                                "💵 Montant restant à payer: %.2f TND\n\n" +
-                                                "⚠️ Sans paiement avant demain, votre réservation risque d'être annulée.\n\n" +
-                                                "Merci de procéder au paiement immédiatement pour conserver votre réservation.",
-                                        client.getPrenom(),
-                                        reservation.getReferenceReservation(),
-                                        dateExpiration.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        reservation.getMontantTotal(),
-                                        reservation.getMontantTotal() - (reservation.getMontantPaye() != null ? reservation.getMontantPaye() : 0.0)
-                                )
-                        );
-                        rappelEnvoye++;
-                    }
-
-                } catch (Exception e) {
-                    log.error("❌ Erreur lors du rappel pour la réservation {}: {}",
-                            reservation.getReferenceReservation(), e.getMessage());
-                }
+            for (long joursRestants : new long[]{3, 1}) {
+                LocalDate dateExpiration = aujourdhui.plusDays(joursRestants);
+                rappelEnvoye += traiterParLots(suivi,
+                        apresId -> reservationRepo.findIdsParExpirationDevisEntre(
+                                StatutReservation.CONFIRME, StatutPaiementRes.EN_ATTENTE_PAIEMENT,
+                                dateExpiration.atStartOfDay(), dateExpiration.plusDays(1).atStartOfDay(),
+                                apresId, PageRequest.of(0, TAILLE_LOT)),
+                        lot -> preparerChacun(lot, reservation -> rappelPaiement(reservation, joursRestants)));
             }
 
             log.info("✅ Job terminé: {} rappel(s) de paiement envoyé(s)", rappelEnvoye);
 
         } catch (Exception e) {
+            suivi.echouer(e);
             log.error("❌ Erreur globale lors du job de rappel paiement: {}", e.getMessage());
         }
+        suivi.terminer();
+    }
+
+    private Rappel rappelPaiement(Reservation reservation, long joursRestants) {
+        LocalDate dateExpiration = reservation.getDateExpirationDevis().toLocalDate();
+        Utilisateur client = reservation.getUtilisateur();
+        double montantPaye = reservation.getMontantPaye() != null ? reservation.getMontantPaye() : 0.0;
+
+        // Rappel à 3 jours
+        if (joursRestants == 3) {
+            log.info("📅 Rappel à 3 jours pour la réservation {}",
+                    reservation.getReferenceReservation());
+
+            return envoyerRappelPaiement(
+                    reservation,
+                    client,
+                    joursRestants,
+                    "⏰ Rappel: 3 jours pour payer votre acompte",
+                    gabarits.rendre("rappel-acompte-3j", Map.of(
+                            "prenom", nomOuVide(client.getPrenom()),
+                            "reference", reservation.getReferenceReservation(),
+                            "montantTotal", reservation.getMontantTotal(),
+                            "dateLimite", dateExpiration,
+                            "montantPaye", montantPaye,
+                            "montantRestant", reservation.getMontantTotal() - montantPaye))
+            );
+        }
+
+        // Rappel à 1 jour
+        log.info("🚨 Rappel URGENT à 1 jour pour la réservation {}",
+                reservation.getReferenceReservation());
+
+        return envoyerRappelPaiement(
+                reservation,
+                client,
+                joursRestants,
+                "🚨 URGENT: Dernier jour pour payer votre acompte",
+                gabarits.rendre("rappel-acompte-1j", Map.of(
+                        "prenom", nomOuVide(client.getPrenom()),
+                        "reference", reservation.getReferenceReservation(),
+                        "dateLimite", dateExpiration,
+                        "montantTotal", reservation.getMontantTotal(),
+                        "montantRestant", reservation.getMontantTotal() - montantPaye))
+        );
     }
 
     /**
-     * Méthode helper pour envoyer un rappel de paiement
+     * Méthode helper pour préparer un rappel de paiement
      */
-    private void envoyerRappelPaiement(Reservation reservation, Utilisateur client,
-                                       long joursRestants, String titre, String message) {
+    private Rappel envoyerRappelPaiement(Reservation reservation, Utilisateur client,
+                                         long joursRestants, String titre, String message) {
         // Créer notification + email pour le client
         NotificationRequestDto notifClient = NotificationRequestDto.builder()
                 .typeNotification(TypeNotification.PAIEMENT_EN_ATTENTE)
@@ -186,10 +209,13 @@ public class NotificationScheduler {
                 .urlAction("/client/mes-reservations/" + reservation.getIdReservation())
                 .build();
 
-        notificationService.creerNotificationAvecEmail(notifClient);
+        String email = client.getEmail();
+        return new Rappel(reservation.getReferenceReservation(), () -> {
+            notificationService.creerNotificationAvecEmail(notifClient);
 
-        log.info("📧 Rappel envoyé à {} ({} jours restants)",
-                client.getEmail(), joursRestants);
+            log.info("📧 Rappel envoyé à {} ({} jours restants)",
+                    email, joursRestants);
+        });
     }
 
 
@@ -206,185 +232,131 @@ public class NotificationScheduler {
      * - Rappels: 3 jours, 7 jours, 14 jours après la fin
      */
     @Scheduled(cron = "0 0 11 * * ?") // Tous les jours à 11h00
-    @Transactional
     public void rappelRegularisationFinanciere() {
+        if (!coordination.acquerir(TACHE_RAPPEL_REGULARISATION, Duration.ofHours(1))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_RAPPEL_REGULARISATION);
         log.info("💳 ⏰ DEBUT - Job de rappel régularisation financière après fin réservation");
 
         LocalDate aujourdhui = LocalDate.now();
 
         try {
-            // Récupérer toutes les réservations TERMINÉES partiellement payées
-            List<Reservation> reservationsARegulariser = reservationRepo.findAll().stream()
-                    .filter(r -> r.getStatutReservation() == StatutReservation.TERMINE)
-                    .filter(r -> r.getStatutPaiement() == StatutPaiementRes.PARTIELLEMENT_PAYE)
-                    .filter(r -> r.getDateFin() != null)
-                    .filter(r -> r.getDateFin().isBefore(aujourdhui)) // Date fin passée
-                    .toList();
-
-            log.info("📋 {} réservation(s) terminée(s) avec paiement partiel trouvée(s)",
-                    reservationsARegulariser.size());
-
             int rappelEnvoye = 0;
 
-            for (Reservation reservation : reservationsARegulariser) {
-                try {
-                    LocalDate dateFin = reservation.getDateFin();
-                    long joursDepuisFin = ChronoUnit.DAYS.between(dateFin, aujourdhui);
-
-                    Utilisateur client = reservation.getUtilisateur();
-                    if (client == null) {
-                        log.warn(" Client introuvable pour la réservation {}",
-                                reservation.getReferenceReservation());
-                        continue;
-                    }
-
-                    Double montantRestant = reservation.getMontantTotal() -
-                            (reservation.getMontantPaye() != null ? reservation.getMontantPaye() : 0.0);
-
-                    // Rappel à 3 jours après la fin
-                    if (joursDepuisFin == 3) {
-                        log.info("📅 Rappel à 3 jours après fin pour la réservation {}",
-                                reservation.getReferenceReservation());
-
-                        envoyerRappelRegularisation(
-                                reservation,
-                                client,
-                                joursDepuisFin,
-                                montantRestant,
-                                "💳 Solde à régler pour votre réservation",
-                                String.format(
-                                        "Bonjour %s,\n\n" +
-                                                "Nous espérons que votre événement s'est bien déroulé !\n\n" +
-                                                "Nous vous rappelons qu'il reste un solde à régler pour votre réservation %s:\n\n" +
-                                                "📅 Date de fin de réservation: %s (il y a %d jours)\n" +
-                                                "💰 Montant total: %.2f TND\n" +
-                                                "✅ Montant payé: %.2f TND\n" +
-                                                "💵 Solde restant: %.2f TND\n\n" +
-                                                "Merci de procéder au paiement du solde rapidement.\n" +
-                                                "Pour toute question, n'hésitez pas à nous contacter.",
-                                        client.getPrenom(),
-                                        reservation.getReferenceReservation(),
-                                        dateFin.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        joursDepuisFin,
-                                        reservation.getMontantTotal(),
-                                        reservation.getMontantPaye() != null ? reservation.getMontantPaye() : 0.0,
-                                        montantRestant
-                                ),
-                                false
-                        );
-                        rappelEnvoye++;
-                    }
-                    // Rappel à 7 jours après la fin
-                    else if (joursDepuisFin == 7) {
-                        log.info("⚠️ Rappel à 7 jours après fin pour la réservation {}",
-                                reservation.getReferenceReservation());
-
-                        envoyerRappelRegularisation(
-                                reservation,
-                                client,
-                                joursDepuisFin,
-                                montantRestant,
-                                "⚠️ Rappel: Solde à régler",
-                                String.format(
-                                        "Bonjour %s,\n\n" +
-                                                "⚠️ Nous vous rappelons qu'un solde de %.2f TND reste à régler " +
-                                                "pour votre réservation %s.\n\n" +
-                                                "📅 Fin de réservation: %s (il y a %d jours)\n" +
-                                                "💰 Montant total: %.2f TND\n" +
-                                                "✅ Montant payé: %.2f TND\n" +
-                                                "💵 Solde restant: %.2f TND\n\n" +
-                                                "Merci de régulariser votre situation rapidement.\n" +
-                                                "Nous restons à votre disposition pour toute question.",
-                                        client.getPrenom(),
-                                        montantRestant,
-                                        reservation.getReferenceReservation(),
-                                        dateFin.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        joursDepuisFin,
-                                        reservation.getMontantTotal(),
-                                        reservation.getMontantPaye() != null ? reservation.getMontantPaye() : 0.0,
-                                        montantRestant
-                                ),
-                                true
-                        );
-                        rappelEnvoye++;
-                    }
-                    // Rappel à 14 jours après la fin (URGENT + notification staff)
-                    else if (joursDepuisFin == 14) {
-                        log.warn("🚨 Rappel URGENT à 14 jours après fin pour la réservation {}",
-                                reservation.getReferenceReservation());
-
-                        envoyerRappelRegularisation(
-                                reservation,
-                                client,
-                                joursDepuisFin,
-                                montantRestant,
-                                "🚨 URGENT: Régularisation requise",
-                                String.format(
-                                        "Bonjour %s,\n\n" +
-                                                "🚨 URGENT: Un solde de %.2f TND reste à régler depuis 14 jours " +
-                                                "pour votre réservation %s.\n\n" +
-                                                "📅 Fin de réservation: %s (il y a %d jours)\n" +
-                                                "💰 Montant total: %.2f TND\n" +
-                                                "✅ Montant payé: %.2f TND\n" +
-                                                "💵 Solde restant: %.2f TND\n\n" +
-                                                "⚠️ Nous vous prions de régulariser votre situation dans les plus brefs délais.\n" +
-                                                "Sans retour de votre part, nous serons contraints de prendre des mesures.\n\n" +
-                                                "Merci de nous contacter rapidement.",
-                                        client.getPrenom(),
-                                        montantRestant,
-                                        reservation.getReferenceReservation(),
-                                        dateFin.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        joursDepuisFin,
-                                        reservation.getMontantTotal(),
-                                        reservation.getMontantPaye() != null ? reservation.getMontantPaye() : 0.0,
-                                        montantRestant
-                                ),
-                                true
-                        );
-
-                        // Notifier aussi le STAFF à 14 jours
-                        notificationService.creerNotificationPourStaff(
-                                TypeNotification.PAIEMENT_RETARD,
-                                "⚠️ Paiement en retard - 14 jours",
-                                String.format(
-                                        "Client: %s %s\n" +
-                                                "Réservation: %s\n" +
-                                                "Fin: %s (il y a %d jours)\n" +
-                                                "Montant restant: %.2f TND\n\n" +
-                                                "Action requise: Contacter le client",
-                                        client.getPrenom(),
-                                        client.getNom(),
-                                        reservation.getReferenceReservation(),
-                                        dateFin.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        joursDepuisFin,
-                                        montantRestant
-                                ),
-                                reservation.getIdReservation(),
-                                "/admin/reservations/" + reservation.getIdReservation()
-                        );
-
-                        rappelEnvoye++;
-                    }
-
-                } catch (Exception e) {
-                    log.error("❌ Erreur lors du rappel pour la réservation {}: {}",
-                            reservation.getReferenceReservation(), e.getMessage());
-                }
+            for (long joursDepuisFin : new long[]{3, 7, 14}) {
+                LocalDate dateFin = aujourdhui.minusDays(joursDepuisFin);
+                rappelEnvoye += traiterParLots(suivi,
+                        apresId -> reservationRepo.findIdsParDateFin(
+                                StatutReservation.TERMINE, StatutPaiementRes.PARTIELLEMENT_PAYE,
+                                dateFin, apresId, PageRequest.of(0, TAILLE_LOT)),
+                        lot -> preparerChacun(lot, reservation -> rappelRegularisation(reservation, joursDepuisFin)));
             }
 
             log.info("✅ Job terminé: {} rappel(s) de régularisation envoyé(s)", rappelEnvoye);
 
         } catch (Exception e) {
+            suivi.echouer(e);
             log.error("❌ Erreur globale lors du job de rappel régularisation: {}", e.getMessage());
         }
+        suivi.terminer();
+    }
+
+    private Rappel rappelRegularisation(Reservation reservation, long joursDepuisFin) {
+        LocalDate dateFin = reservation.getDateFin();
+        Utilisateur client = reservation.getUtilisateur();
+        double montantPaye = reservation.getMontantPaye() != null ? reservation.getMontantPaye() : 0.0;
+        Double montantRestant = reservation.getMontantTotal() - montantPaye;
+
+        // Rappel à 3 jours après la fin
+        if (joursDepuisFin == 3) {
+            log.info("📅 Rappel à 3 jours après fin pour la réservation {}",
+                    reservation.getReferenceReservation());
+
+            return envoyerRappelRegularisation(
+                    reservation,
+                    client,
+                    joursDepuisFin,
+                    montantRestant,
+                    "💳 Solde à régler pour votre réservation",
+                    gabarits.rendre("rappel-regularisation-3j", Map.of(
+                            "prenom", nomOuVide(client.getPrenom()),
+                            "reference", reservation.getReferenceReservation(),
+                            "dateFin", dateFin,
+                            "jours", joursDepuisFin,
+                            "montantTotal", reservation.getMontantTotal(),
+                            "montantPaye", montantPaye,
+                            "montantRestant", montantRestant)),
+                    false,
+                    null
+            );
+        }
+
+        // Rappel à 7 jours après la fin
+        if (joursDepuisFin == 7) {
+            log.info("⚠️ Rappel à 7 jours après fin pour la réservation {}",
+                    reservation.getReferenceReservation());
+
+            return envoyerRappelRegularisation(
+                    reservation,
+                    client,
+                    joursDepuisFin,
+                    montantRestant,
+                    "⚠️ Rappel: Solde à régler",
+                    gabarits.rendre("rappel-regularisation-7j", Map.of(
+                            "prenom", nomOuVide(client.getPrenom()),
+                            "reference", reservation.getReferenceReservation(),
+                            "dateFin", dateFin,
+                            "jours", joursDepuisFin,
+                            "montantTotal", reservation.getMontantTotal(),
+                            "montantPaye", montantPaye,
+                            "montantRestant", montantRestant)),
+                    true,
+                    null
+            );
+        }
+
+        // Rappel à 14 jours après la fin (URGENT + notification staff)
+        log.warn("🚨 Rappel URGENT à 14 jours après fin pour la réservation {}",
+                reservation.getReferenceReservation());
+
+        // Notifier aussi le STAFF à 14 jours
+        String messageStaff = gabarits.rendre("rappel-regularisation-staff-14j", Map.of(
+                "prenom", nomOuVide(client.getPrenom()),
+                "nom", nomOuVide(client.getNom()),
+                "reference", reservation.getReferenceReservation(),
+                "dateFin", dateFin,
+                "jours", joursDepuisFin,
+                "montantRestant", montantRestant));
+
+        return envoyerRappelRegularisation(
+                reservation,
+                client,
+                joursDepuisFin,
+                montantRestant,
+                "🚨 URGENT: Régularisation requise",
+                gabarits.rendre("rappel-regularisation-14j", Map.of(
+                        "prenom", nomOuVide(client.getPrenom()),
+                        "reference", reservation.getReferenceReservation(),
+                        "dateFin", dateFin,
+                        "jours", joursDepuisFin,
+                        "montantTotal", reservation.getMontantTotal(),
+                        "montantPaye", montantPaye,
+                        "montantRestant", montantRestant)),
+                true,
+                messageStaff
+        );
     }
 
     /**
-     * Méthode helper pour envoyer un rappel de régularisation
+     * Méthode helper pour préparer un rappel de régularisation
+     *
+     * @param messageRetard Notification staff "14 jours" en plus de la notification standard (null sinon)
      */
-    private void envoyerRappelRegularisation(Reservation reservation, Utilisateur client,
-                                             long joursDepuisFin, Double montantRestant,
-                                             String titre, String message, boolean notifierStaff) {
+    private Rappel envoyerRappelRegularisation(Reservation reservation, Utilisateur client,
+                                               long joursDepuisFin, Double montantRestant,
+                                               String titre, String message, boolean notifierStaff,
+                                               String messageRetard) {
         // Créer notification + email pour le client
         NotificationRequestDto notifClient = NotificationRequestDto.builder()
                 .typeNotification(TypeNotification.PAIEMENT_RETARD)
@@ -395,30 +367,42 @@ public class NotificationScheduler {
                 .urlAction("/client/mes-paiements")
                 .build();
 
-        notificationService.creerNotificationAvecEmail(notifClient);
-
         // Si demandé, notifier aussi le staff (pour les cas à 7 jours et +)
-        if (notifierStaff) {
-            notificationService.creerNotificationPourStaff(
-                    TypeNotification.PAIEMENT_RETARD,
-                    "⚠️ Paiement en retard",
-                    String.format(
-                            "Le client %s %s a un solde de %.2f TND à régler depuis %d jours " +
-                                    "pour la réservation %s (fin: %s).",
-                            client.getPrenom(),
-                            client.getNom(),
-                            montantRestant,
-                            joursDepuisFin,
-                            reservation.getReferenceReservation(),
-                            reservation.getDateFin().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy"))
-                    ),
-                    reservation.getIdReservation(),
-                    "/admin/reservations/" + reservation.getIdReservation()
-            );
-        }
+        String messageStaff = !notifierStaff ? null : gabarits.rendre("rappel-regularisation-staff", Map.of(
+                "prenom", nomOuVide(client.getPrenom()),
+                "nom", nomOuVide(client.getNom()),
+                "montantRestant", montantRestant,
+                "jours", joursDepuisFin,
+                "reference", reservation.getReferenceReservation(),
+                "dateFin", reservation.getDateFin()));
+
+        Long idReservation = reservation.getIdReservation();
+        String email = client.getEmail();
+        return new Rappel(reservation.getReferenceReservation(), () -> {
+            notificationService.creerNotificationAvecEmail(notifClient);
+
+            if (messageStaff != null) {
+                notificationService.creerNotificationPourStaff(
+                        TypeNotification.PAIEMENT_RETARD,
+                        "⚠️ Paiement en retard",
+                        messageStaff,
+                        idReservation,
+                        "/admin/reservations/" + idReservation
+                );
+            }
+            if (messageRetard != null) {
+                notificationService.creerNotificationPourStaff(
+                        TypeNotification.PAIEMENT_RETARD,
+                        "⚠️ Paiement en retard - 14 jours",
+                        messageRetard,
+                        idReservation,
+                        "/admin/reservations/" + idReservation
+                );
+            }
 
-        log.info("📧 Rappel régularisation envoyé à {} ({} jours depuis fin, solde: {} TND)",
-                client.getEmail(), joursDepuisFin, montantRestant);
+            log.info("📧 Rappel régularisation envoyé à {} ({} jours depuis fin, solde: {} TND)",
+                    email, joursDepuisFin, montantRestant);
+        });
     }
 
 
@@ -430,7 +414,7 @@ public class NotificationScheduler {
      * Conditions:
      * - Statut réservation = EN_ATTENTE (devis non validé)
      * - DateExpirationDevis pas encore atteinte
-     * - Rappels: 2 jours avant, 1 jour avant, et le jour même
+     * - Rappels: 2 jours avant et 1 jour avant (pas de rappel le jour même)
      *
      * Workflow:
      * 1. Client crée un devis → statut EN_ATTENTE
@@ -438,189 +422,94 @@ public class NotificationScheduler {
      * 3. Si pas validé avant dateExpirationDevis → annulation automatique (job existant)
      */
     @Scheduled(cron = "0 0 9 * * ?") // Tous les jours à 09h00
-    @Transactional
     public void rappelerValidationDevisAvantExpiration() {
+        if (!coordination.acquerir(TACHE_RAPPEL_VALIDATION_DEVIS, Duration.ofHours(1))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_RAPPEL_VALIDATION_DEVIS);
         log.info("📋 ⏰ DEBUT - Job de rappel validation devis avant expiration");
 
-        LocalDateTime maintenant = LocalDateTime.now();
-        LocalDate aujourdhui = maintenant.toLocalDate();
+        LocalDate aujourdhui = LocalDate.now();
 
         try {
-            // Récupérer tous les devis EN_ATTENTE avec date d'expiration non atteinte
-            List<Reservation> devisEnAttente = reservationRepo.findAll().stream()
-                    .filter(r -> r.getStatutReservation() == StatutReservation.EN_ATTENTE)
-                    .filter(r -> r.getDateExpirationDevis() != null)
-                    .filter(r -> r.getDateExpirationDevis().toLocalDate().isAfter(aujourdhui)) // Pas encore expiré
-                    .toList();
-
-            log.info("📋 {} devis en attente de validation trouvé(s)", devisEnAttente.size());
-
             int rappelEnvoye = 0;
 
-            for (Reservation devis : devisEnAttente) {
-                try {
-                    LocalDate dateExpiration = devis.getDateExpirationDevis().toLocalDate();
-                    long joursRestants = ChronoUnit.DAYS.between(aujourdhui, dateExpiration);
-
-                    Utilisateur client = devis.getUtilisateur();
-                    if (client == null) {
-                        log.warn("⚠️ Client introuvable pour le devis {}",
-                                devis.getReferenceReservation());
-                        continue;
-                    }
-
-                    // Rappel à 2 jours avant expiration
-                    if (joursRestants == 2) {
-                        log.info("📅 Rappel à 2 jours pour le devis {}",
-                                devis.getReferenceReservation());
-
-                        envoyerRappelValidationDevis(
-                                devis,
-                                client,
-                                joursRestants,
-                                "📋 Rappel: Validez votre devis sous 2 jours",
-                                String.format(
-                                        "Bonjour %s,\n\n" +
-                                                "Nous espérons que notre devis %s correspond à vos attentes !\n\n" +
-                                                "📋 Votre devis est en attente de validation.\n" +
-                                                "📅 Date limite de validation: %s (dans 2 jours)\n" +
-                                                "💰 Montant total: %.2f TND\n" +
-                                                "📦 Nombre de produits: %d ligne(s)\n" +
-                                                "📆 Période: du %s au %s\n\n" +
-                                                "⚠️ Important: Si votre devis n'est pas validé avant le %s, " +
-                                                "il sera automatiquement annulé et vous devrez créer un nouveau devis.\n\n" +
-                                                "Pour valider votre devis:\n" +
-                                                "1. Connectez-vous à votre espace client\n" +
-                                                "2. Accédez à \"Mes Devis\"\n" +
-                                                "3. Cliquez sur \"Valider le devis\"\n\n" +
-                                                "N'hésitez pas à nous contacter pour toute question.",
-                                        client.getPrenom(),
-                                        devis.getReferenceReservation(),
-                                        dateExpiration.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        devis.getMontantTotal(),
-                                        devis.getLigneReservations().size(),
-                                        devis.getDateDebut().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        devis.getDateFin().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        dateExpiration.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy"))
-                                )
-                        );
-                        rappelEnvoye++;
-                    }
-                    // Rappel à 1 jour avant expiration
-                    else if (joursRestants == 1) {
-                        log.info("⚠️ Rappel URGENT à 1 jour pour le devis {}",
-                                devis.getReferenceReservation());
-
-                        envoyerRappelValidationDevis(
-                                devis,
-                                client,
-                                joursRestants,
-                                " URGENT: Validez votre devis avant demain",
-                                String.format(
-                                        "Bonjour %s,\n\n" +
-                                                "⚠️ ATTENTION: Votre devis %s expire DEMAIN !\n\n" +
-                                                "📅 Date limite: DEMAIN (%s)\n" +
-                                                "💰 Montant: %.2f TND\n" +
-                                                "📦 Produits: %d ligne(s)\n" +
-                                                "📆 Période: du %s au %s\n\n" +
-                                                "🚨 Si vous ne validez pas votre devis avant demain, " +
-                                                "il sera automatiquement annulé et vous perdrez votre réservation.\n\n" +
-                                                "⏰ Validez dès maintenant:\n" +
-                                                "→ Connectez-vous à votre espace client\n" +
-                                                "→ Mes Devis → Valider\n\n" +
-                                                "Besoin d'aide? Contactez-nous rapidement!",
-                                        client.getPrenom(),
-                                        devis.getReferenceReservation(),
-                                        dateExpiration.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        devis.getMontantTotal(),
-                                        devis.getLigneReservations().size(),
-                                        devis.getDateDebut().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        devis.getDateFin().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy"))
-                                )
-                        );
-                        rappelEnvoye++;
-                    }
-                    // Rappel le jour même (dernière chance)
-                    else if (joursRestants == 0) {
-                        log.warn("🚨 Rappel CRITIQUE - Dernier jour pour le devis {}",
-                                devis.getReferenceReservation());
-
-                        envoyerRappelValidationDevis(
-                                devis,
-                                client,
-                                joursRestants,
-                                " DERNIÈRE CHANCE: Validez votre devis AUJOURD'HUI",
-                                String.format(
-                                        "Bonjour %s,\n\n" +
-                                                "🚨 ALERTE: C'est votre DERNIER JOUR pour valider le devis %s !\n\n" +
-                                                "📅 Date limite: AUJOURD'HUI (%s)\n" +
-                                                "⏰ Le devis sera annulé automatiquement ce soir à minuit.\n\n" +
-                                                "💰 Montant: %.2f TND\n" +
-                                                "📦 Produits: %d ligne(s)\n" +
-                                                "📆 Période: du %s au %s\n\n" +
-                                                "⚠️ DERNIÈRE CHANCE: Validez MAINTENANT ou perdez votre réservation!\n\n" +
-                                                "Action immédiate requise:\n" +
-                                                "1. Connectez-vous MAINTENANT\n" +
-                                                "2. Mes Devis → Valider\n" +
-                                                "3. Confirmez votre réservation\n\n" +
-                                                "❌ Sans validation aujourd'hui, le devis sera annulé définitivement.\n\n" +
-                                                "Pour toute urgence, appelez-nous immédiatement!",
-                                        client.getPrenom(),
-                                        devis.getReferenceReservation(),
-                                        dateExpiration.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        devis.getMontantTotal(),
-                                        devis.getLigneReservations().size(),
-                                        devis.getDateDebut().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        devis.getDateFin().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy"))
-                                )
-                        );
-
-                        // Notifier aussi le STAFF le jour même pour qu'ils puissent contacter le client
-                        notificationService.creerNotificationPourStaff(
-                                TypeNotification.DEVIS_PROCHE_EXPIRATION,
-                                "⚠️ Devis expire aujourd'hui",
-                                String.format(
-                                        "Le devis %s du client %s %s expire AUJOURD'HUI.\n" +
-                                                "Montant: %.2f TND\n" +
-                                                "Période: du %s au %s\n\n" +
-                                                "Action: Envisager de contacter le client pour relancer.",
-                                        devis.getReferenceReservation(),
-                                        client.getPrenom(),
-                                        client.getNom(),
-                                        devis.getMontantTotal(),
-                                        devis.getDateDebut().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                                        devis.getDateFin().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy"))
-                                ),
-                                devis.getIdReservation(),
-                                "/admin/devis-validation"
-                        );
-
-                        rappelEnvoye++;
-                    }
-
-                } catch (Exception e) {
-                    log.error("❌ Erreur lors du rappel pour le devis {}: {}",
-                            devis.getReferenceReservation(), e.getMessage());
-                }
+            for (long joursRestants : new long[]{2, 1}) {
+                LocalDate dateExpiration = aujourdhui.plusDays(joursRestants);
+                rappelEnvoye += traiterParLots(suivi,
+                        apresId -> reservationRepo.findIdsParExpirationDevisEntre(
+                                StatutReservation.EN_ATTENTE, null,
+                                dateExpiration.atStartOfDay(), dateExpiration.plusDays(1).atStartOfDay(),
+                                apresId, PageRequest.of(0, TAILLE_LOT)),
+                        lot -> {
+                            Map<Long, Long> nombreLignes = compterLignes(lot);
+                            return preparerChacun(lot, devis -> rappelValidationDevis(devis, joursRestants,
+                                    nombreLignes.getOrDefault(devis.getIdReservation(), 0L)));
+                        });
             }
 
             log.info("✅ Job terminé: {} rappel(s) de validation devis envoyé(s)", rappelEnvoye);
 
         } catch (Exception e) {
+            suivi.echouer(e);
             log.error("❌ Erreur globale lors du job de rappel validation devis: {}", e.getMessage());
         }
+        suivi.terminer();
+    }
+
+    private Rappel rappelValidationDevis(Reservation devis, long joursRestants, long nombreLignes) {
+        LocalDate dateExpiration = devis.getDateExpirationDevis().toLocalDate();
+        Utilisateur client = devis.getUtilisateur();
+
+        // Rappel à 2 jours avant expiration
+        if (joursRestants == 2) {
+            log.info("📅 Rappel à 2 jours pour le devis {}",
+                    devis.getReferenceReservation());
+
+            return envoyerRappelValidationDevis(
+                    devis,
+                    client,
+                    joursRestants,
+                    "📋 Rappel: Validez votre devis sous 2 jours",
+                    gabarits.rendre("rappel-devis-2j", Map.of(
+                            "prenom", nomOuVide(client.getPrenom()),
+                            "reference", devis.getReferenceReservation(),
+                            "dateLimite", dateExpiration,
+                            "montantTotal", devis.getMontantTotal(),
+                            "nombreLignes", nombreLignes,
+                            "dateDebut", devis.getDateDebut(),
+                            "dateFin", devis.getDateFin()))
+            );
+        }
+
+        // Rappel à 1 jour avant expiration
+        log.info("⚠️ Rappel URGENT à 1 jour pour le devis {}",
+                devis.getReferenceReservation());
+
+        return envoyerRappelValidationDevis(
+                devis,
+                client,
+                joursRestants,
+                " URGENT: Validez votre devis avant demain",
+                gabarits.rendre("rappel-devis-1j", Map.of(
+                        "prenom", nomOuVide(client.getPrenom()),
+                        "reference", devis.getReferenceReservation(),
+                        "dateLimite", dateExpiration,
+                        "montantTotal", devis.getMontantTotal(),
+                        "nombreLignes", nombreLignes,
+                        "dateDebut", devis.getDateDebut(),
+                        "dateFin", devis.getDateFin()))
+        );
     }
 
     /**
-     * Méthode helper pour envoyer un rappel de validation de devis
+     * Méthode helper pour préparer un rappel de validation de devis
      */
-    private void envoyerRappelValidationDevis(Reservation devis, Utilisateur client,
-                                              long joursRestants, String titre, String message) {
+    private Rappel envoyerRappelValidationDevis(Reservation devis, Utilisateur client,
+                                                long joursRestants, String titre, String message) {
         // Créer notification + email pour le client
         NotificationRequestDto notifClient = NotificationRequestDto.builder()
-                .typeNotification(
-                        joursRestants == 0 ? TypeNotification.DEVIS_PROCHE_EXPIRATION : TypeNotification.DEVIS_EN_ATTENTE
-                )
+                .typeNotification(TypeNotification.DEVIS_EN_ATTENTE)
                 .titre(titre)
                 .message(message)
                 .idUtilisateur(client.getIdUtilisateur())
@@ -628,10 +517,105 @@ public class NotificationScheduler {
                 .urlAction("/client/mes-devis")
                 .build();
 
-        notificationService.creerNotificationAvecEmail(notifClient);
+        String email = client.getEmail();
+        return new Rappel(devis.getReferenceReservation(), () -> {
+            notificationService.creerNotificationAvecEmail(notifClient);
+
+            log.info("📧 Rappel validation devis envoyé à {} ({} jour(s) restant(s))",
+                    email, joursRestants);
+        });
+    }
+
+    // ============================================
+    // PIPELINE DES RAPPELS
+    // ============================================
 
-        log.info("📧 Rappel validation devis envoyé à {} ({} jour(s) restant(s))",
-                client.getEmail(), joursRestants);
+    /**
+     * Lit les réservations concernées par lots d'identifiants croissants, prépare les rappels
+     * d'un lot dans une transaction en lecture seule puis les envoie en parallèle
+     *
+     * @return Nombre de rappels envoyés
+     */
+    private int traiterParLots(SuiviTachesService.Execution suivi,
+                               LongFunction<List<Long>> lireIds,
+                               Function<List<Reservation>, List<Rappel>> preparerLot) {
+        TransactionTemplate lecture = new TransactionTemplate(transactionManager);
+        lecture.setReadOnly(true);
+
+        int envoyes = 0;
+        long apresId = 0;
+        List<Long> ids;
+        while (!(ids = lireIds.apply(apresId)).isEmpty()) {
+            List<Long> lot = ids;
+            suivi.lues(ids.size());
+            List<Rappel> rappels = lecture.execute(status -> preparerLot.apply(reservationRepo.findAvecClientParIds(lot)));
+            envoyes += envoyer(suivi, rappels != null ? rappels : List.of());
+            apresId = ids.get(ids.size() - 1);
+        }
+        return envoyes;
+    }
+
+    private List<Rappel> preparerChacun(List<Reservation> lot, Function<Reservation, Rappel> preparer) {
+        List<Rappel> rappels = new ArrayList<>(lot.size());
+        for (Reservation reservation : lot) {
+            if (reservation.getUtilisateur() == null) {
+                log.warn("⚠️ Client introuvable pour la réservation {}",
+                        reservation.getReferenceReservation());
+                continue;
+            }
+            try {
+                rappels.add(preparer.apply(reservation));
+            } catch (Exception e) {
+                log.error("❌ Erreur lors du rappel pour la réservation {}: {}",
+                        reservation.getReferenceReservation(), e.getMessage());
+            }
+        }
+        return rappels;
+    }
+
+    private Map<Long, Long> compterLignes(List<Reservation> lot) {
+        Map<Long, Long> nombreLignes = new HashMap<>();
+        if (lot.isEmpty()) {
+            return nombreLignes;
+        }
+        for (Object[] row : ligneReservationRepo.compterParReservations(
+                lot.stream().map(Reservation::getIdReservation).toList())) {
+            nombreLignes.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return nombreLignes;
+    }
+
+    /**
+     * Envoi parallèle d'un lot, en attendant la fin du lot avant de lire le suivant
+     */
+    private int envoyer(SuiviTachesService.Execution suivi, List<Rappel> rappels) {
+        AtomicInteger envoyes = new AtomicInteger();
+        List<CompletableFuture<Void>> enCours = new ArrayList<>(rappels.size());
+        for (Rappel rappel : rappels) {
+            enCours.add(CompletableFuture.runAsync(() -> {
+                try {
+                    rappel.envoi().run();
+                    envoyes.incrementAndGet();
+                } catch (Exception e) {
+                    suivi.echec();
+                    log.error("❌ Erreur lors du rappel pour la réservation {}: {}",
+                            rappel.reference(), e.getMessage());
+                }
+            }, envois));
+        }
+        CompletableFuture.allOf(enCours.toArray(CompletableFuture[]::new)).join();
+        suivi.emails(envoyes.get());
+        return envoyes.get();
+    }
+
+    private static String nomOuVide(String nom) {
+        return nom != null ? nom : "";
+    }
+
+    /**
+     * Rappel prêt à partir : uniquement des valeurs copiées, aucune entité
+     */
+    private record Rappel(String reference, Runnable envoi) {
     }
 
-}
\ No newline at end of file
+}
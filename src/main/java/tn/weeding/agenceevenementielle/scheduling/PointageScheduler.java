@@ -0,0 +1,48 @@
+package tn.weeding.agenceevenementielle.scheduling;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.weeding.agenceevenementielle.services.PointageServiceInterface;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
+
+import java.time.Duration;
+
+/**
+ * Jobs Cron du pointage
+ *
+ * Chaque soir à 20:00, les employés sans pointage du jour sont marqués absents.
+ * Un seul nœud exécute le job (bail) : sinon chaque instance insérerait ses propres lignes d'absence.
+ * Le déclenchement manuel (PointageController) appelle directement le service, sans bail.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PointageScheduler {
+
+    static final String TACHE_MARQUAGE_ABSENTS = "marquage-absents";
+
+    private final PointageServiceInterface pointageService;
+    private final CoordinationTaches coordination;
+    private final SuiviTachesService suiviTaches;
+
+    /**
+     * ⏰ Job Cron qui s'exécute tous les jours à 20:00
+     */
+    @Scheduled(cron = "0 0 20 * * ?")
+    public void marquerAbsents() {
+        if (!coordination.acquerir(TACHE_MARQUAGE_ABSENTS, Duration.ofHours(1))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_MARQUAGE_ABSENTS);
+        log.info("⏰ 🕗 DEBUT - Job Cron de marquage des absents");
+        try {
+            suivi.modifiees(pointageService.marquerAbsentsAutomatiquement());
+        } catch (Exception e) {
+            suivi.echouer(e);
+            log.error("❌ Erreur lors du marquage des absents: {}", e.getMessage(), e);
+        }
+        suivi.terminer();
+    }
+}
@@ -2,22 +2,24 @@ package tn.weeding.agenceevenementielle.scheduling;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import tn.weeding.agenceevenementielle.dto.notification.NotificationRequestDto;
-import tn.weeding.agenceevenementielle.entities.InstanceProduit;
-import tn.weeding.agenceevenementielle.entities.LigneReservation;
-import tn.weeding.agenceevenementielle.entities.Reservation;
-import tn.weeding.agenceevenementielle.entities.enums.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import tn.weeding.agenceevenementielle.repository.InstanceProduitRepository;
 import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
 import tn.weeding.agenceevenementielle.repository.ReservationRepository;
-import tn.weeding.agenceevenementielle.services.NotificationServiceInterface;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationModifieeEvent;
+import tn.weeding.agenceevenementielle.services.Reservation.ExpirationDevisService;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.LongFunction;
+import java.util.function.ToIntFunction;
 
 
 @Component
@@ -25,65 +27,50 @@ import java.util.List;
 @Slf4j
 public class ReservationScheduler {
 
+    private static final int TAILLE_LOT = 1000;
+    /** Identifiants par tranche du job quotidien : les tranches sont réparties entre les instances */
+    private static final long LARGEUR_TRANCHE = 50_000;
+    private static final Duration DUREE_TRANCHE = Duration.ofMinutes(20);
+
+    static final String TACHE_DEVIS_EXPIRES = "devis-expires";
+    static final String TACHE_STATUTS_RESERVATIONS = "statuts-quotidiens-reservations";
+    static final String TACHE_STATUTS_LIGNES = "statuts-quotidiens-lignes";
+    static final String TACHE_STATUTS_QUOTIDIENS = "statuts-quotidiens";
+
     private final ReservationRepository reservationRepo;
     private final LigneReservationRepository ligneReservationRepo;
     private final InstanceProduitRepository instanceProduitRepo;
-    private final NotificationServiceInterface notificationService;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExpirationDevisService expirationDevis;
+    private final CoordinationTaches coordination;
+    private final SuiviTachesService suiviTaches;
 
     /**
      * Tâche planifiée : Annuler automatiquement les devis expirés
      * Exécution : Tous les jours à 2h du matin
+     *
+     * Les devis sont normalement annulés à l'heure exacte par ExpirationDevisService :
+     * ce job n'est plus qu'un balayage de rattrapage (minuteur perdu, instance arrêtée à l'échéance...)
      */
     @Scheduled(cron = "0 0 2 * * *")
-    @Transactional
     public void annulerDevisExpires() {
+        if (!coordination.acquerir(TACHE_DEVIS_EXPIRES, Duration.ofHours(1))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_DEVIS_EXPIRES);
         log.info("⏰ Démarrage du job d'annulation des devis expirés...");
 
-        LocalDateTime maintenant = LocalDateTime.now();
-
-        // Récupérer les devis EN_ATTENTE expirés
-        List<Reservation> devisExpires = reservationRepo
-                .findByStatutReservationAndDateExpirationDevisBefore(
-                        StatutReservation.EN_ATTENTE,
-                        maintenant
-                );
-
-        log.info("📋 {} devis expirés trouvés", devisExpires.size());
-
-        for (Reservation devis : devisExpires) {
-            try {
-                log.warn("❌ Annulation du devis expiré: {}",
-                        devis.getReferenceReservation());
-
-                // ✅ SOFT BOOKING: Pas de stock à libérer (jamais réservé)
-                devis.setStatutReservation(StatutReservation.ANNULE);
-                devis.setCommentaireAdmin(
-                        "Devis annulé automatiquement après expiration (" +
-                                devis.getDateExpirationDevis().toLocalDate() + ")"
-                );
-                reservationRepo.save(devis);
-
-                log.info("✅ Devis {} annulé (pas de stock à libérer)",
-                        devis.getReferenceReservation());
-
-                notificationService.creerNotificationAvecEmail(
-                        NotificationRequestDto.builder()
-                                .typeNotification(TypeNotification.DEVIS_EXPIRE)
-                                .titre("Devis expiré")
-                                .message(String.format("Votre devis %s a expiré. Créez un nouveau devis si vous souhaitez toujours réserver.",
-                                        devis.getReferenceReservation()))
-                                .idUtilisateur(devis.getUtilisateur().getIdUtilisateur())
-                                .idReservation(devis.getIdReservation())
-                                .build()
-                );
-
-            } catch (Exception e) {
-                log.error("❌ Erreur lors de l'annulation du devis {}: {}",
-                        devis.getReferenceReservation(), e.getMessage());
-            }
-        }
+        try {
+            int annules = expirationDevis.rattraper();
+            suivi.modifiees(annules);
 
-        log.info("✅ Job terminé : {} devis annulés", devisExpires.size());
+            log.info("✅ Job terminé : {} devis annulés", annules);
+        } catch (Exception e) {
+            suivi.echouer(e);
+            log.error("❌ Erreur lors de l'annulation des devis expirés: {}", e.getMessage());
+        }
+        suivi.terminer();
     }
 
     /**
@@ -96,136 +83,108 @@ public class ReservationScheduler {
      * - * = chaque jour
      * - * = chaque mois
      * - ? = n'importe quel jour de la semaine
+     *
+     * Mises à jour ensemblistes (UPDATE ... WHERE id IN lot), une transaction courte par lot :
+     * seules les lignes NOT_TODAY dont la période couvre aujourd'hui sont lues (identifiants seulement,
+     * pagination par clé). Une ligne oubliée un jour précédent est rattrapée tant que sa période n'est pas finie.
+     *
+     * Les identifiants sont découpés en tranches de LARGEUR_TRANCHE : chaque instance traite
+     * les tranches qu'elle parvient à prendre (CoordinationTaches), une tranche n'est traitée qu'une fois par jour.
      */
     @Scheduled(cron = "0 1 0 * * ?") // Tous les jours à 00:01
-    @Transactional
     public void mettreAJourStatutsQuotidien() {
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_STATUTS_QUOTIDIENS);
         log.info("⏰ 🚀 DEBUT - Job Cron de mise à jour des statuts (NOT_TODAY → EN_ATTENTE)");
         log.info("📅 Date du jour: {}", LocalDate.now());
 
         try {
             LocalDate aujourdhui = LocalDate.now();
-
-            // Compteurs pour les logs
-            int reservationsMisesAJour = 0;
-            int lignesMisesAJour = 0;
-            int instancesMisesAJour = 0;
+            String execution = aujourdhui.toString();
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
 
             // ============================================
             // MISE À JOUR DES RÉSERVATIONS
             // ============================================
 
-            log.info("📋 ÉTAPE 1: Recherche des réservations avec statutLivraisonRes = NOT_TODAY...");
-
-            // Trouver toutes les réservations CONFIRMÉES avec NOT_TODAY
-            // dont au moins une ligne commence aujourd'hui
-            List<Reservation> reservations = reservationRepo.findAll().stream()
-                    .filter(r -> r.getStatutReservation() == StatutReservation.CONFIRME)
-                    .filter(r -> r.getStatutLivraisonRes() == StatutLivraison.NOT_TODAY)
-                    .filter(r -> r.getLigneReservations().stream()
-                            .anyMatch(ligne -> ligne.getDateDebut().equals(aujourdhui)))
-                    .toList();
-
-            log.info("🔍 {} réservation(s) trouvée(s) avec NOT_TODAY et dateDebut = aujourd'hui",
-                    reservations.size());
-
-            for (Reservation reservation : reservations) {
-                try {
-                    StatutLivraison ancienStatut = reservation.getStatutLivraisonRes();
+            log.info("📋 ÉTAPE 1: Réservations CONFIRME / NOT_TODAY dont une ligne couvre aujourd'hui...");
 
-                    // ✅ Changer NOT_TODAY → EN_ATTENTE
-                    reservation.setStatutLivraisonRes(StatutLivraison.EN_ATTENTE);
-                    reservationRepo.save(reservation);
-
-                    reservationsMisesAJour++;
-
-                    log.info("✅ Réservation {} : {} → EN_ATTENTE",
-                            reservation.getReferenceReservation(),
-                            ancienStatut);
-
-                } catch (Exception e) {
-                    log.error("❌ Erreur lors de la mise à jour de la réservation {}: {}",
-                            reservation.getReferenceReservation(), e.getMessage());
-                }
-            }
+            int[] reservationsMisesAJour = {0};
+            coordination.executerParTranches(TACHE_STATUTS_RESERVATIONS, execution,
+                    reservationRepo.findMaxIdReservation(), LARGEUR_TRANCHE, DUREE_TRANCHE,
+                    tranche -> reservationsMisesAJour[0] += parLots(transaction, suivi, tranche.apresId(),
+                            apresId -> reservationRepo.findIdsReservationsADemarrer(
+                                    aujourdhui, apresId, tranche.jusquA(), PageRequest.of(0, TAILLE_LOT)),
+                            reservationRepo::demarrerReservations));
 
             // ============================================
-            //  MISE À JOUR DES LIGNES DE RÉSERVATION
+            //  MISE À JOUR DES LIGNES ET DES INSTANCES
             // ============================================
 
-            log.info("📦 ÉTAPE 2: Recherche des lignes de réservation avec statutLivraisonLigne = NOT_TODAY...");
-
-            // Trouver toutes les lignes avec NOT_TODAY dont la date de début est aujourd'hui
-            List<LigneReservation> lignes = ligneReservationRepo.findAll().stream()
-                    .filter(ligne -> ligne.getReservation().getStatutReservation() == StatutReservation.CONFIRME)
-                    .filter(ligne -> ligne.getStatutLivraisonLigne() == StatutLivraison.NOT_TODAY)
-                    .filter(ligne -> ligne.getDateDebut().equals(aujourdhui))
-                    .toList();
-
-            log.info("🔍 {} ligne(s) de réservation trouvée(s) avec NOT_TODAY et dateDebut = aujourd'hui",
-                    lignes.size());
-
-            for (LigneReservation ligne : lignes) {
-                try {
-                    StatutLivraison ancienStatut = ligne.getStatutLivraisonLigne();
-
-                    // ✅ Changer NOT_TODAY → EN_ATTENTE
-                    ligne.setStatutLivraisonLigne(StatutLivraison.EN_ATTENTE);
-                    ligneReservationRepo.save(ligne);
-
-                    lignesMisesAJour++;
-
-                    log.info("✅ Ligne {} (Réservation {}, Produit {}) : {} → EN_ATTENTE",
-                            ligne.getIdLigneReservation(),
-                            ligne.getReservation().getReferenceReservation(),
-                            ligne.getProduit().getNomProduit(),
-                            ancienStatut);
-
-                    // ============================================
-                    //  MISE À JOUR DES INSTANCES
-                    // ============================================
-
-                    // Si produit avec référence, mettre les instances EN_ATTENTE
-                    if (ligne.getProduit().getTypeProduit() == TypeProduit.AVEC_REFERENCE
-                            && ligne.getInstancesReservees() != null
-                            && !ligne.getInstancesReservees().isEmpty()) {
-
-                        for (InstanceProduit instance : ligne.getInstancesReservees()) {
-                            // Vérifier que l'instance est bien disponible
-                            if (instance.getStatut() == StatutInstance.DISPONIBLE) {
-                                instance.setStatut(StatutInstance.EN_ATTENTE);
-                                instanceProduitRepo.save(instance);
-
-                                instancesMisesAJour++;
-
-                                log.info("📦 Instance {} : RESERVE → EN_ATTENTE",
-                                        instance.getNumeroSerie());
-                            }
-                        }
-                    }
-
-                } catch (Exception e) {
-                    log.error("❌ Erreur lors de la mise à jour de la ligne {}: {}",
-                            ligne.getIdLigneReservation(), e.getMessage());
-                }
-            }
+            log.info("📦 ÉTAPE 2: Lignes NOT_TODAY dont la période couvre aujourd'hui (et leurs instances)...");
+
+            int[] instancesMisesAJour = {0};
+            int[] lignesMisesAJour = {0};
+            coordination.executerParTranches(TACHE_STATUTS_LIGNES, execution,
+                    ligneReservationRepo.findMaxIdLigneReservation(), LARGEUR_TRANCHE, DUREE_TRANCHE,
+                    tranche -> lignesMisesAJour[0] += parLots(transaction, suivi, tranche.apresId(),
+                            apresId -> ligneReservationRepo.findIdsLignesADemarrer(
+                                    aujourdhui, apresId, tranche.jusquA(), PageRequest.of(0, TAILLE_LOT)),
+                            idsLignes -> {
+                                int lignes = ligneReservationRepo.demarrerLignes(idsLignes);
+
+                                // Produits avec référence : instances DISPONIBLE → EN_ATTENTE
+                                int instances = instanceProduitRepo.mettreEnAttenteParLignes(idsLignes);
+                                if (instances > 0) {
+                                    // UPDATE en masse : pas de listener JPA, l'index d'occupation est prévenu ici
+                                    ligneReservationRepo.findIdsProduitsAvecReferenceParLignes(idsLignes)
+                                            .forEach(idProduit -> eventPublisher.publishEvent(
+                                                    OccupationModifieeEvent.pourProduit(idProduit)));
+                                }
+                                instancesMisesAJour[0] += instances;
+                                return lignes;
+                            }));
 
             // ============================================
             // RÉSUMÉ ET LOGS FINAUX
             // ============================================
 
             log.info("📊 ========== RÉSUMÉ DE LA MISE À JOUR ==========");
-            log.info("📈 Réservations mises à jour: {}", reservationsMisesAJour);
-            log.info("📦 Lignes de réservation mises à jour: {}", lignesMisesAJour);
-            log.info("🔧 Instances mises à jour: {}", instancesMisesAJour);
+            log.info("📈 Réservations mises à jour: {}", reservationsMisesAJour[0]);
+            log.info("📦 Lignes de réservation mises à jour: {}", lignesMisesAJour[0]);
+            log.info("🔧 Instances mises à jour: {}", instancesMisesAJour[0]);
             log.info("⏰ ✅ FIN - Job Cron terminé avec succès");
 
         } catch (Exception e) {
+            suivi.echouer(e);
             log.error("❌ ⚠️ ERREUR CRITIQUE dans le job Cron de mise à jour des statuts: {}", e.getMessage());
             log.error("Stack trace:", e);
         }
+        suivi.terminer();
     }
 
-
-
+    /**
+     * Parcourt les identifiants (à partir de depuisId exclu) par lots croissants et applique la mise à jour de chaque lot
+     * dans sa propre transaction
+     *
+     * @return Nombre total de lignes modifiées
+     */
+    private int parLots(TransactionTemplate transaction,
+                        SuiviTachesService.Execution suivi,
+                        long depuisId,
+                        LongFunction<List<Long>> lireLot,
+                        ToIntFunction<List<Long>> mettreAJourLot) {
+        int total = 0;
+        long apresId = depuisId;
+        List<Long> ids;
+        while (!(ids = lireLot.apply(apresId)).isEmpty()) {
+            List<Long> lot = ids;
+            Integer modifiees = transaction.execute(status -> mettreAJourLot.applyAsInt(lot));
+            total += modifiees != null ? modifiees : 0;
+            suivi.lues(ids.size());
+            suivi.modifiees(modifiees != null ? modifiees : 0);
+            apresId = ids.get(ids.size() - 1);
+            log.debug("🔄 Lot de {} identifiant(s) traité (jusqu'à #{})", ids.size(), apresId);
+        }
+        return total;
+    }
 }
@@ -0,0 +1,84 @@
+package tn.weeding.agenceevenementielle.scheduling;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.weeding.agenceevenementielle.dto.produit.RapportReconciliationDto;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
+import tn.weeding.agenceevenementielle.services.Stock.InstantaneStockService;
+import tn.weeding.agenceevenementielle.services.Stock.ReconciliationStockService;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Jobs Cron du stock
+ *
+ * 1. Chaque soir à 23:55, une photo du stock de chaque produit est enregistrée (InstantaneStock).
+ *    Les courbes de stock sont ensuite lues dans ces instantanés au lieu de rejouer tout le journal.
+ * 2. Chaque dimanche à 03:30, réconciliation du stock en mode rapport (aucune correction automatique).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockScheduler {
+
+    static final String TACHE_INSTANTANES_STOCK = "instantanes-stock";
+    static final String TACHE_RECONCILIATION_STOCK = "reconciliation-stock";
+
+    private final InstantaneStockService instantaneStockService;
+    private final ReconciliationStockService reconciliationStockService;
+    private final CoordinationTaches coordination;
+    private final SuiviTachesService suiviTaches;
+
+    /**
+     * ⏰ Job Cron qui s'exécute tous les jours à 23:55
+     *
+     * Format Cron: "0 55 23 * * ?" = seconde minute heure jour mois jour-de-la-semaine
+     */
+    @Scheduled(cron = "0 55 23 * * ?")
+    public void capturerInstantanesStock() {
+        if (!coordination.acquerir(TACHE_INSTANTANES_STOCK, Duration.ofHours(1))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_INSTANTANES_STOCK);
+        log.info("⏰ 📸 DEBUT - Job Cron des instantanés de stock");
+        try {
+            int nombre = instantaneStockService.capturer(LocalDate.now());
+            suivi.modifiees(nombre);
+            log.info("✅ FIN - {} instantané(s) de stock enregistré(s)", nombre);
+        } catch (Exception e) {
+            suivi.echouer(e);
+            log.error("❌ Erreur lors de la capture des instantanés de stock: {}", e.getMessage(), e);
+        }
+        suivi.terminer();
+    }
+
+    /**
+     * ⏰ Job Cron qui s'exécute tous les dimanches à 03:30
+     * Les écarts sont seulement signalés : la réparation se lance depuis l'API d'administration
+     */
+    @Scheduled(cron = "0 30 3 * * SUN")
+    public void reconcilierStock() {
+        if (!coordination.acquerir(TACHE_RECONCILIATION_STOCK, Duration.ofHours(1))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_RECONCILIATION_STOCK);
+        log.info("⏰ 🔎 DEBUT - Job Cron de réconciliation du stock");
+        try {
+            RapportReconciliationDto rapport = reconciliationStockService.reconcilier(false);
+            suivi.lues(rapport.getNombreProduits() != null ? rapport.getNombreProduits() : 0);
+            if (!rapport.getEcarts().isEmpty() || !rapport.getSurreservations().isEmpty()
+                    || !rapport.getInstancesIncoherentes().isEmpty()) {
+                log.warn("⚠️ Réconciliation: {} écart(s) de stock, {} surréservation(s), {} instance(s) incohérente(s)",
+                        rapport.getEcarts().size(), rapport.getSurreservations().size(),
+                        rapport.getInstancesIncoherentes().size());
+            }
+        } catch (Exception e) {
+            suivi.echouer(e);
+            log.error("❌ Erreur lors de la réconciliation du stock: {}", e.getMessage(), e);
+        }
+        suivi.terminer();
+    }
+}
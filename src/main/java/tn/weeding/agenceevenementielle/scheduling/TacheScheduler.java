@@ -0,0 +1,47 @@
+package tn.weeding.agenceevenementielle.scheduling;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
+
+import java.time.Duration;
+
+/**
+ * Job Cron d'entretien de l'historique des tâches planifiées (table execution_tache)
+ *
+ * Toutes les heures : les exécutions restées EN_COURS au-delà de la durée maximale sont marquées
+ * INTERROMPUE, l'historique au-delà de la rétention est supprimé (voir SuiviTachesService.entretenir).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TacheScheduler {
+
+    static final String TACHE_ENTRETIEN_SUIVI = "entretien-suivi-taches";
+
+    private final CoordinationTaches coordination;
+    private final SuiviTachesService suiviTaches;
+
+    /**
+     * ⏰ Job Cron qui s'exécute toutes les heures à la minute 40
+     */
+    @Scheduled(cron = "0 40 * * * ?")
+    public void entretenirSuiviTaches() {
+        if (!coordination.acquerir(TACHE_ENTRETIEN_SUIVI, Duration.ofMinutes(30))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_ENTRETIEN_SUIVI);
+        try {
+            SuiviTachesService.Entretien entretien = suiviTaches.entretenir();
+            suivi.modifiees(entretien.interrompues() + entretien.supprimees());
+            log.info("🧹 Suivi des tâches : {} exécution(s) interrompue(s), {} supprimée(s)",
+                    entretien.interrompues(), entretien.supprimees());
+        } catch (Exception e) {
+            suivi.echouer(e);
+            log.error("❌ Erreur lors de l'entretien du suivi des tâches: {}", e.getMessage());
+        }
+        suivi.terminer();
+    }
+}
@@ -0,0 +1,145 @@
+package tn.weeding.agenceevenementielle.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.repository.NotificationArchiveeRepository;
+import tn.weeding.agenceevenementielle.repository.NotificationRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * ==========================================
+ * ARCHIVAGE DES ANCIENNES NOTIFICATIONS
+ * ==========================================
+ *
+ * Les notifications de plus de `jours` jours (30 par défaut, lues ou non, comme l'ancien nettoyage)
+ * quittent la table chaude pour notification_archivee. L'archive n'est pas conservée indéfiniment :
+ * les lignes archivées depuis plus de `joursRetention` jours (365 par défaut) sont purgées, par lots
+ * également, après l'archivage.
+ *
+ * - lots de quelques centaines d'identifiants croissants (pagination par clé), bornés par le plus grand
+ *   identifiant créé avant la limite : pas de parcours du reste de la table
+ * - un lot = une transaction courte (INSERT ... SELECT dans l'archive puis DELETE par identifiants) :
+ *   les verrous ne portent que sur le lot, le comptage des non lues n'attend jamais tout le nettoyage
+ * - pause entre deux lots et durée maximale par exécution (archivage et purge confondus) :
+ *   le reliquat part à l'exécution suivante
+ */
+@Service
+@Slf4j
+public class ArchivageNotificationService {
+
+    private final NotificationRepository notificationRepo;
+    private final NotificationArchiveeRepository archiveRepo;
+    private final TransactionTemplate transaction;
+
+    private final int jours;
+    private final int joursRetention;
+    private final int tailleLot;
+    private final long pauseMs;
+    private final Duration dureeMax;
+
+    public ArchivageNotificationService(NotificationRepository notificationRepo,
+                                        NotificationArchiveeRepository archiveRepo,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${notifications.archivage.jours:30}") int jours,
+                                        @Value("${notifications.archivage.retention-jours:365}") int joursRetention,
+                                        @Value("${notifications.archivage.taille-lot:500}") int tailleLot,
+                                        @Value("${notifications.archivage.pause-ms:200}") long pauseMs,
+                                        @Value("${notifications.archivage.duree-max-minutes:45}") long dureeMaxMinutes) {
+        this.notificationRepo = notificationRepo;
+        this.archiveRepo = archiveRepo;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.jours = jours;
+        this.joursRetention = joursRetention;
+        this.tailleLot = tailleLot;
+        this.pauseMs = pauseMs;
+        this.dureeMax = Duration.ofMinutes(dureeMaxMinutes);
+    }
+
+    /**
+     * Archiver les anciennes notifications par lots, puis purger l'archive expirée
+     */
+    public Resultat archiver() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        LocalDateTime limite = maintenant.minusDays(jours);
+        long echeance = System.nanoTime() + dureeMax.toNanos();
+
+        long lues = 0;
+        long archivees = 0;
+        int lots = 0;
+        Long jusquA = notificationRepo.findMaxIdCreeesAvant(limite);
+        long apresId = 0L;
+        while (jusquA != null) {
+            List<Long> ids = notificationRepo.findIdsAArchiver(limite, apresId, jusquA, PageRequest.of(0, tailleLot));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            Integer archiveesLot = transaction.execute(status -> {
+                int copiees = archiveRepo.archiver(ids, maintenant);
+                notificationRepo.supprimerParIds(ids);
+                return copiees;
+            });
+            lues += ids.size();
+            archivees += archiveesLot != null ? archiveesLot : 0;
+            lots++;
+            apresId = ids.get(ids.size() - 1);
+
+            if (!continuer(echeance, lots)) {
+                return new Resultat(lues, archivees, 0, lots, false);
+            }
+        }
+
+        long purgees = 0;
+        LocalDateTime limiteRetention = maintenant.minusDays(joursRetention);
+        apresId = 0L;
+        while (true) {
+            List<Long> ids = archiveRepo.findIdsAPurger(limiteRetention, apresId, PageRequest.of(0, tailleLot));
+            if (ids.isEmpty()) {
+                return new Resultat(lues, archivees, purgees, lots, true);
+            }
+
+            Integer purgeesLot = transaction.execute(status -> archiveRepo.supprimerParIds(ids));
+            purgees += purgeesLot != null ? purgeesLot : 0;
+            lots++;
+            apresId = ids.get(ids.size() - 1);
+
+            if (!continuer(echeance, lots)) {
+                return new Resultat(lues, archivees, purgees, lots, false);
+            }
+        }
+    }
+
+    private boolean continuer(long echeance, int lots) {
+        if (System.nanoTime() > echeance) {
+            log.warn("⏳ Archivage interrompu après {} lot(s) : durée maximale atteinte, reprise à la prochaine exécution", lots);
+            return false;
+        }
+        return pause();
+    }
+
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @param complet false si l'exécution s'est arrêtée avant la fin (durée maximale, interruption)
+     */
+    public record Resultat(long lues, long archivees, long purgees, int lots, boolean complet) {
+    }
+}
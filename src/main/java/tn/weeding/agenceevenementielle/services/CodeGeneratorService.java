@@ -3,7 +3,6 @@ package tn.weeding.agenceevenementielle.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import tn.weeding.agenceevenementielle.entities.enums.TypeFacture;
 import tn.weeding.agenceevenementielle.repository.FactureRepository;
 import tn.weeding.agenceevenementielle.repository.PaiementRepository;
@@ -12,7 +11,6 @@ import tn.weeding.agenceevenementielle.repository.UtilisateurRepository;
 import java.time.LocalDate;
 import java.time.Year;
 import java.time.format.DateTimeFormatter;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -23,34 +21,25 @@ public class CodeGeneratorService {
     private final PaiementRepository paiementRepository;
     private static final String PAIEMENT_PREFIX = "PAY";
     private final FactureRepository factureRepository;
+    private final SequenceService sequenceService;
 
 
 
-    @Transactional(readOnly = true)
+    /**
+     * Génère le prochain code utilisateur pour un rôle (ex : CL0001)
+     * Numéro pris dans la séquence "USR-" + préfixe, partagée entre les nœuds
+     */
     public String generateNextCode(String typeRole) {
 
         // Déterminer le préfixe selon le rôle
         String prefix = determinePrefix(typeRole);
 
-        // Récupérer le dernier code avec ce préfixe
-        Optional<String> lastCode = utilisateurRepository.findLastCodeByPrefix(prefix);
-
-        if (lastCode.isPresent()) {
-            // Extraire le numéro et incrémenter
-            String code = lastCode.get();
-            int number = extractNumber(code, prefix);
-            int nextNumber = number + 1;
-
-            String newCode = String.format("%s%04d", prefix, nextNumber);
-            log.debug("📊 Dernier code {} : {} → Nouveau : {}", typeRole, code, newCode);
-            return newCode;
+        long numero = sequenceService.suivant("USR-" + prefix,
+                () -> SequenceService.plusGrandNumero(utilisateurRepository.findCodesByPrefix(prefix), prefix));
 
-        } else {
-            // Premier utilisateur de ce type
-            String firstCode = prefix + "0001";
-            log.debug("🆕 Premier code {} : {}", typeRole, firstCode);
-            return firstCode;
-        }
+        String newCode = String.format("%s%04d", prefix, numero);
+        log.debug("🆕 Nouveau code {} : {}", typeRole, newCode);
+        return newCode;
     }
     /**
      * Détermine le préfixe selon le type de rôle
@@ -73,45 +62,21 @@ public class CodeGeneratorService {
         }
     }
 
-    /**
-     * Extrait le numéro depuis un code utilisateur
-     * Ex: "CL005" → 5, "AD012" → 12
-     */
-    private int extractNumber(String code, String prefix) {
-        try {
-            // Retirer le préfixe et parser le numéro
-            String numberPart = code.substring(prefix.length());
-            return Integer.parseInt(numberPart);
-        } catch (Exception e) {
-            log.warn("⚠️ Impossible d'extraire le numéro du code : {}. Retour à 0.", code);
-            return 0;
-        }
-    }
-
     /**
      *Génerateur de code prefixe pour les paiements
      * **/
 
-    @Transactional(readOnly = true)
-    public synchronized String generatePaiementCode() {
+    public String generatePaiementCode() {
         int currentYear = Year.now().getValue();
         String yearPrefix = PAIEMENT_PREFIX + "-" + currentYear + "-";
 
-        Optional<String> lastCode = paiementRepository.findLastCodePaiementByYear(yearPrefix);
+        long numero = sequenceService.suivant(PAIEMENT_PREFIX + "-" + currentYear,
+                () -> SequenceService.plusGrandNumero(
+                        paiementRepository.findLastCodePaiementByYear(yearPrefix).stream().toList(), yearPrefix));
 
-        if (lastCode.isPresent()) {
-            String lastCodeValue = lastCode.get();
-            String numberPart = lastCodeValue.substring(yearPrefix.length());
-            int lastNumber = Integer.parseInt(numberPart);
-            int newNumber = lastNumber + 1;
-            String newCode = yearPrefix + String.format("%04d", newNumber);
-            log.info("✅ Code paiement généré: {}", newCode);
-            return newCode;
-        } else {
-            String newCode = yearPrefix + "0001";
-            log.info("✅ Premier code paiement: {}", newCode);
-            return newCode;
-        }
+        String newCode = yearPrefix + String.format("%04d", numero);
+        log.info("✅ Code paiement généré: {}", newCode);
+        return newCode;
     }
 
 
@@ -122,7 +87,6 @@ public class CodeGeneratorService {
      * - Pro-forma : PRO-YYYY-MM-XXXX
      * - Finale : FAC-YYYY-MM-XXXX
      */
-    @Transactional(readOnly = true)
     public String genererNumeroFacture(TypeFacture typeFacture) {
         String prefixe;
 
@@ -143,13 +107,11 @@ public class CodeGeneratorService {
         LocalDate now = LocalDate.now();
         String datePart = now.format(DateTimeFormatter.ofPattern("yyyy-MM"));
 
-        // Chercher le dernier numéro du mois
-        String pattern = prefixe + "-" + datePart + "-%";
-        long count = factureRepository.findAll().stream()
-                .filter(f -> f.getNumeroFacture() != null && f.getNumeroFacture().startsWith(prefixe + "-" + datePart))
-                .count();
+        // Séquence mensuelle par type de document
+        String prefixeMois = prefixe + "-" + datePart + "-";
+        long numero = sequenceService.suivant(prefixe + "-" + datePart,
+                () -> SequenceService.plusGrandNumero(factureRepository.findNumerosParPrefixe(prefixeMois), prefixeMois));
 
-        int numero = (int) count + 1;
         String numeroFacture = String.format("%s-%s-%04d", prefixe, datePart, numero);
 
         log.info("📄 Numéro de facture généré : {}", numeroFacture);
@@ -4,13 +4,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import tn.weeding.agenceevenementielle.entities.InstanceProduit;
 import tn.weeding.agenceevenementielle.repository.InstanceProduitRepository;
 import tn.weeding.agenceevenementielle.repository.ProduitRepository;
 
 import java.time.Year;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * Service de génération de codes uniques pour les produits
@@ -23,6 +21,7 @@ public class CodeGeneratorServiceProduit {
 
     private final ProduitRepository produitRepository;
     private final InstanceProduitRepository instanceProduitRepository;
+    private final SequenceService sequenceService;
     private static final String PRODUIT_PREFIX = "PRD";
 
 
@@ -41,47 +40,17 @@ public class CodeGeneratorServiceProduit {
      * Génère un code produit instance unique au format PRD-YYYY-XXXX
      * Exemple: PRD-2025-PR0001
      */
-    @Transactional(readOnly = true)
     public String generateInstanceCode(String nomProduit) {
         int currentYear = Year.now().getValue();
         String yearPrefix = PRODUIT_PREFIX + "-" + currentYear + "-"+generateProductPrefix(nomProduit) + "-";
 
-        // Récupérer le dernier code de l'année en cours
-        Optional<String> lastCode = instanceProduitRepository.findAll()
-                .stream()
-                .map(InstanceProduit::getNumeroSerie)
-                .filter(code -> code != null && code.startsWith(yearPrefix))
-                .max(String::compareTo);
-
-        if (lastCode.isPresent()) {
-            // Extraire le numéro et incrémenter
-            String code = lastCode.get();
-            int number = extractNumber(code, yearPrefix);
-            int nextNumber = number + 1;
-            String newCode = String.format("%s%04d", yearPrefix, nextNumber);
-            log.debug("📦 Dernier code produit : {} → Nouveau : {}", code, newCode);
-            return newCode;
-
-        } else {
-            // Premier produit de l'année
-            String firstCode = yearPrefix + "0001";
-            log.debug("🆕 Premier code produit de l'année : {}", firstCode);
-            return firstCode;
-        }
-    }
+        long numero = sequenceService.suivant(yearPrefix.substring(0, yearPrefix.length() - 1),
+                () -> SequenceService.plusGrandNumero(
+                        instanceProduitRepository.findNumerosSerieParPrefixe(yearPrefix), yearPrefix));
 
-    /**
-     * Extrait le numéro depuis un code produit
-     * Ex: "PRD-2025-0005" → 5
-     */
-    private int extractNumber(String code, String prefix) {
-        try {
-            String numberPart = code.substring(prefix.length());
-            return Integer.parseInt(numberPart);
-        } catch (Exception e) {
-            log.warn("⚠️ Impossible d'extraire le numéro du code : {}. Retour à 0.", code);
-            return 0;
-        }
+        String newCode = String.format("%s%04d", yearPrefix, numero);
+        log.debug("📦 Nouveau code instance : {}", newCode);
+        return newCode;
     }
 
     /**
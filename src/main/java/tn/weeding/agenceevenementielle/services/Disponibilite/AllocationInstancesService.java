@@ -0,0 +1,93 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tn.weeding.agenceevenementielle.entities.InstanceProduit;
+import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.InstanceOccupation;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.Intervalle;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * ==========================================
+ * AFFECTATION DES INSTANCES (AVEC_REFERENCE)
+ * ==========================================
+ *
+ * Choisit quelles instances libres affecter à une ligne, selon la stratégie configurée
+ * (reservation.allocation.strategie, "meilleur-ajustement" par défaut).
+ *
+ * Les calendriers des instances sont relus en base au moment de l'affectation,
+ * pas dans l'index : l'appelant détient déjà le verrou du produit.
+ */
+@Service
+@Slf4j
+public class AllocationInstancesService {
+
+    private final LigneReservationRepository ligneReservationRepo;
+    private final Map<String, StrategieAllocation> strategies;
+    private final StrategieAllocation strategieActive;
+
+    public AllocationInstancesService(LigneReservationRepository ligneReservationRepo,
+                                      List<StrategieAllocation> strategies,
+                                      @Value("${reservation.allocation.strategie:" + AllocationMeilleurAjustement.NOM + "}")
+                                      String nomStrategie) {
+        this.ligneReservationRepo = ligneReservationRepo;
+        this.strategies = strategies.stream()
+                .collect(Collectors.toMap(StrategieAllocation::getNom, Function.identity(),
+                        (a, b) -> a, LinkedHashMap::new));
+
+        StrategieAllocation choisie = this.strategies.get(nomStrategie);
+        if (choisie == null) {
+            log.warn("⚠️ Stratégie d'allocation inconnue '{}', utilisation de '{}'",
+                    nomStrategie, AllocationMeilleurAjustement.NOM);
+            choisie = this.strategies.get(AllocationMeilleurAjustement.NOM);
+        }
+        this.strategieActive = choisie;
+        log.info("🧩 Stratégie d'allocation des instances: {}", strategieActive.getNom());
+    }
+
+    /**
+     * Choisir les instances à affecter parmi des instances libres sur la période
+     *
+     * @param idProduit Produit concerné
+     * @param disponibles Instances libres sur [debut, fin] (vérifiées par l'appelant)
+     * @return Les instances retenues (au plus quantite)
+     */
+    public List<InstanceProduit> choisirInstances(Long idProduit, List<InstanceProduit> disponibles,
+                                                  LocalDate debut, LocalDate fin, int quantite) {
+        if (disponibles.size() <= quantite) {
+            return disponibles;
+        }
+
+        Map<Long, List<Intervalle>> calendriers = new HashMap<>();
+        for (Object[] row : ligneReservationRepo.findIntervallesInstancesConfirmesParProduits(List.of(idProduit))) {
+            calendriers.computeIfAbsent((Long) row[0], k -> new ArrayList<>())
+                    .add(new Intervalle((LocalDate) row[1], (LocalDate) row[2], 1));
+        }
+
+        Map<Long, InstanceProduit> parId = new HashMap<>();
+        List<InstanceOccupation> libres = new ArrayList<>(disponibles.size());
+        for (InstanceProduit instance : disponibles) {
+            parId.put(instance.getIdInstance(), instance);
+            libres.add(new InstanceOccupation(instance.getIdInstance(), instance.getNumeroSerie(),
+                    instance.getStatut(), calendriers.getOrDefault(instance.getIdInstance(), List.of())));
+        }
+
+        return strategieActive.choisir(libres, debut, fin, quantite).stream()
+                .map(occupation -> parId.get(occupation.getIdInstance()))
+                .toList();
+    }
+
+    public StrategieAllocation getStrategieActive() {
+        return strategieActive;
+    }
+
+    public Collection<StrategieAllocation> getStrategies() {
+        return strategies.values();
+    }
+}
@@ -0,0 +1,52 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import org.springframework.stereotype.Component;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.InstanceOccupation;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Allocation "best-fit" : placer la demande là où elle laisse le moins de jours d'inactivité
+ *
+ * Pour chaque instance libre, on mesure les jours vides entre la réservation précédente
+ * et la demande, puis entre la demande et la réservation suivante. Une instance sans
+ * réservation d'un côté compte comme un trou très large : les instances au calendrier
+ * vide sont gardées pour les longues demandes qui ne tiendraient pas ailleurs.
+ */
+@Component
+public class AllocationMeilleurAjustement implements StrategieAllocation {
+
+    public static final String NOM = "meilleur-ajustement";
+
+    /**
+     * Poids d'un côté sans réservation (≈ 10 ans)
+     */
+    private static final long TROU_OUVERT = 3650;
+
+    @Override
+    public String getNom() {
+        return NOM;
+    }
+
+    @Override
+    public List<InstanceOccupation> choisir(List<InstanceOccupation> libres, LocalDate debut, LocalDate fin, int quantite) {
+        long d = debut.toEpochDay();
+        long f = fin.toEpochDay();
+
+        return libres.stream()
+                .sorted(Comparator.<InstanceOccupation>comparingLong(instance -> inactivite(instance, d, f))
+                        .thenComparing(InstanceOccupation::getNumeroSerie,
+                                Comparator.nullsLast(Comparator.naturalOrder())))
+                .limit(quantite)
+                .toList();
+    }
+
+    private long inactivite(InstanceOccupation instance, long d, long f) {
+        long avant = instance.joursLibresAvant(d, f);
+        long apres = instance.joursLibresApres(d, f);
+        return (avant < 0 ? TROU_OUVERT : Math.min(avant, TROU_OUVERT))
+                + (apres < 0 ? TROU_OUVERT : Math.min(apres, TROU_OUVERT));
+    }
+}
@@ -0,0 +1,28 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import org.springframework.stereotype.Component;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.InstanceOccupation;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Allocation historique : les N premières instances libres par numéro de série
+ */
+@Component
+public class AllocationParNumeroSerie implements StrategieAllocation {
+
+    public static final String NOM = "numero-serie";
+
+    @Override
+    public String getNom() {
+        return NOM;
+    }
+
+    @Override
+    public List<InstanceOccupation> choisir(List<InstanceOccupation> libres, LocalDate debut, LocalDate fin, int quantite) {
+        return libres.stream()
+                .limit(quantite)
+                .toList();
+    }
+}
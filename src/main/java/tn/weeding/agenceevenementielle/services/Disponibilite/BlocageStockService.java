@@ -0,0 +1,552 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.weeding.agenceevenementielle.dto.reservation.BlocageStockDto;
+import tn.weeding.agenceevenementielle.dto.reservation.VerificationDisponibiliteDto;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+import tn.weeding.agenceevenementielle.exceptions.CustomException;
+import tn.weeding.agenceevenementielle.scheduling.CoordinationTaches;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.Intervalle;
+import tn.weeding.agenceevenementielle.services.Reservation.DateReservationValidator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ==========================================
+ * BLOCAGES TEMPORAIRES DE STOCK (PANIER)
+ * ==========================================
+ *
+ * Un client qui ajoute un produit à son panier peut bloquer des unités pendant
+ * quelques minutes (reservation.blocage.ttl-minutes, 15 par défaut) :
+ * - les blocages des autres clients comptent dans les vérifications de disponibilité
+ * - ils expirent seuls (TTL Redis / purge périodique en mémoire)
+ *
+ * Un devis EN_ATTENTE ne compte pas dans l'occupation (seules les lignes CONFIRME y figurent) :
+ * au commit de creerDevis, les blocages de panier du client sont remplacés par des blocages
+ * "devis:{idReservation}:{n}", un par ligne, qui durent jusqu'à l'échéance du devis.
+ * Ils sont libérés quand le devis est validé (ses lignes CONFIRME prennent le relais),
+ * refusé, annulé ou expiré, et réécrits quand l'admin le modifie.
+ *
+ * Stockage Redis si disponible, sinon en mémoire (même principe que TokenBlacklistService) :
+ * - blocage:produit:{idProduit} : hash idBlocage -> blocage sérialisé
+ * - blocage:utilisateur:{idUtilisateur} : set "idProduit:idBlocage" (blocages de panier seulement)
+ * - Redis : vérification et écriture dans une transaction WATCH/MULTI sur le hash du produit,
+ *   rejouée si un autre nœud a modifié les blocages de ce produit entre-temps
+ *
+ * Ce sont des blocages "souples" : la validation définitive (reserverStockPourReservation)
+ * repose toujours sur les verrous du stock, pas sur ces blocages.
+ */
+@Service
+@Slf4j
+public class BlocageStockService {
+
+    private static final String PREFIXE_PRODUIT = "blocage:produit:";
+    private static final String PREFIXE_UTILISATEUR = "blocage:utilisateur:";
+    private static final String PREFIXE_DEVIS = "devis:";
+    private static final int BLOCAGES_MAX_PAR_UTILISATEUR = 20;
+    private static final int ESSAIS_MAX_REDIS = 5;
+    private static final String TACHE_PURGE = "purge-blocages-stock";
+
+    @Autowired(required = false) // Ne pas échouer si Redis n'est pas disponible
+    private RedisTemplate<String, String> redisTemplate;
+
+    private final OccupationIndexService occupationIndex;
+    private final DateReservationValidator dateValidator;
+    private final CoordinationTaches coordination;
+    private final long ttlMs;
+
+    // Fallback en mémoire : idProduit -> (idBlocage -> blocage)
+    private final Map<Long, Map<String, Blocage>> blocagesEnMemoire = new ConcurrentHashMap<>();
+    private final Map<Long, Object> verrousProduits = new ConcurrentHashMap<>();
+
+    private boolean useRedis = false;
+
+    public BlocageStockService(OccupationIndexService occupationIndex,
+                               DateReservationValidator dateValidator,
+                               CoordinationTaches coordination,
+                               @Value("${reservation.blocage.ttl-minutes:15}") long ttlMinutes) {
+        this.occupationIndex = occupationIndex;
+        this.dateValidator = dateValidator;
+        this.coordination = coordination;
+        this.ttlMs = TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.getConnectionFactory().getConnection().ping();
+                useRedis = true;
+                log.info("✅ Blocages de stock - Mode REDIS activé");
+            } catch (Exception e) {
+                log.warn("⚠️ Redis non disponible - Blocages de stock en MÉMOIRE (fallback)");
+                useRedis = false;
+            }
+        } else {
+            log.warn("⚠️ RedisTemplate non configuré - Blocages de stock en MÉMOIRE");
+            useRedis = false;
+        }
+    }
+
+    // ============================================
+    // API
+    // ============================================
+
+    /**
+     * Bloquer des unités d'un produit pour un client
+     *
+     * @throws CustomException si la quantité n'est pas disponible (blocages des autres clients inclus)
+     */
+    public BlocageStockDto bloquer(Long idUtilisateur, VerificationDisponibiliteDto demande) {
+        dateValidator.validerPeriodeReservation(demande.getDateDebut(), demande.getDateFin(), "blocage panier");
+
+        OccupationProduit occupation = occupationIndex.getOccupation(demande.getIdProduit());
+        if (occupation == null) {
+            throw new CustomException("Produit introuvable");
+        }
+
+        Blocage blocage;
+        if (useRedis) {
+            // Vérification + enregistrement atomiques pour tous les nœuds
+            blocage = bloquerRedis(idUtilisateur, demande, occupation);
+        } else {
+            // Vérification + enregistrement sérialisés par produit (mémoire locale à ce nœud)
+            synchronized (verrousProduits.computeIfAbsent(demande.getIdProduit(), k -> new Object())) {
+                blocage = nouveauBlocage(idUtilisateur, demande, occupation, lireBlocagesProduit(demande.getIdProduit()));
+                enregistrer(blocage);
+            }
+        }
+
+        log.info("🛒 Blocage {} : {} x produit {} du {} au {} pour l'utilisateur {}",
+                blocage.idBlocage, blocage.quantite, blocage.idProduit,
+                blocage.dateDebut, blocage.dateFin, idUtilisateur);
+        return toDto(blocage);
+    }
+
+    /**
+     * Libérer un blocage avant son expiration
+     */
+    public void liberer(Long idUtilisateur, String idBlocage) {
+        Blocage blocage = getBlocagesUtilisateur(idUtilisateur).stream()
+                .filter(b -> b.idBlocage.equals(idBlocage))
+                .findFirst()
+                .orElseThrow(() -> new CustomException("Blocage introuvable ou expiré"));
+        supprimer(blocage);
+        log.info("🔓 Blocage {} libéré par l'utilisateur {}", idBlocage, idUtilisateur);
+    }
+
+    public List<BlocageStockDto> getMesBlocages(Long idUtilisateur) {
+        return getBlocagesUtilisateur(idUtilisateur).stream().map(this::toDto).toList();
+    }
+
+    /**
+     * Intervalles bloqués par produit, hors blocages de panier d'un utilisateur (null = aucun exclu).
+     * Les blocages de ses devis en attente restent comptés : un nouveau devis ne peut pas les consommer.
+     */
+    public Map<Long, List<Intervalle>> getIntervallesBloques(Collection<Long> idsProduits, Long idUtilisateurExclu) {
+        Map<Long, List<Intervalle>> resultat = new HashMap<>();
+        for (Long idProduit : new HashSet<>(idsProduits)) {
+            List<Intervalle> intervalles = lireBlocagesProduit(idProduit).stream()
+                    .filter(b -> b.estDevis() || !b.idUtilisateur.equals(idUtilisateurExclu))
+                    .map(Blocage::intervalle)
+                    .toList();
+            if (!intervalles.isEmpty()) {
+                resultat.put(idProduit, intervalles);
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Le devis est créé ou modifié : après le commit, les blocages de panier du client sur ces produits
+     * sont remplacés par les lignes du devis, bloquées jusqu'à dateExpirationDevis.
+     * Sans échéance (devis confirmé aussitôt, ses lignes comptent déjà dans l'occupation),
+     * seuls les blocages de panier sont libérés. En cas de rollback, rien ne change.
+     */
+    public void convertirEnDevis(Long idUtilisateur, Long idReservation,
+                                 List<VerificationDisponibiliteDto> lignes, LocalDateTime dateExpirationDevis) {
+        Set<Long> produits = new HashSet<>();
+        List<Blocage> blocagesDevis = new ArrayList<>();
+        long expiration = dateExpirationDevis == null ? 0
+                : dateExpirationDevis.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        for (VerificationDisponibiliteDto ligne : lignes) {
+            produits.add(ligne.getIdProduit());
+            if (dateExpirationDevis != null) {
+                blocagesDevis.add(new Blocage(PREFIXE_DEVIS + idReservation + ":" + blocagesDevis.size(),
+                        idUtilisateur, ligne.getIdProduit(), ligne.getQuantite(),
+                        ligne.getDateDebut(), ligne.getDateFin(), expiration));
+            }
+        }
+        apresCommit(() -> {
+            libererBlocagesPanier(idUtilisateur, produits);
+            if (idReservation != null) {
+                remplacerBlocagesDevis(idReservation, produits, blocagesDevis);
+            }
+        });
+    }
+
+    /**
+     * Le devis n'est plus EN_ATTENTE (validé, refusé, annulé ou expiré) : ses blocages sont libérés
+     * après le commit. Validé, ses lignes CONFIRME comptent désormais dans l'occupation.
+     */
+    public void libererDevis(Long idReservation, Collection<Long> idsProduits) {
+        Set<Long> produits = new HashSet<>(idsProduits);
+        apresCommit(() -> remplacerBlocagesDevis(idReservation, produits, List.of()));
+    }
+
+    /**
+     * Unités disponibles en tenant compte d'intervalles bloqués
+     */
+    public static int quantiteDisponible(OccupationProduit occupation, LocalDate debut, LocalDate fin,
+                                         List<Intervalle> bloques) {
+        if (occupation.getTypeProduit() == TypeProduit.AVEC_REFERENCE) {
+            return occupation.compterInstancesLibres(debut, fin) - OccupationProduit.picSurPeriode(bloques, debut, fin);
+        }
+        return occupation.getStock() - occupation.picReserve(debut, fin, bloques);
+    }
+
+    // ============================================
+    // EXPIRATION
+    // ============================================
+
+    /**
+     * Purge des blocages expirés (les lectures les ignorent déjà, ceci libère la place)
+     *
+     * Redis : stockage partagé, un seul nœud purge (bail) en parcourant les clés par SCAN
+     * (pas de KEYS, qui bloque le serveur). Mémoire : chaque nœud purge ses propres blocages.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void purgerBlocagesExpires() {
+        long maintenant = System.currentTimeMillis();
+        int purges = 0;
+        if (useRedis) {
+            if (!coordination.acquerir(TACHE_PURGE, Duration.ofSeconds(50))) {
+                return;
+            }
+            ScanOptions options = ScanOptions.scanOptions().match(PREFIXE_PRODUIT + "*").count(500).build();
+            try (Cursor<String> cles = redisTemplate.scan(options)) {
+                while (cles.hasNext()) {
+                    String cle = cles.next();
+                    Map<Object, Object> entrees = redisTemplate.opsForHash().entries(cle);
+                    for (Map.Entry<Object, Object> entree : entrees.entrySet()) {
+                        Blocage blocage = Blocage.lire(Long.valueOf(cle.substring(PREFIXE_PRODUIT.length())),
+                                (String) entree.getKey(), (String) entree.getValue());
+                        if (blocage == null || blocage.expiration <= maintenant) {
+                            redisTemplate.opsForHash().delete(cle, entree.getKey());
+                            purges++;
+                        }
+                    }
+                }
+            }
+        } else {
+            for (Map<String, Blocage> blocages : blocagesEnMemoire.values()) {
+                int avant = blocages.size();
+                blocages.values().removeIf(b -> b.expiration <= maintenant);
+                purges += avant - blocages.size();
+            }
+            blocagesEnMemoire.values().removeIf(Map::isEmpty);
+        }
+        if (purges > 0) {
+            log.debug("🧹 {} blocage(s) de stock expiré(s) purgé(s)", purges);
+        }
+    }
+
+    // ============================================
+    // STOCKAGE
+    // ============================================
+
+    /**
+     * Vérifier la demande face aux blocages existants du produit
+     *
+     * @throws CustomException si la quantité n'est pas disponible ou si le client a trop de blocages
+     */
+    private Blocage nouveauBlocage(Long idUtilisateur, VerificationDisponibiliteDto demande,
+                                   OccupationProduit occupation, List<Blocage> existants) {
+        if (existants.stream().filter(b -> !b.estDevis() && b.idUtilisateur.equals(idUtilisateur)).count()
+                >= BLOCAGES_MAX_PAR_UTILISATEUR) {
+            throw new CustomException("Nombre maximum de blocages atteint pour ce produit");
+        }
+
+        List<Intervalle> bloques = existants.stream().map(Blocage::intervalle).toList();
+        int disponible = quantiteDisponible(occupation, demande.getDateDebut(), demande.getDateFin(), bloques);
+        if (disponible < demande.getQuantite()) {
+            throw new CustomException("Quantité non disponible pour le blocage. Demandé: "
+                    + demande.getQuantite() + ", Disponible: " + Math.max(disponible, 0));
+        }
+
+        return new Blocage(UUID.randomUUID().toString(), idUtilisateur, demande.getIdProduit(),
+                demande.getQuantite(), demande.getDateDebut(), demande.getDateFin(),
+                System.currentTimeMillis() + ttlMs);
+    }
+
+    /**
+     * WATCH du hash du produit, lecture et vérification, puis écriture dans MULTI/EXEC.
+     * EXEC est annulé si un autre client a modifié le hash depuis le WATCH : on relit et on revérifie.
+     */
+    private Blocage bloquerRedis(Long idUtilisateur, VerificationDisponibiliteDto demande,
+                                 OccupationProduit occupation) {
+        String cleProduit = PREFIXE_PRODUIT + demande.getIdProduit();
+        for (int essai = 1; essai <= ESSAIS_MAX_REDIS; essai++) {
+            Blocage blocage = redisTemplate.execute(new SessionCallback<Blocage>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Blocage execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, String> redis = (RedisOperations<String, String>) operations;
+                    redis.watch(cleProduit);
+                    List<Blocage> existants;
+                    Blocage nouveau;
+                    try {
+                        existants = lireBlocagesRedis(redis, demande.getIdProduit());
+                        nouveau = nouveauBlocage(idUtilisateur, demande, occupation, existants);
+                    } catch (RuntimeException e) {
+                        redis.unwatch();
+                        throw e;
+                    }
+                    redis.multi();
+                    ecrireRedis(redis, nouveau, expirationCle(existants, nouveau));
+                    return redis.exec().isEmpty() ? null : nouveau;
+                }
+            });
+            if (blocage != null) {
+                return blocage;
+            }
+            log.debug("🔁 Blocages du produit {} modifiés par un autre client, essai {}/{}",
+                    demande.getIdProduit(), essai, ESSAIS_MAX_REDIS);
+        }
+        throw new CustomException("Forte demande sur ce produit, blocage impossible pour le moment. Réessayez.");
+    }
+
+    private void apresCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void libererBlocagesPanier(Long idUtilisateur, Set<Long> produits) {
+        try {
+            List<Blocage> consommes = getBlocagesUtilisateur(idUtilisateur).stream()
+                    .filter(b -> produits.contains(b.idProduit))
+                    .toList();
+            consommes.forEach(this::supprimer);
+            if (!consommes.isEmpty()) {
+                log.info("🧾 {} blocage(s) de panier libérés après création du devis de l'utilisateur {}",
+                        consommes.size(), idUtilisateur);
+            }
+        } catch (Exception e) {
+            // Le devis est déjà validé : les blocages restants expireront seuls
+            log.warn("⚠️ Blocages de l'utilisateur {} non libérés: {}", idUtilisateur, e.getMessage());
+        }
+    }
+
+    /**
+     * Supprimer les blocages d'un devis sur ces produits puis écrire les nouveaux (liste vide = libération)
+     */
+    private void remplacerBlocagesDevis(Long idReservation, Set<Long> produits, List<Blocage> nouveaux) {
+        String prefixe = PREFIXE_DEVIS + idReservation + ":";
+        try {
+            for (Long idProduit : produits) {
+                lireBlocagesProduit(idProduit).stream()
+                        .filter(b -> b.idBlocage.startsWith(prefixe))
+                        .forEach(this::supprimer);
+            }
+            for (Blocage blocage : nouveaux) {
+                if (useRedis) {
+                    ecrireRedis(redisTemplate, blocage,
+                            expirationCle(lireBlocagesRedis(redisTemplate, blocage.idProduit), blocage));
+                } else {
+                    enregistrer(blocage);
+                }
+            }
+            log.info("🧾 Devis {} : {} ligne(s) bloquée(s)", idReservation, nouveaux.size());
+        } catch (Exception e) {
+            // Le devis est déjà enregistré : les blocages restants expireront à son échéance
+            log.warn("⚠️ Blocages du devis {} non mis à jour: {}", idReservation, e.getMessage());
+        }
+    }
+
+    private void enregistrer(Blocage blocage) {
+        if (useRedis) {
+            ecrireRedis(redisTemplate, blocage, blocage.expiration);
+        } else {
+            blocagesEnMemoire.computeIfAbsent(blocage.idProduit, k -> new ConcurrentHashMap<>())
+                    .put(blocage.idBlocage, blocage);
+        }
+    }
+
+    /**
+     * @param expirationCle Expiration du hash du produit : la plus lointaine de ses blocages,
+     *                      pour qu'un blocage de panier n'écourte pas ceux d'un devis
+     */
+    private void ecrireRedis(RedisOperations<String, String> redis, Blocage blocage, long expirationCle) {
+        String cleProduit = PREFIXE_PRODUIT + blocage.idProduit;
+        redis.opsForHash().put(cleProduit, blocage.idBlocage, blocage.serialiser());
+        redis.expireAt(cleProduit, Instant.ofEpochMilli(expirationCle));
+        if (!blocage.estDevis()) {
+            String cleUtilisateur = PREFIXE_UTILISATEUR + blocage.idUtilisateur;
+            redis.opsForSet().add(cleUtilisateur, blocage.idProduit + ":" + blocage.idBlocage);
+            redis.expire(cleUtilisateur, ttlMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static long expirationCle(List<Blocage> existants, Blocage nouveau) {
+        long expiration = nouveau.expiration;
+        for (Blocage blocage : existants) {
+            expiration = Math.max(expiration, blocage.expiration);
+        }
+        return expiration;
+    }
+
+    private void supprimer(Blocage blocage) {
+        if (useRedis) {
+            redisTemplate.opsForHash().delete(PREFIXE_PRODUIT + blocage.idProduit, blocage.idBlocage);
+            redisTemplate.opsForSet().remove(PREFIXE_UTILISATEUR + blocage.idUtilisateur,
+                    blocage.idProduit + ":" + blocage.idBlocage);
+        } else {
+            Map<String, Blocage> blocages = blocagesEnMemoire.get(blocage.idProduit);
+            if (blocages != null) {
+                blocages.remove(blocage.idBlocage);
+            }
+        }
+    }
+
+    private List<Blocage> lireBlocagesProduit(Long idProduit) {
+        if (useRedis) {
+            return lireBlocagesRedis(redisTemplate, idProduit);
+        }
+        long maintenant = System.currentTimeMillis();
+        Map<String, Blocage> blocages = blocagesEnMemoire.get(idProduit);
+        if (blocages == null) {
+            return List.of();
+        }
+        return blocages.values().stream().filter(b -> b.expiration > maintenant).toList();
+    }
+
+    private List<Blocage> lireBlocagesRedis(RedisOperations<String, String> redis, Long idProduit) {
+        long maintenant = System.currentTimeMillis();
+        Map<Object, Object> entrees = redis.opsForHash().entries(PREFIXE_PRODUIT + idProduit);
+        List<Blocage> blocages = new ArrayList<>(entrees.size());
+        for (Map.Entry<Object, Object> entree : entrees.entrySet()) {
+            Blocage blocage = Blocage.lire(idProduit, (String) entree.getKey(), (String) entree.getValue());
+            if (blocage != null && blocage.expiration > maintenant) {
+                blocages.add(blocage);
+            }
+        }
+        return blocages;
+    }
+
+    /**
+     * Blocages de panier de l'utilisateur (ceux de ses devis sont gérés par convertirEnDevis / libererDevis)
+     */
+    private List<Blocage> getBlocagesUtilisateur(Long idUtilisateur) {
+        long maintenant = System.currentTimeMillis();
+        if (useRedis) {
+            Set<String> membres = redisTemplate.opsForSet().members(PREFIXE_UTILISATEUR + idUtilisateur);
+            List<Blocage> blocages = new ArrayList<>();
+            if (membres == null) {
+                return blocages;
+            }
+            for (String membre : membres) {
+                int separateur = membre.indexOf(':');
+                Long idProduit = Long.valueOf(membre.substring(0, separateur));
+                String idBlocage = membre.substring(separateur + 1);
+                Object valeur = redisTemplate.opsForHash().get(PREFIXE_PRODUIT + idProduit, idBlocage);
+                Blocage blocage = valeur == null ? null : Blocage.lire(idProduit, idBlocage, (String) valeur);
+                if (blocage != null && blocage.expiration > maintenant) {
+                    blocages.add(blocage);
+                } else {
+                    redisTemplate.opsForSet().remove(PREFIXE_UTILISATEUR + idUtilisateur, membre);
+                }
+            }
+            return blocages;
+        }
+        List<Blocage> blocages = new ArrayList<>();
+        for (Map<String, Blocage> parProduit : blocagesEnMemoire.values()) {
+            for (Blocage blocage : parProduit.values()) {
+                if (!blocage.estDevis() && blocage.idUtilisateur.equals(idUtilisateur)
+                        && blocage.expiration > maintenant) {
+                    blocages.add(blocage);
+                }
+            }
+        }
+        return blocages;
+    }
+
+    private BlocageStockDto toDto(Blocage blocage) {
+        return BlocageStockDto.builder()
+                .idBlocage(blocage.idBlocage)
+                .idProduit(blocage.idProduit)
+                .quantite(blocage.quantite)
+                .dateDebut(blocage.dateDebut)
+                .dateFin(blocage.dateFin)
+                .dateExpiration(LocalDateTime.ofInstant(Instant.ofEpochMilli(blocage.expiration), ZoneId.systemDefault()))
+                .build();
+    }
+
+    public boolean isUsingRedis() {
+        return useRedis;
+    }
+
+    /**
+     * Blocage stocké : "idUtilisateur;quantite;dateDebut;dateFin;expirationMs"
+     */
+    @AllArgsConstructor
+    private static final class Blocage {
+        private final String idBlocage;
+        private final Long idUtilisateur;
+        private final Long idProduit;
+        private final int quantite;
+        private final LocalDate dateDebut;
+        private final LocalDate dateFin;
+        private final long expiration;
+
+        boolean estDevis() {
+            return idBlocage.startsWith(PREFIXE_DEVIS);
+        }
+
+        Intervalle intervalle() {
+            return new Intervalle(dateDebut, dateFin, quantite);
+        }
+
+        String serialiser() {
+            return idUtilisateur + ";" + quantite + ";" + dateDebut + ";" + dateFin + ";" + expiration;
+        }
+
+        static Blocage lire(Long idProduit, String idBlocage, String valeur) {
+            try {
+                String[] parties = valeur.split(";");
+                return new Blocage(idBlocage, Long.valueOf(parties[0]), idProduit, Integer.parseInt(parties[1]),
+                        LocalDate.parse(parties[2]), LocalDate.parse(parties[3]), Long.parseLong(parties[4]));
+            } catch (Exception e) {
+                log.warn("⚠️ Blocage illisible ignoré: {}", valeur);
+                return null;
+            }
+        }
+    }
+}
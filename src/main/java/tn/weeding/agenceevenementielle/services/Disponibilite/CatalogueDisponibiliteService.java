@@ -0,0 +1,190 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.weeding.agenceevenementielle.dto.produit.CatalogueDisponibiliteDto;
+import tn.weeding.agenceevenementielle.dto.produit.HeatmapDisponibiliteDto;
+import tn.weeding.agenceevenementielle.dto.produit.HeatmapDisponibiliteDto.LigneHeatmap;
+import tn.weeding.agenceevenementielle.dto.produit.ProduitDisponibiliteDto;
+import tn.weeding.agenceevenementielle.entities.enums.Categorie;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+import tn.weeding.agenceevenementielle.exceptions.CustomException;
+import tn.weeding.agenceevenementielle.repository.ProduitRepository;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ==========================================
+ * DISPONIBILITÉ DU CATALOGUE SUR UNE PÉRIODE
+ * ==========================================
+ *
+ * Calcule la disponibilité de tout le catalogue en une seule requête
+ * (projection filtrée des produits), les réservations étant lues dans l'index
+ * d'occupation en mémoire plutôt qu'avec deux requêtes par produit.
+ *
+ * - EN_QUANTITE : réservé = pic journalier sur la période, disponible = stock - pic
+ * - AVEC_REFERENCE : total = nombre d'instances, réservé = instances occupées sur la période,
+ *   disponible = instances DISPONIBLE et libres sur toute la période
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class CatalogueDisponibiliteService {
+
+    public static final int TAILLE_PAGE_MAX = 500;
+    public static final int JOURS_HEATMAP_MAX = 365;
+
+    private final ProduitRepository produitRepo;
+    private final OccupationIndexService occupationIndex;
+
+    /**
+     * Disponibilité de tous les produits correspondant aux filtres (null = pas de filtre)
+     */
+    public List<ProduitDisponibiliteDto> calculer(LocalDate dateDebut, LocalDate dateFin,
+                                                  Categorie categorie, TypeProduit type) {
+        verifierPeriode(dateDebut, dateFin);
+        return calculer(produitRepo.findProjectionsCatalogue(categorie, type), dateDebut, dateFin);
+    }
+
+    /**
+     * Une page du catalogue, triée par nom de produit
+     * (LIMIT/OFFSET et tri faits par la base : seuls les produits de la page sont lus)
+     *
+     * @param page Numéro de page (à partir de 0)
+     * @param taille Produits par page (1 à TAILLE_PAGE_MAX)
+     */
+    public CatalogueDisponibiliteDto calculerPage(LocalDate dateDebut, LocalDate dateFin,
+                                                  Categorie categorie, TypeProduit type,
+                                                  int page, int taille) {
+        verifierPeriode(dateDebut, dateFin);
+        if (page < 0 || taille < 1 || taille > TAILLE_PAGE_MAX) {
+            throw new CustomException("Pagination invalide : page >= 0 et taille entre 1 et " + TAILLE_PAGE_MAX);
+        }
+
+        Page<Object[]> projections = produitRepo.findPageProjectionsCatalogue(categorie, type,
+                PageRequest.of(page, taille, Sort.by("nomProduit", "idProduit")));
+
+        return CatalogueDisponibiliteDto.builder()
+                .produits(calculer(projections.getContent(), dateDebut, dateFin))
+                .page(page)
+                .taille(taille)
+                .totalProduits(projections.getTotalElements())
+                .totalPages(projections.getTotalPages())
+                .build();
+    }
+
+    /**
+     * Calendrier de disponibilité jour par jour d'un produit ou d'une catégorie
+     *
+     * @param idProduit Produit demandé (prioritaire sur la catégorie)
+     * @param categorie Tous les produits de la catégorie si idProduit est null
+     */
+    public HeatmapDisponibiliteDto calculerHeatmap(Long idProduit, Categorie categorie,
+                                                   LocalDate dateDebut, LocalDate dateFin) {
+        verifierPeriode(dateDebut, dateFin);
+        long jours = ChronoUnit.DAYS.between(dateDebut, dateFin) + 1;
+        if (jours > JOURS_HEATMAP_MAX) {
+            throw new CustomException("La période ne peut pas dépasser " + JOURS_HEATMAP_MAX + " jours");
+        }
+        if (idProduit == null && categorie == null) {
+            throw new CustomException("Indiquez un produit ou une catégorie");
+        }
+
+        List<Long> ids;
+        if (idProduit != null) {
+            if (!produitRepo.existsById(idProduit)) {
+                throw new CustomException("Produit avec ID " + idProduit + " introuvable");
+            }
+            ids = List.of(idProduit);
+        } else {
+            ids = produitRepo.findProjectionsCatalogue(categorie, null).stream()
+                    .map(row -> (Long) row[0])
+                    .toList();
+        }
+
+        Map<Long, OccupationProduit> occupations = occupationIndex.getOccupations(ids);
+        List<LigneHeatmap> lignes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            OccupationProduit occupation = occupations.get(id);
+            if (occupation == null) {
+                continue;
+            }
+            boolean avecReference = occupation.getTypeProduit() == TypeProduit.AVEC_REFERENCE;
+            lignes.add(LigneHeatmap.builder()
+                    .idProduit(id)
+                    .nomProduit(occupation.getNomProduit())
+                    .typeProduit(occupation.getTypeProduit())
+                    .capacite(avecReference
+                            ? (int) occupation.getInstances().stream()
+                                    .filter(OccupationProduit.InstanceOccupation::isDisponiblePhysiquement).count()
+                            : occupation.getStock())
+                    .libres(occupation.disponibiliteParJour(dateDebut, dateFin))
+                    .build());
+        }
+
+        return HeatmapDisponibiliteDto.builder()
+                .dateDebut(dateDebut)
+                .dateFin(dateFin)
+                .nombreJours((int) jours)
+                .produits(lignes)
+                .build();
+    }
+
+    private List<ProduitDisponibiliteDto> calculer(List<Object[]> projections,
+                                                   LocalDate dateDebut, LocalDate dateFin) {
+        long debutMs = System.currentTimeMillis();
+
+        List<Long> ids = new ArrayList<>(projections.size());
+        projections.forEach(row -> ids.add((Long) row[0]));
+        Map<Long, OccupationProduit> occupations = occupationIndex.getOccupations(ids);
+
+        List<ProduitDisponibiliteDto> resultat = new ArrayList<>(projections.size());
+        for (Object[] row : projections) {
+            Long idProduit = (Long) row[0];
+            ProduitDisponibiliteDto dto = ProduitDisponibiliteDto.builder()
+                    .idProduit(idProduit)
+                    .codeProduit((String) row[1])
+                    .nomProduit((String) row[2])
+                    .typeProduit((TypeProduit) row[3])
+                    .build();
+
+            OccupationProduit occupation = occupations.get(idProduit);
+            if (occupation == null) {
+                // Produit supprimé entre la projection et la lecture de l'index
+                continue;
+            }
+
+            if (occupation.getTypeProduit() == TypeProduit.AVEC_REFERENCE) {
+                dto.setQuantiteTotale(occupation.getInstances().size());
+                dto.setQuantiteReservee(occupation.compterInstancesReservees(dateDebut, dateFin));
+                dto.setQuantiteDisponible(occupation.compterInstancesLibres(dateDebut, dateFin));
+            } else {
+                int reserve = occupation.picReserve(dateDebut, dateFin);
+                dto.setQuantiteTotale(occupation.getStock());
+                dto.setQuantiteReservee(reserve);
+                dto.setQuantiteDisponible(occupation.getStock() - reserve);
+            }
+            resultat.add(dto);
+        }
+
+        log.debug("📅 Disponibilité de {} produits calculée en {} ms",
+                resultat.size(), System.currentTimeMillis() - debutMs);
+        return resultat;
+    }
+
+    private void verifierPeriode(LocalDate dateDebut, LocalDate dateFin) {
+        if (dateDebut == null || dateFin == null || dateFin.isBefore(dateDebut)) {
+            throw new CustomException("La date de fin doit être postérieure ou égale à la date de début");
+        }
+    }
+}
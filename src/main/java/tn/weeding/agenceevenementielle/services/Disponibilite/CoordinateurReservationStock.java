@@ -0,0 +1,112 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.weeding.agenceevenementielle.exceptions.ReservationException.ReservationConcurrenteException;
+import tn.weeding.agenceevenementielle.repository.ProduitRepository;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ==========================================
+ * COORDINATEUR DES RÉSERVATIONS DE STOCK
+ * ==========================================
+ *
+ * Sérialise uniquement les validations qui portent sur les mêmes produits :
+ * 1. Verrous en mémoire répartis en "stripes" (un produit -> une stripe),
+ *    pris dans l'ordre croissant pour éviter les interblocages
+ * 2. SELECT ... FOR UPDATE sur les lignes produits, qui servent de garde entre
+ *    plusieurs instances de l'application
+ *
+ * Les deux verrous sont conservés jusqu'à la fin de la transaction courante :
+ * la validation suivante relit donc forcément les lignes déjà confirmées.
+ * Deux validations sur des produits différents continuent de s'exécuter en parallèle.
+ */
+@Component
+@Slf4j
+public class CoordinateurReservationStock {
+
+    private final ProduitRepository produitRepo;
+    private final ReentrantLock[] stripes;
+    private final long delaiAttenteMs;
+
+    public CoordinateurReservationStock(ProduitRepository produitRepo,
+                                        @Value("${reservation.verrou.stripes:256}") int nombreStripes,
+                                        @Value("${reservation.verrou.attente-ms:10000}") long delaiAttenteMs) {
+        this.produitRepo = produitRepo;
+        this.delaiAttenteMs = delaiAttenteMs;
+        this.stripes = new ReentrantLock[nombreStripes];
+        for (int i = 0; i < nombreStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Verrouiller le stock des produits indiqués jusqu'à la fin de la transaction courante
+     *
+     * @throws IllegalStateException si aucune transaction n'est active
+     * @throws ReservationConcurrenteException si les verrous ne sont pas obtenus à temps
+     */
+    public void verrouillerProduits(Collection<Long> idsProduits) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Le verrouillage du stock exige une transaction active");
+        }
+
+        TreeSet<Long> ids = new TreeSet<>();
+        idsProduits.stream().filter(Objects::nonNull).forEach(ids::add);
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        // 1. Stripes en mémoire, dans l'ordre croissant
+        TreeSet<Integer> indexStripes = new TreeSet<>();
+        ids.forEach(id -> indexStripes.add(indexStripe(id)));
+
+        List<ReentrantLock> obtenus = new ArrayList<>(indexStripes.size());
+        try {
+            for (int index : indexStripes) {
+                ReentrantLock verrou = stripes[index];
+                if (!verrou.tryLock(delaiAttenteMs, TimeUnit.MILLISECONDS)) {
+                    throw new ReservationConcurrenteException(
+                            "Une autre validation est en cours sur ces produits, veuillez réessayer");
+                }
+                obtenus.add(verrou);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            liberer(obtenus);
+            throw new ReservationConcurrenteException("Validation interrompue pendant l'attente du stock");
+        } catch (RuntimeException e) {
+            liberer(obtenus);
+            throw e;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                liberer(obtenus);
+            }
+        });
+
+        // 2. Garde en base : lignes produits verrouillées jusqu'au commit
+        produitRepo.verrouillerPourReservation(ids);
+
+        log.debug("🔒 Stock verrouillé pour les produits {}", ids);
+    }
+
+    private int indexStripe(Long idProduit) {
+        return Math.floorMod(Long.hashCode(idProduit * 0x9E3779B97F4A7C15L), stripes.length);
+    }
+
+    private void liberer(List<ReentrantLock> verrous) {
+        for (int i = verrous.size() - 1; i >= 0; i--) {
+            verrous.get(i).unlock();
+        }
+        verrous.clear();
+    }
+}
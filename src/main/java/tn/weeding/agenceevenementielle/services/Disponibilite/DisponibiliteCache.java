@@ -0,0 +1,187 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tn.weeding.agenceevenementielle.dto.produit.DisponibiliteCacheStatsDto;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.InstanceOccupation;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * ==========================================
+ * CACHE DES RÉPONSES DE DISPONIBILITÉ
+ * ==========================================
+ *
+ * Mémorise la disponibilité d'un produit pour une période (idProduit, dateDebut, dateFin) :
+ * - taille bornée (reservation.disponibilite.cache.taille-max), éviction LRU
+ * - invalidation par plage : une modification de l'occupation du produit sur [debut, fin]
+ *   ne retire que les entrées dont la période chevauche cette plage
+ * - invalidation complète du produit pour les changements sans date (stock, statut d'instance)
+ *
+ * Les invalidations sont déclenchées par OccupationIndexService APRÈS l'installation du
+ * nouvel instantané. Une version par produit empêche d'enregistrer une valeur calculée
+ * sur un instantané remplacé entre-temps.
+ */
+@Component
+@Slf4j
+public class DisponibiliteCache {
+
+    private final int tailleMax;
+
+    // Ordre d'accès : l'entrée la moins récemment lue sort en premier
+    private final LinkedHashMap<Cle, Disponibilite> entrees;
+    private final Map<Long, Set<Cle>> clesParProduit = new HashMap<>();
+    private final Map<Long, Long> versions = new HashMap<>();
+
+    private final AtomicLong succes = new AtomicLong();
+    private final AtomicLong echecs = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public DisponibiliteCache(@Value("${reservation.disponibilite.cache.taille-max:10000}") int tailleMax) {
+        this.tailleMax = Math.max(tailleMax, 1);
+        this.entrees = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Cle, Disponibilite> eldest) {
+                if (size() <= DisponibiliteCache.this.tailleMax) {
+                    return false;
+                }
+                retirerDeLIndexProduit(eldest.getKey());
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Lire la disponibilité en cache, ou la calculer et la mémoriser
+     *
+     * @param calcul Calcul sur l'instantané courant de l'index (null si le produit n'existe pas)
+     */
+    public Disponibilite lire(Long idProduit, LocalDate debut, LocalDate fin, Supplier<Disponibilite> calcul) {
+        Cle cle = new Cle(idProduit, debut, fin);
+        long version;
+        synchronized (this) {
+            Disponibilite existante = entrees.get(cle);
+            if (existante != null) {
+                succes.incrementAndGet();
+                return existante;
+            }
+            version = versions.getOrDefault(idProduit, 0L);
+        }
+        echecs.incrementAndGet();
+
+        // Calcul hors verrou : il peut parcourir toutes les instances du produit
+        Disponibilite calculee = calcul.get();
+        if (calculee == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            if (versions.getOrDefault(idProduit, 0L) == version) {
+                entrees.put(cle, calculee);
+                clesParProduit.computeIfAbsent(idProduit, k -> new HashSet<>()).add(cle);
+            }
+        }
+        return calculee;
+    }
+
+    /**
+     * Retirer les entrées d'un produit dont la période chevauche [debut, fin]
+     */
+    public synchronized void invalider(Long idProduit, LocalDate debut, LocalDate fin) {
+        versions.merge(idProduit, 1L, Long::sum);
+        Set<Cle> cles = clesParProduit.get(idProduit);
+        if (cles == null) {
+            return;
+        }
+        Iterator<Cle> iterateur = cles.iterator();
+        while (iterateur.hasNext()) {
+            Cle cle = iterateur.next();
+            if (!cle.debut.isAfter(fin) && !cle.fin.isBefore(debut)) {
+                entrees.remove(cle);
+                iterateur.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+        if (cles.isEmpty()) {
+            clesParProduit.remove(idProduit);
+        }
+    }
+
+    /**
+     * Retirer toutes les entrées d'un produit (stock, statut d'instance, produit supprimé)
+     */
+    public synchronized void invaliderProduit(Long idProduit) {
+        versions.merge(idProduit, 1L, Long::sum);
+        Set<Cle> cles = clesParProduit.remove(idProduit);
+        if (cles == null) {
+            return;
+        }
+        cles.forEach(entrees::remove);
+        invalidations.addAndGet(cles.size());
+    }
+
+    public synchronized void vider() {
+        entrees.keySet().forEach(cle -> versions.merge(cle.idProduit, 1L, Long::sum));
+        invalidations.addAndGet(entrees.size());
+        entrees.clear();
+        clesParProduit.clear();
+        log.info("🧹 Cache de disponibilité vidé");
+    }
+
+    public DisponibiliteCacheStatsDto getStatistiques() {
+        long nbSucces = succes.get();
+        long nbEchecs = echecs.get();
+        int taille;
+        synchronized (this) {
+            taille = entrees.size();
+        }
+        long lectures = nbSucces + nbEchecs;
+        return DisponibiliteCacheStatsDto.builder()
+                .taille(taille)
+                .tailleMax(tailleMax)
+                .succes(nbSucces)
+                .echecs(nbEchecs)
+                .tauxSucces(lectures == 0 ? 0.0 : Math.round(nbSucces * 1000.0 / lectures) / 10.0)
+                .evictions(evictions.get())
+                .invalidations(invalidations.get())
+                .build();
+    }
+
+    private void retirerDeLIndexProduit(Cle cle) {
+        Set<Cle> cles = clesParProduit.get(cle.idProduit);
+        if (cles != null) {
+            cles.remove(cle);
+            if (cles.isEmpty()) {
+                clesParProduit.remove(cle.idProduit);
+            }
+        }
+    }
+
+    /**
+     * Réponse mémorisée : quantité disponible et, pour AVEC_REFERENCE, les instances libres
+     * (dans l'ordre des numéros de série)
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Disponibilite {
+        private final int quantite;
+        private final List<InstanceOccupation> instancesLibres;
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class Cle {
+        private final Long idProduit;
+        private final LocalDate debut;
+        private final LocalDate fin;
+    }
+}
@@ -0,0 +1,49 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import tn.weeding.agenceevenementielle.entities.InstanceProduit;
+import tn.weeding.agenceevenementielle.entities.LigneReservation;
+import tn.weeding.agenceevenementielle.entities.Produit;
+import tn.weeding.agenceevenementielle.entities.Reservation;
+
+/**
+ * Listener JPA qui signale à l'index d'occupation toute écriture
+ * sur les entités qui influencent la disponibilité.
+ *
+ * Instancié par Hibernate via le SpringBeanContainer : l'éditeur d'événements
+ * est injecté par champ pour éviter une dépendance circulaire avec l'EntityManagerFactory.
+ */
+public class OccupationEntityListener {
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void apresEcriture(Object entite) {
+        if (publisher == null) {
+            return;
+        }
+
+        OccupationModifieeEvent event = null;
+        if (entite instanceof Produit produit) {
+            event = OccupationModifieeEvent.pourProduit(produit.getIdProduit());
+        } else if (entite instanceof InstanceProduit instance && instance.getProduit() != null) {
+            event = OccupationModifieeEvent.pourProduit(instance.getProduit().getIdProduit());
+        } else if (entite instanceof LigneReservation ligne && ligne.getProduit() != null) {
+            event = OccupationModifieeEvent.pourPeriode(ligne.getProduit().getIdProduit(),
+                    ligne.getDateDebut(), ligne.getDateFin());
+        } else if (entite instanceof Reservation reservation) {
+            event = OccupationModifieeEvent.pourReservation(reservation.getIdReservation());
+        }
+
+        if (event != null) {
+            publisher.publishEvent(event);
+        }
+    }
+}
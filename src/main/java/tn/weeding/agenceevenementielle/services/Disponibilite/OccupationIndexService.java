@@ -0,0 +1,366 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.entities.enums.Categorie;
+import tn.weeding.agenceevenementielle.entities.enums.StatutInstance;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+import tn.weeding.agenceevenementielle.repository.InstanceProduitRepository;
+import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
+import tn.weeding.agenceevenementielle.repository.ProduitRepository;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.InstanceOccupation;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.Intervalle;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ==========================================
+ * INDEX EN MÉMOIRE DE L'OCCUPATION DES PRODUITS
+ * ==========================================
+ *
+ * Garde pour chaque produit un instantané immuable (OccupationProduit) de ses
+ * réservations CONFIRMÉES, afin de répondre aux vérifications de disponibilité
+ * sans requête SQL d'agrégation.
+ *
+ * Cycle de vie :
+ * - Chargement complet au démarrage (par lots de produits)
+ * - Chargement à la demande si un produit est absent
+ * - Rafraîchissement après chaque transaction qui a modifié un produit, une instance,
+ *   une ligne ou une réservation (voir OccupationEntityListener)
+ *
+ * Un compteur de génération par produit empêche un rafraîchissement plus ancien
+ * d'écraser un instantané plus récent.
+ *
+ * Les réponses par (produit, période) sont mémorisées dans DisponibiliteCache ; après chaque
+ * rafraîchissement, seules les entrées dont la période chevauche les jours modifiés sont retirées.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OccupationIndexService {
+
+    private static final int TAILLE_LOT = 500;
+
+    private final ProduitRepository produitRepo;
+    private final LigneReservationRepository ligneReservationRepo;
+    private final InstanceProduitRepository instanceProduitRepo;
+    private final PlatformTransactionManager transactionManager;
+    private final DisponibiliteCache cache;
+
+    private final Map<Long, OccupationProduit> index = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    // ============================================
+    // LECTURE
+    // ============================================
+
+    /**
+     * Récupérer l'occupation d'un produit (chargée à la demande si absente)
+     * @return null si le produit n'existe pas
+     */
+    public OccupationProduit getOccupation(Long idProduit) {
+        OccupationProduit occupation = index.get(idProduit);
+        if (occupation == null) {
+            rafraichir(List.of(idProduit));
+            occupation = index.get(idProduit);
+        }
+        return occupation;
+    }
+
+    /**
+     * Récupérer l'occupation de plusieurs produits.
+     * Les produits absents de l'index sont chargés ensemble (une requête par table).
+     */
+    public Map<Long, OccupationProduit> getOccupations(Collection<Long> idsProduits) {
+        List<Long> manquants = idsProduits.stream()
+                .filter(id -> id != null && !index.containsKey(id))
+                .distinct()
+                .toList();
+        if (!manquants.isEmpty()) {
+            rafraichir(manquants);
+        }
+
+        Map<Long, OccupationProduit> resultat = new HashMap<>();
+        for (Long id : idsProduits) {
+            OccupationProduit occupation = id == null ? null : index.get(id);
+            if (occupation != null) {
+                resultat.put(id, occupation);
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Quantité disponible d'un produit sur une période (via le cache)
+     */
+    public int getQuantiteDisponible(Long idProduit, LocalDate dateDebut, LocalDate dateFin) {
+        DisponibiliteCache.Disponibilite disponibilite = getDisponibilite(idProduit, dateDebut, dateFin);
+        return disponibilite == null ? 0 : disponibilite.getQuantite();
+    }
+
+    /**
+     * Instances libres d'un produit AVEC_REFERENCE sur une période (via le cache)
+     */
+    public List<InstanceOccupation> getInstancesLibres(Long idProduit, LocalDate dateDebut, LocalDate dateFin) {
+        DisponibiliteCache.Disponibilite disponibilite = getDisponibilite(idProduit, dateDebut, dateFin);
+        return disponibilite == null ? List.of() : disponibilite.getInstancesLibres();
+    }
+
+    private DisponibiliteCache.Disponibilite getDisponibilite(Long idProduit, LocalDate dateDebut, LocalDate dateFin) {
+        return cache.lire(idProduit, dateDebut, dateFin, () -> {
+            OccupationProduit occupation = getOccupation(idProduit);
+            if (occupation == null) {
+                return null;
+            }
+            if (occupation.getTypeProduit() == TypeProduit.AVEC_REFERENCE) {
+                List<InstanceOccupation> libres = List.copyOf(occupation.instancesLibres(dateDebut, dateFin));
+                return new DisponibiliteCache.Disponibilite(libres.size(), libres);
+            }
+            return new DisponibiliteCache.Disponibilite(occupation.quantiteDisponible(dateDebut, dateFin), List.of());
+        });
+    }
+
+    public int getTaille() {
+        return index.size();
+    }
+
+    // ============================================
+    // CHARGEMENT
+    // ============================================
+
+    /**
+     * Chargement complet au démarrage de l'application
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void chargerAuDemarrage() {
+        long debut = System.currentTimeMillis();
+        try {
+            List<Long> ids = lectureSeule().execute(status -> produitRepo.findAllIds());
+            if (ids == null) {
+                return;
+            }
+            for (int i = 0; i < ids.size(); i += TAILLE_LOT) {
+                rafraichir(ids.subList(i, Math.min(i + TAILLE_LOT, ids.size())));
+            }
+            log.info("📦 Index d'occupation chargé: {} produits en {} ms",
+                    index.size(), System.currentTimeMillis() - debut);
+        } catch (Exception e) {
+            log.warn("⚠️ Chargement de l'index d'occupation impossible, chargement à la demande: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recharger depuis la base l'occupation des produits indiqués
+     */
+    public void rafraichir(Collection<Long> idsProduits) {
+        rafraichir(idsProduits, null);
+    }
+
+    /**
+     * @param modifications Jours modifiés par produit, pour l'invalidation du cache (null = produits entiers)
+     */
+    private void rafraichir(Collection<Long> idsProduits, ModificationsEnAttente modifications) {
+        if (idsProduits == null || idsProduits.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(idsProduits));
+        ids.removeIf(Objects::isNull);
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Long> generationsLues = new HashMap<>();
+        for (Long id : ids) {
+            generationsLues.put(id, generations.computeIfAbsent(id, k -> new AtomicLong()).incrementAndGet());
+        }
+
+        try {
+            Map<Long, OccupationProduit> charges = lectureSeule().execute(status -> charger(ids));
+            for (Long id : ids) {
+                OccupationProduit nouvelle = charges == null ? null : charges.get(id);
+                long generation = generationsLues.get(id);
+                index.compute(id, (k, ancienne) -> {
+                    if (generations.get(k).get() != generation) {
+                        return ancienne;
+                    }
+                    return nouvelle;
+                });
+                invaliderCache(id, modifications);
+            }
+        } catch (Exception e) {
+            log.error("❌ Rafraîchissement de l'index d'occupation échoué pour {}: {}", ids, e.getMessage());
+            ids.forEach(this::retirer);
+        }
+    }
+
+    private void invaliderCache(Long idProduit, ModificationsEnAttente modifications) {
+        if (modifications == null || modifications.produits.contains(idProduit)) {
+            cache.invaliderProduit(idProduit);
+            return;
+        }
+        for (LocalDate[] periode : modifications.periodes.getOrDefault(idProduit, List.of())) {
+            cache.invalider(idProduit, periode[0], periode[1]);
+        }
+    }
+
+    private void retirer(Long idProduit) {
+        index.remove(idProduit);
+        cache.invaliderProduit(idProduit);
+    }
+
+    private Map<Long, OccupationProduit> charger(List<Long> ids) {
+        Map<Long, OccupationProduit> resultat = new HashMap<>();
+
+        Map<Long, List<Intervalle>> intervallesParProduit = new HashMap<>();
+        for (Object[] row : ligneReservationRepo.findIntervallesConfirmesParProduits(ids)) {
+            intervallesParProduit.computeIfAbsent((Long) row[0], k -> new ArrayList<>())
+                    .add(new Intervalle((LocalDate) row[1], (LocalDate) row[2], ((Number) row[3]).intValue()));
+        }
+
+        Map<Long, List<Intervalle>> intervallesParInstance = new HashMap<>();
+        for (Object[] row : ligneReservationRepo.findIntervallesInstancesConfirmesParProduits(ids)) {
+            intervallesParInstance.computeIfAbsent((Long) row[0], k -> new ArrayList<>())
+                    .add(new Intervalle((LocalDate) row[1], (LocalDate) row[2], 1));
+        }
+
+        Map<Long, List<InstanceOccupation>> instancesParProduit = new HashMap<>();
+        for (Object[] row : instanceProduitRepo.findProjectionsParProduits(ids)) {
+            Long idInstance = (Long) row[0];
+            instancesParProduit.computeIfAbsent((Long) row[1], k -> new ArrayList<>())
+                    .add(new InstanceOccupation(idInstance, (String) row[2], (StatutInstance) row[3],
+                            intervallesParInstance.getOrDefault(idInstance, List.of())));
+        }
+
+        for (Object[] row : produitRepo.findProjectionsOccupation(ids)) {
+            Long idProduit = (Long) row[0];
+            String nom = (String) row[1];
+            TypeProduit type = (TypeProduit) row[2];
+            Categorie categorie = (Categorie) row[3];
+            int stock = row[4] == null ? 0 : ((Number) row[4]).intValue();
+
+            OccupationProduit occupation = type == TypeProduit.AVEC_REFERENCE
+                    ? OccupationProduit.avecReference(idProduit, nom, categorie, stock,
+                            instancesParProduit.getOrDefault(idProduit, List.of()))
+                    : OccupationProduit.quantitatif(idProduit, nom, categorie, stock,
+                            intervallesParProduit.getOrDefault(idProduit, List.of()));
+            resultat.put(idProduit, occupation);
+        }
+        return resultat;
+    }
+
+    // ============================================
+    // INVALIDATION
+    // ============================================
+
+    /**
+     * Accumule les produits modifiés pendant la transaction courante
+     * et les rafraîchit une seule fois quand elle se termine.
+     */
+    @EventListener
+    public void onOccupationModifiee(OccupationModifieeEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ModificationsEnAttente modifications = new ModificationsEnAttente();
+            modifications.ajouter(event);
+            appliquer(modifications);
+            return;
+        }
+
+        ModificationsEnAttente enAttente =
+                (ModificationsEnAttente) TransactionSynchronizationManager.getResource(this);
+        if (enAttente == null) {
+            enAttente = new ModificationsEnAttente();
+            TransactionSynchronizationManager.bindResource(this, enAttente);
+            TransactionSynchronizationManager.registerSynchronization(new RafraichissementApresTransaction(enAttente));
+        }
+        enAttente.ajouter(event);
+    }
+
+    /**
+     * Résout les réservations en (produit, période) puis rafraîchit les produits touchés
+     */
+    private void appliquer(ModificationsEnAttente modifications) {
+        if (!modifications.reservations.isEmpty()) {
+            lectureSeule().executeWithoutResult(status -> modifications.reservations.forEach(idReservation -> {
+                for (Object[] row : ligneReservationRepo.findPeriodesParReservation(idReservation)) {
+                    modifications.ajouterPeriode((Long) row[0], (LocalDate) row[1], (LocalDate) row[2]);
+                }
+            }));
+        }
+        rafraichir(modifications.getIdsProduits(), modifications);
+    }
+
+    private TransactionTemplate lectureSeule() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private static class ModificationsEnAttente {
+        // Produits modifiés sans date connue : invalidation complète
+        private final Set<Long> produits = new HashSet<>();
+        // Jours modifiés par produit : [dateDebut, dateFin]
+        private final Map<Long, List<LocalDate[]>> periodes = new HashMap<>();
+        private final Set<Long> reservations = new HashSet<>();
+
+        void ajouter(OccupationModifieeEvent event) {
+            if (event.getIdProduit() != null) {
+                if (event.getDateDebut() != null) {
+                    ajouterPeriode(event.getIdProduit(), event.getDateDebut(), event.getDateFin());
+                } else {
+                    produits.add(event.getIdProduit());
+                }
+            }
+            if (event.getIdReservation() != null) {
+                reservations.add(event.getIdReservation());
+            }
+        }
+
+        void ajouterPeriode(Long idProduit, LocalDate dateDebut, LocalDate dateFin) {
+            if (dateDebut == null || dateFin == null) {
+                produits.add(idProduit);
+                return;
+            }
+            periodes.computeIfAbsent(idProduit, k -> new ArrayList<>()).add(new LocalDate[]{dateDebut, dateFin});
+        }
+
+        Set<Long> getIdsProduits() {
+            Set<Long> ids = new HashSet<>(produits);
+            ids.addAll(periodes.keySet());
+            return ids;
+        }
+    }
+
+    private class RafraichissementApresTransaction implements TransactionSynchronization {
+
+        private final ModificationsEnAttente enAttente;
+
+        RafraichissementApresTransaction(ModificationsEnAttente enAttente) {
+            this.enAttente = enAttente;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(OccupationIndexService.this);
+            try {
+                // Même en cas de rollback : un instantané chargé pendant la transaction
+                // pourrait contenir des données non validées
+                appliquer(enAttente);
+            } catch (Exception e) {
+                log.error("❌ Rafraîchissement de l'index après transaction échoué: {}", e.getMessage());
+                enAttente.getIdsProduits().forEach(OccupationIndexService.this::retirer);
+            }
+        }
+    }
+}
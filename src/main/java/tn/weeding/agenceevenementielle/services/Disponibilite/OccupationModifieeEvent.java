@@ -0,0 +1,44 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+/**
+ * Événement publié quand une entité qui influence l'occupation d'un produit change
+ * (produit, instance, ligne de réservation ou réservation).
+ *
+ * L'un des deux identifiants peut être null :
+ * - idProduit : produit directement concerné
+ * - idReservation : réservation dont tous les produits doivent être rafraîchis
+ *
+ * dateDebut / dateFin précisent, si connues, les jours touchés pour le produit
+ * (null = tout le produit : stock, statut d'instance...).
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class OccupationModifieeEvent {
+
+    private final Long idProduit;
+    private final Long idReservation;
+    private final LocalDate dateDebut;
+    private final LocalDate dateFin;
+
+    public static OccupationModifieeEvent pourProduit(Long idProduit) {
+        return new OccupationModifieeEvent(idProduit, null, null, null);
+    }
+
+    public static OccupationModifieeEvent pourPeriode(Long idProduit, LocalDate dateDebut, LocalDate dateFin) {
+        if (dateDebut == null || dateFin == null) {
+            return pourProduit(idProduit);
+        }
+        return new OccupationModifieeEvent(idProduit, null, dateDebut, dateFin);
+    }
+
+    public static OccupationModifieeEvent pourReservation(Long idReservation) {
+        return new OccupationModifieeEvent(null, idReservation, null, null);
+    }
+}
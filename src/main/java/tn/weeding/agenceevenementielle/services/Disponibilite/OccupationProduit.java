@@ -0,0 +1,636 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.weeding.agenceevenementielle.entities.enums.Categorie;
+import tn.weeding.agenceevenementielle.entities.enums.StatutInstance;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * ==========================================
+ * OCCUPATION D'UN PRODUIT (INSTANTANÉ IMMUABLE)
+ * ==========================================
+ *
+ * Représente l'occupation d'un produit par les lignes de réservation CONFIRMÉES :
+ * - EN_QUANTITE : courbe en escalier (balayage) du nombre d'unités réservées par jour,
+ *   avec une table de maximums (sparse table) pour répondre au pic en O(1)
+ * - AVEC_REFERENCE : intervalles triés par instance, avec la fin maximale cumulée
+ *   pour tester un chevauchement en O(log n)
+ *
+ * L'instantané n'est jamais modifié : l'index le remplace en bloc à chaque rafraîchissement.
+ */
+public final class OccupationProduit {
+
+    @Getter
+    private final Long idProduit;
+    @Getter
+    private final String nomProduit;
+    @Getter
+    private final TypeProduit typeProduit;
+    @Getter
+    private final Categorie categorie;
+
+    /**
+     * Produit.quantiteDisponible au moment du chargement
+     */
+    @Getter
+    private final int stock;
+
+    // EN_QUANTITE : points de changement (epochDay) et niveau réservé à partir de chaque point
+    private final long[] jours;
+    private final int[][] tableMax;
+
+    // AVEC_REFERENCE : instances triées par numéro de série
+    private final List<InstanceOccupation> instances;
+
+    private OccupationProduit(Long idProduit, String nomProduit, TypeProduit typeProduit, Categorie categorie,
+                              int stock, long[] jours, int[] niveaux, List<InstanceOccupation> instances) {
+        this.idProduit = idProduit;
+        this.nomProduit = nomProduit;
+        this.typeProduit = typeProduit;
+        this.categorie = categorie;
+        this.stock = stock;
+        this.jours = jours;
+        this.tableMax = construireTableMax(niveaux);
+        this.instances = instances;
+    }
+
+    // ============================================
+    // CONSTRUCTION
+    // ============================================
+
+    /**
+     * Construire l'occupation d'un produit EN_QUANTITE à partir de ses lignes confirmées
+     */
+    public static OccupationProduit quantitatif(Long idProduit, String nomProduit, Categorie categorie,
+                                                int stock, Collection<Intervalle> intervalles) {
+        long[][] courbe = balayer(intervalles);
+        int[] niveaux = new int[courbe[1].length];
+        for (int i = 0; i < niveaux.length; i++) {
+            niveaux[i] = (int) courbe[1][i];
+        }
+        return new OccupationProduit(idProduit, nomProduit, TypeProduit.EN_QUANTITE, categorie,
+                stock, courbe[0], niveaux, List.of());
+    }
+
+    /**
+     * Construire l'occupation d'un produit AVEC_REFERENCE à partir de ses instances
+     */
+    public static OccupationProduit avecReference(Long idProduit, String nomProduit, Categorie categorie,
+                                                  int stock, Collection<InstanceOccupation> instances) {
+        List<InstanceOccupation> triees = new ArrayList<>(instances);
+        triees.sort(Comparator.comparing(InstanceOccupation::getNumeroSerie,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return new OccupationProduit(idProduit, nomProduit, TypeProduit.AVEC_REFERENCE, categorie,
+                stock, new long[0], new int[0], Collections.unmodifiableList(triees));
+    }
+
+    /**
+     * Calculer directement le pic d'unités réservées sur une période à partir d'une liste d'intervalles
+     * (utile quand les intervalles viennent d'être relus en base, hors index)
+     */
+    public static int picSurPeriode(Collection<Intervalle> intervalles, LocalDate debut, LocalDate fin) {
+        return quantitatif(null, null, null, 0, intervalles).picReserve(debut, fin);
+    }
+
+    // ============================================
+    // REQUÊTES
+    // ============================================
+
+    /**
+     * Pic d'unités réservées sur un même jour de [debut, fin] (EN_QUANTITE)
+     *
+     * Contrairement à la somme de toutes les lignes qui chevauchent la période,
+     * deux réservations qui ne se touchent pas le même jour ne s'additionnent pas.
+     */
+    public int picReserve(LocalDate debut, LocalDate fin) {
+        if (jours.length == 0 || debut == null || fin == null || fin.isBefore(debut)) {
+            return 0;
+        }
+        long d = debut.toEpochDay();
+        long f = fin.toEpochDay();
+
+        int b = dernierIndexInferieurOuEgal(jours, f);
+        if (b < 0) {
+            return 0;
+        }
+        int a = dernierIndexInferieurOuEgal(jours, d);
+        return maxSurIntervalle(Math.max(a, 0), b);
+    }
+
+    /**
+     * Pic d'unités réservées en ajoutant des intervalles qui ne sont pas encore en base
+     * (ex : lignes précédentes d'un même devis pour le même produit)
+     */
+    public int picReserve(LocalDate debut, LocalDate fin, Collection<Intervalle> supplementaires) {
+        if (supplementaires == null || supplementaires.isEmpty()) {
+            return picReserve(debut, fin);
+        }
+        if (debut == null || fin == null || fin.isBefore(debut)) {
+            return 0;
+        }
+
+        // Découper la période aux bornes des intervalles supplémentaires :
+        // sur chaque segment leur somme est constante
+        TreeSet<LocalDate> bornes = new TreeSet<>();
+        bornes.add(debut);
+        for (Intervalle intervalle : supplementaires) {
+            if (intervalle.getDebut().isAfter(debut) && !intervalle.getDebut().isAfter(fin)) {
+                bornes.add(intervalle.getDebut());
+            }
+            LocalDate lendemain = intervalle.getFin().plusDays(1);
+            if (lendemain.isAfter(debut) && !lendemain.isAfter(fin)) {
+                bornes.add(lendemain);
+            }
+        }
+
+        int pic = 0;
+        for (LocalDate borne : bornes) {
+            LocalDate suivante = bornes.higher(borne);
+            LocalDate finSegment = suivante == null ? fin : suivante.minusDays(1);
+
+            int supplement = 0;
+            for (Intervalle intervalle : supplementaires) {
+                if (!intervalle.getDebut().isAfter(borne) && !intervalle.getFin().isBefore(borne)) {
+                    supplement += intervalle.getQuantite();
+                }
+            }
+            pic = Math.max(pic, picReserve(borne, finSegment) + supplement);
+        }
+        return pic;
+    }
+
+    /**
+     * Quantité disponible sur la période
+     * - EN_QUANTITE : stock - pic réservé
+     * - AVEC_REFERENCE : nombre d'instances DISPONIBLE sans réservation confirmée sur la période
+     */
+    public int quantiteDisponible(LocalDate debut, LocalDate fin) {
+        if (typeProduit == TypeProduit.AVEC_REFERENCE) {
+            return compterInstancesLibres(debut, fin);
+        }
+        return stock - picReserve(debut, fin);
+    }
+
+    /**
+     * Quantité disponible sur la période en retirant des unités qui ne sont pas dans l'index
+     * (blocages de panier, lignes précédentes d'un même lot)
+     * - EN_QUANTITE : stock - pic réservé, intervalles supplémentaires compris
+     * - AVEC_REFERENCE : instances libres - pic des intervalles supplémentaires
+     */
+    public int quantiteDisponible(LocalDate debut, LocalDate fin, Collection<Intervalle> supplementaires) {
+        if (supplementaires == null || supplementaires.isEmpty()) {
+            return quantiteDisponible(debut, fin);
+        }
+        if (typeProduit == TypeProduit.AVEC_REFERENCE) {
+            return Math.max(compterInstancesLibres(debut, fin) - picSurPeriode(supplementaires, debut, fin), 0);
+        }
+        return stock - picReserve(debut, fin, supplementaires);
+    }
+
+    /**
+     * Nombre d'instances physiquement disponibles et libres sur toute la période
+     */
+    public int compterInstancesLibres(LocalDate debut, LocalDate fin) {
+        long d = debut.toEpochDay();
+        long f = fin.toEpochDay();
+        int total = 0;
+        for (InstanceOccupation instance : instances) {
+            if (instance.isDisponiblePhysiquement() && instance.estLibre(d, f)) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Nombre d'instances (tous statuts) occupées par une réservation confirmée sur la période
+     */
+    public int compterInstancesReservees(LocalDate debut, LocalDate fin) {
+        long d = debut.toEpochDay();
+        long f = fin.toEpochDay();
+        int total = 0;
+        for (InstanceOccupation instance : instances) {
+            if (!instance.estLibre(d, f)) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Instances libres sur toute la période, dans l'ordre des numéros de série
+     */
+    public List<InstanceOccupation> instancesLibres(LocalDate debut, LocalDate fin) {
+        long d = debut.toEpochDay();
+        long f = fin.toEpochDay();
+        List<InstanceOccupation> libres = new ArrayList<>();
+        for (InstanceOccupation instance : instances) {
+            if (instance.isDisponiblePhysiquement() && instance.estLibre(d, f)) {
+                libres.add(instance);
+            }
+        }
+        return libres;
+    }
+
+    /**
+     * Unités libres jour par jour sur [debut, fin], en un seul balayage
+     * - EN_QUANTITE : stock - niveau réservé du jour
+     * - AVEC_REFERENCE : instances DISPONIBLE sans réservation confirmée ce jour-là
+     *
+     * @return tableau de (fin - debut + 1) valeurs, la case 0 correspondant à debut
+     */
+    public int[] disponibiliteParJour(LocalDate debut, LocalDate fin) {
+        long d = debut.toEpochDay();
+        long f = fin.toEpochDay();
+        int n = (int) (f - d + 1);
+        int[] libres = new int[n];
+
+        if (typeProduit == TypeProduit.AVEC_REFERENCE) {
+            // Tableau de différences : +1 par instance disponible, -1 sur ses jours réservés
+            int[] deltas = new int[n + 1];
+            for (InstanceOccupation instance : instances) {
+                if (instance.isDisponiblePhysiquement()) {
+                    deltas[0]++;
+                    deltas[n]--;
+                    instance.retirerJoursReserves(deltas, d, f);
+                }
+            }
+            int courant = 0;
+            for (int i = 0; i < n; i++) {
+                courant += deltas[i];
+                libres[i] = courant;
+            }
+            return libres;
+        }
+
+        // Parcours de la courbe en escalier à partir du dernier point <= debut
+        int k = dernierIndexInferieurOuEgal(jours, d);
+        for (int i = 0; i < n; i++) {
+            long jour = d + i;
+            while (k + 1 < jours.length && jours[k + 1] <= jour) {
+                k++;
+            }
+            libres[i] = stock - (k < 0 ? 0 : tableMax[0][k]);
+        }
+        return libres;
+    }
+
+    /**
+     * Unités disponibles pendant toute une fenêtre de `duree` jours, pour chaque début possible
+     * dans [debutHorizon, finHorizon] (la fenêtre doit tenir dans l'horizon)
+     * - EN_QUANTITE : minimum glissant des unités libres par jour
+     * - AVEC_REFERENCE : instances DISPONIBLE libres sans interruption sur toute la fenêtre
+     *
+     * @return case j = fenêtre commençant à debutHorizon + j (tableau vide si l'horizon est trop court)
+     */
+    public int[] capaciteParFenetre(LocalDate debutHorizon, LocalDate finHorizon, int duree) {
+        long d = debutHorizon.toEpochDay();
+        long f = finHorizon.toEpochDay();
+        int n = (int) (f - d + 1);
+        int fenetres = n - duree + 1;
+        if (duree < 1 || fenetres < 1) {
+            return new int[0];
+        }
+
+        if (typeProduit == TypeProduit.AVEC_REFERENCE) {
+            int[] capacite = new int[fenetres];
+            int[] deltas = new int[n + 1];
+            int[] libreDepuis = new int[n + 1];
+            for (InstanceOccupation instance : instances) {
+                if (!instance.isDisponiblePhysiquement()) {
+                    continue;
+                }
+                Arrays.fill(deltas, 0);
+                instance.retirerJoursReserves(deltas, d, f);
+
+                // Jours libres consécutifs à partir de chaque jour (parcours à rebours)
+                int occupe = 0;
+                for (int i = 0; i < n; i++) {
+                    occupe += deltas[i];
+                    deltas[i] = occupe;        // < 0 : jour réservé
+                }
+                libreDepuis[n] = 0;
+                for (int i = n - 1; i >= 0; i--) {
+                    libreDepuis[i] = deltas[i] < 0 ? 0 : libreDepuis[i + 1] + 1;
+                }
+                for (int j = 0; j < fenetres; j++) {
+                    if (libreDepuis[j] >= duree) {
+                        capacite[j]++;
+                    }
+                }
+            }
+            return capacite;
+        }
+
+        // Minimum glissant sur les unités libres par jour
+        return minimumGlissant(disponibiliteParJour(debutHorizon, finHorizon), duree);
+    }
+
+    /**
+     * Capacité par fenêtre en retirant des unités qui ne sont pas dans l'index
+     * (blocages de panier, lignes précédentes d'un même lot)
+     * - EN_QUANTITE : minimum glissant des unités libres par jour, unités supplémentaires déduites jour par jour
+     * - AVEC_REFERENCE : instances libres sur la fenêtre - pic des unités supplémentaires sur la fenêtre
+     */
+    public int[] capaciteParFenetre(LocalDate debutHorizon, LocalDate finHorizon, int duree,
+                                    Collection<Intervalle> supplementaires) {
+        long d = debutHorizon.toEpochDay();
+        int n = (int) (finHorizon.toEpochDay() - d + 1);
+        if (supplementaires == null || supplementaires.isEmpty() || duree < 1 || n - duree + 1 < 1) {
+            return capaciteParFenetre(debutHorizon, finHorizon, duree);
+        }
+
+        // Unités supplémentaires par jour de l'horizon (tableau de différences)
+        int[] prises = new int[n + 1];
+        for (Intervalle intervalle : supplementaires) {
+            long debut = Math.max(intervalle.getDebut().toEpochDay(), d);
+            long fin = Math.min(intervalle.getFin().toEpochDay(), d + n - 1);
+            if (debut <= fin) {
+                prises[(int) (debut - d)] += intervalle.getQuantite();
+                prises[(int) (fin - d) + 1] -= intervalle.getQuantite();
+            }
+        }
+        for (int i = 1; i < n; i++) {
+            prises[i] += prises[i - 1];
+        }
+
+        if (typeProduit == TypeProduit.AVEC_REFERENCE) {
+            // Pic glissant = -(minimum glissant des opposés)
+            int[] opposes = new int[n];
+            for (int i = 0; i < n; i++) {
+                opposes[i] = -prises[i];
+            }
+            int[] pics = minimumGlissant(opposes, duree);
+            int[] capacite = capaciteParFenetre(debutHorizon, finHorizon, duree);
+            for (int j = 0; j < capacite.length; j++) {
+                capacite[j] = Math.max(capacite[j] + pics[j], 0);
+            }
+            return capacite;
+        }
+
+        int[] libres = disponibiliteParJour(debutHorizon, finHorizon);
+        for (int i = 0; i < n; i++) {
+            libres[i] -= prises[i];
+        }
+        return minimumGlissant(libres, duree);
+    }
+
+    public List<InstanceOccupation> getInstances() {
+        return instances;
+    }
+
+    // ============================================
+    // MÉTHODES PRIVÉES
+    // ============================================
+
+    /**
+     * Minimum de chaque fenêtre de `duree` valeurs consécutives (file monotone, un seul parcours)
+     */
+    private static int[] minimumGlissant(int[] valeurs, int duree) {
+        int n = valeurs.length;
+        int[] minimums = new int[n - duree + 1];
+        int[] file = new int[n];
+        int tete = 0;
+        int queue = 0;
+        for (int i = 0; i < n; i++) {
+            while (queue > tete && valeurs[file[queue - 1]] >= valeurs[i]) {
+                queue--;
+            }
+            file[queue++] = i;
+            if (file[tete] <= i - duree) {
+                tete++;
+            }
+            if (i >= duree - 1) {
+                minimums[i - duree + 1] = valeurs[file[tete]];
+            }
+        }
+        return minimums;
+    }
+
+    /**
+     * Balayage : +q au début, -q le lendemain de la fin, puis cumul
+     * @return [jours, niveaux]
+     */
+    private static long[][] balayer(Collection<Intervalle> intervalles) {
+        TreeMap<Long, Long> deltas = new TreeMap<>();
+        for (Intervalle intervalle : intervalles) {
+            if (intervalle.getDebut() == null || intervalle.getFin() == null
+                    || intervalle.getFin().isBefore(intervalle.getDebut()) || intervalle.getQuantite() <= 0) {
+                continue;
+            }
+            deltas.merge(intervalle.getDebut().toEpochDay(), (long) intervalle.getQuantite(), Long::sum);
+            deltas.merge(intervalle.getFin().toEpochDay() + 1, (long) -intervalle.getQuantite(), Long::sum);
+        }
+
+        long[] jours = new long[deltas.size()];
+        long[] niveaux = new long[deltas.size()];
+        long courant = 0;
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+            courant += entry.getValue();
+            jours[i] = entry.getKey();
+            niveaux[i] = courant;
+            i++;
+        }
+        return new long[][]{jours, niveaux};
+    }
+
+    private static int[][] construireTableMax(int[] niveaux) {
+        int n = niveaux.length;
+        if (n == 0) {
+            return new int[0][];
+        }
+        int niveauxTable = 32 - Integer.numberOfLeadingZeros(n);
+        int[][] table = new int[niveauxTable][];
+        table[0] = niveaux;
+        for (int k = 1; k < niveauxTable; k++) {
+            int largeur = 1 << k;
+            int moitie = largeur >> 1;
+            table[k] = new int[n - largeur + 1];
+            for (int i = 0; i + largeur <= n; i++) {
+                table[k][i] = Math.max(table[k - 1][i], table[k - 1][i + moitie]);
+            }
+        }
+        return table;
+    }
+
+    private int maxSurIntervalle(int a, int b) {
+        int k = 31 - Integer.numberOfLeadingZeros(b - a + 1);
+        return Math.max(tableMax[k][a], tableMax[k][b - (1 << k) + 1]);
+    }
+
+    static int dernierIndexInferieurOuEgal(long[] tableau, long valeur) {
+        int idx = Arrays.binarySearch(tableau, valeur);
+        return idx >= 0 ? idx : -idx - 2;
+    }
+
+    // ============================================
+    // TYPES INTERNES
+    // ============================================
+
+    /**
+     * Intervalle réservé [debut, fin] (bornes incluses) pour une quantité
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Intervalle {
+        private final LocalDate debut;
+        private final LocalDate fin;
+        private final int quantite;
+    }
+
+    /**
+     * Occupation d'une instance physique : ses réservations confirmées triées par date de début
+     */
+    public static final class InstanceOccupation {
+
+        @Getter
+        private final Long idInstance;
+        @Getter
+        private final String numeroSerie;
+        @Getter
+        private final StatutInstance statut;
+
+        private final long[] debuts;
+        private final long[] fins;
+        private final long[] finMaxCumulee;
+
+        public InstanceOccupation(Long idInstance, String numeroSerie, StatutInstance statut,
+                                  Collection<Intervalle> reservations) {
+            this.idInstance = idInstance;
+            this.numeroSerie = numeroSerie;
+            this.statut = statut;
+
+            List<Intervalle> triees = reservations.stream()
+                    .filter(r -> r.getDebut() != null && r.getFin() != null)
+                    .sorted(Comparator.comparing(Intervalle::getDebut))
+                    .toList();
+
+            this.debuts = new long[triees.size()];
+            this.fins = new long[triees.size()];
+            this.finMaxCumulee = new long[triees.size()];
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < triees.size(); i++) {
+                debuts[i] = triees.get(i).getDebut().toEpochDay();
+                fins[i] = triees.get(i).getFin().toEpochDay();
+                max = Math.max(max, fins[i]);
+                finMaxCumulee[i] = max;
+            }
+        }
+
+        private InstanceOccupation(Long idInstance, String numeroSerie, StatutInstance statut,
+                                   long[] debuts, long[] fins, long[] finMaxCumulee) {
+            this.idInstance = idInstance;
+            this.numeroSerie = numeroSerie;
+            this.statut = statut;
+            this.debuts = debuts;
+            this.fins = fins;
+            this.finMaxCumulee = finMaxCumulee;
+        }
+
+        /**
+         * Copie de l'instance avec une réservation de plus sur [d, f] (en epochDay) :
+         * insertion à sa place dans les tableaux triés, sans retrier les réservations existantes
+         */
+        InstanceOccupation avecReservation(long d, long f) {
+            int n = debuts.length;
+            int position = dernierIndexInferieurOuEgal(debuts, d) + 1;
+
+            long[] nouveauxDebuts = new long[n + 1];
+            long[] nouvellesFins = new long[n + 1];
+            long[] nouvelleFinMax = new long[n + 1];
+            System.arraycopy(debuts, 0, nouveauxDebuts, 0, position);
+            System.arraycopy(fins, 0, nouvellesFins, 0, position);
+            System.arraycopy(finMaxCumulee, 0, nouvelleFinMax, 0, position);
+            nouveauxDebuts[position] = d;
+            nouvellesFins[position] = f;
+            System.arraycopy(debuts, position, nouveauxDebuts, position + 1, n - position);
+            System.arraycopy(fins, position, nouvellesFins, position + 1, n - position);
+
+            long max = position > 0 ? finMaxCumulee[position - 1] : Long.MIN_VALUE;
+            for (int i = position; i <= n; i++) {
+                max = Math.max(max, nouvellesFins[i]);
+                nouvelleFinMax[i] = max;
+            }
+            return new InstanceOccupation(idInstance, numeroSerie, statut, nouveauxDebuts, nouvellesFins, nouvelleFinMax);
+        }
+
+        public boolean isDisponiblePhysiquement() {
+            return statut == StatutInstance.DISPONIBLE;
+        }
+
+        /**
+         * Aucune réservation ne chevauche [d, f] (en epochDay)
+         * Les réservations qui commencent avant f chevauchent si l'une d'elles finit après d.
+         */
+        public boolean estLibre(long d, long f) {
+            int k = dernierIndexInferieurOuEgal(debuts, f);
+            return k < 0 || finMaxCumulee[k] < d;
+        }
+
+        public boolean estLibre(LocalDate debut, LocalDate fin) {
+            return estLibre(debut.toEpochDay(), fin.toEpochDay());
+        }
+
+        /**
+         * Jours d'inactivité entre la réservation précédente et [d, f] (instance supposée libre sur [d, f])
+         * @return -1 si aucune réservation avant
+         */
+        public long joursLibresAvant(long d, long f) {
+            int k = dernierIndexInferieurOuEgal(debuts, f);
+            return k < 0 ? -1 : d - finMaxCumulee[k] - 1;
+        }
+
+        /**
+         * Jours d'inactivité entre [d, f] et la réservation suivante (instance supposée libre sur [d, f])
+         * @return -1 si aucune réservation après
+         */
+        public long joursLibresApres(long d, long f) {
+            int k = dernierIndexInferieurOuEgal(debuts, f) + 1;
+            return k >= debuts.length ? -1 : debuts[k] - f - 1;
+        }
+
+        /**
+         * Soustraire de deltas (indexé depuis d) les jours de [d, f] couverts par une réservation,
+         * chaque jour au plus une fois même si des réservations se chevauchent
+         */
+        void retirerJoursReserves(int[] deltas, long d, long f) {
+            // Première réservation qui peut encore couvrir d (finMaxCumulee est croissante)
+            int k = Arrays.binarySearch(finMaxCumulee, d);
+            k = k >= 0 ? k : -k - 1;
+            while (k > 0 && finMaxCumulee[k - 1] >= d) {
+                k--;
+            }
+
+            long couvertJusqua = d - 1;
+            for (; k < debuts.length && debuts[k] <= f; k++) {
+                long debutSegment = Math.max(debuts[k], couvertJusqua + 1);
+                long finSegment = Math.min(fins[k], f);
+                if (debutSegment <= finSegment) {
+                    deltas[(int) (debutSegment - d)]--;
+                    deltas[(int) (finSegment - d + 1)]++;
+                    couvertJusqua = finSegment;
+                }
+            }
+        }
+
+        public int getNombreReservations() {
+            return debuts.length;
+        }
+
+        /**
+         * Intervalles réservés de l'instance (triés par date de début)
+         */
+        public List<Intervalle> getReservations() {
+            List<Intervalle> liste = new ArrayList<>(debuts.length);
+            for (int i = 0; i < debuts.length; i++) {
+                liste.add(new Intervalle(LocalDate.ofEpochDay(debuts[i]), LocalDate.ofEpochDay(fins[i]), 1));
+            }
+            return liste;
+        }
+    }
+}
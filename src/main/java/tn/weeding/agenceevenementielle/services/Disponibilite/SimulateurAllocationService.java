@@ -0,0 +1,155 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.weeding.agenceevenementielle.dto.produit.SimulationAllocationDto;
+import tn.weeding.agenceevenementielle.entities.enums.StatutInstance;
+import tn.weeding.agenceevenementielle.entities.enums.StatutReservation;
+import tn.weeding.agenceevenementielle.exceptions.CustomException;
+import tn.weeding.agenceevenementielle.repository.InstanceProduitRepository;
+import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.InstanceOccupation;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * ==========================================
+ * SIMULATEUR DES STRATÉGIES D'ALLOCATION
+ * ==========================================
+ *
+ * Rejoue l'historique des lignes AVEC_REFERENCE (dans l'ordre de création des réservations)
+ * sur des calendriers vierges, une fois par stratégie, et mesure :
+ * - le taux de rejet : lignes qui n'ont pas trouvé assez d'instances libres
+ * - le taux d'utilisation : instances-jours réservés / (instances exploitables × jours de la fenêtre)
+ *
+ * Rien n'est écrit en base.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class SimulateurAllocationService {
+
+    private final LigneReservationRepository ligneReservationRepo;
+    private final InstanceProduitRepository instanceProduitRepo;
+    private final AllocationInstancesService allocationInstances;
+
+    /**
+     * Simuler toutes les stratégies enregistrées sur la fenêtre [dateDebut, dateFin]
+     *
+     * @param inclureDevisNonConfirmes Rejouer aussi les devis en attente et annulés
+     *                                 (demande réelle, pas seulement ce qui a été accepté)
+     */
+    public List<SimulationAllocationDto> simuler(LocalDate dateDebut, LocalDate dateFin,
+                                                 boolean inclureDevisNonConfirmes) {
+        if (dateDebut == null || dateFin == null || dateFin.isBefore(dateDebut)) {
+            throw new CustomException("La période de simulation est invalide");
+        }
+
+        List<StatutReservation> statuts = new ArrayList<>(
+                List.of(StatutReservation.CONFIRME, StatutReservation.TERMINE));
+        if (inclureDevisNonConfirmes) {
+            statuts.add(StatutReservation.EN_ATTENTE);
+            statuts.add(StatutReservation.ANNULE);
+        }
+
+        List<Object[]> demandes = ligneReservationRepo.findHistoriqueDemandesAvecReference(statuts, dateDebut, dateFin);
+
+        Map<Long, Integer> instancesParProduit = new HashMap<>();
+        for (Object[] row : instanceProduitRepo.countInstancesExploitablesParProduit()) {
+            instancesParProduit.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+
+        long jours = ChronoUnit.DAYS.between(dateDebut, dateFin) + 1;
+        Set<Long> produitsDemandes = new HashSet<>();
+        demandes.forEach(row -> produitsDemandes.add((Long) row[0]));
+        long capacite = produitsDemandes.stream()
+                .mapToLong(id -> instancesParProduit.getOrDefault(id, 0) * jours)
+                .sum();
+
+        List<SimulationAllocationDto> resultats = new ArrayList<>();
+        for (StrategieAllocation strategie : allocationInstances.getStrategies()) {
+            SimulationAllocationDto resultat = rejouer(strategie, demandes, instancesParProduit,
+                    dateDebut, dateFin, capacite);
+            resultat.setStrategieActive(strategie == allocationInstances.getStrategieActive());
+            resultats.add(resultat);
+
+            log.info("🧪 Simulation '{}': {} demandes, rejet {}%, utilisation {}%",
+                    strategie.getNom(), resultat.getNombreDemandes(),
+                    resultat.getTauxRejet(), resultat.getTauxUtilisation());
+        }
+        return resultats;
+    }
+
+    private SimulationAllocationDto rejouer(StrategieAllocation strategie, List<Object[]> demandes,
+                                            Map<Long, Integer> instancesParProduit,
+                                            LocalDate fenetreDebut, LocalDate fenetreFin, long capacite) {
+        long debutMs = System.currentTimeMillis();
+
+        // Calendriers simulés : idProduit -> instances fictives (indice = idInstance).
+        // Construits une fois, seules les instances choisies sont remplacées après chaque allocation.
+        Map<Long, InstanceOccupation[]> calendriers = new HashMap<>();
+        int refusees = 0;
+        long instancesJours = 0;
+
+        for (Object[] row : demandes) {
+            Long idProduit = (Long) row[0];
+            LocalDate debut = (LocalDate) row[1];
+            LocalDate fin = (LocalDate) row[2];
+            int quantite = ((Number) row[3]).intValue();
+
+            InstanceOccupation[] calendrier = calendriers.computeIfAbsent(idProduit, id -> {
+                int nombre = instancesParProduit.getOrDefault(id, 0);
+                InstanceOccupation[] vierge = new InstanceOccupation[nombre];
+                for (int i = 0; i < nombre; i++) {
+                    vierge[i] = new InstanceOccupation((long) i, String.format("SIM-%05d", i),
+                            StatutInstance.DISPONIBLE, List.of());
+                }
+                return vierge;
+            });
+
+            long d = debut.toEpochDay();
+            long f = fin.toEpochDay();
+            List<InstanceOccupation> libres = new ArrayList<>();
+            for (InstanceOccupation instance : calendrier) {
+                if (instance.estLibre(d, f)) {
+                    libres.add(instance);
+                }
+            }
+
+            if (libres.size() < quantite) {
+                refusees++;
+                continue;
+            }
+
+            for (InstanceOccupation choisie : strategie.choisir(libres, debut, fin, quantite)) {
+                calendrier[choisie.getIdInstance().intValue()] = choisie.avecReservation(d, f);
+            }
+
+            // Seuls les jours compris dans la fenêtre comptent pour l'utilisation
+            LocalDate debutFenetre = debut.isBefore(fenetreDebut) ? fenetreDebut : debut;
+            LocalDate finFenetre = fin.isAfter(fenetreFin) ? fenetreFin : fin;
+            instancesJours += (long) quantite * (ChronoUnit.DAYS.between(debutFenetre, finFenetre) + 1);
+        }
+
+        int nombre = demandes.size();
+        return SimulationAllocationDto.builder()
+                .strategie(strategie.getNom())
+                .nombreDemandes(nombre)
+                .demandesRefusees(refusees)
+                .tauxRejet(nombre == 0 ? 0.0 : arrondir(refusees * 100.0 / nombre))
+                .instancesJoursReservees(instancesJours)
+                .capaciteInstancesJours(capacite)
+                .tauxUtilisation(capacite == 0 ? 0.0 : arrondir(instancesJours * 100.0 / capacite))
+                .dureeMs(System.currentTimeMillis() - debutMs)
+                .build();
+    }
+
+    private static double arrondir(double valeur) {
+        return Math.round(valeur * 100.0) / 100.0;
+    }
+}
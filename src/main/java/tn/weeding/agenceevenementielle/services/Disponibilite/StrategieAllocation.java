@@ -0,0 +1,29 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.InstanceOccupation;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Stratégie de choix des instances à affecter à une ligne AVEC_REFERENCE
+ *
+ * Chaque implémentation est un bean Spring identifié par son nom
+ * (propriété reservation.allocation.strategie).
+ */
+public interface StrategieAllocation {
+
+    /**
+     * Nom de la stratégie (utilisé dans la configuration et le simulateur)
+     */
+    String getNom();
+
+    /**
+     * Choisir les instances à affecter parmi des instances toutes libres sur [debut, fin]
+     *
+     * @param libres Instances libres sur la période (triées par numéro de série)
+     * @param quantite Nombre d'instances à retourner (libres.size() >= quantite)
+     * @return Les instances retenues, dans l'ordre de préférence
+     */
+    List<InstanceOccupation> choisir(List<InstanceOccupation> libres, LocalDate debut, LocalDate fin, int quantite);
+}
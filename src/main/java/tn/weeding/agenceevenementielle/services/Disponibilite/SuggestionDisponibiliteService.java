@@ -0,0 +1,189 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tn.weeding.agenceevenementielle.dto.reservation.SuggestionDisponibiliteDto;
+import tn.weeding.agenceevenementielle.dto.reservation.SuggestionDisponibiliteDto.FenetreDisponible;
+import tn.weeding.agenceevenementielle.dto.reservation.SuggestionDisponibiliteDto.ProduitSubstitut;
+import tn.weeding.agenceevenementielle.repository.ProduitRepository;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.Intervalle;
+import tn.weeding.agenceevenementielle.services.Reservation.DateReservationValidator;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * ==========================================
+ * SUGGESTIONS QUAND UN PRODUIT EST INDISPONIBLE
+ * ==========================================
+ *
+ * Tout est calculé depuis l'index d'occupation, sans requête par jour :
+ * - Autres dates : capacité de chaque fenêtre de même durée sur un horizon autour de la demande
+ *   (un seul balayage), puis la fenêtre suffisante la plus proche de chaque côté
+ * - Produits de substitution : même catégorie, assez d'unités libres sur la période demandée
+ *   (une seule requête pour lister la catégorie)
+ *
+ * Les unités prises hors index (blocages de panier des autres clients, lignes précédentes du même lot)
+ * sont déduites comme dans la vérification de disponibilité : une suggestion doit passer cette vérification.
+ */
+@Service
+@Slf4j
+public class SuggestionDisponibiliteService {
+
+    private static final int SUBSTITUTS_MAX = 5;
+
+    private final OccupationIndexService occupationIndex;
+    private final ProduitRepository produitRepo;
+    private final DateReservationValidator dateValidator;
+    private final int horizonJours;
+
+    public SuggestionDisponibiliteService(OccupationIndexService occupationIndex,
+                                          ProduitRepository produitRepo,
+                                          DateReservationValidator dateValidator,
+                                          @Value("${reservation.suggestion.horizon-jours:90}") int horizonJours) {
+        this.occupationIndex = occupationIndex;
+        this.produitRepo = produitRepo;
+        this.dateValidator = dateValidator;
+        this.horizonJours = horizonJours;
+    }
+
+    /**
+     * Suggestions pour une demande non satisfaite
+     * @param indisponibles Unités prises hors index par produit, pour une liste de produits
+     *                      (blocages de panier, lignes précédentes du lot)
+     * @return null si le produit est inconnu
+     */
+    public SuggestionDisponibiliteDto suggerer(Long idProduit, int quantite, LocalDate dateDebut, LocalDate dateFin,
+                                               Function<Collection<Long>, Map<Long, List<Intervalle>>> indisponibles) {
+        long debutMs = System.currentTimeMillis();
+
+        OccupationProduit occupation = occupationIndex.getOccupation(idProduit);
+        if (occupation == null || dateDebut == null || dateFin == null || dateFin.isBefore(dateDebut)) {
+            return null;
+        }
+
+        int duree = (int) ChronoUnit.DAYS.between(dateDebut, dateFin) + 1;
+
+        // Horizon borné par les dates réservables
+        LocalDate debutHorizon = max(dateDebut.minusDays(horizonJours), dateValidator.getDateMinimaleReservation());
+        LocalDate finHorizon = min(dateFin.plusDays(horizonJours), dateValidator.getDateMaximaleReservation());
+
+        FenetreDisponible avant = null;
+        FenetreDisponible apres = null;
+        int[] capacites = finHorizon.isBefore(debutHorizon)
+                ? new int[0]
+                : occupation.capaciteParFenetre(debutHorizon, finHorizon, duree,
+                        indisponibles.apply(List.of(idProduit)).get(idProduit));
+        int indexDemande = (int) ChronoUnit.DAYS.between(debutHorizon, dateDebut);
+
+        for (int j = Math.min(indexDemande - 1, capacites.length - 1); j >= 0; j--) {
+            if (capacites[j] >= quantite) {
+                avant = fenetre(debutHorizon.plusDays(j), duree, capacites[j], dateDebut);
+                break;
+            }
+        }
+        for (int j = Math.max(indexDemande + 1, 0); j < capacites.length; j++) {
+            if (capacites[j] >= quantite) {
+                apres = fenetre(debutHorizon.plusDays(j), duree, capacites[j], dateDebut);
+                break;
+            }
+        }
+
+        SuggestionDisponibiliteDto suggestions = SuggestionDisponibiliteDto.builder()
+                .fenetreAvant(avant)
+                .fenetreApres(apres)
+                .produitsSubstituts(substituts(occupation, quantite, dateDebut, dateFin, indisponibles))
+                .build();
+
+        log.debug("💡 Suggestions pour produit {} calculées en {} ms", idProduit, System.currentTimeMillis() - debutMs);
+        return suggestions;
+    }
+
+    /**
+     * Résumé lisible des suggestions (ajouté aux messages d'erreur)
+     */
+    public static String resumer(SuggestionDisponibiliteDto suggestions) {
+        if (suggestions == null) {
+            return "";
+        }
+        List<String> parties = new ArrayList<>();
+        if (suggestions.getFenetreAvant() != null) {
+            parties.add("du " + suggestions.getFenetreAvant().getDateDebut()
+                    + " au " + suggestions.getFenetreAvant().getDateFin());
+        }
+        if (suggestions.getFenetreApres() != null) {
+            parties.add("du " + suggestions.getFenetreApres().getDateDebut()
+                    + " au " + suggestions.getFenetreApres().getDateFin());
+        }
+
+        StringBuilder resume = new StringBuilder();
+        if (!parties.isEmpty()) {
+            resume.append(" Dates disponibles : ").append(String.join(" ou ", parties)).append('.');
+        }
+        if (suggestions.getProduitsSubstituts() != null && !suggestions.getProduitsSubstituts().isEmpty()) {
+            resume.append(" Produits similaires disponibles : ")
+                    .append(String.join(", ", suggestions.getProduitsSubstituts().stream()
+                            .map(ProduitSubstitut::getNomProduit)
+                            .toList()))
+                    .append('.');
+        }
+        return resume.toString();
+    }
+
+    private List<ProduitSubstitut> substituts(OccupationProduit occupation, int quantite,
+                                              LocalDate dateDebut, LocalDate dateFin,
+                                              Function<Collection<Long>, Map<Long, List<Intervalle>>> indisponibles) {
+        if (occupation.getCategorie() == null) {
+            return List.of();
+        }
+        List<Long> ids = produitRepo.findProjectionsCatalogue(occupation.getCategorie(), null).stream()
+                .map(row -> (Long) row[0])
+                .filter(id -> !id.equals(occupation.getIdProduit()))
+                .toList();
+
+        Map<Long, OccupationProduit> occupations = occupationIndex.getOccupations(ids);
+        Map<Long, List<Intervalle>> prises = ids.isEmpty() ? Map.of() : indisponibles.apply(ids);
+        List<ProduitSubstitut> substituts = new ArrayList<>();
+        for (Long id : ids) {
+            OccupationProduit candidat = occupations.get(id);
+            if (candidat == null) {
+                continue;
+            }
+            int disponible = candidat.quantiteDisponible(dateDebut, dateFin, prises.get(id));
+            if (disponible >= quantite) {
+                substituts.add(ProduitSubstitut.builder()
+                        .idProduit(id)
+                        .nomProduit(candidat.getNomProduit())
+                        .typeProduit(candidat.getTypeProduit())
+                        .quantiteDisponible(disponible)
+                        .build());
+            }
+        }
+
+        // Même type de produit d'abord, puis le plus de marge
+        substituts.sort(Comparator
+                .comparing((ProduitSubstitut p) -> p.getTypeProduit() != occupation.getTypeProduit())
+                .thenComparing(ProduitSubstitut::getQuantiteDisponible, Comparator.reverseOrder()));
+        return substituts.size() > SUBSTITUTS_MAX ? List.copyOf(substituts.subList(0, SUBSTITUTS_MAX)) : substituts;
+    }
+
+    private static FenetreDisponible fenetre(LocalDate debut, int duree, int capacite, LocalDate dateDemandee) {
+        return FenetreDisponible.builder()
+                .dateDebut(debut)
+                .dateFin(debut.plusDays(duree - 1L))
+                .quantiteDisponible(capacite)
+                .decalageJours(ChronoUnit.DAYS.between(dateDemandee, debut))
+                .build();
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
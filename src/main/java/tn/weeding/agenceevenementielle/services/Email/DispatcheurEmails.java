@@ -0,0 +1,243 @@
+package tn.weeding.agenceevenementielle.services.Email;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.entities.EmailSortant;
+import tn.weeding.agenceevenementielle.entities.enums.StatutEmail;
+import tn.weeding.agenceevenementielle.repository.EmailSortantRepository;
+import tn.weeding.agenceevenementielle.scheduling.CoordinationTaches;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * ==========================================
+ * DISTRIBUTION DES EMAILS DE L'OUTBOX
+ * ==========================================
+ *
+ * Chaque seconde, tant qu'un worker est libre : réservation d'un lot d'emails dus (jeton + échéance,
+ * sûr avec plusieurs instances), puis envoi du lot sur une connexion SMTP par un worker.
+ *
+ * - pool borné : au plus `workers` lots en cours, un serveur SMTP lent ralentit l'envoi
+ *   sans empiler de threads ni d'emails en mémoire (le reste attend en base)
+ * - échec : nouvelle tentative après 30 s, 1 min, 2 min... (plafond 1 h, ±20 % d'aléa),
+ *   ECHEC définitif après TENTATIVES_MAX
+ * - au moins une fois : si le nœud s'arrête entre l'envoi et l'enregistrement du résultat,
+ *   le lot est renvoyé à l'expiration de sa réservation
+ *
+ * Métriques : emails.envoyes, emails.echecs (tag definitif), timer emails.lot, jauge emails.lots.en_cours.
+ * Horloge dédiée (et non @Scheduled) : les jobs Cron, qui partagent le thread du planificateur,
+ * ne retardent pas les emails.
+ */
+@Service
+@Slf4j
+public class DispatcheurEmails {
+
+    static final String TACHE_PURGE_EMAILS = "purge-emails";
+    static final int TENTATIVES_MAX = 6;
+    static final Duration DELAI_INITIAL = Duration.ofSeconds(30);
+    static final Duration DELAI_MAX = Duration.ofHours(1);
+    private static final Duration RESERVATION = Duration.ofMinutes(5);
+    private static final long INTERVALLE_MS = 1000;
+    private static final int TAILLE_LOT_PURGE = 500;
+
+    private final EmailSortantRepository emailRepo;
+    private final ExpediteurSmtp expediteur;
+    private final CoordinationTaches coordination;
+    private final SuiviTachesService suiviTaches;
+    private final TransactionTemplate transaction;
+    private final int tailleLot;
+
+    private final Semaphore places;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService horloge =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("emails-horloge-"));
+
+    private final Counter envoyes;
+    private final Counter echecsTemporaires;
+    private final Counter echecsDefinitifs;
+    private final Timer dureeLot;
+
+    public DispatcheurEmails(EmailSortantRepository emailRepo,
+                             ExpediteurSmtp expediteur,
+                             CoordinationTaches coordination,
+                             SuiviTachesService suiviTaches,
+                             MeterRegistry registry,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${emails.dispatch.workers:4}") int nombreWorkers,
+                             @Value("${emails.dispatch.taille-lot:20}") int tailleLot) {
+        this.emailRepo = emailRepo;
+        this.expediteur = expediteur;
+        this.coordination = coordination;
+        this.suiviTaches = suiviTaches;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.tailleLot = tailleLot;
+
+        this.places = new Semaphore(nombreWorkers);
+        this.workers = new ThreadPoolExecutor(nombreWorkers, nombreWorkers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("emails-"));
+
+        this.envoyes = Counter.builder("emails.envoyes").description("Emails acceptés par le serveur SMTP")
+                .register(registry);
+        this.echecsTemporaires = Counter.builder("emails.echecs").tag("definitif", "false").register(registry);
+        this.echecsDefinitifs = Counter.builder("emails.echecs").tag("definitif", "true").register(registry);
+        this.dureeLot = Timer.builder("emails.lot").description("Durée d'envoi d'un lot sur une connexion SMTP")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        Gauge.builder("emails.lots.en_cours", () -> nombreWorkers - places.availablePermits()).register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        horloge.scheduleWithFixedDelay(this::distribuer, INTERVALLE_MS, INTERVALLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        horloge.shutdownNow();
+        workers.shutdown();
+    }
+
+    /**
+     * Confier des lots aux workers libres
+     */
+    void distribuer() {
+        try {
+            while (places.tryAcquire()) {
+                List<EmailSortant> lot = reserverLot();
+                if (lot.isEmpty()) {
+                    places.release();
+                    return;
+                }
+                workers.execute(() -> {
+                    try {
+                        traiterLot(lot);
+                    } finally {
+                        places.release();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            // Une exception non rattrapée arrêterait définitivement scheduleWithFixedDelay
+            places.release();
+            log.error("❌ Erreur dans la distribution des emails: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Purger l'outbox : envoyés depuis 7 jours, échecs définitifs depuis 30 jours
+     */
+    @Scheduled(cron = "0 30 4 * * ?")
+    public void purgerEmails() {
+        if (!coordination.acquerir(TACHE_PURGE_EMAILS, Duration.ofHours(1))) {
+            return;
+        }
+        SuiviTachesService.Execution suivi = suiviTaches.demarrer(TACHE_PURGE_EMAILS);
+        try {
+            LocalDateTime maintenant = LocalDateTime.now();
+            long apresId = 0L;
+            List<Long> ids;
+            while (!(ids = emailRepo.findIdsAPurger(maintenant.minusDays(7), maintenant.minusDays(30),
+                    apresId, PageRequest.of(0, TAILLE_LOT_PURGE))).isEmpty()) {
+                List<Long> lot = ids;
+                Integer supprimes = transaction.execute(status -> emailRepo.supprimerParIds(lot));
+                suivi.lues(lot.size());
+                suivi.modifiees(supprimes != null ? supprimes : 0);
+                apresId = lot.get(lot.size() - 1);
+            }
+        } catch (Exception e) {
+            suivi.echouer(e);
+            log.error("❌ Erreur lors de la purge des emails: {}", e.getMessage());
+        }
+        suivi.terminer();
+    }
+
+    /**
+     * Délai avant la tentative suivante (tentatives = nombre d'échecs déjà subis, ≥ 1)
+     */
+    static Duration delaiAvantTentative(int tentatives) {
+        long base = DELAI_INITIAL.toMillis() << Math.min(tentatives - 1, 20);
+        long plafonne = Math.min(base, DELAI_MAX.toMillis());
+        double alea = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Duration.ofMillis((long) (plafonne * alea));
+    }
+
+    // ============================================
+    // MÉTHODES PRIVÉES
+    // ============================================
+
+    private List<EmailSortant> reserverLot() {
+        List<EmailSortant> lot = transaction.execute(status -> {
+            LocalDateTime maintenant = LocalDateTime.now();
+            List<Long> ids = emailRepo.findIdsAEnvoyer(maintenant, PageRequest.of(0, tailleLot));
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            String jeton = UUID.randomUUID().toString();
+            emailRepo.reserver(ids, jeton, maintenant.plus(RESERVATION), maintenant);
+            return emailRepo.findByJeton(jeton);
+        });
+        return lot != null ? lot : List.of();
+    }
+
+    private void traiterLot(List<EmailSortant> lot) {
+        try {
+            long debut = System.nanoTime();
+            Map<Long, String> echecs = expediteur.envoyer(lot);
+            dureeLot.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+
+            List<Long> envoyesLot = lot.stream()
+                    .map(EmailSortant::getIdEmail)
+                    .filter(id -> !echecs.containsKey(id))
+                    .toList();
+            transaction.executeWithoutResult(status -> {
+                LocalDateTime maintenant = LocalDateTime.now();
+                if (!envoyesLot.isEmpty()) {
+                    emailRepo.marquerEnvoyes(envoyesLot, maintenant);
+                }
+                echecs.forEach((id, erreur) -> emailRepo.findById(id).ifPresent(email -> {
+                    int tentatives = email.getTentatives() + 1;
+                    email.setTentatives(tentatives);
+                    email.setDerniereErreur(erreur);
+                    email.setJeton(null);
+                    email.setReserveJusqua(null);
+                    if (tentatives >= TENTATIVES_MAX) {
+                        email.setStatut(StatutEmail.ECHEC);
+                        echecsDefinitifs.increment();
+                        log.error("❌ Email {} vers {} abandonné après {} tentatives: {}",
+                                id, email.getDestinataire(), tentatives, erreur);
+                    } else {
+                        email.setProchaineTentative(maintenant.plus(delaiAvantTentative(tentatives)));
+                        echecsTemporaires.increment();
+                        log.warn("⚠️ Email {} vers {} non envoyé (tentative {}): {}",
+                                id, email.getDestinataire(), tentatives, erreur);
+                    }
+                }));
+            });
+            envoyes.increment(envoyesLot.size());
+            log.debug("📧 Lot de {} email(s) : {} envoyé(s), {} en échec", lot.size(), envoyesLot.size(), echecs.size());
+
+        } catch (Exception e) {
+            // La réservation du lot expirera : il sera repris
+            log.error("❌ Erreur lors de l'envoi d'un lot d'emails: {}", e.getMessage());
+        }
+    }
+}
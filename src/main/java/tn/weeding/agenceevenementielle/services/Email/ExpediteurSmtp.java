@@ -0,0 +1,77 @@
+package tn.weeding.agenceevenementielle.services.Email;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+import tn.weeding.agenceevenementielle.entities.EmailSortant;
+
+import java.util.*;
+
+/**
+ * Envoi SMTP d'un lot d'emails sur une seule connexion
+ *
+ * JavaMailSender.send(MimeMessage...) ouvre une connexion pour tout le lot (au lieu d'une par email)
+ * et signale les messages refusés un par un : un destinataire invalide n'empêche pas les autres envois.
+ */
+@Component
+public class ExpediteurSmtp {
+
+    private final JavaMailSender mailSender;
+
+    public ExpediteurSmtp(JavaMailSender mailSender) {
+        this.mailSender = mailSender;
+    }
+
+    /**
+     * @return Erreur de chaque email non envoyé, par identifiant (vide si tout le lot est parti)
+     */
+    public Map<Long, String> envoyer(List<EmailSortant> emails) {
+        Map<Long, String> echecs = new HashMap<>();
+        Map<Object, Long> idsParMessage = new IdentityHashMap<>();
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+
+        for (EmailSortant email : emails) {
+            try {
+                MimeMessage message = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+                helper.setTo(email.getDestinataire());
+                helper.setSubject(email.getSujet());
+                helper.setText(email.getContenuHtml(), true); // true = HTML
+                messages.add(message);
+                idsParMessage.put(message, email.getIdEmail());
+            } catch (MessagingException | IllegalArgumentException e) {
+                echecs.put(email.getIdEmail(), erreur(e));
+            }
+        }
+        if (messages.isEmpty()) {
+            return echecs;
+        }
+
+        try {
+            mailSender.send(messages.toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                idsParMessage.values().forEach(id -> echecs.put(id, erreur(e)));
+            }
+            e.getFailedMessages().forEach((message, cause) -> {
+                Long id = idsParMessage.get(message);
+                if (id != null) {
+                    echecs.put(id, erreur(cause));
+                }
+            });
+        } catch (MailException e) {
+            // Authentification, configuration... : rien n'est parti
+            idsParMessage.values().forEach(id -> echecs.put(id, erreur(e)));
+        }
+        return echecs;
+    }
+
+    private static String erreur(Exception e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
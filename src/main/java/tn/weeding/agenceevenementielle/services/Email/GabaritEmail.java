@@ -0,0 +1,226 @@
+package tn.weeding.agenceevenementielle.services.Email;
+
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Gabarit d'email compilé
+ *
+ * Syntaxe (sous-ensemble de Mustache) :
+ * - {{nom}} : valeur échappée en HTML (gabarits .html)
+ * - {{&nom}} : valeur brute
+ * - {{#nom}}...{{/nom}} : bloc rendu si la valeur est vraie ; {{^nom}}...{{/nom}} : si elle est fausse
+ *
+ * Le texte est découpé une seule fois en nœuds (texte littéral, variable, bloc) ;
+ * le rendu ne fait qu'ajouter ces nœuds au tampon fourni, sans recherche ni String.format.
+ * Nombres décimaux (2 décimales) et dates sont écrits selon la langue, directement dans le tampon.
+ */
+public final class GabaritEmail {
+
+    private static final Pattern NOM_VARIABLE = Pattern.compile("[A-Za-z][A-Za-z0-9_]*");
+
+    private final String nom;
+    private final boolean html;
+    private final Noeud[] noeuds;
+
+    private GabaritEmail(String nom, boolean html, Noeud[] noeuds) {
+        this.nom = nom;
+        this.html = html;
+        this.noeuds = noeuds;
+    }
+
+    /**
+     * Compiler un gabarit
+     *
+     * @param html true pour échapper les valeurs ({{nom}}) en HTML
+     * @throws IllegalArgumentException si la syntaxe est invalide (balise non fermée, bloc mal imbriqué...)
+     */
+    public static GabaritEmail compiler(String nom, String source, boolean html) {
+        Deque<Ouvert> pile = new ArrayDeque<>();
+        pile.push(new Ouvert(null, false, new ArrayList<>()));
+
+        int position = 0;
+        while (position < source.length()) {
+            int debut = source.indexOf("{{", position);
+            if (debut < 0) {
+                ajouterTexte(pile.peek().noeuds, source.substring(position));
+                break;
+            }
+            ajouterTexte(pile.peek().noeuds, source.substring(position, debut));
+            int fin = source.indexOf("}}", debut + 2);
+            if (fin < 0) {
+                throw erreur(nom, debut, "balise non fermée");
+            }
+            String balise = source.substring(debut + 2, fin).trim();
+            position = fin + 2;
+
+            char type = balise.isEmpty() ? ' ' : balise.charAt(0);
+            String variable = (type == '#' || type == '^' || type == '/' || type == '&')
+                    ? balise.substring(1).trim() : balise;
+            if (!NOM_VARIABLE.matcher(variable).matches()) {
+                throw erreur(nom, debut, "nom de variable invalide '" + balise + "'");
+            }
+
+            switch (type) {
+                case '#', '^' -> pile.push(new Ouvert(variable, type == '^', new ArrayList<>()));
+                case '/' -> {
+                    if (pile.size() == 1) {
+                        throw erreur(nom, debut, "{{/" + variable + "}} sans bloc ouvert");
+                    }
+                    Ouvert bloc = pile.pop();
+                    if (!variable.equals(bloc.variable)) {
+                        throw erreur(nom, debut, "{{/" + variable + "}} ne ferme pas le bloc ouvert ("
+                                + bloc.variable + ")");
+                    }
+                    pile.peek().noeuds.add(new Section(variable, bloc.inverse, bloc.noeuds.toArray(Noeud[]::new)));
+                }
+                case '&' -> pile.peek().noeuds.add(new Variable(variable, true));
+                default -> pile.peek().noeuds.add(new Variable(variable, false));
+            }
+        }
+
+        if (pile.size() > 1) {
+            throw erreur(nom, source.length(), "bloc {{#" + pile.peek().variable + "}} non fermé");
+        }
+        return new GabaritEmail(nom, html, pile.pop().noeuds.toArray(Noeud[]::new));
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    /**
+     * Écrire le gabarit rendu à la suite du tampon
+     *
+     * @throws IllegalArgumentException si une variable utilisée par le gabarit est absente
+     */
+    public void rendre(Map<String, ?> valeurs, FormatsLocaux formats, StringBuilder sortie) {
+        rendre(noeuds, valeurs, formats, sortie);
+    }
+
+    // ============================================
+    // MÉTHODES PRIVÉES
+    // ============================================
+
+    private void rendre(Noeud[] noeuds, Map<String, ?> valeurs, FormatsLocaux formats, StringBuilder sortie) {
+        for (Noeud noeud : noeuds) {
+            if (noeud instanceof Texte texte) {
+                sortie.append(texte.texte());
+            } else if (noeud instanceof Variable variable) {
+                ecrire(valeur(valeurs, variable.nom()), html && !variable.brut(), formats, sortie);
+            } else if (noeud instanceof Section section) {
+                if (vrai(valeur(valeurs, section.nom())) != section.inverse()) {
+                    rendre(section.enfants(), valeurs, formats, sortie);
+                }
+            }
+        }
+    }
+
+    private Object valeur(Map<String, ?> valeurs, String variable) {
+        Object valeur = valeurs.get(variable);
+        if (valeur == null && !valeurs.containsKey(variable)) {
+            throw new IllegalArgumentException("Variable '" + variable + "' absente pour le gabarit " + nom);
+        }
+        return valeur;
+    }
+
+    private static boolean vrai(Object valeur) {
+        if (valeur instanceof Boolean booleen) {
+            return booleen;
+        }
+        if (valeur instanceof CharSequence texte) {
+            return !texte.isEmpty();
+        }
+        return valeur != null;
+    }
+
+    private static void ecrire(Object valeur, boolean echapper, FormatsLocaux formats, StringBuilder sortie) {
+        if (valeur == null) {
+            return;
+        }
+        if (valeur instanceof CharSequence texte) {
+            if (echapper) {
+                echapperHtml(texte, sortie);
+            } else {
+                sortie.append(texte);
+            }
+        } else if (valeur instanceof Double || valeur instanceof Float || valeur instanceof BigDecimal) {
+            ecrireMontant(((Number) valeur).doubleValue(), formats.separateurDecimal(), sortie);
+        } else if (valeur instanceof Number nombre) {
+            sortie.append(nombre.longValue());
+        } else if (valeur instanceof TemporalAccessor date) {
+            formats.dates().formatTo(date, sortie);
+        } else {
+            ecrire(String.valueOf(valeur), echapper, formats, sortie);
+        }
+    }
+
+    /**
+     * Équivalent de "%.2f" sans Formatter ni chaîne intermédiaire
+     */
+    static void ecrireMontant(double valeur, char separateur, StringBuilder sortie) {
+        long centimes = Math.round(valeur * 100);
+        if (centimes < 0) {
+            sortie.append('-');
+            centimes = -centimes;
+        }
+        long reste = centimes % 100;
+        sortie.append(centimes / 100).append(separateur);
+        if (reste < 10) {
+            sortie.append('0');
+        }
+        sortie.append(reste);
+    }
+
+    private static void echapperHtml(CharSequence texte, StringBuilder sortie) {
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            switch (c) {
+                case '&' -> sortie.append("&amp;");
+                case '<' -> sortie.append("&lt;");
+                case '>' -> sortie.append("&gt;");
+                case '"' -> sortie.append("&quot;");
+                case '\'' -> sortie.append("&#39;");
+                default -> sortie.append(c);
+            }
+        }
+    }
+
+    private static void ajouterTexte(List<Noeud> noeuds, String texte) {
+        if (!texte.isEmpty()) {
+            noeuds.add(new Texte(texte));
+        }
+    }
+
+    private static IllegalArgumentException erreur(String nom, int position, String message) {
+        return new IllegalArgumentException("Gabarit " + nom + " (caractère " + position + ") : " + message);
+    }
+
+    /**
+     * Formats propres à une langue
+     */
+    public record FormatsLocaux(DateTimeFormatter dates, char separateurDecimal) {
+    }
+
+    private sealed interface Noeud permits Texte, Variable, Section {
+    }
+
+    private record Texte(String texte) implements Noeud {
+    }
+
+    private record Variable(String nom, boolean brut) implements Noeud {
+    }
+
+    private record Section(String nom, boolean inverse, Noeud[] enfants) implements Noeud {
+    }
+
+    private record Ouvert(String variable, boolean inverse, List<Noeud> noeuds) {
+    }
+}
@@ -0,0 +1,113 @@
+package tn.weeding.agenceevenementielle.services.Email;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ==========================================
+ * GABARITS D'EMAILS COMPILÉS
+ * ==========================================
+ *
+ * Au démarrage, chaque fichier templates/email/{langue}/{nom}.html|.txt est lu et compilé une fois
+ * (voir GabaritEmail) ; une erreur de syntaxe empêche le démarrage au lieu d'apparaître au premier envoi.
+ *
+ * - langue : gabarit de la langue demandée, sinon celui de LOCALE_PAR_DEFAUT
+ * - rendu dans un tampon réutilisé par thread : les jobs de rappels rendent des milliers de messages
+ *   sans réallouer un StringBuilder (ni un Formatter) à chaque fois
+ * - .txt : texte brut (messages des notifications) ; .html : valeurs échappées
+ */
+@Component
+@Slf4j
+public class GabaritsEmail {
+
+    public static final Locale LOCALE_PAR_DEFAUT = Locale.FRENCH;
+
+    private static final String EMPLACEMENT = "classpath*:templates/email/*/*.*";
+    private static final int CAPACITE_TAMPON = 8 * 1024;
+    private static final int CAPACITE_MAX_TAMPON = 256 * 1024;
+
+    private final Map<String, GabaritEmail> gabarits;
+    private final Map<String, GabaritEmail.FormatsLocaux> formats = new ConcurrentHashMap<>();
+    private final ThreadLocal<StringBuilder> tampon = ThreadLocal.withInitial(() -> new StringBuilder(CAPACITE_TAMPON));
+
+    public GabaritsEmail() throws IOException {
+        Map<String, GabaritEmail> compiles = new HashMap<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(EMPLACEMENT)) {
+            String[] chemin = resource.getURI().toString().split("/");
+            String langue = chemin[chemin.length - 2];
+            String fichier = chemin[chemin.length - 1];
+            int point = fichier.lastIndexOf('.');
+            String nom = fichier.substring(0, point);
+            boolean html = fichier.endsWith(".html");
+
+            String source;
+            try (InputStream entree = resource.getInputStream()) {
+                source = new String(entree.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            if (!html && source.endsWith("\n")) {
+                // Fin de ligne du fichier : pas de saut de ligne en fin de message
+                source = source.substring(0, source.length() - 1);
+            }
+            compiles.put(cle(langue, nom), GabaritEmail.compiler(langue + "/" + fichier, source, html));
+        }
+        this.gabarits = Map.copyOf(compiles);
+        log.info("✉️ {} gabarit(s) d'email compilé(s)", gabarits.size());
+    }
+
+    public String rendre(String nom, Map<String, ?> valeurs) {
+        return rendre(nom, LOCALE_PAR_DEFAUT, valeurs);
+    }
+
+    public String rendre(String nom, Locale locale, Map<String, ?> valeurs) {
+        GabaritEmail gabarit = trouver(nom, locale);
+        StringBuilder sortie = tampon.get();
+        sortie.setLength(0);
+        try {
+            gabarit.rendre(valeurs, formats(locale), sortie);
+            return sortie.toString();
+        } finally {
+            if (sortie.capacity() > CAPACITE_MAX_TAMPON) {
+                // Ne pas garder indéfiniment un tampon agrandi par un message exceptionnel
+                tampon.set(new StringBuilder(CAPACITE_TAMPON));
+            }
+        }
+    }
+
+    // ============================================
+    // MÉTHODES PRIVÉES
+    // ============================================
+
+    private GabaritEmail trouver(String nom, Locale locale) {
+        GabaritEmail gabarit = gabarits.get(cle(locale.getLanguage(), nom));
+        if (gabarit == null) {
+            gabarit = gabarits.get(cle(LOCALE_PAR_DEFAUT.getLanguage(), nom));
+        }
+        if (gabarit == null) {
+            throw new IllegalStateException("Gabarit d'email introuvable: " + nom);
+        }
+        return gabarit;
+    }
+
+    private GabaritEmail.FormatsLocaux formats(Locale locale) {
+        return formats.computeIfAbsent(locale.getLanguage(), langue -> new GabaritEmail.FormatsLocaux(
+                DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT).withLocale(locale),
+                DecimalFormatSymbols.getInstance(locale).getDecimalSeparator()));
+    }
+
+    private static String cle(String langue, String nom) {
+        return langue + "/" + nom;
+    }
+}
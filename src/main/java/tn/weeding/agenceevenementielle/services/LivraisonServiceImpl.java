@@ -13,6 +13,7 @@ import tn.weeding.agenceevenementielle.entities.*;
 import tn.weeding.agenceevenementielle.entities.enums.*;
 import tn.weeding.agenceevenementielle.exceptions.CustomException;
 import tn.weeding.agenceevenementielle.repository.*;
+import tn.weeding.agenceevenementielle.services.Stock.JournalMouvementStockService;
 
 import java.io.ByteArrayOutputStream;
 import java.time.LocalDate;
@@ -36,7 +37,7 @@ public class LivraisonServiceImpl implements LivraisonServiceInterface {
     private final UtilisateurRoleRepository utilisateurRoleRepo;
     private final ReservationRepository reservationRepo;
     private final InstanceProduitRepository instanceProduitRepo;
-    private final MouvementStockRepository mouvementStockRepo;
+    private final JournalMouvementStockService journalMouvements;
     private final ProduitRepository produitRepo;
     private final NotificationServiceInterface notificationService;
 
@@ -1471,7 +1472,7 @@ public class LivraisonServiceImpl implements LivraisonServiceInterface {
             mouvement.setReferenceReservation(reservation.getReferenceReservation());
         }
 
-        mouvementStockRepo.save(mouvement);
+        journalMouvements.enregistrer(mouvement);
     }
 
     /**
@@ -1511,7 +1512,7 @@ public class LivraisonServiceImpl implements LivraisonServiceInterface {
             mouvement.setReferenceReservation(reservation.getReferenceReservation());
         }
 
-        mouvementStockRepo.save(mouvement);
+        journalMouvements.enregistrer(mouvement);
     }
 
     // ============================================
@@ -231,18 +231,7 @@ public class NotificationServiceImpl implements NotificationServiceInterface {
                                 ur.getRole().getNom().equals("MANAGER")))
                 .toList();
 
-        for (Utilisateur employe : staff) {
-            NotificationRequestDto dto = NotificationRequestDto.builder()
-                    .typeNotification(type)
-                    .titre(titre)
-                    .message(message)
-                    .idUtilisateur(employe.getIdUtilisateur())
-                    .idReservation(idReservation)
-                    .urlAction(urlAction)
-                    .build();
-
-            creerNotification(dto);
-        }
+        notifierTous(staff, type, titre, message, idReservation, urlAction);
     }
 
     /**
@@ -256,23 +245,33 @@ public class NotificationServiceImpl implements NotificationServiceInterface {
 
                 .toList();
 
-        for (Utilisateur employe : staff) {
-            NotificationRequestDto dto = NotificationRequestDto.builder()
-                    .typeNotification(type)
-                    .titre(titre)
-                    .message(message)
-                    .idUtilisateur(employe.getIdUtilisateur())
-                    .idReservation(idReservation)
-                    .urlAction(urlAction)
-                    .build();
-
-            creerNotification(dto);
-        }
+        notifierTous(staff, type, titre, message, idReservation, urlAction);
     }
 
 
 
 
+    /**
+     * Une notification par destinataire, insérées en un lot (destinataires déjà chargés)
+     */
+    private void notifierTous(List<Utilisateur> destinataires, TypeNotification type, String titre,
+                              String message, Long idReservation, String urlAction) {
+        List<Notification> notifications = destinataires.stream()
+                .map(destinataire -> Notification.builder()
+                        .typeNotification(type)
+                        .titre(titre)
+                        .message(message)
+                        .utilisateur(destinataire)
+                        .lue(false)
+                        .idReservation(idReservation)
+                        .urlAction(urlAction)
+                        .build())
+                .toList();
+
+        notificationRepo.saveAll(notifications);
+        log.info("✅ {} notifications {} créées", notifications.size(), type);
+    }
+
     /**
      * Créer une notification ET envoyer l'email
      */
@@ -2,7 +2,6 @@ package tn.weeding.agenceevenementielle.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tn.weeding.agenceevenementielle.dto.pointage.PointageRequestDto;
@@ -20,6 +19,7 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -291,8 +291,7 @@ public class PointageServiceImpl implements PointageServiceInterface {
     }
 
     @Override
-    @Scheduled(cron = "0 0 20 * * ?") // Tous les jours à 20h00
-    public void marquerAbsentsAutomatiquement() {
+    public int marquerAbsentsAutomatiquement() {
         log.info("🤖 Tâche automatique: Marquage des absents du jour");
 
         LocalDate aujourdhui = LocalDate.now();
@@ -300,25 +299,25 @@ public class PointageServiceImpl implements PointageServiceInterface {
 
         if (idsAbsents.isEmpty()) {
             log.info("✅ Aucun absent à marquer");
-            return;
+            return 0;
         }
 
 
 
-        for (Long idEmploye : idsAbsents) {
-            Utilisateur employe = utilisateurRepo.findById(idEmploye).orElse(null);
-            if (employe == null) continue;
-
+        // Employés chargés en une requête, pointages insérés en un lot
+        List<Pointage> pointagesAbsents = new ArrayList<>();
+        for (Utilisateur employe : utilisateurRepo.findAllById(idsAbsents)) {
             Pointage pointageAbsent = new Pointage();
             pointageAbsent.setUtilisateur(employe);
             pointageAbsent.setDateTravail(aujourdhui);
             pointageAbsent.setStatutPointage(StatutPointage.absent);
             pointageAbsent.setDescription("Marqué absent automatiquement");
-
-            pointageRepo.save(pointageAbsent);
+            pointagesAbsents.add(pointageAbsent);
         }
+        pointageRepo.saveAll(pointagesAbsents);
 
-        log.info("✅ {} employé(s) marqué(s) absent(s)", idsAbsents.size());
+        log.info("✅ {} employé(s) marqué(s) absent(s)", pointagesAbsents.size());
+        return pointagesAbsents.size();
     }
 
     // ============ MÉTHODES UTILITAIRES ============
@@ -90,7 +90,9 @@ public interface PointageServiceInterface {
     List<Long> getEmployesAbsents(LocalDate date);
 
     /**
-     * Marquer automatiquement les absents (tâche programmée)
+     * Marquer automatiquement les absents du jour (tâche programmée, voir PointageScheduler)
+     *
+     * @return Nombre d'employés marqués absents
      */
-    void marquerAbsentsAutomatiquement();
+    int marquerAbsentsAutomatiquement();
 }
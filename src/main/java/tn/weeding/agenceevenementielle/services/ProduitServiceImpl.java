@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tn.weeding.agenceevenementielle.dto.produit.CatalogueDisponibiliteDto;
+import tn.weeding.agenceevenementielle.dto.produit.HeatmapDisponibiliteDto;
 import tn.weeding.agenceevenementielle.dto.produit.MouvementStockResponseDto;
 import tn.weeding.agenceevenementielle.dto.produit.ProduitDisponibiliteDto;
 import tn.weeding.agenceevenementielle.dto.produit.ProduitRequestDto;
@@ -16,6 +18,9 @@ import tn.weeding.agenceevenementielle.entities.enums.*;
 import tn.weeding.agenceevenementielle.exceptions.CustomException;
 import tn.weeding.agenceevenementielle.exceptions.ProduitException;
 import tn.weeding.agenceevenementielle.repository.*;
+import tn.weeding.agenceevenementielle.services.Disponibilite.CatalogueDisponibiliteService;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationIndexService;
+import tn.weeding.agenceevenementielle.services.Stock.JournalMouvementStockService;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -33,11 +38,14 @@ public class ProduitServiceImpl implements ProduitServiceInterface {
 
     private final ProduitRepository produitRepository;
     private final MouvementStockRepository mouvementStockRepository;
+    private final JournalMouvementStockService journalMouvements;
     private final CodeGeneratorServiceProduit codeGeneratorService;
     private final InstanceProduitRepository instanceProduitRepository;
     private final ImageService imageService;
     private final LigneReservationRepository ligneReservationRepository;
     private final ReservationRepository reservationRepository;
+    private final CatalogueDisponibiliteService catalogueDisponibilite;
+    private final OccupationIndexService occupationIndex;
 
     private static final Integer SEUIL_CRITIQUE_DEFAUT = 5;
 
@@ -277,7 +285,7 @@ public class ProduitServiceImpl implements ProduitServiceInterface {
         mouvementFinal.setCodeProduitArchive(produit.getCodeProduit());
         mouvementFinal.setIdProduitArchive(produit.getIdProduit());
 
-        mouvementStockRepository.save(mouvementFinal);
+        journalMouvements.enregistrer(mouvementFinal);
 
         log.debug("📝 Mouvement final enregistré sans référence au produit");
 
@@ -459,36 +467,14 @@ public class ProduitServiceImpl implements ProduitServiceInterface {
                 idProduit, dateDebut, dateFin);
 
         // Vérifier que le produit existe
-        Produit produit = produitRepository.findById(idProduit)
-                .orElseThrow(() -> new CustomException(
-                        "Produit avec ID " + idProduit + " introuvable"));
-        Integer quantiteDispo = null ;
-
-        // Vérifier que c'est un produit de quantité
-        if (produit.getTypeProduit() == TypeProduit.AVEC_REFERENCE) {
-
-            quantiteDispo = instanceProduitRepository.countInstancesDisponiblesSurPeriode(
-                    idProduit,
-                    dateDebut,
-                    dateFin
-            );
-
-        }else {
-
-            // Vérification quantité disponible sur une période donnée
-             quantiteDispo = produitRepository.calculerQuantiteDisponibleSurPeriode(
-                    idProduit,
-                    dateDebut,
-                    dateFin
-            );
-        }
-        // Gérer le cas où il n'y a aucune réservation
-        if (quantiteDispo == null) {
-            quantiteDispo = produit.getQuantiteDisponible();
+        if (!produitRepository.existsById(idProduit)) {
+            throw new CustomException("Produit avec ID " + idProduit + " introuvable");
         }
 
-        log.info("✅ Quantité disponible calculée: {} (stock total: {})",
-                quantiteDispo, produit.getQuantiteDisponible());
+        // Index d'occupation + cache de disponibilité (pic journalier, réservations confirmées)
+        int quantiteDispo = occupationIndex.getQuantiteDisponible(idProduit, dateDebut, dateFin);
+
+        log.info("✅ Quantité disponible calculée: {}", quantiteDispo);
 
         return quantiteDispo;
     }
@@ -504,40 +490,12 @@ public class ProduitServiceImpl implements ProduitServiceInterface {
         log.info("🔍 Vérification disponibilité produit ID: {}, quantité: {}, période: {} -> {}",
                 idProduit, quantiteDemandee, dateDebut, dateFin);
 
-        // Vérifier que le produit existe
-        Produit produit = produitRepository.findById(idProduit)
-                .orElseThrow(() -> new CustomException(
-                        "Produit avec ID " + idProduit + " introuvable"));
-
-        // Vérifier que c'est un produit de quantité
-        if (produit.getTypeProduit() != TypeProduit.EN_QUANTITE) {
-
-           int qteInstanceDispo = instanceProduitRepository.countInstancesDisponiblesSurPeriode(
-                    idProduit,
-                    dateDebut,
-                    dateFin
-            );
-
-            return qteInstanceDispo >= quantiteDemandee;
-        }
-
-        // vérifie la disponibilité du produit dans une période donnée
-        Boolean disponible = produitRepository.estDisponibleSurPeriode(
-                idProduit,
-                quantiteDemandee,
-                dateDebut,
-                dateFin
-        );
-
-        if (disponible == null) {
-            // Aucune réservation, vérifier contre le stock total
-            disponible = produit.getQuantiteDisponible() >= quantiteDemandee;
-        }
+        Integer quantiteDispo = calculerQuantiteDisponibleSurPeriode(idProduit, dateDebut, dateFin);
+        boolean disponible = quantiteDispo >= quantiteDemandee;
 
         if (disponible) {
             log.info("✅ Disponible: {} unités demandées", quantiteDemandee);
         } else {
-            Integer quantiteDispo = calculerQuantiteDisponibleSurPeriode(idProduit, dateDebut, dateFin);
             log.warn("❌ Indisponible: {} demandées, {} disponibles", quantiteDemandee, quantiteDispo);
         }
 
@@ -685,61 +643,39 @@ public class ProduitServiceImpl implements ProduitServiceInterface {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ProduitDisponibiliteDto> getProduitsAvecDisponibilitePourPeriode(
-            LocalDate dateDebut, LocalDate dateFin) {
-
-        log.info("🔍 Calcul disponibilité produits du {} au {}", dateDebut, dateFin);
+            LocalDate dateDebut, LocalDate dateFin, Categorie categorie, TypeProduit type) {
 
-        List<Produit> tousProduits = produitRepository.findAll();
-        List<ProduitDisponibiliteDto> resultat = new ArrayList<>();
+        log.info("🔍 Calcul disponibilité produits du {} au {} (catégorie: {}, type: {})",
+                dateDebut, dateFin, categorie, type);
 
-        for (Produit produit : tousProduits) {
-            ProduitDisponibiliteDto dto = new ProduitDisponibiliteDto();
-            dto.setIdProduit(produit.getIdProduit());
-            dto.setCodeProduit(produit.getCodeProduit());
-            dto.setNomProduit(produit.getNomProduit());
-            dto.setTypeProduit(produit.getTypeProduit());
-            dto.setQuantiteTotale(produit.getQuantiteDisponible());
+        List<ProduitDisponibiliteDto> resultat = catalogueDisponibilite.calculer(dateDebut, dateFin, categorie, type);
 
-            if (produit.getTypeProduit() == TypeProduit.EN_QUANTITE) {
-                // Calculer quantité réservée sur la période
-                Integer quantiteReservee = ligneReservationRepository
-                        .calculerQuantiteReserveePourPeriode(
-                                produit.getIdProduit(),
-                                dateDebut,
-                                dateFin
-                        );
-
-                if (quantiteReservee == null) quantiteReservee = 0;
+        log.info("✅ {} produits avec disponibilité calculée", resultat.size());
+        return resultat;
+    }
 
-                dto.setQuantiteReservee(quantiteReservee);
-                dto.setQuantiteDisponible(produit.getQuantiteDisponible() - quantiteReservee);
+    @Override
+    @Transactional(readOnly = true)
+    public CatalogueDisponibiliteDto getCatalogueDisponibilitePourPeriode(
+            LocalDate dateDebut, LocalDate dateFin, Categorie categorie, TypeProduit type,
+            int page, int taille) {
 
-            } else {
-                // Pour produits AVEC_REFERENCE
-                Long totalInstances = instanceProduitRepository
-                        .countByProduit_IdProduit(produit.getIdProduit());
-
-                Long instancesReservees = ligneReservationRepository
-                        .countInstancesReserveesPourPeriode(
-                                produit.getIdProduit(),
-                                dateDebut,
-                                dateFin
-                        );
-
-                if (instancesReservees == null) instancesReservees = 0L;
-
-                dto.setQuantiteTotale(totalInstances.intValue());
-                dto.setQuantiteReservee(instancesReservees.intValue());
-                dto.setQuantiteDisponible(totalInstances.intValue() - instancesReservees.intValue());
-            }
+        log.info("🔍 Catalogue disponible du {} au {} (page {} / {} par page)", dateDebut, dateFin, page, taille);
+        return catalogueDisponibilite.calculerPage(dateDebut, dateFin, categorie, type, page, taille);
+    }
 
-            resultat.add(dto);
-        }
+    @Override
+    @Transactional(readOnly = true)
+    public HeatmapDisponibiliteDto getHeatmapDisponibilite(
+            Long idProduit, Categorie categorie, LocalDate dateDebut, LocalDate dateFin) {
 
-        log.info("✅ {} produits avec disponibilité calculée", resultat.size());
-        return resultat;
+        log.info("🗓️ Heatmap disponibilité du {} au {} (produit: {}, catégorie: {})",
+                dateDebut, dateFin, idProduit, categorie);
+        return catalogueDisponibilite.calculerHeatmap(idProduit, categorie, dateDebut, dateFin);
     }
+
     // ============================================
     // GESTION DU STOCK (PRODUITS EN_QUANTITE)
     // ============================================
@@ -1074,7 +1010,7 @@ public class ProduitServiceImpl implements ProduitServiceInterface {
             }
         }
 
-        mouvementStockRepository.save(mouvement);
+        journalMouvements.enregistrer(mouvement);
 
         log.debug("📝 Mouvement enregistré: Type={}, Quantité={}, Motif={}",
                 typeMouvement, quantite, motif);
@@ -1099,7 +1035,7 @@ public class ProduitServiceImpl implements ProduitServiceInterface {
         mouvement.setCodeInstance(instanceProduit.getNumeroSerie());
         mouvement.setIdInstance(instanceProduit.getIdInstance());
 
-        mouvementStockRepository.save(mouvement);
+        journalMouvements.enregistrer(mouvement);
 
         log.debug("Mouvement enregistré: {} - {} ({}→{})",
                 type, motif, quantiteAvant, quantiteApres);
@@ -1,5 +1,7 @@
 package tn.weeding.agenceevenementielle.services;
 
+import tn.weeding.agenceevenementielle.dto.produit.CatalogueDisponibiliteDto;
+import tn.weeding.agenceevenementielle.dto.produit.HeatmapDisponibiliteDto;
 import tn.weeding.agenceevenementielle.dto.produit.MouvementStockResponseDto;
 import tn.weeding.agenceevenementielle.dto.produit.ProduitDisponibiliteDto;
 import tn.weeding.agenceevenementielle.dto.produit.ProduitRequestDto;
@@ -227,8 +229,29 @@ public interface ProduitServiceInterface {
      */
     List<Map<String, Object>> getTauxOccupationSurPeriode(LocalDate dateDebut, LocalDate dateFin);
 
-    public List<ProduitDisponibiliteDto> getProduitsAvecDisponibilitePourPeriode(
-            LocalDate dateDebut, LocalDate dateFin) ;
+    /**
+     * Disponibilité de tout le catalogue sur une période
+     *
+     * Calculée en une requête sur les produits + l'index d'occupation en mémoire
+     *
+     * @param categorie Filtre optionnel (null = toutes)
+     * @param type Filtre optionnel (null = tous)
+     */
+    List<ProduitDisponibiliteDto> getProduitsAvecDisponibilitePourPeriode(
+            LocalDate dateDebut, LocalDate dateFin, Categorie categorie, TypeProduit type);
+
+    /**
+     * Même calcul, paginé (tri par nom de produit)
+     */
+    CatalogueDisponibiliteDto getCatalogueDisponibilitePourPeriode(
+            LocalDate dateDebut, LocalDate dateFin, Categorie categorie, TypeProduit type,
+            int page, int taille);
+
+    /**
+     * Unités libres jour par jour (365 jours maximum) pour un produit ou une catégorie
+     */
+    HeatmapDisponibiliteDto getHeatmapDisponibilite(
+            Long idProduit, Categorie categorie, LocalDate dateDebut, LocalDate dateFin);
     // ============================================
     // GESTION DU STOCK (PRODUITS EN_QUANTITE)
     // ============================================
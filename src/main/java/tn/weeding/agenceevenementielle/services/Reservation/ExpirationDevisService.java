@@ -0,0 +1,243 @@
+package tn.weeding.agenceevenementielle.services.Reservation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.dto.notification.NotificationRequestDto;
+import tn.weeding.agenceevenementielle.entities.Reservation;
+import tn.weeding.agenceevenementielle.entities.enums.StatutReservation;
+import tn.weeding.agenceevenementielle.entities.enums.TypeNotification;
+import tn.weeding.agenceevenementielle.repository.ReservationRepository;
+import tn.weeding.agenceevenementielle.services.Disponibilite.BlocageStockService;
+import tn.weeding.agenceevenementielle.services.NotificationServiceInterface;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ==========================================
+ * EXPIRATION DES DEVIS À L'HEURE EXACTE
+ * ==========================================
+ *
+ * Chaque devis EN_ATTENTE a un minuteur dans une roue temporelle en mémoire (tick d'une seconde) :
+ * le devis est annulé dès que dateExpirationDevis est atteinte, et plus seulement la nuit suivante.
+ *
+ * - au démarrage : les échéances sont relues en base, les devis déjà expirés sont annulés (rattrapage)
+ * - à la création / modification d'un devis : minuteur posé après le commit
+ * - à l'échéance : l'état est relu en base, le devis n'est annulé que s'il est toujours EN_ATTENTE
+ *   et échu (un devis validé, annulé ou prolongé entre-temps est ignoré ou replanifié)
+ *
+ * La base reste la référence : la roue n'est qu'un cache d'échéances, reconstruit à chaque démarrage,
+ * et le job nocturne de ReservationScheduler repasse derrière elle (rattraper()).
+ * Chaque instance a sa roue : l'annulation relit le devis sous verrou de ligne, le premier nœud
+ * l'annule, les autres le trouvent déjà ANNULE.
+ */
+@Service
+@Slf4j
+public class ExpirationDevisService {
+
+    private static final long DUREE_TICK_MS = 1000;
+    private static final int TAILLE_ROUE = 64;
+    private static final int NIVEAUX_ROUE = 4;       // 64 s, ~68 min, ~3 jours, ~194 jours par niveau
+    private static final int TAILLE_LOT = 1000;
+
+    private final ReservationRepository reservationRepo;
+    private final NotificationServiceInterface notificationService;
+    private final BlocageStockService blocageStock;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate lecture;
+
+    private final RoueTemporelle<Long> roue =
+            new RoueTemporelle<>(DUREE_TICK_MS, TAILLE_ROUE, NIVEAUX_ROUE, System.currentTimeMillis());
+    private final ScheduledExecutorService horloge =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("expiration-devis-"));
+
+    public ExpirationDevisService(ReservationRepository reservationRepo,
+                                  NotificationServiceInterface notificationService,
+                                  BlocageStockService blocageStock,
+                                  PlatformTransactionManager transactionManager) {
+        this.reservationRepo = reservationRepo;
+        this.notificationService = notificationService;
+        this.blocageStock = blocageStock;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        int planifies = 0;
+        int expires = 0;
+        Long apresId = 0L;
+        while (true) {
+            final Long curseur = apresId;
+            List<Object[]> lot = lecture.execute(status -> reservationRepo.findEcheancesDevis(
+                    StatutReservation.EN_ATTENTE, curseur, PageRequest.of(0, TAILLE_LOT)));
+            if (lot == null || lot.isEmpty()) {
+                break;
+            }
+            for (Object[] row : lot) {
+                Long idReservation = (Long) row[0];
+                if (roue.planifier(idReservation, versMillis((LocalDateTime) row[1]))) {
+                    planifies++;
+                } else if (expirer(idReservation)) {
+                    expires++;
+                }
+            }
+            apresId = (Long) lot.get(lot.size() - 1)[0];
+        }
+
+        horloge.scheduleAtFixedRate(this::tic, DUREE_TICK_MS, DUREE_TICK_MS, TimeUnit.MILLISECONDS);
+        log.info("⏱️ Expiration des devis : {} minuteurs chargés, {} devis expirés rattrapés au démarrage",
+                planifies, expires);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        horloge.shutdownNow();
+    }
+
+    /**
+     * Poser (ou déplacer) le minuteur d'un devis ; dans une transaction, seulement après son commit
+     */
+    public void planifier(Long idReservation, LocalDateTime dateExpiration) {
+        if (idReservation == null || dateExpiration == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            poser(idReservation, dateExpiration);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                poser(idReservation, dateExpiration);
+            }
+        });
+    }
+
+    /**
+     * Balayage de rattrapage : annuler tous les devis EN_ATTENTE déjà expirés
+     *
+     * @return Nombre de devis annulés
+     */
+    public int rattraper() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<Long> echus = new ArrayList<>();
+        Long apresId = 0L;
+        while (true) {
+            final Long curseur = apresId;
+            List<Long> lot = lecture.execute(status -> reservationRepo.findIdsDevisEchus(
+                    StatutReservation.EN_ATTENTE, maintenant, curseur, PageRequest.of(0, TAILLE_LOT)));
+            if (lot == null || lot.isEmpty()) {
+                break;
+            }
+            echus.addAll(lot);
+            apresId = lot.get(lot.size() - 1);
+        }
+
+        log.info("📋 {} devis expirés trouvés", echus.size());
+        int annules = 0;
+        for (Long idReservation : echus) {
+            if (expirer(idReservation)) {
+                annules++;
+            }
+        }
+        return annules;
+    }
+
+    public int getNombreMinuteurs() {
+        return roue.getTaille();
+    }
+
+    // ============================================
+    // MÉTHODES PRIVÉES
+    // ============================================
+
+    private void poser(Long idReservation, LocalDateTime dateExpiration) {
+        if (!roue.planifier(idReservation, versMillis(dateExpiration))) {
+            horloge.execute(() -> expirer(idReservation));
+        }
+    }
+
+    private void tic() {
+        try {
+            for (Long idReservation : roue.avancer(System.currentTimeMillis())) {
+                expirer(idReservation);
+            }
+        } catch (Exception e) {
+            // Une exception non rattrapée arrêterait définitivement scheduleAtFixedRate
+            log.error("❌ Erreur dans l'horloge d'expiration des devis: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Annuler un devis échu, après relecture de son état (une transaction par devis)
+     *
+     * @return true si le devis a été annulé
+     */
+    private boolean expirer(Long idReservation) {
+        try {
+            Boolean annule = transaction.execute(status -> {
+                // Verrou de ligne : avec plusieurs instances, un seul nœud annule et notifie
+                Reservation devis = reservationRepo.findPourMiseAJour(idReservation).orElse(null);
+                if (devis == null || devis.getStatutReservation() != StatutReservation.EN_ATTENTE
+                        || devis.getDateExpirationDevis() == null) {
+                    return false;
+                }
+                if (devis.getDateExpirationDevis().isAfter(LocalDateTime.now())) {
+                    // Devis prolongé depuis la pose du minuteur
+                    planifier(idReservation, devis.getDateExpirationDevis());
+                    return false;
+                }
+
+                log.warn("❌ Annulation du devis expiré: {}", devis.getReferenceReservation());
+
+                // ✅ SOFT BOOKING: Pas de stock à libérer (jamais réservé), seulement ses blocages
+                // L'index d'occupation est rafraîchi par OccupationEntityListener
+                devis.setStatutReservation(StatutReservation.ANNULE);
+                devis.setCommentaireAdmin(
+                        "Devis annulé automatiquement après expiration (" +
+                                devis.getDateExpirationDevis().toLocalDate() + ")"
+                );
+                reservationRepo.save(devis);
+                blocageStock.libererDevis(idReservation, devis.getLigneReservations().stream()
+                        .map(ligne -> ligne.getProduit().getIdProduit())
+                        .toList());
+
+                notificationService.creerNotificationAvecEmail(
+                        NotificationRequestDto.builder()
+                                .typeNotification(TypeNotification.DEVIS_EXPIRE)
+                                .titre("Devis expiré")
+                                .message(String.format("Votre devis %s a expiré. Créez un nouveau devis si vous souhaitez toujours réserver.",
+                                        devis.getReferenceReservation()))
+                                .idUtilisateur(devis.getUtilisateur().getIdUtilisateur())
+                                .idReservation(devis.getIdReservation())
+                                .build()
+                );
+                return true;
+            });
+            return Boolean.TRUE.equals(annule);
+        } catch (Exception e) {
+            log.error("❌ Erreur lors de l'annulation du devis {}: {}", idReservation, e.getMessage());
+            return false;
+        }
+    }
+
+    private static long versMillis(LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
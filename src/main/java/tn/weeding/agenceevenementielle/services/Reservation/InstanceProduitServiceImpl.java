@@ -19,6 +19,9 @@ import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
 import tn.weeding.agenceevenementielle.repository.MouvementStockRepository;
 import tn.weeding.agenceevenementielle.repository.ProduitRepository;
 import tn.weeding.agenceevenementielle.services.CodeGeneratorServiceProduit;
+import tn.weeding.agenceevenementielle.services.Disponibilite.AllocationInstancesService;
+import tn.weeding.agenceevenementielle.services.SequenceService;
+import tn.weeding.agenceevenementielle.services.Stock.JournalMouvementStockService;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -41,7 +44,10 @@ public class InstanceProduitServiceImpl implements InstanceProduitServiceInterfa
     private final ProduitRepository produitRepo;
     private final CodeGeneratorServiceProduit codeGeneratorServiceProduit;
     private final MouvementStockRepository mouvementStockRepo;
+    private final JournalMouvementStockService journalMouvements;
     private final LigneReservationRepository ligneReservationRepo;
+    private final AllocationInstancesService allocationInstances;
+    private final SequenceService sequenceService;
 
     // ============ CRUD DE BASE ============
 
@@ -439,10 +445,9 @@ public class InstanceProduitServiceImpl implements InstanceProduitServiceInterfa
                             "(demandé: " + quantite + ")");
         }
 
-        // ✅ Récupérer les instances (SANS changer leur statut)
-        List<InstanceProduit> instancesAAffecter = instancesDisponibles.stream()
-                .limit(quantite)
-                .toList();
+        // ✅ Choisir les instances selon la stratégie d'allocation (SANS changer leur statut)
+        List<InstanceProduit> instancesAAffecter = allocationInstances.choisirInstances(
+                idProduit, instancesDisponibles, dateDebut, dateFin, quantite);
 
         // ⚠️ NE PAS modifier l'instance ici !
         // La relation ManyToMany est gérée dans le ReservationService
@@ -456,6 +461,16 @@ public class InstanceProduitServiceImpl implements InstanceProduitServiceInterfa
 
     // ============ CRÉATION EN LOT ============
 
+    /**
+     * Numéro de série suivant pour un lot : codeProduit-NNNN, pris dans la séquence du produit
+     */
+    private String genererNumeroSerieLot(String codeProduit) {
+        String prefixe = codeProduit + "-";
+        long numero = sequenceService.suivant("INST-" + codeProduit,
+                () -> SequenceService.plusGrandNumero(instanceRepo.findNumerosSerieParPrefixe(prefixe), prefixe));
+        return String.format("%s%04d", prefixe, numero);
+    }
+
     @Override
     public List<InstanceProduitResponseDto> creerInstancesEnLot(Long idProduit, int quantite,
                                                                 String prefixeNumeroSerie, String username) {
@@ -470,25 +485,10 @@ public class InstanceProduitServiceImpl implements InstanceProduitServiceInterfa
                     "Les instances ne peuvent être créées que pour les produits de type AVEC_REFERENCE");
         }
 
-        // Trouver le prochain numéro disponible
-        int maxNumero = instanceRepo.findByProduit_IdProduit(idProduit).stream()
-                .map(InstanceProduit::getNumeroSerie)
-                .filter(ns -> ns.startsWith(produit.getCodeProduit()))
-                .map(ns -> {
-                    try {
-                        String[] parts = ns.split("-");
-                        return Integer.parseInt(parts[parts.length - 1]);
-                    } catch (Exception e) {
-                        return 0;
-                    }
-                })
-                .max(Integer::compareTo)
-                .orElse(0);
-
         // Créer les instances
         List<InstanceProduit> instances = new java.util.ArrayList<>();
         for (int i = 1; i <= quantite; i++) {
-            String numeroSerie = String.format("%s-%04d", produit.getCodeProduit(), maxNumero + i);
+            String numeroSerie = genererNumeroSerieLot(produit.getCodeProduit());
 
             InstanceProduit instance = InstanceProduit.builder()
                     .numeroSerie(numeroSerie)
@@ -582,7 +582,7 @@ public class InstanceProduitServiceImpl implements InstanceProduitServiceInterfa
         mouvement.setCodeInstance(instanceProduit.getNumeroSerie());
         mouvement.setIdInstance(instanceProduit.getIdInstance());
 
-        mouvementStockRepo.save(mouvement);
+        journalMouvements.enregistrer(mouvement);
 
         log.debug("Mouvement enregistré: {} - {} ({}→{})",
                 type, motif, quantiteAvant, quantiteApres);
@@ -2,6 +2,7 @@ package tn.weeding.agenceevenementielle.services.Reservation;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tn.weeding.agenceevenementielle.dto.modifDateReservation.DecalerToutesLignesRequestDto;
@@ -14,6 +15,7 @@ import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
 import tn.weeding.agenceevenementielle.exceptions.CustomException;
 import tn.weeding.agenceevenementielle.exceptions.ReservationException;
 import tn.weeding.agenceevenementielle.repository.*;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationModifieeEvent;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -49,6 +51,7 @@ public class LigneReservationModificationDatesServiceImpl implements LigneReserv
     private final MontantReservationCalculService montantCalculService;
     private final UtilisateurRepository utilisateurRepo;
     private final UtilisateurRoleRepository utilisateurRoleRepo;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ============================================
     // FONCTIONNALITÉ 1 : MODIFIER UNE SEULE LIGNE
@@ -119,6 +122,7 @@ public class LigneReservationModificationDatesServiceImpl implements LigneReserv
         ligne.setDateDebut(request.getNouvelleDateDebut());
         ligne.setDateFin(request.getNouvelleDateFin());
         ligneReservationRepo.save(ligne);
+        signalerAnciennePeriode(ligne, ancienneDateDebut, ancienneDateFin);
 
         log.info("✅ Dates de la ligne {} mises à jour: {} -> {}",
                 idLigne, ancienneDateDebut, request.getNouvelleDateDebut());
@@ -225,6 +229,7 @@ public class LigneReservationModificationDatesServiceImpl implements LigneReserv
             ligne.setDateDebut(nouvelleDateDebut);
             ligne.setDateFin(nouvelleDateFin);
             ligneReservationRepo.save(ligne);
+            signalerAnciennePeriode(ligne, ancienneDateDebut, ancienneDateFin);
 
             log.info("✅ Ligne {} décalée: {} -> {}",
                     ligne.getIdLigneReservation(), ancienneDateDebut, nouvelleDateDebut);
@@ -322,6 +327,7 @@ public class LigneReservationModificationDatesServiceImpl implements LigneReserv
             ligne.setDateDebut(modif.getNouvelleDateDebut());
             ligne.setDateFin(modif.getNouvelleDateFin());
             ligneReservationRepo.save(ligne);
+            signalerAnciennePeriode(ligne, ancienneDateDebut, ancienneDateFin);
 
             log.info("✅ Ligne {} modifiée: {} -> {}",
                     modif.getIdLigne(), ancienneDateDebut, modif.getNouvelleDateDebut());
@@ -400,6 +406,15 @@ public class LigneReservationModificationDatesServiceImpl implements LigneReserv
         log.info("✅ Dates de réservation recalculées: {} au {}", minDebut, maxFin);
     }
 
+    /**
+     * 📣 Signaler à l'index d'occupation les jours libérés par la ligne
+     * (le listener JPA ne connaît que la nouvelle période)
+     */
+    private void signalerAnciennePeriode(LigneReservation ligne, LocalDate ancienneDateDebut, LocalDate ancienneDateFin) {
+        eventPublisher.publishEvent(OccupationModifieeEvent.pourPeriode(
+                ligne.getProduit().getIdProduit(), ancienneDateDebut, ancienneDateFin));
+    }
+
     /**
      * ✅ Vérifier la disponibilité d'une ligne sur une nouvelle période
      */
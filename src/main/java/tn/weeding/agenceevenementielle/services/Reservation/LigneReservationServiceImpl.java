@@ -2,6 +2,7 @@ package tn.weeding.agenceevenementielle.services.Reservation;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tn.weeding.agenceevenementielle.dto.produit.InstanceProduitResponseDto;
@@ -12,8 +13,10 @@ import tn.weeding.agenceevenementielle.entities.enums.*;
 import tn.weeding.agenceevenementielle.exceptions.CustomException;
 import tn.weeding.agenceevenementielle.exceptions.ReservationException;
 import tn.weeding.agenceevenementielle.repository.*;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationModifieeEvent;
 import tn.weeding.agenceevenementielle.services.FactureServiceInterface;
 import tn.weeding.agenceevenementielle.services.ProduitServiceInterface;
+import tn.weeding.agenceevenementielle.services.Stock.JournalMouvementStockService;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -48,9 +51,10 @@ public class LigneReservationServiceImpl implements LigneReservationServiceInter
     private final InstanceProduitServiceImpl instanceProduitServiceImpl;
     private final MontantReservationCalculService montantCalculService ;
     private final ProduitServiceInterface produitService;
-    private final MouvementStockRepository mouvementStockRepo;
+    private final JournalMouvementStockService journalMouvements;
     private final FactureRepository factureRepository;
     private final FactureServiceInterface factureService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ============================================
     // CRÉATION ET AJOUT DE LIGNES
@@ -392,6 +396,11 @@ public class LigneReservationServiceImpl implements LigneReservationServiceInter
         ligne.setObservations(dto.getObservations());
 
         ligne = ligneReservationRepo.save(ligne);
+        if (datesOntChange) {
+            // Le listener JPA ne signale que la nouvelle période : libérer aussi l'ancienne dans le cache
+            eventPublisher.publishEvent(OccupationModifieeEvent.pourPeriode(
+                    produit.getIdProduit(), ancienneDateDebut, ancienneDateFin));
+        }
         log.info("✅ Ligne modifiée avec succès");
 
         // --------------------------------------------------------------
@@ -1022,7 +1031,7 @@ public class LigneReservationServiceImpl implements LigneReservationServiceInter
             mouvement.setDateFin(reservation.getDateFin());
         }
 
-        mouvementStockRepo.save(mouvement);
+        journalMouvements.enregistrer(mouvement);
 
         log.debug("📦 Mouvement stock: {} - {}", type, motif);
     }
@@ -1052,7 +1061,7 @@ public class LigneReservationServiceImpl implements LigneReservationServiceInter
             mouvement.setIdReservation(reservation.getIdReservation());
         }
 
-        mouvementStockRepo.save(mouvement);
+        journalMouvements.enregistrer(mouvement);
 
         log.debug("📦 Mouvement instance: {} - {}",
                 instance.getNumeroSerie(), type);
@@ -3,6 +3,7 @@ package tn.weeding.agenceevenementielle.services.Reservation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import tn.weeding.agenceevenementielle.dto.modifDateReservation.DateConstraintesDto;
@@ -17,15 +18,24 @@ import tn.weeding.agenceevenementielle.exceptions.ProduitException;
 import tn.weeding.agenceevenementielle.exceptions.ReservationException;
 import tn.weeding.agenceevenementielle.repository.*;
 import  tn.weeding.agenceevenementielle.exceptions.ReservationException.StockIndisponibleException;
+import tn.weeding.agenceevenementielle.services.Disponibilite.AllocationInstancesService;
+import tn.weeding.agenceevenementielle.services.Disponibilite.BlocageStockService;
+import tn.weeding.agenceevenementielle.services.Disponibilite.CoordinateurReservationStock;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationIndexService;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit;
+import tn.weeding.agenceevenementielle.services.Disponibilite.SuggestionDisponibiliteService;
 import tn.weeding.agenceevenementielle.services.EmailService;
 import tn.weeding.agenceevenementielle.services.FactureServiceInterface;
 import tn.weeding.agenceevenementielle.services.NotificationServiceInterface;
+import tn.weeding.agenceevenementielle.services.SequenceService;
+import tn.weeding.agenceevenementielle.services.Stock.JournalMouvementStockService;
 
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
@@ -40,17 +50,26 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
     private final ProduitRepository produitRepo;
     private final UtilisateurRepository utilisateurRepo;
     private final InstanceProduitRepository instanceProduitRepo;
-    private final MouvementStockRepository mouvementStockRepo;
+    private final JournalMouvementStockService journalMouvements;
     private final DateReservationValidator dateValidator;
     private final FactureServiceInterface factureService;
     private final AffectationLivraisonRepository affectationRepo ;
 
     private final NotificationServiceInterface notificationService;
     private final EmailService emailService;
+    private final OccupationIndexService occupationIndex;
+    private final CoordinateurReservationStock coordinateurStock;
+    private final AllocationInstancesService allocationInstances;
+    private final SequenceService sequenceService;
+    private final SuggestionDisponibiliteService suggestionDisponibilite;
+    private final BlocageStockService blocageStock;
+    private final ExpirationDevisService expirationDevis;
 
     // ============ CRÉATION DE DEVIS PAR LE CLIENT ============
 
+    // READ_COMMITTED : une fois le stock verrouillé, les lectures voient les confirmations concurrentes
     @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public ReservationResponseDto creerDevis(DevisRequestDto devisRequest, Long idUtilisateur, String username) {
         log.info("🎯 Création d'un devis par le client ID: {} ({})", idUtilisateur, username);
 
@@ -96,24 +115,23 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
         log.info("📦 Vérification de la disponibilité de {} produits", devisRequest.getLignesReservation().size());
 
 
-        for (LigneReservationRequestDto ligneDto : devisRequest.getLignesReservation()) {
-
-
-            VerificationDisponibiliteDto verif = VerificationDisponibiliteDto.builder()
-                    .idProduit(ligneDto.getIdProduit())
-                    .quantite(ligneDto.getQuantite())
-                    .dateDebut(ligneDto.getDateDebut())
-                    .dateFin(ligneDto.getDateFin())
-                    .build();
-
-            DisponibiliteResponseDto dispo = verifierDisponibilite(verif);
-
+        List<VerificationDisponibiliteDto> verifications = devisRequest.getLignesReservation().stream()
+                .map(ligneDto -> VerificationDisponibiliteDto.builder()
+                        .idProduit(ligneDto.getIdProduit())
+                        .quantite(ligneDto.getQuantite())
+                        .dateDebut(ligneDto.getDateDebut())
+                        .dateFin(ligneDto.getDateFin())
+                        .build())
+                .toList();
 
+        // Les blocages de panier du client lui-même ne comptent pas : ils vont devenir ce devis
+        for (DisponibiliteResponseDto dispo : verifierDisponibilites(verifications, idUtilisateur)) {
             if (!dispo.getDisponible()) {
                 log.warn("❌ Produit {} non disponible", dispo.getNomProduit());
                 throw new CustomException(
                         "Le produit '" + dispo.getNomProduit() + "' n'est pas disponible. " +
-                                dispo.getMessage()
+                                dispo.getMessage() +
+                                SuggestionDisponibiliteService.resumer(dispo.getSuggestions())
                 );
             }
         }
@@ -147,13 +165,18 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
         }
 
 
-        // 5. Créer les lignes de réservation
+        // 5. Créer les lignes de réservation (produits chargés en une seule requête ;
+        //    les lignes sont insérées en un lot JDBC au save, voir SequencesIdentifiant)
+        Map<Long, Produit> produits = produitRepo.findAllById(idsProduits(verifications)).stream()
+                .collect(Collectors.toMap(Produit::getIdProduit, p -> p));
         Set<LigneReservation> lignes = new HashSet<>();
         double montantTotal = 0.0;
 
         for (LigneReservationRequestDto ligneDto : devisRequest.getLignesReservation()) {
-            Produit produit = produitRepo.findById(ligneDto.getIdProduit())
-                    .orElseThrow(() -> new CustomException("Produit introuvable"));
+            Produit produit = produits.get(ligneDto.getIdProduit());
+            if (produit == null) {
+                throw new CustomException("Produit introuvable");
+            }
 
             LigneReservation ligne = new LigneReservation();
             ligne.setReservation(reservation);
@@ -188,7 +211,6 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
         reservation.setCommentaireClient(devisRequest.getObservationsClient());
 
 
-
         log.info("✅ Devis créé avec succès: {} - Montant: {} TND",
                 reservation.getReferenceReservation(), montantTotal);
 
@@ -199,6 +221,8 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
             Reservation devisSaved = reservationRepo.save(reservation);
             // Réserver le stock immédiatement
            Reservation resValidee = reserverStockPourReservation(devisSaved );
+            // Lignes CONFIRME : les blocages du panier sont simplement libérés au commit
+            blocageStock.convertirEnDevis(idUtilisateur, null, verifications, null);
 
             log.info("✅ Devis validé automatiquement {} - montant {} TND - Réservation confirmée",
                     resValidee.getReferenceReservation(),montantTotal);
@@ -213,6 +237,11 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
             reservation.setDateExpirationDevis(LocalDateTime.now().plusDays(2));
 
             Reservation devisSaved = reservationRepo.save(reservation);
+            expirationDevis.planifier(devisSaved.getIdReservation(), devisSaved.getDateExpirationDevis());
+            // Un devis EN_ATTENTE ne compte pas dans l'occupation : ses lignes restent bloquées
+            // (à la place des blocages du panier) jusqu'à sa validation ou son échéance
+            blocageStock.convertirEnDevis(idUtilisateur, devisSaved.getIdReservation(), verifications,
+                    devisSaved.getDateExpirationDevis());
             log.info("✅ Devis créé {} - Montant: {} TND (stock NON réservé)",
                     devisSaved.getReferenceReservation(), montantTotal);
 
@@ -255,72 +284,164 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
 
     @Override
     public DisponibiliteResponseDto verifierDisponibilite(VerificationDisponibiliteDto verificationDto) {
-        log.debug("🔍 Vérification disponibilité - Produit: {}, Quantité: {}, Période: {} -> {}",
-                verificationDto.getIdProduit(), verificationDto.getQuantite(),
-                verificationDto.getDateDebut(), verificationDto.getDateFin());
+        return verifierDisponibilites(List.of(verificationDto)).get(0);
+    }
 
-        // 1. VALIDATION DES DATES EN PREMIER
-        try {
-            dateValidator.validerPeriodeReservation(
-                    verificationDto.getDateDebut(),
-                    verificationDto.getDateFin(),
-                    "vérification disponibilité"
-            );
-        } catch (DateValidationException e) {
-            log.error("❌ Dates invalides: {}", e.getMessage());
+    /**
+     * Vérification en lot : toutes les occupations sont lues en une seule fois depuis l'index
+     * (les produits absents sont chargés ensemble), puis chaque ligne reçoit son verdict.
+     *
+     * Les lignes d'un même lot se consomment mutuellement : deux lignes du même produit
+     * sur des périodes qui se chevauchent ne peuvent pas réserver deux fois le même stock.
+     */
+    @Override
+    public List<DisponibiliteResponseDto> verifierDisponibilites(List<VerificationDisponibiliteDto> verifications) {
+        return verifierDisponibilites(verifications, (Long) null);
+    }
+
+    @Override
+    public List<DisponibiliteResponseDto> verifierDisponibilites(List<VerificationDisponibiliteDto> verifications,
+                                                                 Long idUtilisateur) {
+        return verifierDisponibilites(verifications, ids -> blocageStock.getIntervallesBloques(ids, idUtilisateur));
+    }
+
+    /**
+     * @param lireBlocages Blocages de panier à déduire, par produit (aucun pour les vérifications côté admin) ;
+     *                     relus aussi pour les produits proposés en substitution
+     */
+    private List<DisponibiliteResponseDto> verifierDisponibilites(
+            List<VerificationDisponibiliteDto> verifications,
+            Function<Collection<Long>, Map<Long, List<OccupationProduit.Intervalle>>> lireBlocages) {
+        Set<Long> idsProduits = idsProduits(verifications);
+
+        Map<Long, OccupationProduit> occupations = occupationIndex.getOccupations(idsProduits);
+        Map<Long, List<OccupationProduit.Intervalle>> bloques = lireBlocages.apply(idsProduits);
+
+        // Demandes déjà acceptées dans ce lot (par produit pour EN_QUANTITE, par instance pour AVEC_REFERENCE)
+        Map<Long, List<OccupationProduit.Intervalle>> demandesParProduit = new HashMap<>();
+        Map<Long, List<OccupationProduit.Intervalle>> demandesParInstance = new HashMap<>();
+
+        List<DisponibiliteResponseDto> reponses = new ArrayList<>(verifications.size());
+        for (VerificationDisponibiliteDto verificationDto : verifications) {
+            log.debug("🔍 Vérification disponibilité - Produit: {}, Quantité: {}, Période: {} -> {}",
+                    verificationDto.getIdProduit(), verificationDto.getQuantite(),
+                    verificationDto.getDateDebut(), verificationDto.getDateFin());
+
+            // 1. VALIDATION DES DATES EN PREMIER
+            try {
+                dateValidator.validerPeriodeReservation(
+                        verificationDto.getDateDebut(),
+                        verificationDto.getDateFin(),
+                        "vérification disponibilité"
+                );
+            } catch (DateValidationException e) {
+                log.error("❌ Dates invalides: {}", e.getMessage());
+
+                // Retourner une réponse avec les informations d'erreur
+                reponses.add(DisponibiliteResponseDto.builder()
+                        .idProduit(verificationDto.getIdProduit())
+                        .quantiteDemandee(verificationDto.getQuantite())
+                        .disponible(false)
+                        .message("Dates invalides: " + e.getMessage())
+                        .build());
+                continue;
+            }
 
-            // Retourner une réponse avec les informations d'erreur
-            return DisponibiliteResponseDto.builder()
-                    .idProduit(verificationDto.getIdProduit())
+            // 2. Occupation du produit depuis l'index en mémoire (aucune agrégation SQL)
+            OccupationProduit occupation = occupations.get(verificationDto.getIdProduit());
+            if (occupation == null) {
+                throw new CustomException("Produit introuvable");
+            }
+
+            DisponibiliteResponseDto response = DisponibiliteResponseDto.builder()
+                    .idProduit(occupation.getIdProduit())
+                    .nomProduit(occupation.getNomProduit())
                     .quantiteDemandee(verificationDto.getQuantite())
-                    .disponible(false)
-                    .message("Dates invalides: " + e.getMessage())
                     .build();
-        }
-
-        Produit produit = produitRepo.findById(verificationDto.getIdProduit())
-                .orElseThrow(() -> new CustomException("Produit introuvable"));
 
+            // Vérifier selon le type de produit (les blocages de panier des autres clients comptent)
+            List<OccupationProduit.Intervalle> bloquesProduit = bloques.getOrDefault(occupation.getIdProduit(), List.of());
+            if (occupation.getTypeProduit() == TypeProduit.EN_QUANTITE) {
+                verifierDisponibiliteQuantite(occupation, verificationDto, response,
+                        demandesParProduit.computeIfAbsent(occupation.getIdProduit(), k -> new ArrayList<>(bloquesProduit)));
+            } else {
+                verifierDisponibiliteAvecReference(occupation, verificationDto, response, demandesParInstance,
+                        OccupationProduit.picSurPeriode(bloquesProduit,
+                                verificationDto.getDateDebut(), verificationDto.getDateFin()));
+            }
 
-        DisponibiliteResponseDto response = DisponibiliteResponseDto.builder()
-                .idProduit(produit.getIdProduit())
-                .nomProduit(produit.getNomProduit())
-                .quantiteDemandee(verificationDto.getQuantite())
-                .build();
+            // 3. Indisponible : proposer d'autres dates et des produits similaires,
+            //    avec les mêmes blocages et les lignes déjà acceptées du lot
+            if (!response.getDisponible()) {
+                response.setSuggestions(suggestionDisponibilite.suggerer(occupation.getIdProduit(),
+                        verificationDto.getQuantite(), verificationDto.getDateDebut(), verificationDto.getDateFin(),
+                        ids -> unitesPrises(ids, occupations, bloques, lireBlocages,
+                                demandesParProduit, demandesParInstance)));
+            }
+            reponses.add(response);
+        }
+        return reponses;
+    }
 
-        // Vérifier selon le type de produit
-        if (produit.getTypeProduit() == TypeProduit.EN_QUANTITE) {
-            return verifierDisponibiliteQuantite(produit, verificationDto, response);
-        } else {
-            return verifierDisponibiliteAvecReference(produit, verificationDto, response);
+    /**
+     * Unités prises hors index, par produit : blocages de panier et lignes déjà acceptées du lot
+     * (les blocages des produits hors du lot sont relus)
+     */
+    private Map<Long, List<OccupationProduit.Intervalle>> unitesPrises(
+            Collection<Long> ids,
+            Map<Long, OccupationProduit> occupationsDuLot,
+            Map<Long, List<OccupationProduit.Intervalle>> bloques,
+            Function<Collection<Long>, Map<Long, List<OccupationProduit.Intervalle>>> lireBlocages,
+            Map<Long, List<OccupationProduit.Intervalle>> demandesParProduit,
+            Map<Long, List<OccupationProduit.Intervalle>> demandesParInstance) {
+        List<Long> horsLot = ids.stream().filter(id -> !occupationsDuLot.containsKey(id)).toList();
+        Map<Long, List<OccupationProduit.Intervalle>> prises = new HashMap<>(
+                horsLot.isEmpty() ? Map.of() : lireBlocages.apply(horsLot));
+
+        for (Long id : ids) {
+            OccupationProduit occupation = occupationsDuLot.get(id);
+            if (occupation == null) {
+                continue;
+            }
+            // EN_QUANTITE : les demandes du lot partent déjà des blocages du produit
+            List<OccupationProduit.Intervalle> unites = new ArrayList<>(
+                    demandesParProduit.getOrDefault(id, bloques.getOrDefault(id, List.of())));
+            if (occupation.getTypeProduit() == TypeProduit.AVEC_REFERENCE) {
+                for (OccupationProduit.InstanceOccupation instance : occupation.getInstances()) {
+                    unites.addAll(demandesParInstance.getOrDefault(instance.getIdInstance(), List.of()));
+                }
+            }
+            if (!unites.isEmpty()) {
+                prises.put(id, unites);
+            }
         }
+        return prises;
     }
 
     /**
      * Vérifier la disponibilité pour un produit EN QUANTITÉ (chaises, assiettes, etc.)
+     * La quantité réservée est le pic journalier sur la période, pas la somme des lignes qui la chevauchent.
      */
     private DisponibiliteResponseDto verifierDisponibiliteQuantite(
-            Produit produit,
+            OccupationProduit occupation,
             VerificationDisponibiliteDto verificationDto,
-            DisponibiliteResponseDto response) {
-        // Calculer la quantité déjà réservée sur cette période
-        Integer quantiteReservee = ligneReservationRepo.calculateQuantiteReserveeSurPeriode(
-                produit.getIdProduit(),
-                verificationDto.getDateDebut(),
-                verificationDto.getDateFin()
-        );
-
-        if (quantiteReservee == null) {
-            quantiteReservee = 0;
-        }
-
-        int quantiteDisponible = produit.getQuantiteDisponible() - quantiteReservee;
+            DisponibiliteResponseDto response,
+            List<OccupationProduit.Intervalle> demandesDuLot) {
+        // Pic de la quantité déjà réservée sur cette période (en comptant les lignes précédentes du lot) ;
+        // sans autre ligne du lot ni blocage, la réponse vient du cache de disponibilité
+        int quantiteDisponible = demandesDuLot.isEmpty()
+                ? occupationIndex.getQuantiteDisponible(occupation.getIdProduit(),
+                        verificationDto.getDateDebut(), verificationDto.getDateFin())
+                : occupation.getStock() - occupation.picReserve(
+                        verificationDto.getDateDebut(), verificationDto.getDateFin(), demandesDuLot);
 
         response.setQuantiteDisponible(quantiteDisponible);
         response.setDisponible(quantiteDisponible >= verificationDto.getQuantite());
 
         if (response.getDisponible()) {
             response.setMessage("Produit disponible. " + quantiteDisponible + " unités disponibles.");
+            demandesDuLot.add(new OccupationProduit.Intervalle(
+                    verificationDto.getDateDebut(), verificationDto.getDateFin(), verificationDto.getQuantite()));
         } else {
             response.setMessage(
                     "Stock insuffisant. Demandé: " + verificationDto.getQuantite() +
@@ -328,8 +449,8 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
             );
         }
 
-        log.debug("📊 Quantité - Demandée: {}, Réservée: {}, Disponible: {}",
-                verificationDto.getQuantite(), quantiteReservee, quantiteDisponible);
+        log.debug("📊 Quantité - Demandée: {}, Disponible: {}",
+                verificationDto.getQuantite(), quantiteDisponible);
 
         return response;
     }
@@ -338,54 +459,42 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
      * Vérifier la disponibilité pour un produit AVEC RÉFÉRENCE (projecteurs, caméras, etc.)
      */
     private DisponibiliteResponseDto verifierDisponibiliteAvecReference(
-            Produit produit,
+            OccupationProduit occupation,
             VerificationDisponibiliteDto verificationDto,
-            DisponibiliteResponseDto response) {
-
-
-        // Compter les instances disponibles sur la période
-        int instancesDisponiblesPourPeriode = instanceProduitRepo.countInstancesDisponiblesSurPeriode(
-                produit.getIdProduit(),
-                verificationDto.getDateDebut(),
-                verificationDto.getDateFin()
-        );
-
-
+            DisponibiliteResponseDto response,
+            Map<Long, List<OccupationProduit.Intervalle>> demandesParInstance,
+            int unitesBloquees) {
+
+        LocalDate debut = verificationDto.getDateDebut();
+        LocalDate fin = verificationDto.getDateFin();
+
+        // Instances DISPONIBLE sans réservation confirmée sur la période (triées par numéro de série),
+        // hors instances déjà proposées à une ligne précédente du lot
+        List<OccupationProduit.InstanceOccupation> instancesDispos = occupationIndex
+                .getInstancesLibres(occupation.getIdProduit(), debut, fin).stream()
+                .filter(instance -> demandesParInstance.getOrDefault(instance.getIdInstance(), List.of()).stream()
+                        .noneMatch(d -> !d.getDebut().isAfter(fin) && !d.getFin().isBefore(debut)))
+                .toList();
+        int instancesDisponiblesPourPeriode = Math.max(instancesDispos.size() - unitesBloquees, 0);
 
         log.debug("📊 Instances disponibles sur période [{} - {}]: {}",
-                verificationDto.getDateDebut(),
-                verificationDto.getDateFin(),
-                instancesDisponiblesPourPeriode);
-
-        // Compter les instances réservées sur cette période
-        Long instancesReservees = ligneReservationRepo.countInstancesReserveesSurPeriode(
-                produit.getIdProduit(),
-                verificationDto.getDateDebut(),
-                verificationDto.getDateFin()
-        );
-
-        if (instancesReservees == null) {
-            instancesReservees = 0L;
-        }
+                debut, fin, instancesDisponiblesPourPeriode);
 
         response.setQuantiteDisponible(instancesDisponiblesPourPeriode);
         response.setDisponible(instancesDisponiblesPourPeriode >= verificationDto.getQuantite());
 
-        // Récupérer les instances disponibles
-        List<InstanceProduit> instancesDispos = instanceProduitRepo.findInstancesDisponiblesSurPeriode(
-                produit.getIdProduit(),
-                verificationDto.getDateDebut(),
-                verificationDto.getDateFin()
-        );
-        List<String> numerosSeries = instancesDispos.stream()
+        List<OccupationProduit.InstanceOccupation> proposees = instancesDispos.stream()
                 .limit(verificationDto.getQuantite())
-                .map(InstanceProduit::getNumeroSerie)
-                .collect(Collectors.toList());
-
-        response.setInstancesDisponibles(numerosSeries);
+                .toList();
+        response.setInstancesDisponibles(proposees.stream()
+                .map(OccupationProduit.InstanceOccupation::getNumeroSerie)
+                .collect(Collectors.toList()));
 
         if (response.getDisponible()) {
             response.setMessage("Produit disponible. " + instancesDisponiblesPourPeriode + " instances disponibles.");
+            proposees.forEach(instance -> demandesParInstance
+                    .computeIfAbsent(instance.getIdInstance(), k -> new ArrayList<>())
+                    .add(new OccupationProduit.Intervalle(debut, fin, 1)));
         } else {
             response.setMessage(
                     "Instances insuffisantes. Demandé: " + verificationDto.getQuantite() +
@@ -393,19 +502,12 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
             );
         }
 
-        log.debug("📊 Instances - Demandées: {}, Réservées: {}, Disponibles: {}",
-                verificationDto.getQuantite(), instancesReservees, instancesDisponiblesPourPeriode);
+        log.debug("📊 Instances - Demandées: {}, Disponibles: {}",
+                verificationDto.getQuantite(), instancesDisponiblesPourPeriode);
 
         return response;
     }
 
-    @Override
-    public List<DisponibiliteResponseDto> verifierDisponibilites(List<VerificationDisponibiliteDto> verifications) {
-        return verifications.stream()
-                .map(this::verifierDisponibilite)
-                .collect(Collectors.toList());
-    }
-
     // ============ MODIFICATION DU DEVIS PAR L'ADMIN ============
 
     @Override
@@ -423,9 +525,15 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
 
         // 1. Modifier les lignes individuelles (prix unitaire, quantité)
         if (modificationDto.getLignesModifiees() != null) {
+            Map<Long, LigneReservation> lignesParId = reservation.getLigneReservations().stream()
+                    .collect(Collectors.toMap(LigneReservation::getIdLigneReservation, l -> l));
+            Set<Long> lignesAugmentees = new HashSet<>();
+
             for (LigneModificationDto ligneModif : modificationDto.getLignesModifiees()) {
-                LigneReservation ligne = ligneReservationRepo.findById(ligneModif.getIdLigneReservation())
-                        .orElseThrow(() -> new CustomException("Ligne introuvable"));
+                LigneReservation ligne = lignesParId.get(ligneModif.getIdLigneReservation());
+                if (ligne == null) {
+                    throw new CustomException("Ligne introuvable");
+                }
 
                 if (ligneModif.getNouveauPrixUnitaire() != null) {
                     log.info("💰 Modification prix: {} -> {} TND",
@@ -437,11 +545,31 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
 
                     log.info("🔢 Modification quantité: {} -> {}",
                             ligne.getQuantite(), ligneModif.getNouvelleQuantite());
+                    if (ligneModif.getNouvelleQuantite() > ligne.getQuantite()) {
+                        lignesAugmentees.add(ligne.getIdLigneReservation());
+                    }
                     ligne.setQuantite(ligneModif.getNouvelleQuantite());
                 }
+            }
 
-                ligneReservationRepo.save(ligne);
+            // Vérifier en un seul lot les lignes dont la quantité augmente
+            if (!lignesAugmentees.isEmpty()) {
+                List<LigneReservation> lignes = new ArrayList<>(reservation.getLigneReservations());
+                List<DisponibiliteResponseDto> disponibilites = verifierDisponibilites(lignes.stream()
+                        .map(this::toVerification)
+                        .toList(), ids -> Map.of());
+                for (int i = 0; i < lignes.size(); i++) {
+                    DisponibiliteResponseDto dispo = disponibilites.get(i);
+                    if (lignesAugmentees.contains(lignes.get(i).getIdLigneReservation()) && !dispo.getDisponible()) {
+                        throw new CustomException(
+                                "Le produit '" + dispo.getNomProduit() + "' n'est pas disponible. " +
+                                        dispo.getMessage()
+                        );
+                    }
+                }
             }
+
+            ligneReservationRepo.saveAll(lignesParId.values());
         }
 
         // 2. Recalculer le montant original
@@ -482,6 +610,12 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
 
 
         reservationRepo.save(reservation);
+        expirationDevis.planifier(reservation.getIdReservation(), reservation.getDateExpirationDevis());
+        // Quantités et échéance modifiées : les blocages du devis sont réécrits
+        blocageStock.convertirEnDevis(reservation.getUtilisateur().getIdUtilisateur(),
+                reservation.getIdReservation(),
+                reservation.getLigneReservations().stream().map(this::toVerification).toList(),
+                reservation.getDateExpirationDevis());
 
         log.info("✅ Devis modifié - Montant original: {} TND, Montant final: {} TND",
                 reservation.getMontantOriginal(), montantFinal);
@@ -593,7 +727,9 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
 
     // ============ VALIDATION DU DEVIS PAR LE CLIENT ============
 
+    // READ_COMMITTED : une fois le stock verrouillé, les lectures voient les confirmations concurrentes
     @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public ReservationResponseDto validerDevisParClient(ValidationDevisDto validationDto, String username) {
         log.info("🎯 ✅ Client {} {} le devis ID: {}",
                 username,
@@ -615,6 +751,7 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
             reservation.setStatutReservation(StatutReservation.ANNULE);
             reservation.setCommentaireClient(validationDto.getCommentaireClient());
             reservationRepo.save(reservation);
+            libererBlocagesDevis(reservation);
 
             // 🔔 NOTIFICATION ADMINS/MANAGERS - DEVIS REFUSÉ
             notificationService.creerNotificationPourStaff(
@@ -672,6 +809,8 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
         //Date Expiration Reservation si Le client ne fais pas un acompte (une semaine )
         reservation.setDateExpirationDevis(LocalDateTime.now().plusDays(7));
         Reservation resValidee = reserverStockPourReservation(reservation);
+        // Les lignes CONFIRME comptent maintenant dans l'occupation
+        libererBlocagesDevis(resValidee);
 
         log.info("🎉 Réservation {} confirmée par le client et stock réservé avec succès",
                 resValidee.getReferenceReservation());
@@ -795,6 +934,7 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
             reservation.setStatutReservation(StatutReservation.ANNULE);
             reservation.setCommentaireClient(motif);
             reservationRepo.save(reservation);
+            libererBlocagesDevis(reservation);
             log.info("✅ Devis annulé (aucune libération de stock nécessaire)");
         }
 
@@ -877,6 +1017,7 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
             reservation.setStatutReservation(StatutReservation.ANNULE);
             reservation.setCommentaireAdmin(motif);
             reservationRepo.save(reservation);
+            libererBlocagesDevis(reservation);
             log.info("✅ Devis annulé (aucune libération de stock nécessaire) :  Par {}",username);
         }
 
@@ -1152,17 +1293,15 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
         log.debug("🔍 Vérification disponibilité pour réservation {}",
                 reservation.getReferenceReservation());
 
-        for (LigneReservation ligne : reservation.getLigneReservations()) {
-            Produit produit = ligne.getProduit();
+        List<LigneReservation> lignes = new ArrayList<>(reservation.getLigneReservations());
+        List<DisponibiliteResponseDto> disponibilites = verifierDisponibilites(lignes.stream()
+                .map(this::toVerification)
+                .toList(), ids -> Map.of());
 
-            DisponibiliteResponseDto dispo = verifierDisponibilite(
-                    VerificationDisponibiliteDto.builder()
-                            .idProduit(produit.getIdProduit())
-                            .quantite(ligne.getQuantite())
-                            .dateDebut(ligne.getDateDebut())
-                            .dateFin(ligne.getDateFin())
-                            .build()
-            );
+        for (int i = 0; i < lignes.size(); i++) {
+            LigneReservation ligne = lignes.get(i);
+            Produit produit = ligne.getProduit();
+            DisponibiliteResponseDto dispo = disponibilites.get(i);
 
             if (!dispo.getDisponible()) {
                 String message = String.format(
@@ -1181,6 +1320,28 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
         log.debug("✅ Tous les produits sont disponibles");
     }
 
+    private Set<Long> idsProduits(List<VerificationDisponibiliteDto> verifications) {
+        return verifications.stream()
+                .map(VerificationDisponibiliteDto::getIdProduit)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    private void libererBlocagesDevis(Reservation reservation) {
+        blocageStock.libererDevis(reservation.getIdReservation(), reservation.getLigneReservations().stream()
+                .map(ligne -> ligne.getProduit().getIdProduit())
+                .toList());
+    }
+
+    private VerificationDisponibiliteDto toVerification(LigneReservation ligne) {
+        return VerificationDisponibiliteDto.builder()
+                .idProduit(ligne.getProduit().getIdProduit())
+                .quantite(ligne.getQuantite())
+                .dateDebut(ligne.getDateDebut())
+                .dateFin(ligne.getDateFin())
+                .build();
+    }
+
     public VerificationModificationDatesDto verifAvantModifDateReservation (Long idReservation, DatePeriodeDto nouvellesDates){
         Reservation reservation = reservationRepo.findById(idReservation)
                 .orElseThrow(() -> new CustomException("Réservation introuvable"));
@@ -1441,20 +1602,11 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
         int annee = Calendar.getInstance().get(Calendar.YEAR);
         String prefix = "RES-" + annee + "-";
 
-        // Chercher la dernière référence de l'année
-        long count = reservationRepo.count();
-        String numero = String.format("%04d", count + 1);
-
-        String reference = prefix + numero;
-
-        // Vérifier l'unicité
-        while (reservationRepo.existsByReferenceReservation(reference)) {
-            count++;
-            numero = String.format("%04d", count + 1);
-            reference = prefix + numero;
-        }
+        // Numéro pris dans le bloc local de la séquence annuelle (unique entre les nœuds)
+        long numero = sequenceService.suivant("RES-" + annee,
+                () -> SequenceService.plusGrandNumero(reservationRepo.findReferencesParPrefixe(prefix), prefix));
 
-        return reference;
+        return prefix + String.format("%04d", numero);
     }
 
     /**
@@ -1538,7 +1690,7 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
         }
 
         // 4️⃣ SAUVEGARDER LE MOUVEMENT
-        mouvementStockRepo.save(mouvement);
+        journalMouvements.enregistrer(mouvement);
 
         // 5️⃣ LOG DÉTAILLÉ
         log.info("✅ Mouvement stock enregistré:");
@@ -1594,7 +1746,7 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
 
 
         // Sauvegarder
-        mouvementStockRepo.save(mouvement);
+        journalMouvements.enregistrer(mouvement);
 
         log.info("✅ Mouvement instance enregistré: {} - Instance: {}",
                 typeMouvement, instance.getNumeroSerie());
@@ -1693,6 +1845,19 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
      * Méthode utilitaire pour reserver le stock une fois le client valide le devis
      */
     public Reservation reserverStockPourReservation(Reservation reservation){
+        // Sérialiser les validations concurrentes qui touchent les mêmes produits
+        // (verrous conservés jusqu'au commit ; les autres produits restent en parallèle)
+        coordinateurStock.verrouillerProduits(reservation.getLigneReservations().stream()
+                .map(ligne -> ligne.getProduit().getIdProduit())
+                .toList());
+
+        // Une validation concurrente du même devis a pu passer pendant l'attente
+        if (reservation.getIdReservation() != null
+                && reservationRepo.findStatutById(reservation.getIdReservation())
+                .filter(statut -> statut == StatutReservation.CONFIRME).isPresent()) {
+            throw new CustomException("Cette réservation est déjà confirmée");
+        }
+
         // Client accepte → Affecter les instances
         for (LigneReservation ligne : reservation.getLigneReservations()) {
             if (ligne.isProduitAvecReference()) {
@@ -1711,10 +1876,14 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
                     );
                 }
 
-                // ✅ Affecter les instances à la ligne (ManyToMany)
-                Set<InstanceProduit> instancesAAffecter = instancesDisponibles.stream()
-                        .limit(ligne.getQuantite())
-                        .collect(Collectors.toSet());
+                // ✅ Affecter les instances à la ligne (ManyToMany) selon la stratégie d'allocation
+                Set<InstanceProduit> instancesAAffecter = new HashSet<>(allocationInstances.choisirInstances(
+                        ligne.getProduit().getIdProduit(),
+                        instancesDisponibles,
+                        ligne.getDateDebut(),
+                        ligne.getDateFin(),
+                        ligne.getQuantite()
+                ));
 
                 ligne.setInstancesReservees(instancesAAffecter);
                 ligneReservationRepo.save(ligne);
@@ -1731,15 +1900,17 @@ public class ReservationServiceImpl implements ReservationServiceInterface {
                         ligne.getDateDebut(),
                         ligne.getDateFin());
             }else{
-                Integer quantiteReservee = ligneReservationRepo.calculateQuantiteReserveeSurPeriode(
-                        ligne.getProduit().getIdProduit(),
-                        ligne.getDateDebut(),
-                        ligne.getDateFin()
-                );
-
-                if (quantiteReservee == null) {
-                    quantiteReservee = 0;
-                }
+                // Relecture en base (source de vérité au moment de confirmer) puis pic journalier
+                List<OccupationProduit.Intervalle> intervalles = ligneReservationRepo
+                        .findReservationsConfirmeesChevauchantes(
+                                ligne.getProduit().getIdProduit(),
+                                ligne.getDateDebut(),
+                                ligne.getDateFin())
+                        .stream()
+                        .map(l -> new OccupationProduit.Intervalle(l.getDateDebut(), l.getDateFin(), l.getQuantite()))
+                        .toList();
+                int quantiteReservee = OccupationProduit.picSurPeriode(
+                        intervalles, ligne.getDateDebut(), ligne.getDateFin());
 
                 // Calculer la quantité réellement disponible
                 int quantiteDisponible = ligne.getProduit().getQuantiteDisponible() - quantiteReservee;
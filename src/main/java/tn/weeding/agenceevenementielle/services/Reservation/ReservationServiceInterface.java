@@ -50,12 +50,20 @@ public interface ReservationServiceInterface {
 
     /**
      * Vérifier la disponibilité de plusieurs produits en une fois
+     * (un seul chargement groupé ; les lignes du lot se partagent le stock, dans l'ordre)
      *
      * @param verifications Liste des vérifications
      * @return Liste des disponibilités
      */
     List<DisponibiliteResponseDto> verifierDisponibilites(List<VerificationDisponibiliteDto> verifications);
 
+    /**
+     * Même vérification, sans compter les blocages de panier de l'utilisateur indiqué
+     * (ceux des autres clients sont déduits du stock disponible)
+     */
+    List<DisponibiliteResponseDto> verifierDisponibilites(List<VerificationDisponibiliteDto> verifications,
+                                                          Long idUtilisateur);
+
     // ============ GESTION DES DEVIS (Admin) ============
 
     /**
@@ -0,0 +1,160 @@
+package tn.weeding.agenceevenementielle.services.Reservation;
+
+import java.util.*;
+
+/**
+ * Roue temporelle hiérarchique (timer wheel) : minuteurs identifiés par une clé, en mémoire
+ *
+ * - niveau 0 : taille cases de dureeTick, niveau i : taille cases de dureeTick × taille^i
+ * - planifier / annuler : O(1) ; avancer : O(niveaux) par tick + minuteurs échus
+ * - un minuteur trop lointain pour le dernier niveau y fait des tours jusqu'à entrer dans la fenêtre
+ *
+ * Un minuteur échoit au plus un tick après son échéance, jamais avant.
+ * Les horodatages sont des millisecondes (System.currentTimeMillis()).
+ */
+public final class RoueTemporelle<K> {
+
+    private final long dureeTick;
+    private final int taille;
+    private final long[] durees;                       // Durée d'une case, par niveau
+    private final List<Map<K, Long>>[] cases;          // [niveau][case] : clé -> échéance
+    private final Map<K, Position> positions = new HashMap<>();
+
+    private long courant;                              // Début du tick courant (multiple de dureeTick)
+
+    @SuppressWarnings("unchecked")
+    public RoueTemporelle(long dureeTick, int taille, int niveaux, long maintenant) {
+        if (dureeTick <= 0 || taille < 2 || niveaux < 1) {
+            throw new IllegalArgumentException("Paramètres de roue invalides");
+        }
+        this.dureeTick = dureeTick;
+        this.taille = taille;
+        this.durees = new long[niveaux];
+        this.cases = new List[niveaux];
+        long duree = dureeTick;
+        for (int niveau = 0; niveau < niveaux; niveau++) {
+            durees[niveau] = duree;
+            List<Map<K, Long>> niveauCases = new ArrayList<>(taille);
+            for (int i = 0; i < taille; i++) {
+                niveauCases.add(new LinkedHashMap<>());
+            }
+            cases[niveau] = niveauCases;
+            duree = Math.multiplyExact(duree, taille);
+        }
+        this.courant = maintenant - Math.floorMod(maintenant, dureeTick);
+    }
+
+    /**
+     * Planifier (ou replanifier) le minuteur d'une clé
+     *
+     * @return false si l'échéance est déjà passée : rien n'est planifié, à traiter tout de suite
+     */
+    public synchronized boolean planifier(K cle, long echeance) {
+        annuler(cle);
+        if (echeance < courant) {
+            return false;
+        }
+        inserer(cle, echeance);
+        return true;
+    }
+
+    public synchronized boolean annuler(K cle) {
+        Position position = positions.remove(cle);
+        if (position == null) {
+            return false;
+        }
+        cases[position.niveau].get(position.indice).remove(cle);
+        return true;
+    }
+
+    /**
+     * Faire avancer la roue jusqu'à maintenant
+     *
+     * @return Clés des minuteurs échus, dans l'ordre des ticks
+     */
+    public synchronized List<K> avancer(long maintenant) {
+        List<K> echus = new ArrayList<>();
+        while (courant + dureeTick <= maintenant) {
+            // Case du tick qui se termine : toutes ses échéances sont < courant + dureeTick
+            Map<K, Long> terminee = cases[0].get(indice(0, courant));
+            for (K cle : terminee.keySet()) {
+                positions.remove(cle);
+                echus.add(cle);
+            }
+            terminee.clear();
+
+            courant += dureeTick;
+
+            // Descendre les minuteurs des niveaux supérieurs dont la case commence maintenant
+            for (int niveau = durees.length - 1; niveau >= 1; niveau--) {
+                if (courant % durees[niveau] == 0) {
+                    redescendre(niveau, echus);
+                }
+            }
+        }
+        return echus;
+    }
+
+    public synchronized int getTaille() {
+        return positions.size();
+    }
+
+    /**
+     * Prochaine échéance planifiée (null si la roue est vide)
+     */
+    public synchronized Long getProchaineEcheance() {
+        Long prochaine = null;
+        for (List<Map<K, Long>> niveau : cases) {
+            for (Map<K, Long> uneCase : niveau) {
+                for (Long echeance : uneCase.values()) {
+                    if (prochaine == null || echeance < prochaine) {
+                        prochaine = echeance;
+                    }
+                }
+            }
+        }
+        return prochaine;
+    }
+
+    // ============================================
+    // MÉTHODES PRIVÉES
+    // ============================================
+
+    private void redescendre(int niveau, List<K> echus) {
+        Map<K, Long> uneCase = cases[niveau].get(indice(niveau, courant));
+        if (uneCase.isEmpty()) {
+            return;
+        }
+        Map<K, Long> aReplacer = new LinkedHashMap<>(uneCase);
+        uneCase.clear();
+        for (Map.Entry<K, Long> minuteur : aReplacer.entrySet()) {
+            positions.remove(minuteur.getKey());
+            if (minuteur.getValue() < courant) {
+                echus.add(minuteur.getKey());
+            } else {
+                inserer(minuteur.getKey(), minuteur.getValue());
+            }
+        }
+    }
+
+    /**
+     * Plus petit niveau dont la fenêtre (taille cases à partir de la case courante) contient l'échéance
+     */
+    private void inserer(K cle, long echeance) {
+        int niveau = 0;
+        while (niveau < durees.length - 1
+                && Math.floorDiv(echeance, durees[niveau]) - Math.floorDiv(courant, durees[niveau]) >= taille) {
+            niveau++;
+        }
+        int indice = indice(niveau, echeance);
+        cases[niveau].get(indice).put(cle, echeance);
+        positions.put(cle, new Position(niveau, indice));
+    }
+
+    private int indice(int niveau, long instant) {
+        return (int) Math.floorMod(Math.floorDiv(instant, durees[niveau]), (long) taille);
+    }
+
+    private record Position(int niveau, int indice) {
+    }
+}
@@ -0,0 +1,141 @@
+package tn.weeding.agenceevenementielle.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.entities.SequenceCompteur;
+import tn.weeding.agenceevenementielle.repository.SequenceCompteurRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * ==========================================
+ * SÉQUENCES DE CODES PAR BLOCS (HI-LO)
+ * ==========================================
+ *
+ * Chaque clé (préfixe + année, ex : "RES-2025") a un compteur en base (table sequence_compteur).
+ * Un nœud réserve un bloc de numéros en une transaction courte (SELECT ... FOR UPDATE sur la ligne),
+ * puis les distribue en mémoire avec un simple incrément atomique.
+ *
+ * - Aucun doublon entre plusieurs instances de l'application : les blocs sont disjoints
+ * - Les numéros non utilisés d'un bloc sont perdus à l'arrêt (trous possibles dans la numérotation)
+ * - À la première utilisation d'une clé, le compteur part du plus grand numéro déjà en base
+ */
+@Service
+@Slf4j
+public class SequenceService {
+
+    private static final int TENTATIVES_CREATION = 3;
+
+    private final SequenceCompteurRepository sequenceRepo;
+    private final TransactionTemplate nouvelleTransaction;
+    private final int tailleBloc;
+
+    private final Map<String, Bloc> blocs = new ConcurrentHashMap<>();
+    private final Map<String, Object> verrousCles = new ConcurrentHashMap<>();
+
+    public SequenceService(SequenceCompteurRepository sequenceRepo,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${sequence.taille-bloc:20}") int tailleBloc) {
+        this.sequenceRepo = sequenceRepo;
+        this.tailleBloc = Math.max(1, tailleBloc);
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Prochain numéro de la séquence
+     *
+     * @param cle Clé de la séquence (ex : "RES-2025")
+     * @param dernierNumeroExistant Plus grand numéro déjà utilisé en base,
+     *                              appelé seulement si le compteur n'existe pas encore
+     */
+    public long suivant(String cle, LongSupplier dernierNumeroExistant) {
+        while (true) {
+            Bloc bloc = blocs.get(cle);
+            if (bloc != null) {
+                long numero = bloc.prochain.getAndIncrement();
+                if (numero <= bloc.max) {
+                    return numero;
+                }
+            }
+
+            synchronized (verrousCles.computeIfAbsent(cle, k -> new Object())) {
+                Bloc actuel = blocs.get(cle);
+                if (actuel == null || actuel.estEpuise()) {
+                    blocs.put(cle, reserverBloc(cle, dernierNumeroExistant));
+                }
+            }
+        }
+    }
+
+    /**
+     * Plus grand suffixe numérique parmi des codes de la forme prefixe + numéro
+     * (les codes qui ne se terminent pas par un nombre sont ignorés)
+     */
+    public static long plusGrandNumero(Collection<String> codes, String prefixe) {
+        long max = 0;
+        for (String code : codes) {
+            if (code == null || !code.startsWith(prefixe)) {
+                continue;
+            }
+            try {
+                max = Math.max(max, Long.parseLong(code.substring(prefixe.length())));
+            } catch (NumberFormatException e) {
+                log.debug("⚠️ Code ignoré pour l'initialisation de la séquence: {}", code);
+            }
+        }
+        return max;
+    }
+
+    private Bloc reserverBloc(String cle, LongSupplier dernierNumeroExistant) {
+        for (int tentative = 1; ; tentative++) {
+            try {
+                Bloc bloc = nouvelleTransaction.execute(status -> {
+                    SequenceCompteur compteur = sequenceRepo.findPourReservationBloc(cle).orElse(null);
+                    if (compteur == null) {
+                        sequenceRepo.creerCompteur(cle, dernierNumeroExistant.getAsLong());
+                        compteur = sequenceRepo.findPourReservationBloc(cle).orElseThrow();
+                    }
+
+                    long debut = compteur.getValeur() + 1;
+                    compteur.setValeur(compteur.getValeur() + tailleBloc);
+                    compteur.setDateModification(LocalDateTime.now());
+                    sequenceRepo.saveAndFlush(compteur);
+                    return new Bloc(debut, compteur.getValeur());
+                });
+                log.debug("🔢 Bloc réservé pour {}: {} → {}", cle, bloc.prochain.get(), bloc.max);
+                return bloc;
+            } catch (DataIntegrityViolationException e) {
+                // Un autre nœud a créé le compteur en même temps : on relit la ligne existante
+                if (tentative >= TENTATIVES_CREATION) {
+                    throw e;
+                }
+                log.debug("🔁 Compteur {} créé en parallèle, nouvelle tentative", cle);
+            }
+        }
+    }
+
+    private static final class Bloc {
+        private final AtomicLong prochain;
+        private final long max;
+
+        private Bloc(long debut, long max) {
+            this.prochain = new AtomicLong(debut);
+            this.max = max;
+        }
+
+        private boolean estEpuise() {
+            return prochain.get() > max;
+        }
+    }
+}
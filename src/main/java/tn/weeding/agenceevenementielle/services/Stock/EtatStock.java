@@ -0,0 +1,108 @@
+package tn.weeding.agenceevenementielle.services.Stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import tn.weeding.agenceevenementielle.entities.InstantaneStock;
+import tn.weeding.agenceevenementielle.entities.MouvementStock;
+import tn.weeding.agenceevenementielle.entities.enums.TypeMouvement;
+
+/**
+ * État de stock d'un produit, reconstruit en rejouant des mouvements
+ *
+ * Règles de rejeu (cohérentes avec les services qui écrivent Produit.quantiteDisponible) :
+ * - quantité avant enregistrée : c'est le stock lu sur le produit au moment du mouvement, elle fait foi.
+ *   Les services ne journalisent pas tous au même moment (ajouterLigne et la suppression de ligne
+ *   modifient le stock puis journalisent, les livraisons journalisent puis modifient) : seule cette
+ *   lecture est fiable, la quantité après étant calculée sans être toujours appliquée
+ * - RESERVATION / ANNULATION_RESERVATION : rien de plus, le disponible ne bouge pas ensuite
+ *   (ajouterLigne l'a déjà décrémenté avant de journaliser, une confirmation de devis n'y touche pas)
+ * - LIVRAISON / RETOUR : sortie puis retour physique (disponible et sortie)
+ * - MAINTENANCE / RETOUR_MAINTENANCE : disponible et en maintenance
+ * - ajustements : la quantité après mouvement fait foi quand elle est connue
+ * - autres entrées / sorties : disponible uniquement
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EtatStock {
+
+    private int disponible;
+    private int reservee;
+    private int sortie;
+    private int enMaintenance;
+
+    public static EtatStock depuis(InstantaneStock instantane) {
+        return new EtatStock(
+                valeur(instantane.getQuantiteDisponible()),
+                valeur(instantane.getQuantiteReservee()),
+                valeur(instantane.getQuantiteSortie()),
+                valeur(instantane.getQuantiteEnMaintenance()));
+    }
+
+    public void appliquer(MouvementStock mouvement) {
+        appliquer(mouvement.getTypeMouvement(), valeur(mouvement.getQuantite()),
+                mouvement.getQuantiteAvant(), mouvement.getQuantiteApres());
+    }
+
+    public void appliquer(TypeMouvement type, int quantite, Integer quantiteApres) {
+        appliquer(type, quantite, null, quantiteApres);
+    }
+
+    /**
+     * @param quantiteAvant Stock lu sur le produit au moment du mouvement (null si non enregistré)
+     * @param quantiteApres Stock après mouvement quand il a été enregistré (null sinon),
+     *                      retenu pour les ajustements seulement
+     */
+    public void appliquer(TypeMouvement type, int quantite, Integer quantiteAvant, Integer quantiteApres) {
+        if (type == null) {
+            return;
+        }
+        if (quantiteAvant != null) {
+            disponible = quantiteAvant;
+        }
+        switch (type) {
+            case RESERVATION -> reservee += quantite;
+            case ANNULATION_RESERVATION -> reservee = Math.max(0, reservee - quantite);
+            case LIVRAISON -> {
+                disponible -= quantite;
+                sortie += quantite;
+            }
+            case RETOUR -> {
+                disponible += quantite;
+                sortie = Math.max(0, sortie - quantite);
+            }
+            case MAINTENANCE -> {
+                disponible -= quantite;
+                enMaintenance += quantite;
+            }
+            case RETOUR_MAINTENANCE -> {
+                disponible += quantite;
+                enMaintenance = Math.max(0, enMaintenance - quantite);
+            }
+            default -> {
+                if (type.isAjustement()) {
+                    if (quantiteApres != null) {
+                        disponible = quantiteApres;
+                    }
+                } else if (type.isEntree()) {
+                    disponible += quantite;
+                } else if (type.isSortie()) {
+                    disponible -= quantite;
+                }
+            }
+        }
+    }
+
+    public void setReservee(int reservee) {
+        this.reservee = reservee;
+    }
+
+    public EtatStock copie() {
+        return new EtatStock(disponible, reservee, sortie, enMaintenance);
+    }
+
+    private static int valeur(Integer valeur) {
+        return valeur != null ? valeur : 0;
+    }
+}
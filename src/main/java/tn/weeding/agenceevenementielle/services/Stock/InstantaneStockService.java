@@ -0,0 +1,262 @@
+package tn.weeding.agenceevenementielle.services.Stock;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.weeding.agenceevenementielle.dto.produit.HistoriqueStockDto;
+import tn.weeding.agenceevenementielle.dto.produit.HistoriqueStockDto.PointStock;
+import tn.weeding.agenceevenementielle.dto.produit.HistoriqueStockDto.SourcePoint;
+import tn.weeding.agenceevenementielle.entities.InstantaneStock;
+import tn.weeding.agenceevenementielle.entities.MouvementStock;
+import tn.weeding.agenceevenementielle.entities.enums.StatutInstance;
+import tn.weeding.agenceevenementielle.entities.enums.StatutLivraison;
+import tn.weeding.agenceevenementielle.entities.enums.TypeMouvement;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+import tn.weeding.agenceevenementielle.exceptions.CustomException;
+import tn.weeding.agenceevenementielle.repository.InstanceProduitRepository;
+import tn.weeding.agenceevenementielle.repository.InstantaneStockRepository;
+import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
+import tn.weeding.agenceevenementielle.repository.MouvementStockRepository;
+import tn.weeding.agenceevenementielle.repository.ProduitRepository;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationIndexService;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * ==========================================
+ * INSTANTANÉS QUOTIDIENS DU STOCK
+ * ==========================================
+ *
+ * Chaque soir, une ligne InstantaneStock par produit (disponible, réservé, sorti, en maintenance).
+ * Le stock d'un produit à une date D se lit alors dans l'instantané le plus proche avant D,
+ * complété par les quelques mouvements enregistrés après lui : le coût ne dépend plus
+ * de la taille de l'historique MouvementStock.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InstantaneStockService {
+
+    static final int JOURS_MAX = 366;
+
+    private static final Set<StatutLivraison> LIGNES_SORTIES = EnumSet.of(
+            StatutLivraison.EN_COURS, StatutLivraison.LIVREE, StatutLivraison.RETOUR, StatutLivraison.RETOUR_PARTIEL);
+    private static final Set<StatutInstance> INSTANCES_SORTIES = EnumSet.of(
+            StatutInstance.EN_LIVRAISON, StatutInstance.EN_UTILISATION, StatutInstance.EN_RETOUR);
+
+    private final InstantaneStockRepository instantaneRepo;
+    private final ProduitRepository produitRepo;
+    private final InstanceProduitRepository instanceProduitRepo;
+    private final LigneReservationRepository ligneReservationRepo;
+    private final MouvementStockRepository mouvementStockRepo;
+    private final OccupationIndexService occupationIndex;
+
+    // ============================================
+    // CAPTURE
+    // ============================================
+
+    /**
+     * Photographier le stock de tous les produits pour un jour (remplace un instantané existant du même jour)
+     *
+     * @return Nombre d'instantanés écrits
+     */
+    @Transactional
+    public int capturer(LocalDate jour) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        instantaneRepo.deleteByDate(jour);
+
+        // EN_QUANTITE : la maintenance n'existe que dans le journal, reportée depuis l'instantané précédent
+        Map<Long, InstantaneStock> precedents = new HashMap<>();
+        Map<Long, EtatStock> deltasDepuisPrecedent = new HashMap<>();
+        instantaneRepo.findDerniereDate().ifPresent(derniere -> {
+            LocalDateTime depuis = maintenant;
+            for (InstantaneStock precedent : instantaneRepo.findByDateInstantane(derniere)) {
+                precedents.put(precedent.getIdProduit(), precedent);
+                depuis = depuis.isBefore(precedent.getDateCalcul()) ? depuis : precedent.getDateCalcul();
+            }
+            for (Object[] row : mouvementStockRepo.sommerParProduitEtType(depuis, maintenant)) {
+                deltasDepuisPrecedent.computeIfAbsent((Long) row[0], k -> new EtatStock())
+                        .appliquer((TypeMouvement) row[1], ((Number) row[2]).intValue(), null);
+            }
+        });
+
+        Map<Long, Integer> lignesSorties = new HashMap<>();
+        for (Object[] row : ligneReservationRepo.sommerQuantitesParStatutLivraison(LIGNES_SORTIES)) {
+            lignesSorties.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        Map<Long, Integer> instancesSorties = new HashMap<>();
+        Map<Long, Integer> instancesMaintenance = new HashMap<>();
+        for (Object[] row : instanceProduitRepo.compterParProduitEtStatut()) {
+            StatutInstance statut = (StatutInstance) row[1];
+            int nombre = ((Number) row[2]).intValue();
+            if (INSTANCES_SORTIES.contains(statut)) {
+                instancesSorties.merge((Long) row[0], nombre, Integer::sum);
+            } else if (statut == StatutInstance.EN_MAINTENANCE) {
+                instancesMaintenance.merge((Long) row[0], nombre, Integer::sum);
+            }
+        }
+
+        List<Object[]> etats = produitRepo.findEtatsStock();
+        Map<Long, OccupationProduit> occupations = occupationIndex.getOccupations(
+                etats.stream().map(row -> (Long) row[0]).toList());
+
+        List<InstantaneStock> instantanes = new ArrayList<>(etats.size());
+        for (Object[] row : etats) {
+            Long idProduit = (Long) row[0];
+            TypeProduit type = (TypeProduit) row[1];
+            boolean avecReference = type == TypeProduit.AVEC_REFERENCE;
+
+            int enMaintenance;
+            if (avecReference) {
+                enMaintenance = instancesMaintenance.getOrDefault(idProduit, 0);
+            } else {
+                InstantaneStock precedent = precedents.get(idProduit);
+                EtatStock delta = deltasDepuisPrecedent.get(idProduit);
+                enMaintenance = Math.max(0, (precedent != null && precedent.getQuantiteEnMaintenance() != null
+                        ? precedent.getQuantiteEnMaintenance() : 0)
+                        + (delta != null ? delta.getEnMaintenance() : 0));
+            }
+
+            instantanes.add(InstantaneStock.builder()
+                    .idProduit(idProduit)
+                    .dateInstantane(jour)
+                    .quantiteDisponible(row[2] != null ? ((Number) row[2]).intValue() : 0)
+                    .quantiteReservee(reserveLe(occupations.get(idProduit), jour))
+                    .quantiteSortie(avecReference
+                            ? instancesSorties.getOrDefault(idProduit, 0)
+                            : lignesSorties.getOrDefault(idProduit, 0))
+                    .quantiteEnMaintenance(enMaintenance)
+                    .dateCalcul(maintenant)
+                    .build());
+        }
+
+        instantaneRepo.saveAll(instantanes);
+        log.info("📸 {} instantanés de stock écrits pour le {}", instantanes.size(), jour);
+        return instantanes.size();
+    }
+
+    // ============================================
+    // LECTURE
+    // ============================================
+
+    /**
+     * Stock d'un produit à une date (instantané le plus proche + mouvements postérieurs)
+     */
+    @Transactional(readOnly = true)
+    public PointStock getStockAuJour(Long idProduit, LocalDate date) {
+        List<PointStock> points = getHistorique(idProduit, date, date).getPoints();
+        if (points.isEmpty()) {
+            throw new CustomException("Aucun instantané de stock disponible au " + date + " pour le produit " + idProduit);
+        }
+        return points.get(0);
+    }
+
+    /**
+     * Courbe de stock jour par jour : deux lectures d'instantanés (indexées par produit et date)
+     * et, au plus, une lecture des mouvements postérieurs au dernier instantané.
+     * L'historique antérieur au premier instantané du produit n'est pas disponible :
+     * ces jours sont absents de la courbe.
+     */
+    @Transactional(readOnly = true)
+    public HistoriqueStockDto getHistorique(Long idProduit, LocalDate dateDebut, LocalDate dateFin) {
+        if (dateDebut == null || dateFin == null || dateFin.isBefore(dateDebut)) {
+            throw new CustomException("Période invalide");
+        }
+        if (ChronoUnit.DAYS.between(dateDebut, dateFin) + 1 > JOURS_MAX) {
+            throw new CustomException("La période ne peut pas dépasser " + JOURS_MAX + " jours");
+        }
+
+        LocalDate aujourdhui = LocalDate.now();
+        LocalDate finEffective = dateFin.isAfter(aujourdhui) ? aujourdhui : dateFin;
+
+        Map<LocalDate, InstantaneStock> parJour = new HashMap<>();
+        InstantaneStock precedent = instantaneRepo
+                .findFirstByIdProduitAndDateInstantaneLessThanEqualOrderByDateInstantaneDesc(idProduit, dateDebut)
+                .orElse(null);
+        InstantaneStock dernier = precedent;
+        if (!finEffective.isBefore(dateDebut)) {
+            for (InstantaneStock instantane : instantaneRepo
+                    .findByIdProduitAndDateInstantaneBetweenOrderByDateInstantane(idProduit, dateDebut, finEffective)) {
+                parJour.put(instantane.getDateInstantane(), instantane);
+                dernier = instantane;
+            }
+        }
+
+        // Mouvements postérieurs au dernier instantané, rejoués jour après jour
+        List<MouvementStock> suite = List.of();
+        if (dernier != null && dernier.getDateInstantane().isBefore(finEffective)) {
+            suite = mouvementStockRepo.findByProduitEntre(idProduit, dernier.getDateCalcul(),
+                    finEffective.atTime(LocalTime.MAX));
+        }
+        OccupationProduit occupation = suite.isEmpty() && (dernier == null
+                || !dernier.getDateInstantane().isBefore(finEffective))
+                ? null : occupationIndex.getOccupation(idProduit);
+
+        List<PointStock> points = new ArrayList<>();
+        // Point de départ : l'instantané qui précède la période (null tant qu'aucun instantané n'est atteint)
+        EtatStock courant = precedent != null ? EtatStock.depuis(precedent) : null;
+        int prochainMouvement = 0;
+        for (LocalDate jour = dateDebut; !jour.isAfter(finEffective); jour = jour.plusDays(1)) {
+            InstantaneStock instantane = parJour.get(jour);
+            if (instantane != null) {
+                courant = EtatStock.depuis(instantane);
+                points.add(point(jour, courant, SourcePoint.INSTANTANE));
+                continue;
+            }
+            if (courant == null) {
+                // Avant le premier instantané du produit : pas de donnée
+                continue;
+            }
+
+            if (dernier != null && jour.isAfter(dernier.getDateInstantane())) {
+                LocalDateTime finJour = jour.atTime(LocalTime.MAX);
+                while (prochainMouvement < suite.size()
+                        && !suite.get(prochainMouvement).getDateMouvement().isAfter(finJour)) {
+                    courant.appliquer(suite.get(prochainMouvement++));
+                }
+                EtatStock calcule = courant.copie();
+                calcule.setReservee(reserveLe(occupation, jour));
+                points.add(point(jour, calcule, SourcePoint.CALCULE));
+            } else {
+                points.add(point(jour, courant, SourcePoint.REPORTE));
+            }
+        }
+
+        return HistoriqueStockDto.builder()
+                .idProduit(idProduit)
+                .dateDebut(dateDebut)
+                .dateFin(dateFin)
+                .points(points)
+                .build();
+    }
+
+    // ============================================
+    // MÉTHODES PRIVÉES
+    // ============================================
+
+    private static int reserveLe(OccupationProduit occupation, LocalDate jour) {
+        if (occupation == null) {
+            return 0;
+        }
+        return occupation.getTypeProduit() == TypeProduit.AVEC_REFERENCE
+                ? occupation.compterInstancesReservees(jour, jour)
+                : occupation.picReserve(jour, jour);
+    }
+
+    private static PointStock point(LocalDate jour, EtatStock etat, SourcePoint source) {
+        return PointStock.builder()
+                .date(jour)
+                .quantiteDisponible(etat.getDisponible())
+                .quantiteReservee(etat.getReservee())
+                .quantiteSortie(etat.getSortie())
+                .quantiteEnMaintenance(etat.getEnMaintenance())
+                .source(source)
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package tn.weeding.agenceevenementielle.services.Stock;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.weeding.agenceevenementielle.entities.MouvementStock;
+import tn.weeding.agenceevenementielle.repository.MouvementStockRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ==========================================
+ * JOURNAL DES MOUVEMENTS DE STOCK (ÉCRITURE DIFFÉRÉE)
+ * ==========================================
+ *
+ * Les mouvements enregistrés pendant une transaction sont accumulés en mémoire,
+ * puis insérés ensemble juste avant le commit, dans la même transaction :
+ * - un seul saveAll, transformé en INSERT par lots (identifiants pooled, hibernate.jdbc.batch_size)
+ * - rollback de la transaction = aucun mouvement écrit
+ *
+ * Hors transaction (ou en lecture seule), le mouvement est sauvegardé immédiatement.
+ * Un mouvement n'a donc pas d'identifiant avant le commit et n'est pas visible
+ * des requêtes exécutées plus loin dans la même transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JournalMouvementStockService {
+
+    private final MouvementStockRepository mouvementStockRepo;
+
+    public void enregistrer(MouvementStock mouvement) {
+        // Horodatage au moment du mouvement, pas au moment de l'écriture
+        if (mouvement.getDateMouvement() == null) {
+            mouvement.setDateMouvement(LocalDateTime.now());
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            mouvementStockRepo.save(mouvement);
+            return;
+        }
+
+        MouvementsEnAttente enAttente = (MouvementsEnAttente) TransactionSynchronizationManager.getResource(this);
+        if (enAttente == null) {
+            enAttente = new MouvementsEnAttente();
+            TransactionSynchronizationManager.bindResource(this, enAttente);
+            TransactionSynchronizationManager.registerSynchronization(enAttente);
+        }
+        enAttente.mouvements.add(mouvement);
+    }
+
+    /**
+     * Nombre de mouvements en attente d'écriture dans la transaction courante
+     */
+    public int getNombreEnAttente() {
+        MouvementsEnAttente enAttente = (MouvementsEnAttente) TransactionSynchronizationManager.getResource(this);
+        return enAttente != null ? enAttente.mouvements.size() : 0;
+    }
+
+    private class MouvementsEnAttente implements TransactionSynchronization {
+
+        private final List<MouvementStock> mouvements = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (mouvements.isEmpty()) {
+                return;
+            }
+            mouvementStockRepo.saveAll(mouvements);
+            log.debug("📦 {} mouvements de stock écrits en lot", mouvements.size());
+            mouvements.clear();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(JournalMouvementStockService.this);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package tn.weeding.agenceevenementielle.services.Stock;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.dto.produit.RapportReconciliationDto;
+import tn.weeding.agenceevenementielle.dto.produit.RapportReconciliationDto.EcartStock;
+import tn.weeding.agenceevenementielle.dto.produit.RapportReconciliationDto.InstanceIncoherente;
+import tn.weeding.agenceevenementielle.dto.produit.RapportReconciliationDto.Surreservation;
+import tn.weeding.agenceevenementielle.entities.MouvementStock;
+import tn.weeding.agenceevenementielle.entities.Produit;
+import tn.weeding.agenceevenementielle.entities.enums.StatutInstance;
+import tn.weeding.agenceevenementielle.entities.enums.StatutLivraison;
+import tn.weeding.agenceevenementielle.entities.enums.TypeMouvement;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+import tn.weeding.agenceevenementielle.exceptions.CustomException;
+import tn.weeding.agenceevenementielle.repository.InstanceProduitRepository;
+import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
+import tn.weeding.agenceevenementielle.repository.MouvementStockRepository;
+import tn.weeding.agenceevenementielle.repository.ProduitRepository;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.Intervalle;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ==========================================
+ * RÉCONCILIATION DU STOCK
+ * ==========================================
+ *
+ * Produit.quantiteDisponible, InstanceProduit.statut et le journal MouvementStock
+ * sont mis à jour à de nombreux endroits et finissent par diverger. Ce service :
+ * 1. rejoue le journal de chaque produit (en parallèle, pool fork-join) et compare
+ *    la quantité obtenue à la quantité enregistrée
+ * 2. balaie les intervalles des lignes confirmées pour trouver les jours surréservés
+ *    (et les instances réservées deux fois sur la même période)
+ * 3. signale les instances sorties sans ligne de réservation active
+ *
+ * Les produits sont lus par lots (projections, aucune entité chargée), puis chaque lot
+ * est analysé en parallèle : aucun état partagé entre produits, aucun accès base pendant le rejeu.
+ * Le rejeu repart de la quantité avant enregistrée par chaque mouvement (voir EtatStock).
+ *
+ * En mode réparation, seuls les écarts AVEC_REFERENCE (le nombre d'instances DISPONIBLE fait foi)
+ * sont recalculés sous verrou puis corrigés par un mouvement CORRECTION_STOCK. Pour EN_QUANTITE,
+ * certains services modifient encore le stock sans le journaliser (modification de quantité
+ * d'une ligne) : le journal ne peut pas servir de référence, ces écarts sont seulement signalés.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReconciliationStockService {
+
+    static final int TAILLE_LOT = 500;
+
+    private static final Set<StatutInstance> INSTANCES_SORTIES = EnumSet.of(
+            StatutInstance.EN_LIVRAISON, StatutInstance.EN_UTILISATION, StatutInstance.EN_RETOUR);
+    private static final Set<StatutLivraison> LIGNES_ACTIVES = EnumSet.of(
+            StatutLivraison.EN_ATTENTE, StatutLivraison.EN_COURS, StatutLivraison.LIVREE,
+            StatutLivraison.RETOUR, StatutLivraison.RETOUR_PARTIEL);
+
+    private final ProduitRepository produitRepo;
+    private final MouvementStockRepository mouvementStockRepo;
+    private final LigneReservationRepository ligneReservationRepo;
+    private final InstanceProduitRepository instanceProduitRepo;
+    private final JournalMouvementStockService journalMouvements;
+    private final PlatformTransactionManager transactionManager;
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final AtomicBoolean enCours = new AtomicBoolean(false);
+
+    @PreDestroy
+    public void arreter() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Lancer une réconciliation complète
+     *
+     * @param reparer true pour corriger les écarts de quantité des produits AVEC_REFERENCE
+     *                (écarts EN_QUANTITE, surréservations et instances incohérentes sont seulement signalés)
+     */
+    public RapportReconciliationDto reconcilier(boolean reparer) {
+        if (!enCours.compareAndSet(false, true)) {
+            throw new CustomException("Une réconciliation du stock est déjà en cours");
+        }
+        try {
+            return executer(reparer);
+        } finally {
+            enCours.set(false);
+        }
+    }
+
+    private RapportReconciliationDto executer(boolean reparer) {
+        long debut = System.currentTimeMillis();
+        log.info("🔎 Réconciliation du stock (réparation: {})", reparer);
+
+        List<Long> ids = lectureSeule().execute(status -> produitRepo.findAllIds());
+        if (ids == null) {
+            ids = List.of();
+        }
+
+        List<EcartStock> ecarts = new ArrayList<>();
+        List<Surreservation> surreservations = new ArrayList<>();
+        long nombreMouvements = 0;
+
+        for (int i = 0; i < ids.size(); i += TAILLE_LOT) {
+            List<Long> idsLot = ids.subList(i, Math.min(i + TAILLE_LOT, ids.size()));
+            List<DonneesProduit> lot = lectureSeule().execute(status -> charger(idsLot));
+            if (lot == null) {
+                continue;
+            }
+            for (DonneesProduit donnees : lot) {
+                nombreMouvements += donnees.mouvements().size();
+            }
+            for (ResultatProduit resultat : analyserEnParallele(lot)) {
+                if (resultat.ecart() != null) {
+                    ecarts.add(resultat.ecart());
+                }
+                surreservations.addAll(resultat.surreservations());
+            }
+        }
+
+        List<InstanceIncoherente> incoherentes = new ArrayList<>();
+        List<Object[]> sorties = lectureSeule().execute(status ->
+                instanceProduitRepo.findSortiesSansLigneActive(INSTANCES_SORTIES, LIGNES_ACTIVES));
+        if (sorties != null) {
+            for (Object[] row : sorties) {
+                incoherentes.add(InstanceIncoherente.builder()
+                        .idInstance((Long) row[0])
+                        .idProduit((Long) row[1])
+                        .numeroSerie((String) row[2])
+                        .statut((StatutInstance) row[3])
+                        .build());
+            }
+        }
+
+        int corrections = reparer && !ecarts.isEmpty() ? reparer(ecarts) : 0;
+
+        long duree = System.currentTimeMillis() - debut;
+        log.info("✅ Réconciliation terminée en {} ms : {} produits, {} mouvements, {} écart(s), "
+                        + "{} surréservation(s), {} instance(s) incohérente(s), {} correction(s)",
+                duree, ids.size(), nombreMouvements, ecarts.size(), surreservations.size(),
+                incoherentes.size(), corrections);
+
+        return RapportReconciliationDto.builder()
+                .dateExecution(LocalDateTime.now())
+                .modeReparation(reparer)
+                .nombreProduits(ids.size())
+                .nombreMouvements(nombreMouvements)
+                .dureeMs(duree)
+                .nombreCorrections(corrections)
+                .ecarts(ecarts)
+                .surreservations(surreservations)
+                .instancesIncoherentes(incoherentes)
+                .build();
+    }
+
+    // ============================================
+    // CHARGEMENT (UN LOT DE PRODUITS)
+    // ============================================
+
+    private List<DonneesProduit> charger(Collection<Long> ids) {
+        Map<Long, List<Object[]>> mouvementsParProduit = new HashMap<>();
+        for (Object[] row : mouvementStockRepo.findProjectionsRejeu(ids)) {
+            mouvementsParProduit.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add(row);
+        }
+
+        Map<Long, Integer> disponibles = new HashMap<>();
+        for (Object[] row : instanceProduitRepo.compterDisponiblesParProduits(ids)) {
+            disponibles.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+
+        Map<Long, List<Intervalle>> intervallesParProduit = new HashMap<>();
+        for (Object[] row : ligneReservationRepo.findIntervallesConfirmesParProduits(ids)) {
+            intervallesParProduit.computeIfAbsent((Long) row[0], k -> new ArrayList<>())
+                    .add(new Intervalle((LocalDate) row[1], (LocalDate) row[2], ((Number) row[3]).intValue()));
+        }
+
+        Map<Long, Map<Long, List<Intervalle>>> intervallesParInstance = new HashMap<>();
+        for (Object[] row : ligneReservationRepo.findIntervallesInstancesConfirmesParProduitsAvecProduit(ids)) {
+            intervallesParInstance.computeIfAbsent((Long) row[0], k -> new HashMap<>())
+                    .computeIfAbsent((Long) row[1], k -> new ArrayList<>())
+                    .add(new Intervalle((LocalDate) row[2], (LocalDate) row[3], 1));
+        }
+
+        List<DonneesProduit> lot = new ArrayList<>(ids.size());
+        for (Object[] row : produitRepo.findProjectionsReconciliation(ids)) {
+            Long idProduit = (Long) row[0];
+            lot.add(new DonneesProduit(
+                    idProduit,
+                    (String) row[1],
+                    (TypeProduit) row[2],
+                    row[3] == null ? 0 : ((Number) row[3]).intValue(),
+                    row[4] == null ? 0 : ((Number) row[4]).intValue(),
+                    disponibles.getOrDefault(idProduit, 0),
+                    mouvementsParProduit.getOrDefault(idProduit, List.of()),
+                    intervallesParProduit.getOrDefault(idProduit, List.of()),
+                    intervallesParInstance.getOrDefault(idProduit, Map.of())));
+        }
+        return lot;
+    }
+
+    // ============================================
+    // ANALYSE (PARALLÈLE, SANS ACCÈS BASE)
+    // ============================================
+
+    private List<ResultatProduit> analyserEnParallele(List<DonneesProduit> lot) {
+        try {
+            return pool.submit(() -> lot.parallelStream().map(ReconciliationStockService::analyser).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("Réconciliation du stock interrompue");
+        } catch (ExecutionException e) {
+            throw new CustomException("Réconciliation du stock échouée: " + e.getCause().getMessage());
+        }
+    }
+
+    private static ResultatProduit analyser(DonneesProduit donnees) {
+        Rejeu rejeu = rejouer(donnees.mouvements());
+        Integer journal = rejeu != null ? rejeu.disponible() : null;
+        Integer attendue = quantiteAttendue(donnees.typeProduit(), journal, donnees.instancesDisponibles());
+
+        EcartStock ecart = null;
+        if (attendue != null && attendue != donnees.quantiteDisponible()
+                && !dernierMouvementSansEffet(donnees.typeProduit(), rejeu, donnees.quantiteDisponible())) {
+            ecart = EcartStock.builder()
+                    .idProduit(donnees.idProduit())
+                    .nomProduit(donnees.nomProduit())
+                    .typeProduit(donnees.typeProduit())
+                    .quantiteEnregistree(donnees.quantiteDisponible())
+                    .quantiteAttendue(attendue)
+                    .quantiteJournal(journal)
+                    .reparable(estReparable(donnees.typeProduit()))
+                    .corrige(false)
+                    .build();
+        }
+
+        List<Surreservation> surreservations = new ArrayList<>(detecterSurreservations(donnees.idProduit(),
+                donnees.nomProduit(), null, donnees.intervalles(), donnees.capacite()));
+        for (Map.Entry<Long, List<Intervalle>> instance : donnees.intervallesParInstance().entrySet()) {
+            surreservations.addAll(detecterSurreservations(donnees.idProduit(), donnees.nomProduit(),
+                    instance.getKey(), instance.getValue(), 1));
+        }
+        return new ResultatProduit(ecart, surreservations);
+    }
+
+    /**
+     * Rejeu du journal d'un produit, ou null si le produit n'a aucun mouvement
+     */
+    static Rejeu rejouer(List<Object[]> mouvements) {
+        EtatStock etat = null;
+        Integer avantDernier = null;
+        for (Object[] row : mouvements) {
+            Integer avant = row[3] != null ? ((Number) row[3]).intValue() : null;
+            if (etat == null) {
+                // Journal commencé après la création du produit : partir du stock avant le premier mouvement
+                etat = new EtatStock(avant != null ? avant : 0, 0, 0, 0);
+            }
+            etat.appliquer((TypeMouvement) row[1],
+                    row[2] != null ? ((Number) row[2]).intValue() : 0,
+                    avant,
+                    row[4] != null ? ((Number) row[4]).intValue() : null);
+            avantDernier = avant;
+        }
+        return etat != null ? new Rejeu(etat.getDisponible(), avantDernier) : null;
+    }
+
+    /**
+     * Stock encore égal à celui lu par le dernier mouvement : mouvement informatif, ou journalisé
+     * après avoir modifié le stock (retour validé d'une ligne). Ce n'est pas un écart.
+     */
+    static boolean dernierMouvementSansEffet(TypeProduit type, Rejeu rejeu, int quantiteEnregistree) {
+        return type != TypeProduit.AVEC_REFERENCE && rejeu != null
+                && Integer.valueOf(quantiteEnregistree).equals(rejeu.avantDernier());
+    }
+
+    static boolean estReparable(TypeProduit type) {
+        return type == TypeProduit.AVEC_REFERENCE;
+    }
+
+    private static Integer quantiteAttendue(TypeProduit type, Integer journal, int instancesDisponibles) {
+        // AVEC_REFERENCE : quantiteDisponible = nombre d'instances DISPONIBLE
+        return type == TypeProduit.AVEC_REFERENCE ? Integer.valueOf(instancesDisponibles) : journal;
+    }
+
+    /**
+     * Balayage des bornes d'intervalles : périodes où la quantité réservée dépasse la capacité
+     * (jours consécutifs regroupés, avec le pic de la période)
+     */
+    static List<Surreservation> detecterSurreservations(Long idProduit, String nomProduit, Long idInstance,
+                                                        List<Intervalle> intervalles, int capacite) {
+        if (intervalles.isEmpty()) {
+            return List.of();
+        }
+        TreeMap<Long, Integer> variations = new TreeMap<>();
+        long totalReserve = 0;
+        for (Intervalle intervalle : intervalles) {
+            if (intervalle.getDebut() == null || intervalle.getFin() == null) {
+                continue;
+            }
+            variations.merge(intervalle.getDebut().toEpochDay(), intervalle.getQuantite(), Integer::sum);
+            variations.merge(intervalle.getFin().toEpochDay() + 1, -intervalle.getQuantite(), Integer::sum);
+            totalReserve += intervalle.getQuantite();
+        }
+        if (totalReserve <= capacite) {
+            return List.of();
+        }
+
+        List<Surreservation> resultat = new ArrayList<>();
+        int reserve = 0;
+        Long debutDepassement = null;
+        int pic = 0;
+        for (Map.Entry<Long, Integer> variation : variations.entrySet()) {
+            reserve += variation.getValue();
+            long jour = variation.getKey();
+            if (reserve > capacite) {
+                if (debutDepassement == null) {
+                    debutDepassement = jour;
+                    pic = reserve;
+                } else {
+                    pic = Math.max(pic, reserve);
+                }
+            } else if (debutDepassement != null) {
+                resultat.add(Surreservation.builder()
+                        .idProduit(idProduit)
+                        .nomProduit(nomProduit)
+                        .idInstance(idInstance)
+                        .dateDebut(LocalDate.ofEpochDay(debutDepassement))
+                        .dateFin(LocalDate.ofEpochDay(jour - 1))
+                        .quantiteReservee(pic)
+                        .capacite(capacite)
+                        .build());
+                debutDepassement = null;
+            }
+        }
+        return resultat;
+    }
+
+    // ============================================
+    // RÉPARATION
+    // ============================================
+
+    /**
+     * Recalcule les produits en écart sous verrou (le stock a pu bouger depuis l'analyse)
+     * puis aligne quantiteDisponible sur la valeur attendue
+     */
+    private int reparer(List<EcartStock> ecarts) {
+        Map<Long, EcartStock> parProduit = new HashMap<>();
+        for (EcartStock ecart : ecarts) {
+            if (Boolean.TRUE.equals(ecart.getReparable())
+                    && ecart.getQuantiteAttendue() != null && ecart.getQuantiteAttendue() >= 0) {
+                parProduit.put(ecart.getIdProduit(), ecart);
+            }
+        }
+        List<Long> ids = new ArrayList<>(parProduit.keySet());
+        int corrections = 0;
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < ids.size(); i += TAILLE_LOT) {
+            List<Long> idsLot = ids.subList(i, Math.min(i + TAILLE_LOT, ids.size()));
+            Integer corrigees = transaction.execute(status -> {
+                int nombre = 0;
+                List<Produit> produits = produitRepo.verrouillerPourReservation(idsLot);
+                Map<Long, DonneesProduit> donnees = new HashMap<>();
+                for (DonneesProduit d : charger(idsLot)) {
+                    donnees.put(d.idProduit(), d);
+                }
+                for (Produit produit : produits) {
+                    DonneesProduit d = donnees.get(produit.getIdProduit());
+                    if (d == null || !estReparable(d.typeProduit())) {
+                        continue;
+                    }
+                    Integer attendue = quantiteAttendue(d.typeProduit(), null, d.instancesDisponibles());
+                    Integer avant = produit.getQuantiteDisponible();
+                    if (attendue == null || attendue < 0 || attendue.equals(avant)) {
+                        continue;
+                    }
+                    produit.setQuantiteDisponible(attendue);
+                    journalMouvements.enregistrer(new MouvementStock(produit, TypeMouvement.CORRECTION_STOCK,
+                            Math.abs(attendue - (avant != null ? avant : 0)), avant, attendue,
+                            "Réconciliation automatique du stock", "reconciliation"));
+                    parProduit.get(produit.getIdProduit()).setCorrige(true);
+                    nombre++;
+                    log.info("🛠️ Stock du produit {} corrigé: {} → {}", produit.getIdProduit(), avant, attendue);
+                }
+                return nombre;
+            });
+            corrections += corrigees != null ? corrigees : 0;
+        }
+        return corrections;
+    }
+
+    private TransactionTemplate lectureSeule() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    // ============================================
+    // TYPES INTERNES
+    // ============================================
+
+    private record DonneesProduit(Long idProduit, String nomProduit, TypeProduit typeProduit, int capacite,
+                                  int quantiteDisponible, int instancesDisponibles, List<Object[]> mouvements,
+                                  List<Intervalle> intervalles, Map<Long, List<Intervalle>> intervallesParInstance) {
+    }
+
+    private record ResultatProduit(EcartStock ecart, List<Surreservation> surreservations) {
+    }
+
+    /**
+     * @param avantDernier Quantité avant le dernier mouvement, si enregistrée
+     */
+    record Rejeu(int disponible, Integer avantDernier) {
+    }
+}
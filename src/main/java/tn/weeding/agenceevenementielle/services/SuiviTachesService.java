@@ -0,0 +1,326 @@
+package tn.weeding.agenceevenementielle.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.dto.taches.ExecutionTacheDto;
+import tn.weeding.agenceevenementielle.dto.taches.StatistiquesTacheDto;
+import tn.weeding.agenceevenementielle.entities.ExecutionTache;
+import tn.weeding.agenceevenementielle.entities.enums.StatutExecutionTache;
+import tn.weeding.agenceevenementielle.exceptions.CustomException;
+import tn.weeding.agenceevenementielle.repository.ExecutionTacheRepository;
+import tn.weeding.agenceevenementielle.scheduling.CoordinationTaches;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ==========================================
+ * SUIVI DES EXÉCUTIONS DE TÂCHES PLANIFIÉES
+ * ==========================================
+ *
+ * Chaque exécution d'un job est enregistrée (table execution_tache) : début, fin, durée,
+ * lignes lues / modifiées, emails mis en file, échecs.
+ * Les mêmes valeurs alimentent Micrometer :
+ * - timer taches.execution (tags tache, statut), percentiles 50 / 99 publiés
+ * - compteurs taches.lignes.lues, taches.lignes.modifiees, taches.emails, taches.echecs (tag tache)
+ *
+ * L'enregistrement se fait dans des transactions indépendantes (REQUIRES_NEW) : une erreur de suivi
+ * est journalisée mais n'interrompt jamais le job.
+ *
+ * Entretien (entretenir, job horaire de TacheScheduler) :
+ * - une exécution encore EN_COURS après `dureeMax` est passée INTERROMPUE : son nœud s'est arrêté
+ *   avant terminer(), elle resterait sinon affichée en cours indéfiniment
+ * - l'historique de plus de `retentionJours` jours est supprimé
+ */
+@Service
+@Slf4j
+public class SuiviTachesService {
+
+    static final int LIMITE_MAX = 500;
+
+    private final ExecutionTacheRepository executionRepo;
+    private final MeterRegistry registry;
+    private final CoordinationTaches coordination;
+    private final TransactionTemplate nouvelleTransaction;
+    private final Duration dureeMax;
+    private final int retentionJours;
+
+    public SuiviTachesService(ExecutionTacheRepository executionRepo,
+                              MeterRegistry registry,
+                              CoordinationTaches coordination,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${taches.suivi.duree-max-heures:6}") long dureeMaxHeures,
+                              @Value("${taches.suivi.retention-jours:90}") int retentionJours) {
+        this.executionRepo = executionRepo;
+        this.registry = registry;
+        this.coordination = coordination;
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.dureeMax = Duration.ofHours(dureeMaxHeures);
+        this.retentionJours = retentionJours;
+    }
+
+    /**
+     * Enregistrer le début d'une exécution
+     */
+    public Execution demarrer(String tache) {
+        LocalDateTime debut = LocalDateTime.now();
+        Long idExecution = null;
+        try {
+            idExecution = nouvelleTransaction.execute(status -> executionRepo.save(ExecutionTache.builder()
+                    .nomTache(tache)
+                    .noeud(coordination.getNoeud())
+                    .dateDebut(debut)
+                    .statut(StatutExecutionTache.EN_COURS)
+                    .build()).getIdExecution());
+        } catch (Exception e) {
+            log.warn("⚠️ Début d'exécution de {} non enregistré: {}", tache, e.getMessage());
+        }
+        return new Execution(tache, idExecution, System.nanoTime());
+    }
+
+    // ============================================
+    // ENTRETIEN
+    // ============================================
+
+    /**
+     * Clore les exécutions abandonnées et purger l'historique ancien
+     */
+    public Entretien entretenir() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        String message = "Toujours en cours après " + dureeMax.toHours() + " h : nœud arrêté avant la fin";
+        Integer interrompues = nouvelleTransaction.execute(status -> executionRepo.cloreCommenceesAvant(
+                StatutExecutionTache.EN_COURS, StatutExecutionTache.INTERROMPUE,
+                maintenant.minus(dureeMax), maintenant, message));
+        Integer supprimees = nouvelleTransaction.execute(status ->
+                executionRepo.supprimerCommenceesAvant(maintenant.minusDays(retentionJours)));
+
+        Entretien entretien = new Entretien(interrompues != null ? interrompues : 0,
+                supprimees != null ? supprimees : 0);
+        if (entretien.interrompues() > 0) {
+            log.warn("⚠️ {} exécution(s) restée(s) EN_COURS marquée(s) INTERROMPUE", entretien.interrompues());
+        }
+        return entretien;
+    }
+
+    // ============================================
+    // LECTURE
+    // ============================================
+
+    @Transactional(readOnly = true)
+    public List<ExecutionTacheDto> getExecutionsRecentes(String tache, int limite) {
+        PageRequest page = PageRequest.of(0, borner(limite));
+        List<ExecutionTache> executions = tache == null || tache.isBlank()
+                ? executionRepo.findAllByOrderByDateDebutDesc(page)
+                : executionRepo.findByNomTacheOrderByDateDebutDesc(tache, page);
+        return executions.stream().map(SuiviTachesService::versDto).toList();
+    }
+
+    /**
+     * Statistiques de chaque tâche sur ses `echantillon` dernières exécutions
+     */
+    @Transactional(readOnly = true)
+    public List<StatistiquesTacheDto> getStatistiques(int echantillon) {
+        PageRequest page = PageRequest.of(0, borner(echantillon));
+        List<StatistiquesTacheDto> statistiques = new ArrayList<>();
+        for (String tache : executionRepo.findNomsTaches()) {
+            statistiques.add(calculerStatistiques(tache, executionRepo.findByNomTacheOrderByDateDebutDesc(tache, page)));
+        }
+        return statistiques;
+    }
+
+    /**
+     * Exécutions triées de la plus récente à la plus ancienne ; seules les exécutions finies comptent
+     * dans les durées et les moyennes
+     */
+    static StatistiquesTacheDto calculerStatistiques(String tache, List<ExecutionTache> executions) {
+        List<Long> durees = new ArrayList<>();
+        long lues = 0;
+        long modifiees = 0;
+        int echecs = 0;
+        for (ExecutionTache execution : executions) {
+            if (execution.getStatut() == StatutExecutionTache.EN_COURS || execution.getDureeMs() == null) {
+                continue;
+            }
+            if (execution.getStatut() == StatutExecutionTache.ECHEC) {
+                echecs++;
+            }
+            durees.add(execution.getDureeMs());
+            lues += execution.getLignesLues() != null ? execution.getLignesLues() : 0;
+            modifiees += execution.getLignesModifiees() != null ? execution.getLignesModifiees() : 0;
+        }
+        durees.sort(null);
+
+        ExecutionTache derniere = executions.isEmpty() ? null : executions.get(0);
+        return StatistiquesTacheDto.builder()
+                .nomTache(tache)
+                .nombreExecutions(durees.size())
+                .nombreEchecs(echecs)
+                .derniereExecution(derniere != null ? derniere.getDateDebut() : null)
+                .dernierStatut(derniere != null ? derniere.getStatut() : null)
+                .dureeP50Ms(percentile(durees, 0.50))
+                .dureeP99Ms(percentile(durees, 0.99))
+                .dureeMaxMs(durees.isEmpty() ? null : durees.get(durees.size() - 1))
+                .moyenneLignesLues(durees.isEmpty() ? null : lues / durees.size())
+                .moyenneLignesModifiees(durees.isEmpty() ? null : modifiees / durees.size())
+                .build();
+    }
+
+    /**
+     * Percentile par rang le plus proche sur des valeurs triées (null si aucune valeur)
+     */
+    static Long percentile(List<Long> triees, double p) {
+        if (triees.isEmpty()) {
+            return null;
+        }
+        int rang = (int) Math.ceil(p * triees.size());
+        return triees.get(Math.min(triees.size(), Math.max(1, rang)) - 1);
+    }
+
+    // ============================================
+    // MÉTHODES PRIVÉES
+    // ============================================
+
+    private void enregistrerFin(Execution execution, StatutExecutionTache statut, String messageErreur) {
+        long dureeNs = System.nanoTime() - execution.debutNs;
+        LocalDateTime fin = LocalDateTime.now();
+
+        Timer.builder("taches.execution")
+                .description("Durée des exécutions de tâches planifiées")
+                .tag("tache", execution.tache)
+                .tag("statut", statut.name())
+                .publishPercentiles(0.5, 0.99)
+                .register(registry)
+                .record(dureeNs, TimeUnit.NANOSECONDS);
+        compteur("taches.lignes.lues", execution.tache).increment(execution.lignesLues.get());
+        compteur("taches.lignes.modifiees", execution.tache).increment(execution.lignesModifiees.get());
+        compteur("taches.emails", execution.tache).increment(execution.emails.get());
+        compteur("taches.echecs", execution.tache).increment(execution.echecs.get());
+
+        log.info("⏱️ Tâche {} {} en {} ms (lues: {}, modifiées: {}, emails: {}, échecs: {})",
+                execution.tache, statut, Duration.ofNanos(dureeNs).toMillis(), execution.lignesLues.get(),
+                execution.lignesModifiees.get(), execution.emails.get(), execution.echecs.get());
+
+        if (execution.idExecution == null) {
+            return;
+        }
+        try {
+            nouvelleTransaction.executeWithoutResult(status -> executionRepo.findById(execution.idExecution)
+                    .ifPresent(ligne -> {
+                        ligne.setDateFin(fin);
+                        ligne.setDureeMs(Duration.ofNanos(dureeNs).toMillis());
+                        ligne.setStatut(statut);
+                        ligne.setLignesLues(execution.lignesLues.get());
+                        ligne.setLignesModifiees(execution.lignesModifiees.get());
+                        ligne.setEmails(execution.emails.get());
+                        ligne.setEchecs(execution.echecs.get());
+                        ligne.setMessageErreur(messageErreur);
+                    }));
+        } catch (Exception e) {
+            log.warn("⚠️ Fin d'exécution de {} non enregistrée: {}", execution.tache, e.getMessage());
+        }
+    }
+
+    private Counter compteur(String nom, String tache) {
+        return Counter.builder(nom).tag("tache", tache).register(registry);
+    }
+
+    private static int borner(int limite) {
+        if (limite < 1) {
+            throw new CustomException("La limite doit être positive");
+        }
+        return Math.min(limite, LIMITE_MAX);
+    }
+
+    private static ExecutionTacheDto versDto(ExecutionTache execution) {
+        return ExecutionTacheDto.builder()
+                .idExecution(execution.getIdExecution())
+                .nomTache(execution.getNomTache())
+                .noeud(execution.getNoeud())
+                .dateDebut(execution.getDateDebut())
+                .dateFin(execution.getDateFin())
+                .dureeMs(execution.getDureeMs())
+                .statut(execution.getStatut())
+                .lignesLues(execution.getLignesLues())
+                .lignesModifiees(execution.getLignesModifiees())
+                .emails(execution.getEmails())
+                .echecs(execution.getEchecs())
+                .messageErreur(execution.getMessageErreur())
+                .build();
+    }
+
+    public record Entretien(int interrompues, int supprimees) {
+    }
+
+    /**
+     * Exécution en cours : compteurs thread-safe (les rappels sont envoyés en parallèle)
+     */
+    public final class Execution {
+
+        private final String tache;
+        private final Long idExecution;
+        private final long debutNs;
+
+        private final AtomicLong lignesLues = new AtomicLong();
+        private final AtomicLong lignesModifiees = new AtomicLong();
+        private final AtomicLong emails = new AtomicLong();
+        private final AtomicLong echecs = new AtomicLong();
+        private volatile String erreur;
+        private volatile boolean terminee;
+
+        private Execution(String tache, Long idExecution, long debutNs) {
+            this.tache = tache;
+            this.idExecution = idExecution;
+            this.debutNs = debutNs;
+        }
+
+        public void lues(long nombre) {
+            lignesLues.addAndGet(nombre);
+        }
+
+        public void modifiees(long nombre) {
+            lignesModifiees.addAndGet(nombre);
+        }
+
+        public void emails(long nombre) {
+            emails.addAndGet(nombre);
+        }
+
+        public void echec() {
+            echecs.incrementAndGet();
+        }
+
+        /**
+         * Marquer l'exécution en échec (erreur globale du job)
+         */
+        public void echouer(Exception e) {
+            echecs.incrementAndGet();
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            erreur = message.length() > 1000 ? message.substring(0, 1000) : message;
+        }
+
+        /**
+         * Clore l'exécution (une seule fois) : TERMINEE, ou ECHEC si echouer() a été appelé
+         */
+        public void terminer() {
+            if (terminee) {
+                return;
+            }
+            terminee = true;
+            enregistrerFin(this, erreur == null ? StatutExecutionTache.TERMINEE : StatutExecutionTache.ECHEC, erreur);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package tn.weeding.agenceevenementielle.scheduling;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.entities.BailTache;
+import tn.weeding.agenceevenementielle.repository.BailTacheRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Baux des tâches planifiées sur une vraie base (H2) : plusieurs instances de CoordinationTaches
+ * partagent la table bail_tache comme le feraient plusieurs nœuds
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:coordination;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=30000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=" + (CoordinationTachesTest.NOEUDS + 4),
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "logging.level.tn.weeding.agenceevenementielle=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CoordinationTachesTest {
+
+    static final int NOEUDS = 8;
+
+    @Autowired private BailTacheRepository bailRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private CoordinationTaches noeud(String nom) {
+        return new CoordinationTaches(bailRepo, transactionManager, nom);
+    }
+
+    @Test
+    void acquerir_unSeulNoeudGagneLeBail() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(NOEUDS);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<Boolean>> essais = new ArrayList<>();
+        for (int i = 0; i < NOEUDS; i++) {
+            CoordinationTaches coordination = noeud("noeud-" + i);
+            essais.add(pool.submit(() -> {
+                depart.await();
+                return coordination.acquerir("job-concurrent", Duration.ofMinutes(5));
+            }));
+        }
+
+        depart.countDown();
+        int gagnants = 0;
+        for (Future<Boolean> essai : essais) {
+            if (essai.get(30, TimeUnit.SECONDS)) {
+                gagnants++;
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(1, gagnants);
+        assertTrue(bailRepo.findById("job-concurrent").orElseThrow().getProprietaire().startsWith("noeud-"));
+    }
+
+    @Test
+    void acquerir_bailExpireEstRepris() {
+        CoordinationTaches noeudA = noeud("A");
+        CoordinationTaches noeudB = noeud("B");
+
+        assertTrue(noeudA.acquerir("job-expire", Duration.ofMinutes(5)));
+        assertFalse(noeudB.acquerir("job-expire", Duration.ofMinutes(5)));
+        // Le propriétaire peut renouveler son propre bail
+        assertTrue(noeudA.acquerir("job-expire", Duration.ofMinutes(5)));
+
+        // Nœud A arrêté sans rendre le bail : il expire
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            BailTache bail = bailRepo.findById("job-expire").orElseThrow();
+            bail.setDateExpiration(LocalDateTime.now().minusSeconds(1));
+            bailRepo.save(bail);
+        });
+
+        assertTrue(noeudB.acquerir("job-expire", Duration.ofMinutes(5)));
+        assertEquals("B", bailRepo.findById("job-expire").orElseThrow().getProprietaire());
+        assertFalse(noeudA.acquerir("job-expire", Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void executerParTranches_deuxNoeudsConcurrents_chaqueTrancheUneSeuleFois() throws Exception {
+        Map<Integer, AtomicInteger> passages = new ConcurrentHashMap<>();
+        Map<Integer, Long> bornes = new ConcurrentHashMap<>();
+        CountDownLatch depart = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<Integer>> noeuds = new ArrayList<>();
+        for (String nom : List.of("A", "B")) {
+            CoordinationTaches coordination = noeud(nom);
+            noeuds.add(pool.submit(() -> {
+                depart.await();
+                // maxId 999, largeur 100 : 10 tranches
+                return coordination.executerParTranches("job-tranches", "2025-06-01", 999, 100,
+                        Duration.ofMinutes(5), tranche -> {
+                            passages.computeIfAbsent(tranche.numero(), n -> new AtomicInteger()).incrementAndGet();
+                            bornes.put(tranche.numero(), tranche.apresId());
+                            try {
+                                Thread.sleep(20);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            }));
+        }
+
+        depart.countDown();
+        int total = 0;
+        for (Future<Integer> traitees : noeuds) {
+            total += traitees.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(10, total);
+        assertEquals(IntStream.range(0, 10).boxed().toList(), passages.keySet().stream().sorted().toList());
+        passages.forEach((numero, compte) -> assertEquals(1, compte.get(), "tranche " + numero + " traitée deux fois"));
+        bornes.forEach((numero, apresId) -> assertEquals(numero * 100L, apresId));
+
+        // Même exécution relancée : tranches déjà terminées, rien n'est repris
+        assertEquals(0, noeud("C").executerParTranches("job-tranches", "2025-06-01", 999, 100,
+                Duration.ofMinutes(5), tranche -> fail("tranche " + tranche.numero() + " reprise")));
+        // Exécution suivante : tout est à refaire
+        assertEquals(10, noeud("C").executerParTranches("job-tranches", "2025-06-02", 999, 100,
+                Duration.ofMinutes(5), tranche -> { }));
+    }
+
+    @Test
+    void executerParTranches_trancheEnEchecRepriseParUnAutreNoeud() {
+        List<Integer> reprises = new ArrayList<>();
+
+        int traiteesA = noeud("A").executerParTranches("job-echec", "2025-06-01", 299, 100,
+                Duration.ofMinutes(5), tranche -> {
+                    if (tranche.numero() == 1) {
+                        throw new IllegalStateException("panne");
+                    }
+                });
+        int traiteesB = noeud("B").executerParTranches("job-echec", "2025-06-01", 299, 100,
+                Duration.ofMinutes(5), tranche -> reprises.add(tranche.numero()));
+
+        assertEquals(2, traiteesA);
+        assertEquals(1, traiteesB);
+        assertEquals(List.of(1), reprises);
+    }
+}
@@ -0,0 +1,220 @@
+package tn.weeding.agenceevenementielle.scheduling;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.entities.*;
+import tn.weeding.agenceevenementielle.entities.enums.*;
+import tn.weeding.agenceevenementielle.repository.*;
+import tn.weeding.agenceevenementielle.services.NotificationServiceInterface;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Retours en retard sur une vraie base (H2) : curseur persistant, requêtes incrémentales
+ * et marquage des retards signalés
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:retoursenretard;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "logging.level.tn.weeding.agenceevenementielle=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LivraisonSchedulerTest {
+
+    private static final LocalDate AUJOURDHUI = LocalDate.now();
+
+    @Autowired private ReservationRepository reservationRepo;
+    @Autowired private LigneReservationRepository ligneReservationRepo;
+    @Autowired private LivraisonRepository livraisonRepo;
+    @Autowired private CurseurTacheRepository curseurTacheRepo;
+    @Autowired private ProduitRepository produitRepo;
+    @Autowired private UtilisateurRepository utilisateurRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private JdbcTemplate jdbc;
+
+    private NotificationServiceInterface notificationService;
+    private Utilisateur client;
+    private Produit chaise;
+
+    @BeforeEach
+    void initialiser() {
+        jdbc.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        for (String table : List.of("LigneReservation", "Reservation", "Produit", "Utilisateur", "curseur_tache")) {
+            jdbc.execute("TRUNCATE TABLE " + table);
+        }
+        jdbc.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        notificationService = mock(NotificationServiceInterface.class);
+
+        client = new Utilisateur();
+        client.setCodeUtilisateur("CL-RETARD");
+        client.setPseudo("retard");
+        client.setEmail("retard@test.tn");
+        client.setEtatCompte(StatutCompte.ACTIVE);
+        client.setActivationCompte(true);
+        client = utilisateurRepo.save(client);
+
+        chaise = new Produit();
+        chaise.setCodeProduit("CHAISE");
+        chaise.setNomProduit("Chaise");
+        chaise.setCategorieProduit(Categorie.MOBILIER);
+        chaise.setPrixUnitaire(10.0);
+        chaise.setQuantiteInitial(100);
+        chaise.setQuantiteDisponible(100);
+        chaise.setTypeProduit(TypeProduit.EN_QUANTITE);
+        chaise.setInstances(new HashSet<>());
+        chaise = produitRepo.save(chaise);
+    }
+
+    @Test
+    void premiereExecution_initialiseLeCurseurEtMarqueLesRetardsExistantsSansNotifier() {
+        LigneReservation ancien = ligne(StatutReservation.CONFIRME, AUJOURDHUI.minusDays(30), StatutLivraison.LIVREE);
+        LigneReservation hier = ligne(StatutReservation.CONFIRME, AUJOURDHUI.minusDays(1), StatutLivraison.LIVREE);
+        LigneReservation rendue = ligne(StatutReservation.CONFIRME, AUJOURDHUI.minusDays(2), StatutLivraison.RETOUR);
+        LigneReservation enCours = ligne(StatutReservation.CONFIRME, AUJOURDHUI, StatutLivraison.LIVREE);
+        LigneReservation devis = ligne(StatutReservation.EN_ATTENTE, AUJOURDHUI.minusDays(2), StatutLivraison.NOT_TODAY);
+        LocalDateTime avant = LocalDateTime.now();
+
+        verifier();
+
+        verifyNoInteractions(notificationService);
+        assertEquals(ancien.getDateFin(), retardSignale(ancien));
+        assertEquals(hier.getDateFin(), retardSignale(hier));
+        assertNull(retardSignale(rendue));
+        assertNull(retardSignale(enCours));
+        assertNull(retardSignale(devis));
+
+        CurseurTache curseur = curseurTacheRepo.findById(LivraisonScheduler.TACHE_RETOURS_EN_RETARD).orElseThrow();
+        assertFalse(curseur.getDateCurseur().isBefore(avant));
+    }
+
+    @Test
+    void executionSuivante_neSignaleQueLesNouveauxRetardsDepuisLeCurseur() {
+        LocalDateTime curseur = AUJOURDHUI.atStartOfDay().minusHours(1);
+        LocalDateTime avantCurseur = curseur.minusDays(2);
+        curseurTacheRepo.save(CurseurTache.builder()
+                .nomTache(LivraisonScheduler.TACHE_RETOURS_EN_RETARD)
+                .dateCurseur(curseur)
+                .build());
+
+        // Retard ancien, rien de modifié depuis le curseur : hors du traitement incrémental
+        LigneReservation horsFenetre = ligne(StatutReservation.CONFIRME, AUJOURDHUI.minusDays(10), StatutLivraison.LIVREE);
+        modifierLigneLe(horsFenetre, avantCurseur);
+        modifierReservationLe(horsFenetre, avantCurseur);
+        // Date de fin franchie depuis le curseur
+        LigneReservation franchie = ligne(StatutReservation.CONFIRME, AUJOURDHUI.minusDays(1), StatutLivraison.LIVREE);
+        modifierLigneLe(franchie, avantCurseur);
+        modifierReservationLe(franchie, avantCurseur);
+        // Ligne modifiée depuis le curseur (période avancée, livraison saisie...)
+        LigneReservation ligneModifiee = ligne(StatutReservation.CONFIRME, AUJOURDHUI.minusDays(10), StatutLivraison.LIVREE);
+        modifierReservationLe(ligneModifiee, avantCurseur);
+        // Réservation modifiée depuis le curseur (confirmation tardive...)
+        LigneReservation reservationModifiee = ligne(StatutReservation.CONFIRME, AUJOURDHUI.minusDays(10), StatutLivraison.LIVREE);
+        modifierLigneLe(reservationModifiee, avantCurseur);
+        // Déjà signalée pour cette date de fin, ou rendue
+        LigneReservation dejaSignalee = ligne(StatutReservation.CONFIRME, AUJOURDHUI.minusDays(1), StatutLivraison.LIVREE);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                ligneReservationRepo.marquerRetardsSignales(List.of(dejaSignalee.getIdLigneReservation())));
+        LigneReservation rendue = ligne(StatutReservation.CONFIRME, AUJOURDHUI.minusDays(1), StatutLivraison.RETOUR);
+
+        verifier();
+
+        for (LigneReservation ligne : List.of(franchie, ligneModifiee, reservationModifiee)) {
+            verify(notificationService).creerNotificationPourStaff(eq(TypeNotification.RETOUR_EN_RETARD), anyString(),
+                    contains(ligne.getReservation().getReferenceReservation()),
+                    eq(ligne.getReservation().getIdReservation()), anyString());
+            assertEquals(ligne.getDateFin(), retardSignale(ligne));
+        }
+        verifyNoMoreInteractions(notificationService);
+        assertNull(retardSignale(horsFenetre));
+        assertNull(retardSignale(rendue));
+        assertTrue(curseurTacheRepo.findById(LivraisonScheduler.TACHE_RETOURS_EN_RETARD).orElseThrow()
+                .getDateCurseur().isAfter(curseur));
+
+        // Exécution suivante : rien de nouveau
+        clearInvocations(notificationService);
+        verifier();
+        verifyNoInteractions(notificationService);
+
+        // Période modifiée, toujours dépassée : nouveau retard pour la nouvelle date de fin
+        LigneReservation modifiee = ligneReservationRepo.findById(franchie.getIdLigneReservation()).orElseThrow();
+        modifiee.setDateFin(AUJOURDHUI.minusDays(2));
+        ligneReservationRepo.save(modifiee);
+        verifier();
+        verify(notificationService).creerNotificationPourStaff(eq(TypeNotification.RETOUR_EN_RETARD), anyString(),
+                anyString(), eq(franchie.getReservation().getIdReservation()), anyString());
+        verifyNoMoreInteractions(notificationService);
+        assertEquals(AUJOURDHUI.minusDays(2), retardSignale(modifiee));
+    }
+
+    // ============================================
+    // DONNÉES
+    // ============================================
+
+    private void verifier() {
+        SuiviTachesService suiviTaches = mock(SuiviTachesService.class);
+        when(suiviTaches.demarrer(anyString())).thenReturn(mock(SuiviTachesService.Execution.class));
+        CoordinationTaches coordination = mock(CoordinationTaches.class);
+        when(coordination.acquerir(anyString(), any())).thenReturn(true);
+        LivraisonScheduler scheduler = new LivraisonScheduler(ligneReservationRepo, livraisonRepo,
+                curseurTacheRepo, notificationService, coordination, suiviTaches);
+        // Transaction du job (@Transactional sur le bean Spring)
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> scheduler.verifierRetoursEnRetard());
+    }
+
+    private LigneReservation ligne(StatutReservation statut, LocalDate fin, StatutLivraison statutLivraison) {
+        Reservation reservation = new Reservation();
+        reservation.setReferenceReservation("RES-" + UUID.randomUUID().toString().substring(0, 8));
+        reservation.setStatutReservation(statut);
+        reservation.setStatutLivraisonRes(statutLivraison);
+        reservation.setUtilisateur(client);
+        reservation.setDateDebut(fin.minusDays(2));
+        reservation.setDateFin(fin);
+
+        LigneReservation ligne = new LigneReservation();
+        ligne.setProduit(chaise);
+        ligne.setQuantite(10);
+        ligne.setPrixUnitaire(10.0);
+        ligne.setDateDebut(fin.minusDays(2));
+        ligne.setDateFin(fin);
+        ligne.setStatutLivraisonLigne(statutLivraison);
+        ligne.setReservation(reservation);
+        reservation.setLigneReservations(new HashSet<>(List.of(ligne)));
+
+        return reservationRepo.save(reservation).getLigneReservations().iterator().next();
+    }
+
+    /** Date de dernière écriture antérieure au curseur (les entités la fixent à chaque sauvegarde) */
+    private void modifierLigneLe(LigneReservation ligne, LocalDateTime date) {
+        jdbc.update("UPDATE LigneReservation SET dateModification = ? WHERE idLigneReservation = ?",
+                date, ligne.getIdLigneReservation());
+    }
+
+    private void modifierReservationLe(LigneReservation ligne, LocalDateTime date) {
+        jdbc.update("UPDATE Reservation SET dateModification = ? WHERE idReservation = ?",
+                date, ligne.getReservation().getIdReservation());
+    }
+
+    private LocalDate retardSignale(LigneReservation ligne) {
+        return ligneReservationRepo.findById(ligne.getIdLigneReservation()).orElseThrow().getDateFinRetardSignale();
+    }
+}
@@ -0,0 +1,175 @@
+package tn.weeding.agenceevenementielle.scheduling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import tn.weeding.agenceevenementielle.dto.notification.NotificationRequestDto;
+import tn.weeding.agenceevenementielle.entities.Reservation;
+import tn.weeding.agenceevenementielle.entities.Utilisateur;
+import tn.weeding.agenceevenementielle.entities.enums.StatutReservation;
+import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
+import tn.weeding.agenceevenementielle.repository.ReservationRepository;
+import tn.weeding.agenceevenementielle.services.ArchivageNotificationService;
+import tn.weeding.agenceevenementielle.services.Email.GabaritsEmail;
+import tn.weeding.agenceevenementielle.services.EmailService;
+import tn.weeding.agenceevenementielle.services.NotificationServiceInterface;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Pipeline des rappels : lecture par lots d'identifiants croissants, envoi parallèle borné
+ */
+class NotificationSchedulerTest {
+
+    private static final int TAILLE_LOT = 200;
+    private static final int ENVOIS_PARALLELES = 4;
+
+    private ReservationRepository reservationRepo;
+    private NotificationServiceInterface notificationService;
+    private SuiviTachesService.Execution suivi;
+    private NotificationScheduler scheduler;
+
+    /** Identifiants des devis EN_ATTENTE par jour d'expiration */
+    private final Map<LocalDate, List<Long>> devisParEcheance = new HashMap<>();
+
+    @BeforeEach
+    void initialiser() throws Exception {
+        reservationRepo = mock(ReservationRepository.class);
+        notificationService = mock(NotificationServiceInterface.class);
+        suivi = mock(SuiviTachesService.Execution.class);
+        SuiviTachesService suiviTaches = mock(SuiviTachesService.class);
+        when(suiviTaches.demarrer(anyString())).thenReturn(suivi);
+        CoordinationTaches coordination = mock(CoordinationTaches.class);
+        when(coordination.acquerir(anyString(), any())).thenReturn(true);
+        LigneReservationRepository ligneReservationRepo = mock(LigneReservationRepository.class);
+        when(ligneReservationRepo.compterParReservations(any())).thenReturn(List.of());
+
+        // Page d'identifiants > apresId dans la fenêtre [debut, fin[, comme la requête indexée
+        when(reservationRepo.findIdsParExpirationDevisEntre(eq(StatutReservation.EN_ATTENTE), isNull(),
+                any(), any(), anyLong(), any())).thenAnswer(invocation -> {
+            LocalDateTime debut = invocation.getArgument(2);
+            LocalDateTime fin = invocation.getArgument(3);
+            long apresId = invocation.getArgument(4);
+            Pageable lot = invocation.getArgument(5);
+            return devisParEcheance.entrySet().stream()
+                    .filter(e -> !e.getKey().atStartOfDay().isBefore(debut) && e.getKey().atStartOfDay().isBefore(fin))
+                    .flatMap(e -> e.getValue().stream())
+                    .filter(id -> id > apresId)
+                    .sorted()
+                    .limit(lot.getPageSize())
+                    .toList();
+        });
+        when(reservationRepo.findAvecClientParIds(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(NotificationSchedulerTest::devis).toList();
+        });
+
+        scheduler = new NotificationScheduler(reservationRepo, notificationService,
+                mock(ArchivageNotificationService.class), new GabaritsEmail(), mock(EmailService.class),
+                ligneReservationRepo, mock(PlatformTransactionManager.class), coordination, suiviTaches);
+    }
+
+    @AfterEach
+    void arreter() {
+        scheduler.arreter();
+    }
+
+    private static Reservation devis(Long id) {
+        Utilisateur client = new Utilisateur();
+        client.setIdUtilisateur(id);
+        client.setPrenom("Client " + id);
+        client.setEmail("client" + id + "@test.tn");
+
+        Reservation devis = new Reservation();
+        devis.setIdReservation(id);
+        devis.setReferenceReservation("RES-" + id);
+        devis.setStatutReservation(StatutReservation.EN_ATTENTE);
+        devis.setDateExpirationDevis(LocalDate.now().plusDays(2).atTime(18, 0));
+        devis.setDateDebut(LocalDate.now().plusDays(20));
+        devis.setDateFin(LocalDate.now().plusDays(21));
+        devis.setMontantTotal(120.0);
+        devis.setUtilisateur(client);
+        return devis;
+    }
+
+    private static List<Long> ids(long premier, long dernier) {
+        return LongStream.rangeClosed(premier, dernier).boxed().toList();
+    }
+
+    @Test
+    void rappelDevis_litParLotsEtEnvoieChaqueRappelUneFois() {
+        devisParEcheance.put(LocalDate.now().plusDays(2), ids(1, 450));
+        devisParEcheance.put(LocalDate.now().plusDays(1), ids(1001, 1010));
+        Set<Long> notifies = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            NotificationRequestDto notification = invocation.getArgument(0);
+            assertTrue(notifies.add(notification.getIdReservation()), "rappel envoyé deux fois");
+            return null;
+        }).when(notificationService).creerNotificationAvecEmail(any());
+
+        scheduler.rappelerValidationDevisAvantExpiration();
+
+        assertEquals(460, notifies.size());
+        // 2 jours : lots après 0, 200, 400 puis page vide après 450 ; 1 jour : un lot puis page vide
+        verify(reservationRepo, times(4 + 2)).findIdsParExpirationDevisEntre(
+                eq(StatutReservation.EN_ATTENTE), isNull(), any(), any(), anyLong(), any());
+        for (long apresId : new long[]{0, 200, 400, 450}) {
+            verify(reservationRepo).findIdsParExpirationDevisEntre(eq(StatutReservation.EN_ATTENTE), isNull(),
+                    eq(LocalDate.now().plusDays(2).atStartOfDay()), any(), eq(apresId), argThat(lot -> lot.getPageSize() == TAILLE_LOT));
+        }
+        verify(reservationRepo, times(4)).findAvecClientParIds(any());
+        verify(suivi).terminer();
+        verify(suivi, never()).echouer(any());
+    }
+
+    @Test
+    void rappelDevis_pasDeRappelLeJourMeme() {
+        devisParEcheance.put(LocalDate.now(), ids(1, 5));
+
+        scheduler.rappelerValidationDevisAvantExpiration();
+
+        verify(notificationService, never()).creerNotificationAvecEmail(any());
+        verify(notificationService, never()).creerNotificationPourStaff(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void envoi_parallelismeBorne_etEchecsComptes() {
+        devisParEcheance.put(LocalDate.now().plusDays(2), ids(1, 300));
+        AtomicInteger enCours = new AtomicInteger();
+        AtomicInteger maxEnCours = new AtomicInteger();
+        doAnswer(invocation -> {
+            int simultanes = enCours.incrementAndGet();
+            maxEnCours.accumulateAndGet(simultanes, Math::max);
+            Thread.sleep(2);
+            enCours.decrementAndGet();
+            NotificationRequestDto notification = invocation.getArgument(0);
+            if (notification.getIdReservation() % 100 == 0) {
+                throw new IllegalStateException("SMTP indisponible");
+            }
+            return null;
+        }).when(notificationService).creerNotificationAvecEmail(any());
+
+        scheduler.rappelerValidationDevisAvantExpiration();
+
+        // Pool de 4 envois, plus le job lui-même quand la file est pleine
+        assertTrue(maxEnCours.get() <= ENVOIS_PARALLELES + 1, "envois simultanés : " + maxEnCours.get());
+        assertTrue(maxEnCours.get() > 1, "envois non parallélisés");
+        verify(notificationService, times(300)).creerNotificationAvecEmail(any());
+        verify(suivi, times(3)).echec();
+        verify(suivi).emails(198);
+        verify(suivi).emails(99);
+        verify(suivi).terminer();
+    }
+}
@@ -0,0 +1,259 @@
+package tn.weeding.agenceevenementielle.scheduling;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.entities.*;
+import tn.weeding.agenceevenementielle.entities.enums.*;
+import tn.weeding.agenceevenementielle.repository.*;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationModifieeEvent;
+import tn.weeding.agenceevenementielle.services.Reservation.ExpirationDevisService;
+import tn.weeding.agenceevenementielle.services.SuiviTachesService;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Job quotidien NOT_TODAY → EN_ATTENTE sur une vraie base (H2) : sélection par pagination par clé,
+ * mises à jour ensemblistes des réservations, lignes et instances
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:statutsquotidiens;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "logging.level.tn.weeding.agenceevenementielle=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationSchedulerTest {
+
+    private static final LocalDate AUJOURDHUI = LocalDate.now();
+
+    @Autowired private ReservationRepository reservationRepo;
+    @Autowired private LigneReservationRepository ligneReservationRepo;
+    @Autowired private InstanceProduitRepository instanceProduitRepo;
+    @Autowired private ProduitRepository produitRepo;
+    @Autowired private UtilisateurRepository utilisateurRepo;
+    @Autowired private BailTacheRepository bailRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private JdbcTemplate jdbc;
+
+    private Utilisateur client;
+    private Produit projecteur;
+    private Produit chaise;
+
+    /** Réservations (et leurs lignes) qui doivent démarrer aujourd'hui */
+    private final List<Long> reservationsADemarrer = new ArrayList<>();
+    private final List<Long> lignesADemarrer = new ArrayList<>();
+
+    @BeforeEach
+    void initialiser() {
+        jdbc.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        for (String table : List.of("ligne_reservation_instances", "LigneReservation", "Reservation",
+                "InstanceProduit", "Produit", "Utilisateur", "bail_tache")) {
+            jdbc.execute("TRUNCATE TABLE " + table);
+        }
+        jdbc.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        reservationsADemarrer.clear();
+        lignesADemarrer.clear();
+
+        client = new Utilisateur();
+        client.setCodeUtilisateur("CL-JOUR");
+        client.setPseudo("jour");
+        client.setEmail("jour@test.tn");
+        client.setEtatCompte(StatutCompte.ACTIVE);
+        client.setActivationCompte(true);
+        client = utilisateurRepo.save(client);
+        projecteur = creerProduit("PROJ", TypeProduit.AVEC_REFERENCE, 4);
+        chaise = creerProduit("CHAISE", TypeProduit.EN_QUANTITE, 100);
+    }
+
+    @Test
+    void pagesParCle_couvrentChaqueLigneUneSeuleFois_etRespectentLaTranche() {
+        // Ordre d'insertion mélangé : éligibles et non éligibles s'intercalent dans les identifiants
+        for (int i = 0; i < 7; i++) {
+            demarrageAttendu(creer(StatutReservation.CONFIRME, AUJOURDHUI.minusDays(1), AUJOURDHUI.plusDays(1), chaise));
+            creer(StatutReservation.CONFIRME, AUJOURDHUI.plusDays(3), AUJOURDHUI.plusDays(4), chaise);
+            creer(StatutReservation.EN_ATTENTE, AUJOURDHUI, AUJOURDHUI, chaise);
+        }
+        Reservation dejaDemarree = creer(StatutReservation.CONFIRME, AUJOURDHUI, AUJOURDHUI, chaise);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                reservationRepo.demarrerReservations(List.of(dejaDemarree.getIdReservation())));
+        // Réservation déjà démarrée : sa ligne encore NOT_TODAY est rattrapée, pas la réservation
+        lignesADemarrer.addAll(lignesDe(dejaDemarree));
+
+        List<List<Long>> pagesReservations = paginer(apresId -> reservationRepo.findIdsReservationsADemarrer(
+                AUJOURDHUI, apresId, Long.MAX_VALUE, PageRequest.of(0, 3)));
+        assertEquals(List.of(3, 3, 1), pagesReservations.stream().map(List::size).toList());
+        assertEquals(reservationsADemarrer, pagesReservations.stream().flatMap(List::stream).toList());
+
+        List<List<Long>> pagesLignes = paginer(apresId -> ligneReservationRepo.findIdsLignesADemarrer(
+                AUJOURDHUI, apresId, Long.MAX_VALUE, PageRequest.of(0, 3)));
+        assertEquals(List.of(3, 3, 2), pagesLignes.stream().map(List::size).toList());
+        assertEquals(lignesADemarrer, pagesLignes.stream().flatMap(List::stream).toList());
+
+        // Tranche ]apresId, jusquA] : ni la borne basse ni ce qui dépasse la borne haute
+        Long apresId = lignesADemarrer.get(1);
+        Long jusquA = lignesADemarrer.get(4);
+        assertEquals(lignesADemarrer.subList(2, 5), ligneReservationRepo.findIdsLignesADemarrer(
+                AUJOURDHUI, apresId, jusquA, PageRequest.of(0, 100)));
+    }
+
+    @Test
+    void mettreAJourStatutsQuotidien_demarreReservationsLignesEtInstances() {
+        InstanceProduit disponible1 = creerInstance("PROJ-001", StatutInstance.DISPONIBLE);
+        InstanceProduit disponible2 = creerInstance("PROJ-002", StatutInstance.DISPONIBLE);
+        InstanceProduit enMaintenance = creerInstance("PROJ-003", StatutInstance.EN_MAINTENANCE);
+        InstanceProduit plusTard = creerInstance("PROJ-004", StatutInstance.DISPONIBLE);
+
+        Reservation avecInstances = demarrageAttendu(creer(StatutReservation.CONFIRME,
+                AUJOURDHUI.minusDays(1), AUJOURDHUI.plusDays(2), projecteur, disponible1, disponible2, enMaintenance));
+        Reservation quantitative = demarrageAttendu(creer(StatutReservation.CONFIRME,
+                AUJOURDHUI, AUJOURDHUI, chaise));
+        Reservation future = creer(StatutReservation.CONFIRME,
+                AUJOURDHUI.plusDays(5), AUJOURDHUI.plusDays(6), projecteur, plusTard);
+        Reservation devis = creer(StatutReservation.EN_ATTENTE, AUJOURDHUI, AUJOURDHUI, chaise);
+
+        ApplicationEventPublisher evenements = mock(ApplicationEventPublisher.class);
+        ReservationScheduler scheduler = scheduler(evenements);
+        scheduler.mettreAJourStatutsQuotidien();
+
+        assertEquals(StatutLivraison.EN_ATTENTE, statut(avecInstances));
+        assertEquals(StatutLivraison.EN_ATTENTE, statut(quantitative));
+        assertEquals(StatutLivraison.NOT_TODAY, statut(future));
+        assertEquals(StatutLivraison.NOT_TODAY, statut(devis));
+        for (Long idLigne : lignesADemarrer) {
+            assertEquals(StatutLivraison.EN_ATTENTE,
+                    ligneReservationRepo.findById(idLigne).orElseThrow().getStatutLivraisonLigne());
+        }
+
+        assertEquals(StatutInstance.EN_ATTENTE, statut(disponible1));
+        assertEquals(StatutInstance.EN_ATTENTE, statut(disponible2));
+        assertEquals(StatutInstance.EN_MAINTENANCE, statut(enMaintenance));
+        assertEquals(StatutInstance.DISPONIBLE, statut(plusTard));
+        verify(evenements).publishEvent(argThat((Object evenement) -> evenement instanceof OccupationModifieeEvent occupation
+                && projecteur.getIdProduit().equals(occupation.getIdProduit())));
+
+        // Même jour : tranches déjà terminées, rien n'est relu
+        ApplicationEventPublisher relance = mock(ApplicationEventPublisher.class);
+        scheduler(relance).mettreAJourStatutsQuotidien();
+        verifyNoInteractions(relance);
+    }
+
+    @Test
+    void mettreEnAttenteParLignes_neTouchePasAuxInstancesDesAutresLignes() {
+        InstanceProduit reservee = creerInstance("PROJ-101", StatutInstance.DISPONIBLE);
+        InstanceProduit autre = creerInstance("PROJ-102", StatutInstance.DISPONIBLE);
+        Long ligne = lignesDe(creer(StatutReservation.CONFIRME, AUJOURDHUI, AUJOURDHUI, projecteur, reservee)).get(0);
+        creer(StatutReservation.CONFIRME, AUJOURDHUI.plusDays(9), AUJOURDHUI.plusDays(9), projecteur, autre);
+
+        Integer modifiees = new TransactionTemplate(transactionManager)
+                .execute(status -> instanceProduitRepo.mettreEnAttenteParLignes(List.of(ligne)));
+
+        assertEquals(1, modifiees);
+        assertEquals(StatutInstance.EN_ATTENTE, statut(reservee));
+        assertEquals(StatutInstance.DISPONIBLE, statut(autre));
+    }
+
+    // ============================================
+    // DONNÉES
+    // ============================================
+
+    private ReservationScheduler scheduler(ApplicationEventPublisher evenements) {
+        SuiviTachesService suiviTaches = mock(SuiviTachesService.class);
+        when(suiviTaches.demarrer(anyString())).thenReturn(mock(SuiviTachesService.Execution.class));
+        return new ReservationScheduler(reservationRepo, ligneReservationRepo, instanceProduitRepo,
+                transactionManager, evenements, mock(ExpirationDevisService.class),
+                new CoordinationTaches(bailRepo, transactionManager, "noeud-test"), suiviTaches);
+    }
+
+    private Produit creerProduit(String code, TypeProduit type, int quantite) {
+        Produit produit = new Produit();
+        produit.setCodeProduit(code);
+        produit.setNomProduit(code);
+        produit.setCategorieProduit(Categorie.MOBILIER);
+        produit.setPrixUnitaire(10.0);
+        produit.setQuantiteInitial(quantite);
+        produit.setQuantiteDisponible(quantite);
+        produit.setTypeProduit(type);
+        produit.setInstances(new HashSet<>());
+        return produitRepo.save(produit);
+    }
+
+    private InstanceProduit creerInstance(String numeroSerie, StatutInstance statut) {
+        InstanceProduit instance = new InstanceProduit();
+        instance.setNumeroSerie(numeroSerie);
+        instance.setProduit(projecteur);
+        instance.setStatut(statut);
+        return instanceProduitRepo.save(instance);
+    }
+
+    private Reservation creer(StatutReservation statut, LocalDate debut, LocalDate fin, Produit produit,
+                              InstanceProduit... instances) {
+        Reservation reservation = new Reservation();
+        reservation.setReferenceReservation("RES-" + UUID.randomUUID().toString().substring(0, 8));
+        reservation.setStatutReservation(statut);
+        reservation.setStatutLivraisonRes(StatutLivraison.NOT_TODAY);
+        reservation.setUtilisateur(client);
+        reservation.setDateDebut(debut);
+        reservation.setDateFin(fin);
+
+        LigneReservation ligne = new LigneReservation();
+        ligne.setProduit(produit);
+        ligne.setQuantite(Math.max(1, instances.length));
+        ligne.setPrixUnitaire(10.0);
+        ligne.setDateDebut(debut);
+        ligne.setDateFin(fin);
+        ligne.setStatutLivraisonLigne(StatutLivraison.NOT_TODAY);
+        ligne.setInstancesReservees(new HashSet<>(Arrays.asList(instances)));
+        ligne.setReservation(reservation);
+        reservation.setLigneReservations(new HashSet<>(List.of(ligne)));
+
+        return reservationRepo.save(reservation);
+    }
+
+    private Reservation demarrageAttendu(Reservation reservation) {
+        reservationsADemarrer.add(reservation.getIdReservation());
+        lignesADemarrer.addAll(lignesDe(reservation));
+        return reservation;
+    }
+
+    private List<Long> lignesDe(Reservation reservation) {
+        return reservation.getLigneReservations().stream().map(LigneReservation::getIdLigneReservation).toList();
+    }
+
+    private static List<List<Long>> paginer(LongFunction<List<Long>> lirePage) {
+        List<List<Long>> pages = new ArrayList<>();
+        long apresId = 0;
+        List<Long> page;
+        while (!(page = lirePage.apply(apresId)).isEmpty()) {
+            pages.add(page);
+            apresId = page.get(page.size() - 1);
+        }
+        return pages;
+    }
+
+    private StatutLivraison statut(Reservation reservation) {
+        return reservationRepo.findById(reservation.getIdReservation()).orElseThrow().getStatutLivraisonRes();
+    }
+
+    private StatutInstance statut(InstanceProduit instance) {
+        return instanceProduitRepo.findById(instance.getIdInstance()).orElseThrow().getStatut();
+    }
+}
@@ -0,0 +1,147 @@
+package tn.weeding.agenceevenementielle.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.weeding.agenceevenementielle.entities.Notification;
+import tn.weeding.agenceevenementielle.entities.NotificationArchivee;
+import tn.weeding.agenceevenementielle.entities.Utilisateur;
+import tn.weeding.agenceevenementielle.entities.enums.StatutCompte;
+import tn.weeding.agenceevenementielle.entities.enums.TypeNotification;
+import tn.weeding.agenceevenementielle.repository.NotificationArchiveeRepository;
+import tn.weeding.agenceevenementielle.repository.NotificationRepository;
+import tn.weeding.agenceevenementielle.repository.UtilisateurRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Archivage par lots sur une vraie base (H2) : INSERT ... SELECT puis DELETE par lot,
+ * durée maximale par exécution et purge de l'archive
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:archivage;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "logging.level.tn.weeding.agenceevenementielle=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ArchivageNotificationServiceTest {
+
+    @Autowired private NotificationRepository notificationRepo;
+    @Autowired private NotificationArchiveeRepository archiveRepo;
+    @Autowired private UtilisateurRepository utilisateurRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private Utilisateur client;
+
+    @BeforeEach
+    void initialiser() {
+        notificationRepo.deleteAll();
+        archiveRepo.deleteAll();
+        utilisateurRepo.deleteAll();
+
+        client = new Utilisateur();
+        client.setCodeUtilisateur("CL-ARCH");
+        client.setPseudo("archive");
+        client.setEmail("archive@test.tn");
+        client.setEtatCompte(StatutCompte.ACTIVE);
+        client.setActivationCompte(true);
+        client = utilisateurRepo.save(client);
+    }
+
+    private ArchivageNotificationService service(int tailleLot, long dureeMaxMinutes) {
+        return new ArchivageNotificationService(notificationRepo, archiveRepo, transactionManager,
+                30, 365, tailleLot, 0, dureeMaxMinutes);
+    }
+
+    private Notification notification(int joursAnciennete, boolean lue) {
+        return notificationRepo.save(Notification.builder()
+                .typeNotification(TypeNotification.PAIEMENT_EN_ATTENTE)
+                .titre("Rappel")
+                .message("Message de " + joursAnciennete + " jours")
+                .dateCreation(LocalDateTime.now().minusDays(joursAnciennete))
+                .lue(lue)
+                .utilisateur(client)
+                .build());
+    }
+
+    @Test
+    void archiver_deplaceParLotsLuesEtNonLuesDePlusDe30Jours() {
+        for (int i = 0; i < 7; i++) {
+            notification(40 + i, i % 2 == 0);
+        }
+        Notification recente = notification(5, true);
+        Notification recenteNonLue = notification(29, false);
+
+        ArchivageNotificationService.Resultat resultat = service(3, 45).archiver();
+
+        assertTrue(resultat.complet());
+        assertEquals(7, resultat.lues());
+        assertEquals(7, resultat.archivees());
+        assertEquals(3, resultat.lots());
+        assertEquals(0, resultat.purgees());
+
+        assertEquals(List.of(recente.getIdNotification(), recenteNonLue.getIdNotification()),
+                notificationRepo.findAll().stream().map(Notification::getIdNotification).sorted().toList());
+        List<NotificationArchivee> archive = archiveRepo.findAll();
+        assertEquals(7, archive.size());
+        assertEquals(3, archive.stream().filter(a -> !a.getLue()).count());
+        assertTrue(archive.stream().allMatch(a -> client.getIdUtilisateur().equals(a.getIdUtilisateur())));
+    }
+
+    @Test
+    void archiver_dureeMaxAtteinte_repriseALaProchaineExecution() {
+        for (int i = 0; i < 7; i++) {
+            notification(40, true);
+        }
+
+        // Durée maximale nulle : un seul lot par exécution
+        ArchivageNotificationService.Resultat premiere = service(3, 0).archiver();
+        assertFalse(premiere.complet());
+        assertEquals(1, premiere.lots());
+        assertEquals(3, premiere.archivees());
+        assertEquals(4, notificationRepo.count());
+
+        ArchivageNotificationService.Resultat suite = service(3, 45).archiver();
+        assertTrue(suite.complet());
+        assertEquals(4, suite.archivees());
+        assertEquals(0, notificationRepo.count());
+        assertEquals(7, archiveRepo.count());
+    }
+
+    @Test
+    void archiver_purgeLArchiveAuDelaDeLaRetention() {
+        archiveRepo.saveAll(List.of(archivee(1L, 400), archivee(2L, 366), archivee(3L, 10)));
+
+        ArchivageNotificationService.Resultat resultat = service(1, 45).archiver();
+
+        assertTrue(resultat.complet());
+        assertEquals(0, resultat.archivees());
+        assertEquals(2, resultat.purgees());
+        assertEquals(List.of(3L), archiveRepo.findAll().stream().map(NotificationArchivee::getIdNotification).toList());
+    }
+
+    private NotificationArchivee archivee(Long id, int joursArchivage) {
+        LocalDateTime dateArchivage = LocalDateTime.now().minusDays(joursArchivage);
+        return NotificationArchivee.builder()
+                .idNotification(id)
+                .typeNotification(TypeNotification.PAIEMENT_EN_ATTENTE)
+                .titre("Rappel")
+                .message("Archivée")
+                .dateCreation(dateArchivage.minusDays(30))
+                .lue(true)
+                .idUtilisateur(client.getIdUtilisateur())
+                .dateArchivage(dateArchivage)
+                .build();
+    }
+}
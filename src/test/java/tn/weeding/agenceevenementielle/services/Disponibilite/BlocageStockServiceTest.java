@@ -0,0 +1,91 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tn.weeding.agenceevenementielle.dto.reservation.VerificationDisponibiliteDto;
+import tn.weeding.agenceevenementielle.entities.enums.Categorie;
+import tn.weeding.agenceevenementielle.exceptions.CustomException;
+import tn.weeding.agenceevenementielle.scheduling.CoordinationTaches;
+import tn.weeding.agenceevenementielle.services.Reservation.DateReservationValidator;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Blocages en mémoire (pas de RedisTemplate) : un devis EN_ATTENTE garde ses unités bloquées
+ */
+class BlocageStockServiceTest {
+
+    private static final LocalDate J = LocalDate.now().plusDays(30);
+    private static final Long PRODUIT = 1L;
+    private static final Long CLIENT_A = 10L;
+    private static final Long CLIENT_B = 20L;
+
+    private BlocageStockService blocages;
+
+    @BeforeEach
+    void initialiser() {
+        OccupationIndexService occupationIndex = mock(OccupationIndexService.class);
+        when(occupationIndex.getOccupation(anyLong())).thenReturn(
+                OccupationProduit.quantitatif(PRODUIT, "Chaise", Categorie.MOBILIER, 10, List.of()));
+        blocages = new BlocageStockService(occupationIndex, mock(DateReservationValidator.class),
+                mock(CoordinationTaches.class), 15);
+        blocages.init();
+    }
+
+    private static VerificationDisponibiliteDto demande(int quantite) {
+        return VerificationDisponibiliteDto.builder()
+                .idProduit(PRODUIT).quantite(quantite).dateDebut(J).dateFin(J.plusDays(2)).build();
+    }
+
+    private int bloqueesPourAutres(Long idUtilisateurExclu) {
+        return blocages.getIntervallesBloques(Set.of(PRODUIT), idUtilisateurExclu)
+                .getOrDefault(PRODUIT, List.of()).stream()
+                .mapToInt(OccupationProduit.Intervalle::getQuantite)
+                .sum();
+    }
+
+    @Test
+    void devisEnAttente_garde_ses_unites_bloquees_jusqu_a_sa_liberation() {
+        blocages.bloquer(CLIENT_A, demande(6));
+
+        // Le panier devient un devis EN_ATTENTE (hors transaction : appliqué immédiatement)
+        blocages.convertirEnDevis(CLIENT_A, 100L, List.of(demande(6)), LocalDateTime.now().plusDays(2));
+
+        assertTrue(blocages.getMesBlocages(CLIENT_A).isEmpty(), "le blocage de panier est consommé");
+        assertEquals(6, bloqueesPourAutres(CLIENT_B));
+        // Un second devis du même client ne peut pas consommer les unités de son premier devis
+        assertEquals(6, bloqueesPourAutres(CLIENT_A));
+        assertThrows(CustomException.class, () -> blocages.bloquer(CLIENT_B, demande(5)));
+        blocages.bloquer(CLIENT_B, demande(4));
+
+        blocages.libererDevis(100L, List.of(PRODUIT));
+
+        assertEquals(4, bloqueesPourAutres(CLIENT_A));
+        blocages.bloquer(CLIENT_B, demande(6));
+    }
+
+    @Test
+    void modificationDuDevis_remplace_ses_blocages() {
+        blocages.convertirEnDevis(CLIENT_A, 100L, List.of(demande(6)), LocalDateTime.now().plusDays(2));
+        blocages.convertirEnDevis(CLIENT_A, 100L, List.of(demande(3)), LocalDateTime.now().plusDays(2));
+
+        assertEquals(3, bloqueesPourAutres(CLIENT_B));
+    }
+
+    @Test
+    void devisConfirmeAussitot_libere_seulement_le_panier() {
+        blocages.bloquer(CLIENT_A, demande(6));
+
+        blocages.convertirEnDevis(CLIENT_A, null, List.of(demande(6)), null);
+
+        assertEquals(0, bloqueesPourAutres(CLIENT_B));
+    }
+}
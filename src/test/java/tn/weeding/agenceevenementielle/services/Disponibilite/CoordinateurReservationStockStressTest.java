@@ -0,0 +1,189 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.weeding.agenceevenementielle.entities.*;
+import tn.weeding.agenceevenementielle.entities.enums.*;
+import tn.weeding.agenceevenementielle.exceptions.ProduitException;
+import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
+import tn.weeding.agenceevenementielle.repository.ProduitRepository;
+import tn.weeding.agenceevenementielle.repository.ReservationRepository;
+import tn.weeding.agenceevenementielle.repository.UtilisateurRepository;
+import tn.weeding.agenceevenementielle.services.Reservation.ReservationServiceImpl;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de charge : des validations concurrentes de devis ne doivent jamais surréserver le stock.
+ *
+ * - 60 devis de 1 chaise (stock 20) sur la même période
+ * - 20 devis de 1 projecteur (5 instances) sur la même période
+ * - 30 devis sur un troisième produit sans conflit, qui doivent tous passer
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:stress;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=30000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=" + (CoordinateurReservationStockStressTest.THREADS + 4),
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "logging.level.tn.weeding.agenceevenementielle=WARN",
+        "logging.level.tn.weeding.agenceevenementielle.services.Disponibilite.CoordinateurReservationStockStressTest=INFO"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ValidationDevisTestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Slf4j
+class CoordinateurReservationStockStressTest {
+
+    static final int THREADS = 16;
+    private static final LocalDate DEBUT = LocalDate.now().plusDays(30);
+    private static final LocalDate FIN = DEBUT.plusDays(2);
+
+    @Autowired private ReservationServiceImpl reservationService;
+    @Autowired private ReservationRepository reservationRepo;
+    @Autowired private LigneReservationRepository ligneReservationRepo;
+    @Autowired private ProduitRepository produitRepo;
+    @Autowired private UtilisateurRepository utilisateurRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Test
+    void validationsConcurrentes_sansSurreservation() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        Map<Long, Produit> produits = tx.execute(status -> {
+            Utilisateur client = creerClient();
+            Produit chaise = creerProduit("CHAISE", TypeProduit.EN_QUANTITE, 20);
+            Produit projecteur = creerProduit("PROJ", TypeProduit.AVEC_REFERENCE, 5);
+            Produit nappe = creerProduit("NAPPE", TypeProduit.EN_QUANTITE, 1000);
+            for (int i = 0; i < 5; i++) {
+                InstanceProduit instance = InstanceProduit.builder()
+                        .numeroSerie("PROJ-" + i)
+                        .produit(projecteur)
+                        .statut(StatutInstance.DISPONIBLE)
+                        .build();
+                projecteur.getInstances().add(instance);
+            }
+            produitRepo.save(projecteur);
+
+            for (int i = 0; i < 60; i++) creerDevis(client, chaise, i);
+            for (int i = 0; i < 20; i++) creerDevis(client, projecteur, 100 + i);
+            for (int i = 0; i < 30; i++) creerDevis(client, nappe, 200 + i);
+            return Map.of(1L, chaise, 2L, projecteur, 3L, nappe);
+        });
+
+        List<Long> idsDevis = tx.execute(status -> reservationRepo.findAll().stream()
+                .map(Reservation::getIdReservation)
+                .toList());
+
+        TransactionTemplate validation = new TransactionTemplate(transactionManager);
+        validation.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+
+        AtomicInteger refusees = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<?>> taches = new ArrayList<>();
+        for (Long idDevis : idsDevis) {
+            taches.add(pool.submit(() -> {
+                depart.await();
+                try {
+                    validation.executeWithoutResult(status -> reservationService.reserverStockPourReservation(
+                            reservationRepo.findById(idDevis).orElseThrow()));
+                } catch (ProduitException e) {
+                    refusees.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long debut = System.nanoTime();
+        depart.countDown();
+        for (Future<?> tache : taches) {
+            tache.get(60, TimeUnit.SECONDS);
+        }
+        double secondes = (System.nanoTime() - debut) / 1e9;
+        pool.shutdown();
+
+        log.info("📈 {} validations en {} s ({} validations/s), {} refusées", idsDevis.size(),
+                String.format("%.2f", secondes), Math.round(idsDevis.size() / secondes), refusees.get());
+
+        tx.executeWithoutResult(status -> {
+            Produit chaise = produits.get(1L);
+            Produit projecteur = produits.get(2L);
+            Produit nappe = produits.get(3L);
+
+            List<LigneReservation> chaises = ligneReservationRepo
+                    .findReservationsConfirmeesChevauchantes(chaise.getIdProduit(), DEBUT, FIN);
+            assertEquals(20, chaises.stream().mapToInt(LigneReservation::getQuantite).sum());
+
+            List<LigneReservation> projecteurs = ligneReservationRepo
+                    .findReservationsConfirmeesChevauchantes(projecteur.getIdProduit(), DEBUT, FIN);
+            List<Long> instances = projecteurs.stream()
+                    .flatMap(l -> l.getInstancesReservees().stream())
+                    .map(InstanceProduit::getIdInstance)
+                    .toList();
+            assertEquals(5, instances.size());
+            assertEquals(5, new HashSet<>(instances).size(), "une instance réservée deux fois");
+
+            assertEquals(30, ligneReservationRepo
+                    .findReservationsConfirmeesChevauchantes(nappe.getIdProduit(), DEBUT, FIN).size());
+        });
+        assertEquals(60 - 20 + 20 - 5, refusees.get());
+    }
+
+    private Utilisateur creerClient() {
+        Utilisateur client = new Utilisateur();
+        client.setCodeUtilisateur("CL-TEST");
+        client.setPseudo("client");
+        client.setEmail("client@test.tn");
+        client.setEtatCompte(StatutCompte.ACTIVE);
+        client.setActivationCompte(true);
+        return utilisateurRepo.save(client);
+    }
+
+    private Produit creerProduit(String code, TypeProduit type, int quantite) {
+        Produit produit = new Produit();
+        produit.setCodeProduit(code);
+        produit.setNomProduit(code);
+        produit.setCategorieProduit(Categorie.MOBILIER);
+        produit.setPrixUnitaire(10.0);
+        produit.setQuantiteInitial(quantite);
+        produit.setQuantiteDisponible(quantite);
+        produit.setTypeProduit(type);
+        produit.setInstances(new HashSet<>());
+        return produitRepo.save(produit);
+    }
+
+    private void creerDevis(Utilisateur client, Produit produit, int numero) {
+        Reservation devis = new Reservation();
+        devis.setReferenceReservation("RES-TEST-" + numero);
+        devis.setStatutReservation(StatutReservation.EN_ATTENTE);
+        devis.setUtilisateur(client);
+        devis.setDateDebut(DEBUT);
+        devis.setDateFin(FIN);
+
+        LigneReservation ligne = new LigneReservation();
+        ligne.setProduit(produit);
+        ligne.setQuantite(1);
+        ligne.setPrixUnitaire(10.0);
+        ligne.setDateDebut(DEBUT);
+        ligne.setDateFin(FIN);
+        ligne.setReservation(devis);
+        devis.setLigneReservations(new HashSet<>(List.of(ligne)));
+
+        reservationRepo.save(devis);
+    }
+}
@@ -0,0 +1,80 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import org.junit.jupiter.api.Test;
+import tn.weeding.agenceevenementielle.dto.produit.DisponibiliteCacheStatsDto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DisponibiliteCacheTest {
+
+    private static final LocalDate J = LocalDate.of(2030, 6, 1);
+
+    private final AtomicInteger calculs = new AtomicInteger();
+
+    private DisponibiliteCache.Disponibilite lire(DisponibiliteCache cache, long idProduit, int debut, int fin) {
+        return cache.lire(idProduit, J.plusDays(debut), J.plusDays(fin), () -> {
+            calculs.incrementAndGet();
+            return new DisponibiliteCache.Disponibilite(10, List.of());
+        });
+    }
+
+    @Test
+    void invalidation_neRetireQueLesPeriodesQuiChevauchent() {
+        DisponibiliteCache cache = new DisponibiliteCache(100);
+        lire(cache, 1, 0, 2);
+        lire(cache, 1, 5, 7);
+        lire(cache, 1, 10, 12);
+        lire(cache, 2, 0, 12);
+        assertEquals(4, calculs.get());
+
+        cache.invalider(1L, J.plusDays(6), J.plusDays(10));
+
+        lire(cache, 1, 0, 2);    // intacte
+        lire(cache, 2, 0, 12);   // autre produit
+        assertEquals(4, calculs.get());
+        lire(cache, 1, 5, 7);
+        lire(cache, 1, 10, 12);
+        assertEquals(6, calculs.get());
+
+        cache.invaliderProduit(1L);
+        lire(cache, 1, 0, 2);
+        assertEquals(7, calculs.get());
+
+        DisponibiliteCacheStatsDto stats = cache.getStatistiques();
+        assertEquals(2, stats.getSucces());
+        assertEquals(7, stats.getEchecs());
+        assertEquals(5, stats.getInvalidations());
+    }
+
+    @Test
+    void tailleBornee_evinceLaMoinsRecemmentLue() {
+        DisponibiliteCache cache = new DisponibiliteCache(2);
+        lire(cache, 1, 0, 1);
+        lire(cache, 1, 2, 3);
+        lire(cache, 1, 0, 1);    // devient la plus récente
+        lire(cache, 1, 4, 5);    // évince [2, 3]
+        assertEquals(3, calculs.get());
+
+        lire(cache, 1, 0, 1);
+        assertEquals(3, calculs.get());
+        lire(cache, 1, 2, 3);
+        assertEquals(4, calculs.get());
+        assertEquals(2, cache.getStatistiques().getTaille());
+        assertEquals(2, cache.getStatistiques().getEvictions());
+    }
+
+    @Test
+    void valeurCalculeePendantUneInvalidation_nestPasMemorisee() {
+        DisponibiliteCache cache = new DisponibiliteCache(100);
+        cache.lire(1L, J, J.plusDays(1), () -> {
+            // Rafraîchissement de l'index pendant le calcul
+            cache.invalider(1L, J.plusDays(20), J.plusDays(21));
+            return new DisponibiliteCache.Disponibilite(3, List.of());
+        });
+        assertEquals(0, cache.getStatistiques().getTaille());
+    }
+}
@@ -0,0 +1,139 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import org.junit.jupiter.api.Test;
+import tn.weeding.agenceevenementielle.entities.enums.Categorie;
+import tn.weeding.agenceevenementielle.entities.enums.StatutInstance;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.InstanceOccupation;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.Intervalle;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupationProduitTest {
+
+    private static final LocalDate J = LocalDate.of(2026, 6, 1);
+
+    @Test
+    void picReserve_neCumulePasLesReservationsDisjointes() {
+        OccupationProduit occupation = OccupationProduit.quantitatif(1L, "Chaise", Categorie.MOBILIER, 100, List.of(
+                new Intervalle(J, J.plusDays(2), 30),
+                new Intervalle(J.plusDays(5), J.plusDays(6), 40),
+                new Intervalle(J.plusDays(2), J.plusDays(5), 10)
+        ));
+
+        assertEquals(40, occupation.picReserve(J, J.plusDays(2)));
+        assertEquals(50, occupation.picReserve(J, J.plusDays(10)));
+        assertEquals(10, occupation.picReserve(J.plusDays(3), J.plusDays(4)));
+        assertEquals(0, occupation.picReserve(J.plusDays(7), J.plusDays(9)));
+        assertEquals(0, occupation.picReserve(J.minusDays(5), J.minusDays(1)));
+        assertEquals(50, occupation.quantiteDisponible(J.plusDays(4), J.plusDays(5)));
+        assertArrayEquals(new int[]{90, 90, 50, 60, 100}, occupation.disponibiliteParJour(J.plusDays(3), J.plusDays(7)));
+        assertArrayEquals(new int[]{60, 60, 60, 50, 50, 50}, occupation.capaciteParFenetre(J, J.plusDays(7), 3));
+
+        // Lignes d'un même devis pas encore en base
+        List<Intervalle> demandes = List.of(new Intervalle(J.plusDays(3), J.plusDays(4), 25));
+        assertEquals(50, occupation.picReserve(J, J.plusDays(10), demandes));
+        assertEquals(35, occupation.picReserve(J.plusDays(3), J.plusDays(4), demandes));
+        assertEquals(40, occupation.picReserve(J.plusDays(6), J.plusDays(8), demandes));
+    }
+
+    @Test
+    void instancesLibres_excluentChevauchementsEtStatutsIndisponibles() {
+        InstanceOccupation libre = new InstanceOccupation(1L, "P-001", StatutInstance.DISPONIBLE, List.of());
+        InstanceOccupation reservee = new InstanceOccupation(2L, "P-002", StatutInstance.DISPONIBLE, List.of(
+                new Intervalle(J, J.plusDays(10), 1),
+                new Intervalle(J.plusDays(2), J.plusDays(3), 1)
+        ));
+        InstanceOccupation enPanne = new InstanceOccupation(3L, "P-003", StatutInstance.EN_PANNE, List.of());
+
+        OccupationProduit occupation = OccupationProduit.avecReference(2L, "Projecteur", Categorie.LUMIERE, 3,
+                List.of(enPanne, reservee, libre));
+
+        assertEquals(List.of("P-001"), occupation.instancesLibres(J.plusDays(5), J.plusDays(6)).stream()
+                .map(InstanceOccupation::getNumeroSerie).toList());
+        assertEquals(2, occupation.quantiteDisponible(J.plusDays(11), J.plusDays(12)));
+        assertEquals(1, occupation.compterInstancesReservees(J.plusDays(5), J.plusDays(6)));
+
+
+        // P-002 réservée deux fois sur [J+2, J+3] : ces jours ne sont retirés qu'une fois
+        assertArrayEquals(new int[]{1, 1, 1, 1}, occupation.disponibiliteParJour(J.plusDays(1), J.plusDays(4)));
+        assertArrayEquals(new int[]{1, 1, 1, 2, 2}, occupation.disponibiliteParJour(J.plusDays(8), J.plusDays(12)));
+        assertArrayEquals(new int[]{1, 1, 1, 2, 2}, occupation.capaciteParFenetre(J.plusDays(8), J.plusDays(13), 2));
+        assertFalse(reservee.estLibre(J.plusDays(10), J.plusDays(12)));
+        assertTrue(reservee.estLibre(J.minusDays(3), J.minusDays(1)));
+    }
+
+    @Test
+    void unitesHorsIndex_deduitesDeLaCapaciteParFenetre() {
+        // Blocage de panier (ou ligne précédente du lot) : 5 unités sur [J+4, J+5]
+        List<Intervalle> prises = List.of(new Intervalle(J.plusDays(4), J.plusDays(5), 5));
+
+        OccupationProduit chaises = OccupationProduit.quantitatif(1L, "Chaise", Categorie.MOBILIER, 10, List.of(
+                new Intervalle(J, J.plusDays(2), 6)
+        ));
+        assertArrayEquals(new int[]{4, 4, 4, 10, 10, 10, 10}, chaises.capaciteParFenetre(J, J.plusDays(7), 2));
+        assertArrayEquals(new int[]{4, 4, 4, 5, 5, 5, 10}, chaises.capaciteParFenetre(J, J.plusDays(7), 2, prises));
+        assertEquals(5, chaises.quantiteDisponible(J.plusDays(3), J.plusDays(5), prises));
+        assertEquals(10, chaises.quantiteDisponible(J.plusDays(3), J.plusDays(5), List.of()));
+
+        OccupationProduit projecteurs = OccupationProduit.avecReference(2L, "Projecteur", Categorie.LUMIERE, 3, List.of(
+                new InstanceOccupation(1L, "P-001", StatutInstance.DISPONIBLE, List.of()),
+                new InstanceOccupation(2L, "P-002", StatutInstance.DISPONIBLE, List.of()),
+                new InstanceOccupation(3L, "P-003", StatutInstance.DISPONIBLE, List.of(
+                        new Intervalle(J.plusDays(1), J.plusDays(1), 1)))
+        ));
+        List<Intervalle> instancesPrises = List.of(new Intervalle(J.plusDays(3), J.plusDays(3), 2));
+        assertArrayEquals(new int[]{2, 2, 3, 3}, projecteurs.capaciteParFenetre(J, J.plusDays(4), 2));
+        assertArrayEquals(new int[]{2, 2, 1, 1}, projecteurs.capaciteParFenetre(J, J.plusDays(4), 2, instancesPrises));
+        assertEquals(1, projecteurs.quantiteDisponible(J.plusDays(3), J.plusDays(4), instancesPrises));
+        assertEquals(0, projecteurs.quantiteDisponible(J.plusDays(3), J.plusDays(4),
+                List.of(new Intervalle(J.plusDays(3), J.plusDays(3), 5))));
+    }
+
+    @Test
+    void meilleurAjustement_remplitLesTrousAvantLesCalendriersVides() {
+        InstanceOccupation vide = new InstanceOccupation(1L, "P-001", StatutInstance.DISPONIBLE, List.of());
+        InstanceOccupation trouLarge = new InstanceOccupation(2L, "P-002", StatutInstance.DISPONIBLE, List.of(
+                new Intervalle(J, J.plusDays(1), 1),
+                new Intervalle(J.plusDays(12), J.plusDays(13), 1)
+        ));
+        InstanceOccupation trouJuste = new InstanceOccupation(3L, "P-003", StatutInstance.DISPONIBLE, List.of(
+                new Intervalle(J, J.plusDays(3), 1),
+                new Intervalle(J.plusDays(7), J.plusDays(8), 1)
+        ));
+        List<InstanceOccupation> libres = List.of(vide, trouLarge, trouJuste);
+
+        // Demande [J+4, J+6] : tient exactement dans le trou de P-003
+        assertEquals(List.of("P-003", "P-002"), new AllocationMeilleurAjustement()
+                .choisir(libres, J.plusDays(4), J.plusDays(6), 2).stream()
+                .map(InstanceOccupation::getNumeroSerie).toList());
+        assertEquals(List.of("P-001"), new AllocationParNumeroSerie()
+                .choisir(libres, J.plusDays(4), J.plusDays(6), 1).stream()
+                .map(InstanceOccupation::getNumeroSerie).toList());
+    }
+
+    @Test
+    void avecReservation_equivautAReconstruireLInstance() {
+        InstanceOccupation instance = new InstanceOccupation(1L, "P-001", StatutInstance.DISPONIBLE, List.of(
+                new Intervalle(J, J.plusDays(1), 1),
+                new Intervalle(J.plusDays(10), J.plusDays(11), 1)
+        ));
+
+        // Insertion au milieu, puis avant la première réservation
+        InstanceOccupation miseAJour = instance
+                .avecReservation(J.plusDays(4).toEpochDay(), J.plusDays(6).toEpochDay())
+                .avecReservation(J.minusDays(5).toEpochDay(), J.minusDays(3).toEpochDay());
+
+        assertEquals(4, miseAJour.getNombreReservations());
+        assertEquals(List.of(J.minusDays(5), J, J.plusDays(4), J.plusDays(10)),
+                miseAJour.getReservations().stream().map(Intervalle::getDebut).toList());
+        assertFalse(miseAJour.estLibre(J.plusDays(6), J.plusDays(7)));
+        assertTrue(miseAJour.estLibre(J.plusDays(7), J.plusDays(9)));
+        assertEquals(0, miseAJour.joursLibresAvant(J.plusDays(7).toEpochDay(), J.plusDays(9).toEpochDay()));
+        assertEquals(0, miseAJour.joursLibresApres(J.plusDays(7).toEpochDay(), J.plusDays(9).toEpochDay()));
+        // L'instance d'origine n'est pas modifiée
+        assertEquals(2, instance.getNombreReservations());
+    }
+}
@@ -0,0 +1,110 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tn.weeding.agenceevenementielle.dto.produit.SimulationAllocationDto;
+import tn.weeding.agenceevenementielle.entities.enums.StatutReservation;
+import tn.weeding.agenceevenementielle.exceptions.CustomException;
+import tn.weeding.agenceevenementielle.repository.InstanceProduitRepository;
+import tn.weeding.agenceevenementielle.repository.LigneReservationRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Rejeu d'un petit historique connu : allocations, rejets et utilisation attendus par stratégie
+ */
+class SimulateurAllocationServiceTest {
+
+    private static final LocalDate J = LocalDate.of(2026, 6, 1);
+    private static final Long PROJECTEUR = 1L;
+    private static final Long ECRAN = 2L;
+
+    private LigneReservationRepository ligneReservationRepo;
+    private SimulateurAllocationService simulateur;
+
+    @BeforeEach
+    void initialiser() {
+        ligneReservationRepo = mock(LigneReservationRepository.class);
+        InstanceProduitRepository instanceProduitRepo = mock(InstanceProduitRepository.class);
+        when(instanceProduitRepo.countInstancesExploitablesParProduit()).thenReturn(List.of(
+                new Object[]{PROJECTEUR, 2L},
+                new Object[]{ECRAN, 1L}
+        ));
+
+        // Historique dans l'ordre de création des réservations (jours relatifs à J)
+        List<Object[]> demandes = new ArrayList<>();
+        demandes.add(demande(PROJECTEUR, 0, 1));
+        demandes.add(demande(PROJECTEUR, 0, 4));
+        // Meilleur ajustement : juste après [0, 4] (1 jour libre) plutôt qu'après [0, 1] (4 jours libres)
+        demandes.add(demande(PROJECTEUR, 6, 7));
+        // Ne tient que sur l'instance que le meilleur ajustement a laissée libre après [0, 1]
+        demandes.add(demande(PROJECTEUR, 2, 8));
+        // Déborde de la fenêtre : seuls [7, 9] comptent
+        demandes.add(demande(ECRAN, 7, 11));
+        // Seul écran déjà pris
+        demandes.add(demande(ECRAN, 8, 8));
+        when(ligneReservationRepo.findHistoriqueDemandesAvecReference(any(), any(), any())).thenReturn(demandes);
+
+        AllocationInstancesService allocationInstances = new AllocationInstancesService(ligneReservationRepo,
+                List.of(new AllocationParNumeroSerie(), new AllocationMeilleurAjustement()),
+                AllocationMeilleurAjustement.NOM);
+        simulateur = new SimulateurAllocationService(ligneReservationRepo, instanceProduitRepo, allocationInstances);
+    }
+
+    private static Object[] demande(Long idProduit, int debut, int fin) {
+        return new Object[]{idProduit, J.plusDays(debut), J.plusDays(fin), 1};
+    }
+
+    @Test
+    void simuler_calendrierConnu_rejetsEtUtilisationParStrategie() {
+        List<SimulationAllocationDto> resultats = simulateur.simuler(J, J.plusDays(9), false);
+
+        assertEquals(List.of(AllocationParNumeroSerie.NOM, AllocationMeilleurAjustement.NOM),
+                resultats.stream().map(SimulationAllocationDto::getStrategie).toList());
+        // Capacité : 2 projecteurs + 1 écran sur 10 jours
+        resultats.forEach(resultat -> {
+            assertEquals(6, resultat.getNombreDemandes());
+            assertEquals(30, resultat.getCapaciteInstancesJours());
+        });
+
+        // Numéro de série : [6, 7] sur la première instance, [2, 8] ne tient plus nulle part
+        SimulationAllocationDto parNumeroSerie = resultats.get(0);
+        assertFalse(parNumeroSerie.getStrategieActive());
+        assertEquals(2, parNumeroSerie.getDemandesRefusees());
+        assertEquals(33.33, parNumeroSerie.getTauxRejet());
+        assertEquals(2 + 5 + 2 + 3, parNumeroSerie.getInstancesJoursReservees());
+        assertEquals(40.0, parNumeroSerie.getTauxUtilisation());
+
+        SimulationAllocationDto meilleurAjustement = resultats.get(1);
+        assertTrue(meilleurAjustement.getStrategieActive());
+        assertEquals(1, meilleurAjustement.getDemandesRefusees());
+        assertEquals(16.67, meilleurAjustement.getTauxRejet());
+        assertEquals(2 + 5 + 2 + 7 + 3, meilleurAjustement.getInstancesJoursReservees());
+        assertEquals(63.33, meilleurAjustement.getTauxUtilisation());
+    }
+
+    @Test
+    void simuler_devisNonConfirmes_elargitLesStatutsRejoues() {
+        simulateur.simuler(J, J.plusDays(9), false);
+        verify(ligneReservationRepo).findHistoriqueDemandesAvecReference(
+                eq(List.of(StatutReservation.CONFIRME, StatutReservation.TERMINE)), eq(J), eq(J.plusDays(9)));
+
+        simulateur.simuler(J, J.plusDays(9), true);
+        verify(ligneReservationRepo).findHistoriqueDemandesAvecReference(
+                eq(List.of(StatutReservation.CONFIRME, StatutReservation.TERMINE,
+                        StatutReservation.EN_ATTENTE, StatutReservation.ANNULE)), eq(J), eq(J.plusDays(9)));
+    }
+
+    @Test
+    void simuler_periodeInvalide() {
+        assertThrows(CustomException.class, () -> simulateur.simuler(J, J.minusDays(1), false));
+        assertThrows(CustomException.class, () -> simulateur.simuler(null, J, false));
+        verifyNoInteractions(ligneReservationRepo);
+    }
+}
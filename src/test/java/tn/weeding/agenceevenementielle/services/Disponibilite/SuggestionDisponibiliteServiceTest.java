@@ -0,0 +1,84 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tn.weeding.agenceevenementielle.dto.reservation.SuggestionDisponibiliteDto;
+import tn.weeding.agenceevenementielle.dto.reservation.SuggestionDisponibiliteDto.ProduitSubstitut;
+import tn.weeding.agenceevenementielle.entities.enums.Categorie;
+import tn.weeding.agenceevenementielle.repository.ProduitRepository;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.Intervalle;
+import tn.weeding.agenceevenementielle.services.Reservation.DateReservationValidator;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Suggestions : les blocages de panier et les lignes déjà acceptées du lot comptent
+ * comme dans la vérification de disponibilité
+ */
+class SuggestionDisponibiliteServiceTest {
+
+    private static final LocalDate J = LocalDate.now().plusDays(30);
+    private static final Long CHAISE = 1L;
+    private static final Long TABOURET = 2L;
+
+    private SuggestionDisponibiliteService suggestions;
+
+    @BeforeEach
+    void initialiser() {
+        // Chaises complètes sur [J, J+2], tabourets libres
+        OccupationProduit chaises = OccupationProduit.quantitatif(CHAISE, "Chaise", Categorie.MOBILIER, 10, List.of(
+                new Intervalle(J, J.plusDays(2), 10)
+        ));
+        OccupationProduit tabourets = OccupationProduit.quantitatif(TABOURET, "Tabouret", Categorie.MOBILIER, 8, List.of());
+
+        OccupationIndexService occupationIndex = mock(OccupationIndexService.class);
+        when(occupationIndex.getOccupation(CHAISE)).thenReturn(chaises);
+        when(occupationIndex.getOccupations(any())).thenReturn(Map.of(TABOURET, tabourets));
+        ProduitRepository produitRepo = mock(ProduitRepository.class);
+        when(produitRepo.findProjectionsCatalogue(Categorie.MOBILIER, null)).thenReturn(List.of(
+                new Object[]{CHAISE}, new Object[]{TABOURET}));
+        DateReservationValidator dateValidator = mock(DateReservationValidator.class);
+        when(dateValidator.getDateMinimaleReservation()).thenReturn(LocalDate.now());
+        when(dateValidator.getDateMaximaleReservation()).thenReturn(LocalDate.now().plusYears(1));
+
+        suggestions = new SuggestionDisponibiliteService(occupationIndex, produitRepo, dateValidator, 90);
+    }
+
+    @Test
+    void suggerer_sansUnitesPrisesHorsIndex() {
+        SuggestionDisponibiliteDto resultat = suggestions.suggerer(CHAISE, 6, J, J.plusDays(1), ids -> Map.of());
+
+        assertEquals(J.minusDays(2), resultat.getFenetreAvant().getDateDebut());
+        assertEquals(J.plusDays(3), resultat.getFenetreApres().getDateDebut());
+        assertEquals(List.of(TABOURET), resultat.getProduitsSubstituts().stream()
+                .map(ProduitSubstitut::getIdProduit).toList());
+        assertEquals(8, resultat.getProduitsSubstituts().get(0).getQuantiteDisponible());
+    }
+
+    @Test
+    void suggerer_deduitBlocagesEtLignesDuLot() {
+        Map<Long, List<Intervalle>> prises = Map.of(
+                // Ligne précédente du lot avant la demande, blocage d'un autre client après
+                CHAISE, List.of(new Intervalle(J.minusDays(3), J.minusDays(1), 5),
+                        new Intervalle(J.plusDays(3), J.plusDays(6), 5)),
+                // Blocage sur le produit de substitution
+                TABOURET, List.of(new Intervalle(J, J.plusDays(1), 3)));
+
+        SuggestionDisponibiliteDto resultat = suggestions.suggerer(CHAISE, 6, J, J.plusDays(1), ids -> prises);
+
+        assertEquals(J.minusDays(5), resultat.getFenetreAvant().getDateDebut());
+        assertEquals(J.plusDays(7), resultat.getFenetreApres().getDateDebut());
+        assertEquals(10, resultat.getFenetreApres().getQuantiteDisponible());
+        assertTrue(resultat.getProduitsSubstituts().isEmpty());
+
+        // Assez de tabourets malgré le blocage pour une demande plus petite
+        SuggestionDisponibiliteDto petite = suggestions.suggerer(CHAISE, 5, J, J.plusDays(1), ids -> prises);
+        assertEquals(5, petite.getProduitsSubstituts().get(0).getQuantiteDisponible());
+    }
+}
@@ -0,0 +1,73 @@
+package tn.weeding.agenceevenementielle.services.Disponibilite;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import tn.weeding.agenceevenementielle.services.EmailService;
+import tn.weeding.agenceevenementielle.services.FactureServiceInterface;
+import tn.weeding.agenceevenementielle.services.NotificationServiceInterface;
+import tn.weeding.agenceevenementielle.services.SequenceService;
+import tn.weeding.agenceevenementielle.services.Reservation.DateReservationValidator;
+import tn.weeding.agenceevenementielle.services.Reservation.ExpirationDevisService;
+import tn.weeding.agenceevenementielle.services.Reservation.ReservationServiceImpl;
+import tn.weeding.agenceevenementielle.services.Stock.JournalMouvementStockService;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Contexte minimal de la validation d'un devis (ReservationServiceImpl.reserverStockPourReservation)
+ * au-dessus d'un @DataJpaTest
+ *
+ * Réels : ce qui s'exécute sous le verrou des produits (verrous, allocation des instances,
+ * journal des mouvements). Tout le reste de ReservationServiceImpl est simulé.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+@Import({ReservationServiceImpl.class, CoordinateurReservationStock.class, JournalMouvementStockService.class,
+        AllocationInstancesService.class, AllocationMeilleurAjustement.class, AllocationParNumeroSerie.class})
+class ValidationDevisTestConfiguration {
+
+    @Bean
+    OccupationIndexService occupationIndex() {
+        return mock(OccupationIndexService.class);
+    }
+
+    @Bean
+    BlocageStockService blocageStock() {
+        return mock(BlocageStockService.class);
+    }
+
+    @Bean
+    SuggestionDisponibiliteService suggestionDisponibilite() {
+        return mock(SuggestionDisponibiliteService.class);
+    }
+
+    @Bean
+    DateReservationValidator dateValidator() {
+        return mock(DateReservationValidator.class);
+    }
+
+    @Bean
+    SequenceService sequenceService() {
+        return mock(SequenceService.class);
+    }
+
+    @Bean
+    ExpirationDevisService expirationDevis() {
+        return mock(ExpirationDevisService.class);
+    }
+
+    @Bean
+    FactureServiceInterface factureService() {
+        return mock(FactureServiceInterface.class);
+    }
+
+    @Bean
+    NotificationServiceInterface notificationService() {
+        return mock(NotificationServiceInterface.class);
+    }
+
+    @Bean
+    EmailService emailService() {
+        return mock(EmailService.class);
+    }
+}
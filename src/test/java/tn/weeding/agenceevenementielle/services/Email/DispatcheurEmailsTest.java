@@ -0,0 +1,22 @@
+package tn.weeding.agenceevenementielle.services.Email;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatcheurEmailsTest {
+
+    @Test
+    void delai_doubleAChaqueEchecEtResteSousLePlafond() {
+        for (int tentatives = 1; tentatives <= 30; tentatives++) {
+            long attendu = Math.min(DispatcheurEmails.DELAI_INITIAL.toMillis() << Math.min(tentatives - 1, 20),
+                    DispatcheurEmails.DELAI_MAX.toMillis());
+            Duration delai = DispatcheurEmails.delaiAvantTentative(tentatives);
+
+            assertTrue(delai.toMillis() >= attendu * 0.8, "tentative " + tentatives);
+            assertTrue(delai.toMillis() <= attendu * 1.2, "tentative " + tentatives);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package tn.weeding.agenceevenementielle.services.Email;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import tn.weeding.agenceevenementielle.entities.EmailSortant;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Envoi de lots sur un serveur SMTP local (GreenMail)
+ */
+class ExpediteurSmtpTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Test
+    void lot_envoyeSurUneConnexion() throws Exception {
+        ExpediteurSmtp expediteur = new ExpediteurSmtp(mailSender(ServerSetupTest.SMTP.getPort()));
+
+        Map<Long, String> echecs = expediteur.envoyer(List.of(
+                email(1L, "alice@test.tn"), email(2L, "bob@test.tn"), email(3L, "chloe@test.tn")));
+
+        assertTrue(echecs.isEmpty());
+        MimeMessage[] recus = greenMail.getReceivedMessages();
+        assertEquals(3, recus.length);
+        assertEquals("Sujet 1", recus[0].getSubject());
+    }
+
+    @Test
+    void adresseInvalide_seulCetEmailEchoue() {
+        ExpediteurSmtp expediteur = new ExpediteurSmtp(mailSender(ServerSetupTest.SMTP.getPort()));
+
+        Map<Long, String> echecs = expediteur.envoyer(List.of(
+                email(1L, "alice@test.tn"), email(2L, "invalide@"), email(3L, "chloe@test.tn")));
+
+        assertEquals(Set.of(2L), echecs.keySet());
+        assertEquals(2, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void serveurInjoignable_toutLeLotEchoue() {
+        ExpediteurSmtp expediteur = new ExpediteurSmtp(mailSender(ServerSetupTest.SMTP.getPort() + 1));
+
+        Map<Long, String> echecs = expediteur.envoyer(List.of(email(1L, "alice@test.tn"), email(2L, "bob@test.tn")));
+
+        assertEquals(2, echecs.size());
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+
+    private static JavaMailSenderImpl mailSender(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        return mailSender;
+    }
+
+    private static EmailSortant email(Long id, String destinataire) {
+        return EmailSortant.builder()
+                .idEmail(id)
+                .destinataire(destinataire)
+                .sujet("Sujet " + id)
+                .contenuHtml("<p>Bonjour " + id + "</p>")
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package tn.weeding.agenceevenementielle.services.Email;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GabaritsEmailTest {
+
+    private static final GabaritEmail.FormatsLocaux FORMATS =
+            new GabaritEmail.FormatsLocaux(DateTimeFormatter.ofPattern("dd/MM/yyyy"), ',');
+
+    @Test
+    void gabarit_blocsEchappementEtFormats() {
+        GabaritEmail gabarit = GabaritEmail.compiler("test",
+                "{{#google}}G{{/google}}{{^google}}M{{/google}} {{nom}} {{&brut}} {{montant}} {{date}} {{n}}", true);
+        StringBuilder sortie = new StringBuilder();
+
+        gabarit.rendre(Map.of("google", false, "nom", "A&B <x>", "brut", "<b>", "montant", 1234.5,
+                "date", LocalDate.of(2026, 3, 5), "n", 7L), FORMATS, sortie);
+
+        assertEquals("M A&amp;B &lt;x&gt; <b> 1234,50 05/03/2026 7", sortie.toString());
+    }
+
+    @Test
+    void gabarit_syntaxeInvalideRefuseeALaCompilation() {
+        for (String source : new String[]{"{{nom", "{{#a}}texte", "{{#a}}{{/b}}", "{{/a}}", "{{ }}"}) {
+            assertThrows(IllegalArgumentException.class, () -> GabaritEmail.compiler("test", source, false), source);
+        }
+    }
+
+    @Test
+    void gabarit_variableAbsenteSignalee() {
+        GabaritEmail gabarit = GabaritEmail.compiler("test", "Bonjour {{prenom}}", false);
+
+        assertThrows(IllegalArgumentException.class, () -> gabarit.rendre(Map.of(), FORMATS, new StringBuilder()));
+    }
+
+    @Test
+    void montant_arrondiADeuxDecimales() {
+        StringBuilder sortie = new StringBuilder();
+        GabaritEmail.ecrireMontant(0.005, '.', sortie);
+        sortie.append(' ');
+        GabaritEmail.ecrireMontant(-12.3, '.', sortie);
+
+        assertEquals("0.01 -12.30", sortie.toString());
+    }
+
+    @Test
+    void registre_compileLesGabaritsEtRetombeSurLeFrancais() throws Exception {
+        GabaritsEmail gabarits = new GabaritsEmail();
+
+        String message = gabarits.rendre("rappel-acompte-1j", Locale.ENGLISH, Map.of(
+                "prenom", "Amel",
+                "reference", "RES-2026-0001",
+                "dateLimite", LocalDate.of(2026, 3, 5),
+                "montantTotal", 1500.0,
+                "montantRestant", 1000.0));
+        assertTrue(message.startsWith("Bonjour Amel,\n"));
+        assertTrue(message.contains("RES-2026-0001"));
+        assertFalse(message.endsWith("\n"));
+
+        String html = gabarits.rendre("notification", Map.of("prenom", "Amel", "message", message));
+        assertTrue(html.contains("Bonjour <strong>Amel</strong>"));
+        assertThrows(IllegalStateException.class, () -> gabarits.rendre("inconnu", Map.of()));
+    }
+}
@@ -0,0 +1,72 @@
+package tn.weeding.agenceevenementielle.services.Reservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoueTemporelleTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    void minuteur_echoitDansLeTickDeSonEcheance() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(1000, 8, 3, T0);
+        roue.planifier("a", T0 + 3_500);
+
+        assertTrue(roue.avancer(T0 + 3_000).isEmpty());
+        assertEquals(List.of("a"), roue.avancer(T0 + 4_000));
+        assertEquals(0, roue.getTaille());
+    }
+
+    @Test
+    void minuteursLointains_redescendentEtEchoientDansLOrdre() {
+        // 8 cases, 3 niveaux : fenêtres de 8 s, 64 s, 512 s ; au-delà, tours du dernier niveau
+        RoueTemporelle<Integer> roue = new RoueTemporelle<>(1000, 8, 3, T0);
+        Random random = new Random(42);
+        Map<Integer, Long> echeances = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            long echeance = T0 + random.nextInt(2_000_000);
+            echeances.put(i, echeance);
+            roue.planifier(i, echeance);
+        }
+
+        long maintenant = T0;
+        Set<Integer> echus = new HashSet<>();
+        while (echus.size() < echeances.size()) {
+            maintenant += 1000 + random.nextInt(5000);
+            for (Integer cle : roue.avancer(maintenant)) {
+                long echeance = echeances.get(cle);
+                assertTrue(echeance < maintenant, "Échu avant son échéance : " + cle);
+                assertTrue(echeance >= maintenant - 7000, "Échu trop tard : " + cle);
+                assertTrue(echus.add(cle));
+            }
+        }
+        assertEquals(0, roue.getTaille());
+    }
+
+    @Test
+    void annulerEtReplanifier() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(1000, 8, 3, T0);
+        roue.planifier("a", T0 + 100_000);
+        roue.planifier("b", T0 + 2_000);
+
+        assertTrue(roue.annuler("b"));
+        assertFalse(roue.annuler("b"));
+        roue.planifier("a", T0 + 5_000);
+
+        assertEquals(T0 + 5_000, roue.getProchaineEcheance());
+        assertEquals(List.of("a"), roue.avancer(T0 + 6_000));
+        assertTrue(roue.avancer(T0 + 200_000).isEmpty());
+    }
+
+    @Test
+    void echeancePassee_nestPasPlanifiee() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(1000, 8, 3, T0);
+
+        assertFalse(roue.planifier("a", T0 - 10_000));
+        assertEquals(0, roue.getTaille());
+        assertNull(roue.getProchaineEcheance());
+    }
+}
@@ -0,0 +1,99 @@
+package tn.weeding.agenceevenementielle.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.weeding.agenceevenementielle.repository.SequenceCompteurRepository;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de contention : plusieurs threads répartis sur deux "nœuds" (deux instances
+ * du service qui partagent la même table) tirent des numéros dans la même séquence.
+ *
+ * - Aucun doublon, quel que soit le nœud
+ * - Comparaison du débit entre blocs de 1 (un verrou de ligne par numéro) et blocs de 50
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:sequence;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=30000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=" + (SequenceServiceContentionTest.THREADS + 4),
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "logging.level.tn.weeding.agenceevenementielle=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SequenceServiceContentionTest {
+
+    static final int THREADS = 16;
+    private static final int NUMEROS_PAR_THREAD = 250;
+
+    @Autowired private SequenceCompteurRepository sequenceRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Test
+    void deuxNoeuds_sansDoublon_blocsDe1() throws Exception {
+        mesurer("BENCH-1", 1);
+    }
+
+    @Test
+    void deuxNoeuds_sansDoublon_blocsDe50() throws Exception {
+        mesurer("BENCH-50", 50);
+    }
+
+    @Test
+    void initialisation_partDuPlusGrandNumeroExistant() {
+        SequenceService service = new SequenceService(sequenceRepo, transactionManager, 10);
+        long premier = service.suivant("RES-INIT", () -> SequenceService.plusGrandNumero(
+                List.of("RES-2025-0007", "RES-2025-0042", "RES-2025-XX"), "RES-2025-"));
+        assertEquals(43, premier);
+        assertEquals(44, service.suivant("RES-INIT", () -> 0));
+    }
+
+    private void mesurer(String cle, int tailleBloc) throws Exception {
+        SequenceService noeudA = new SequenceService(sequenceRepo, transactionManager, tailleBloc);
+        SequenceService noeudB = new SequenceService(sequenceRepo, transactionManager, tailleBloc);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<List<Long>>> taches = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            SequenceService noeud = t % 2 == 0 ? noeudA : noeudB;
+            taches.add(pool.submit(() -> {
+                depart.await();
+                List<Long> numeros = new ArrayList<>(NUMEROS_PAR_THREAD);
+                for (int i = 0; i < NUMEROS_PAR_THREAD; i++) {
+                    numeros.add(noeud.suivant(cle, () -> 0));
+                }
+                return numeros;
+            }));
+        }
+
+        long debut = System.nanoTime();
+        depart.countDown();
+        Set<Long> tous = new HashSet<>();
+        int total = 0;
+        for (Future<List<Long>> tache : taches) {
+            List<Long> numeros = tache.get(120, TimeUnit.SECONDS);
+            total += numeros.size();
+            tous.addAll(numeros);
+        }
+        double secondes = (System.nanoTime() - debut) / 1e9;
+        pool.shutdown();
+
+        System.out.printf("🔢 Blocs de %d : %d numéros en %.2f s (%.0f numéros/s)%n",
+                tailleBloc, total, secondes, total / secondes);
+
+        assertEquals(THREADS * NUMEROS_PAR_THREAD, total);
+        assertEquals(total, tous.size(), "numéro attribué deux fois");
+        assertTrue(Collections.min(tous) >= 1);
+    }
+}
@@ -0,0 +1,52 @@
+package tn.weeding.agenceevenementielle.services.Stock;
+
+import org.junit.jupiter.api.Test;
+import tn.weeding.agenceevenementielle.entities.InstantaneStock;
+import tn.weeding.agenceevenementielle.entities.enums.TypeMouvement;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EtatStockTest {
+
+    @Test
+    void rejeu_depuisInstantane() {
+        EtatStock etat = EtatStock.depuis(InstantaneStock.builder()
+                .idProduit(1L)
+                .dateInstantane(LocalDate.of(2026, 6, 1))
+                .quantiteDisponible(100)
+                .quantiteReservee(20)
+                .quantiteSortie(0)
+                .quantiteEnMaintenance(null)
+                .build());
+
+        // Réservation douce : le disponible ne bouge pas
+        etat.appliquer(TypeMouvement.RESERVATION, 10, null);
+        etat.appliquer(TypeMouvement.ANNULATION_RESERVATION, 50, null);
+        assertEquals(100, etat.getDisponible());
+        assertEquals(0, etat.getReservee());
+
+        etat.appliquer(TypeMouvement.LIVRAISON, 30, null);
+        etat.appliquer(TypeMouvement.RETOUR, 25, null);
+        assertEquals(95, etat.getDisponible());
+        assertEquals(5, etat.getSortie());
+
+        etat.appliquer(TypeMouvement.MAINTENANCE, 4, null);
+        etat.appliquer(TypeMouvement.RETOUR_MAINTENANCE, 1, null);
+        assertEquals(92, etat.getDisponible());
+        assertEquals(3, etat.getEnMaintenance());
+
+        etat.appliquer(TypeMouvement.AJOUT_STOCK, 8, null);
+        etat.appliquer(TypeMouvement.PRODUIT_ENDOMMAGE, 2, null);
+        assertEquals(98, etat.getDisponible());
+
+        // Ajustement : la quantité après mouvement fait foi
+        EtatStock avant = etat.copie();
+        etat.appliquer(TypeMouvement.AJUSTEMENT_INVENTAIRE, 7, 90);
+        assertEquals(90, etat.getDisponible());
+        assertEquals(98, avant.getDisponible());
+        etat.appliquer(TypeMouvement.CORRECTION, 3, null);
+        assertEquals(90, etat.getDisponible());
+    }
+}
@@ -0,0 +1,163 @@
+package tn.weeding.agenceevenementielle.services.Stock;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import tn.weeding.agenceevenementielle.dto.produit.RapportReconciliationDto.Surreservation;
+import tn.weeding.agenceevenementielle.dto.reservation.LigneReservationRequestDto;
+import tn.weeding.agenceevenementielle.entities.LigneReservation;
+import tn.weeding.agenceevenementielle.entities.MouvementStock;
+import tn.weeding.agenceevenementielle.entities.Produit;
+import tn.weeding.agenceevenementielle.entities.Reservation;
+import tn.weeding.agenceevenementielle.entities.enums.StatutLivraison;
+import tn.weeding.agenceevenementielle.entities.enums.StatutReservation;
+import tn.weeding.agenceevenementielle.entities.enums.TypeMouvement;
+import tn.weeding.agenceevenementielle.entities.enums.TypeProduit;
+import tn.weeding.agenceevenementielle.repository.*;
+import tn.weeding.agenceevenementielle.services.Disponibilite.OccupationProduit.Intervalle;
+import tn.weeding.agenceevenementielle.services.FactureServiceInterface;
+import tn.weeding.agenceevenementielle.services.ProduitServiceInterface;
+import tn.weeding.agenceevenementielle.services.Reservation.InstanceProduitServiceImpl;
+import tn.weeding.agenceevenementielle.services.Reservation.InstanceProduitServiceInterface;
+import tn.weeding.agenceevenementielle.services.Reservation.LigneReservationServiceImpl;
+import tn.weeding.agenceevenementielle.services.Reservation.MontantReservationCalculService;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReconciliationStockServiceTest {
+
+    private static final LocalDate J = LocalDate.of(2026, 6, 1);
+
+    @Test
+    void detecterSurreservations_regroupeLesJoursConsecutifs() {
+        List<Surreservation> surreservations = ReconciliationStockService.detecterSurreservations(1L, "Chaise", null,
+                List.of(
+                        new Intervalle(J, J.plusDays(4), 60),
+                        new Intervalle(J.plusDays(2), J.plusDays(3), 50),
+                        new Intervalle(J.plusDays(3), J.plusDays(6), 45),
+                        new Intervalle(J.plusDays(10), J.plusDays(10), 100)
+                ), 100);
+
+        assertEquals(1, surreservations.size());
+        Surreservation surreservation = surreservations.get(0);
+        assertEquals(J.plusDays(2), surreservation.getDateDebut());
+        assertEquals(J.plusDays(4), surreservation.getDateFin());
+        assertEquals(155, surreservation.getQuantiteReservee());
+        assertEquals(100, surreservation.getCapacite());
+
+        // Même instance sur deux lignes qui se chevauchent
+        List<Surreservation> instance = ReconciliationStockService.detecterSurreservations(2L, "Projecteur", 7L,
+                List.of(new Intervalle(J, J.plusDays(2), 1), new Intervalle(J.plusDays(2), J.plusDays(5), 1)), 1);
+        assertEquals(1, instance.size());
+        assertEquals(7L, instance.get(0).getIdInstance());
+        assertEquals(J.plusDays(2), instance.get(0).getDateDebut());
+        assertEquals(J.plusDays(2), instance.get(0).getDateFin());
+    }
+
+    @Test
+    void rejouer_partDuStockAvantLePremierMouvement() {
+        assertNull(ReconciliationStockService.rejouer(List.of()));
+
+        int disponible = ReconciliationStockService.rejouer(List.of(
+                new Object[]{1L, TypeMouvement.AJOUT_STOCK, 10, 40, 50},
+                new Object[]{1L, TypeMouvement.RESERVATION, 30, null, null},
+                new Object[]{1L, TypeMouvement.LIVRAISON, 30, null, null},
+                new Object[]{1L, TypeMouvement.RETOUR, 28, null, null},
+                new Object[]{1L, TypeMouvement.PRODUIT_ENDOMMAGE, 2, null, null}
+        )).disponible();
+        assertEquals(46, disponible);
+    }
+
+    /**
+     * Journal réellement écrit par LigneReservationServiceImpl : le stock est décrémenté (ajout)
+     * ou réincrémenté (suppression) avant que le mouvement ne soit journalisé
+     */
+    @Test
+    void rejouer_mouvementsDesLignesDeDevis_sansFauxEcart() {
+        Produit produit = new Produit();
+        produit.setIdProduit(1L);
+        produit.setNomProduit("Chaise");
+        produit.setTypeProduit(TypeProduit.EN_QUANTITE);
+        produit.setQuantiteDisponible(50);
+        produit.setPrixUnitaire(2.0);
+
+        Reservation devis = new Reservation();
+        devis.setIdReservation(9L);
+        devis.setReferenceReservation("RES-9");
+        devis.setStatutReservation(StatutReservation.EN_ATTENTE);
+        devis.setStatutLivraisonRes(StatutLivraison.NOT_TODAY);
+
+        ReservationRepository reservationRepo = mock(ReservationRepository.class);
+        ProduitRepository produitRepo = mock(ProduitRepository.class);
+        LigneReservationRepository ligneRepo = mock(LigneReservationRepository.class);
+        ProduitServiceInterface produitService = mock(ProduitServiceInterface.class);
+        JournalMouvementStockService journal = mock(JournalMouvementStockService.class);
+        when(reservationRepo.findById(9L)).thenReturn(Optional.of(devis));
+        when(produitRepo.findById(1L)).thenReturn(Optional.of(produit));
+        when(produitService.calculerQuantiteDisponibleSurPeriode(anyLong(), any(), any())).thenReturn(50);
+        when(ligneRepo.save(any(LigneReservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        LigneReservationServiceImpl lignes = new LigneReservationServiceImpl(ligneRepo, reservationRepo, produitRepo,
+                mock(InstanceProduitRepository.class), mock(InstanceProduitServiceInterface.class),
+                mock(InstanceProduitServiceImpl.class), mock(MontantReservationCalculService.class), produitService,
+                journal, mock(FactureRepository.class), mock(FactureServiceInterface.class),
+                mock(ApplicationEventPublisher.class));
+
+        LocalDate debut = LocalDate.now().plusDays(10);
+        lignes.creerLigneReservation(ligne(10, debut), 9L, "admin");
+        lignes.creerLigneReservation(ligne(5, debut), 9L, "admin");
+
+        LigneReservation supprimee = new LigneReservation();
+        supprimee.setIdLigneReservation(3L);
+        supprimee.setReservation(devis);
+        supprimee.setProduit(produit);
+        supprimee.setQuantite(10);
+        supprimee.setDateDebut(debut);
+        supprimee.setDateFin(debut.plusDays(1));
+        when(ligneRepo.findById(3L)).thenReturn(Optional.of(supprimee));
+        lignes.supprimerLigneReservation(3L, "admin");
+
+        assertEquals(45, produit.getQuantiteDisponible());
+
+        ArgumentCaptor<MouvementStock> ecrits = ArgumentCaptor.forClass(MouvementStock.class);
+        verify(journal, atLeastOnce()).enregistrer(ecrits.capture());
+        List<Object[]> rows = ecrits.getAllValues().stream()
+                .map(m -> new Object[]{1L, m.getTypeMouvement(), m.getQuantite(), m.getQuantiteAvant(), m.getQuantiteApres()})
+                .toList();
+        assertEquals(List.of(TypeMouvement.RESERVATION, TypeMouvement.RESERVATION,
+                TypeMouvement.ANNULATION_RESERVATION), rows.stream().map(row -> row[1]).toList());
+
+        ReconciliationStockService.Rejeu rejeu = ReconciliationStockService.rejouer(rows);
+        assertEquals(45, rejeu.disponible());
+    }
+
+    @Test
+    void dernierMouvementSansEffet_nEstPasUnEcart() {
+        // Livraison "informative" : journalisée (50 -> 40) sans toucher au stock
+        ReconciliationStockService.Rejeu rejeu = ReconciliationStockService.rejouer(List.of(
+                new Object[]{1L, TypeMouvement.AJOUT_STOCK, 10, 40, 50},
+                new Object[]{1L, TypeMouvement.LIVRAISON, 10, 50, 40}
+        ));
+        assertEquals(40, rejeu.disponible());
+        assertTrue(ReconciliationStockService.dernierMouvementSansEffet(TypeProduit.EN_QUANTITE, rejeu, 50));
+        assertFalse(ReconciliationStockService.dernierMouvementSansEffet(TypeProduit.EN_QUANTITE, rejeu, 47));
+
+        assertFalse(ReconciliationStockService.estReparable(TypeProduit.EN_QUANTITE));
+        assertTrue(ReconciliationStockService.estReparable(TypeProduit.AVEC_REFERENCE));
+    }
+
+    private static LigneReservationRequestDto ligne(int quantite, LocalDate debut) {
+        return LigneReservationRequestDto.builder()
+                .idProduit(1L)
+                .quantite(quantite)
+                .dateDebut(debut)
+                .dateFin(debut.plusDays(1))
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+package tn.weeding.agenceevenementielle.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.weeding.agenceevenementielle.entities.ExecutionTache;
+import tn.weeding.agenceevenementielle.entities.enums.StatutExecutionTache;
+import tn.weeding.agenceevenementielle.repository.ExecutionTacheRepository;
+import tn.weeding.agenceevenementielle.scheduling.CoordinationTaches;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Entretien de execution_tache sur une vraie base (H2) : exécutions abandonnées et rétention
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:suivitaches;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "logging.level.tn.weeding.agenceevenementielle=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SuiviTachesServiceEntretienTest {
+
+    @Autowired private ExecutionTacheRepository executionRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Test
+    void entretenir_interromptLesExecutionsAbandonneesEtPurgeLHistorique() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        Long abandonnee = executer(maintenant.minusHours(7), StatutExecutionTache.EN_COURS);
+        Long enCours = executer(maintenant.minusMinutes(10), StatutExecutionTache.EN_COURS);
+        Long terminee = executer(maintenant.minusDays(2), StatutExecutionTache.TERMINEE);
+        Long ancienne = executer(maintenant.minusDays(91), StatutExecutionTache.TERMINEE);
+        Long ancienneEnCours = executer(maintenant.minusDays(120), StatutExecutionTache.EN_COURS);
+
+        SuiviTachesService suivi = new SuiviTachesService(executionRepo, new SimpleMeterRegistry(),
+                mock(CoordinationTaches.class), transactionManager, 6, 90);
+        SuiviTachesService.Entretien entretien = suivi.entretenir();
+
+        assertEquals(2, entretien.interrompues());
+        assertEquals(2, entretien.supprimees());
+
+        ExecutionTache interrompue = executionRepo.findById(abandonnee).orElseThrow();
+        assertEquals(StatutExecutionTache.INTERROMPUE, interrompue.getStatut());
+        assertNotNull(interrompue.getDateFin());
+        assertNotNull(interrompue.getMessageErreur());
+        assertEquals(StatutExecutionTache.EN_COURS, executionRepo.findById(enCours).orElseThrow().getStatut());
+        assertEquals(StatutExecutionTache.TERMINEE, executionRepo.findById(terminee).orElseThrow().getStatut());
+        assertTrue(executionRepo.findById(ancienne).isEmpty());
+        assertTrue(executionRepo.findById(ancienneEnCours).isEmpty());
+
+        // Une seconde passe ne retouche rien
+        assertEquals(new SuiviTachesService.Entretien(0, 0), suivi.entretenir());
+    }
+
+    private Long executer(LocalDateTime debut, StatutExecutionTache statut) {
+        return executionRepo.save(ExecutionTache.builder()
+                .nomTache("job")
+                .noeud("noeud-arrete")
+                .dateDebut(debut)
+                .statut(statut)
+                .build()).getIdExecution();
+    }
+}
@@ -0,0 +1,57 @@
+package tn.weeding.agenceevenementielle.services;
+
+import org.junit.jupiter.api.Test;
+import tn.weeding.agenceevenementielle.dto.taches.StatistiquesTacheDto;
+import tn.weeding.agenceevenementielle.entities.ExecutionTache;
+import tn.weeding.agenceevenementielle.entities.enums.StatutExecutionTache;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuiviTachesServiceTest {
+
+    @Test
+    void percentile_rangLePlusProche() {
+        List<Long> triees = LongStream.rangeClosed(1, 100).boxed().toList();
+
+        assertEquals(50L, SuiviTachesService.percentile(triees, 0.50));
+        assertEquals(99L, SuiviTachesService.percentile(triees, 0.99));
+        assertEquals(7L, SuiviTachesService.percentile(List.of(7L), 0.99));
+        assertNull(SuiviTachesService.percentile(List.of(), 0.50));
+    }
+
+    @Test
+    void statistiques_ignorentLesExecutionsEnCours() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<ExecutionTache> executions = new ArrayList<>();
+        executions.add(execution(maintenant, StatutExecutionTache.EN_COURS, null, 0));
+        executions.add(execution(maintenant.minusHours(1), StatutExecutionTache.ECHEC, 300L, 10));
+        executions.add(execution(maintenant.minusHours(2), StatutExecutionTache.TERMINEE, 100L, 20));
+        executions.add(execution(maintenant.minusHours(3), StatutExecutionTache.TERMINEE, 200L, 30));
+
+        StatistiquesTacheDto statistiques = SuiviTachesService.calculerStatistiques("job", executions);
+
+        assertEquals(3, statistiques.getNombreExecutions());
+        assertEquals(1, statistiques.getNombreEchecs());
+        assertEquals(StatutExecutionTache.EN_COURS, statistiques.getDernierStatut());
+        assertEquals(200L, statistiques.getDureeP50Ms());
+        assertEquals(300L, statistiques.getDureeP99Ms());
+        assertEquals(300L, statistiques.getDureeMaxMs());
+        assertEquals(20L, statistiques.getMoyenneLignesLues());
+    }
+
+    private static ExecutionTache execution(LocalDateTime debut, StatutExecutionTache statut, Long dureeMs, long lues) {
+        return ExecutionTache.builder()
+                .nomTache("job")
+                .dateDebut(debut)
+                .statut(statut)
+                .dureeMs(dureeMs)
+                .lignesLues(lues)
+                .lignesModifiees(0L)
+                .build();
+    }
+}